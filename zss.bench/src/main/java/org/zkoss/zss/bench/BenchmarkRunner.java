@@ -0,0 +1,37 @@
+/* BenchmarkRunner.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 8:40:12 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results in JSON, so the results of
+ * releases can be compared.
+ * <p>Usage: BenchmarkRunner [result-file [include-regexp]]</p>
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws RunnerException {
+		final String result = args.length > 0 ? args[0] : "jmh-result.json";
+		final String include = args.length > 1 ? args[1] : ".*";
+		final Options options = new OptionsBuilder()
+			.include("org\\.zkoss\\.zss\\..*" + include) //a few are in the packages they measure
+			.resultFormat(ResultFormatType.JSON)
+			.result(result)
+			.build();
+		new Runner(options).run();
+	}
+}
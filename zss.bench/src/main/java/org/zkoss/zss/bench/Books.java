@@ -0,0 +1,99 @@
+/* Books.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 8:46:35 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XRanges;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.model.sys.impl.ExcelImporter;
+
+/**
+ * Loads the workbooks of the unit tests (copied to the book/ resources by
+ * the build) and generates synthetic sheets for the benchmarks.
+ */
+public class Books {
+	private Books() {
+	}
+
+	/**
+	 * Loads a workbook of zss.test, e.g. "blank.xls" or "excelsortsample.xlsx".
+	 */
+	public static XBook load(String name) {
+		final InputStream is = Books.class.getResourceAsStream("book/" + name);
+		if (is == null) {
+			throw new IllegalArgumentException("Workbook not found: " + name);
+		}
+		try {
+			return new ExcelImporter().imports(is, name);
+		} catch (IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		} finally {
+			try {
+				is.close();
+			} catch (IOException e) {
+				//ignore
+			}
+		}
+	}
+
+	/**
+	 * Fills random numbers into the area (without going through XRange, so no
+	 * dependency is tracked).
+	 */
+	public static void fillNumbers(XSheet sheet, int tRow, int lCol, int bRow, int rCol, Random random) {
+		for (int r = tRow; r <= bRow; ++r) {
+			Row row = sheet.getRow(r);
+			if (row == null) {
+				row = sheet.createRow(r);
+			}
+			for (int c = lCol; c <= rCol; ++c) {
+				Cell cell = row.getCell(c);
+				if (cell == null) {
+					cell = row.createCell(c);
+				}
+				cell.setCellValue(random.nextInt(100000) / 100d);
+			}
+		}
+	}
+
+	/**
+	 * Fills the column with formulas; each formula refers the cell of the
+	 * previous column in the same row and a window of rows above, e.g.
+	 * <code>=B5+SUM(B1:B5)</code>, so a long dependency chain is built
+	 * and tracked as the formulas are entered by user.
+	 */
+	public static void fillFormulas(XSheet sheet, int col, int tRow, int bRow, int window) {
+		final String prev = columnName(col - 1);
+		for (int r = tRow; r <= bRow; ++r) {
+			final int top = Math.max(tRow, r - window + 1);
+			XRanges.range(sheet, r, col).setEditText("=" + prev + (r + 1) + "+SUM(" + prev + (top + 1) + ":" + prev + (r + 1) + ")");
+		}
+	}
+
+	/**
+	 * Returns the column name, e.g. "A" of 0 and "AA" of 26.
+	 */
+	public static String columnName(int col) {
+		final StringBuilder sb = new StringBuilder();
+		for (int c = col + 1; c > 0; c = (c - 1) / 26) {
+			sb.insert(0, (char) ('A' + (c - 1) % 26));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,95 @@
+/* EvalAllBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 10:41:36 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.model.sys.impl.SheetCtrl;
+
+/**
+ * Measures {@link SheetCtrl#evalAll()} of every sheet of a multi-sheet book,
+ * on the calling thread and in parallel (see
+ * {@link XBook#setParallelEvaluation(boolean)}). Each sheet has independent
+ * columns of formula chains, e.g. <code>=C4+SUM(B1:B5)</code>, and a
+ * column summarizing the previous sheet; the cached results of the evaluator
+ * are cleared first, as after a change of the source data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalAllBenchmark {
+	private static final int CHAINS = 8;
+
+	@Param({"10", "50"})
+	public int sheets;
+
+	@Param({"500"})
+	public int rows;
+
+	@Param({"false", "true"})
+	public boolean parallel;
+
+	private XBook _book;
+
+	@Setup
+	public void setUp() {
+		_book = Books.load("blank.xls");
+		_book.setParallelEvaluation(parallel);
+		while (_book.getNumberOfSheets() < sheets) {
+			_book.createSheet("Sheet" + (_book.getNumberOfSheets() + 1));
+		}
+		final Random random = new Random(20080318L);
+		for (int s = 0; s < sheets; ++s) {
+			final XSheet sheet = _book.getWorksheetAt(s);
+			Books.fillNumbers(sheet, 0, 0, rows - 1, 0, random);
+			//formulas set on the cells directly, so the dependencies are not known yet
+			for (int r = 0; r < rows; ++r) {
+				final Row row = sheet.getRow(r);
+				final int n = r + 1;
+				for (int c = 1; c <= CHAINS; ++c) {
+					final String col = Books.columnName(c);
+					row.createCell(c).setCellFormula((r == 0 ? "0" : col + r) + "+SUM(A" + Math.max(1, n - 4) + ":A" + n + ")*" + c);
+				}
+				if (s > 0) {
+					row.createCell(CHAINS + 1).setCellFormula("'" + _book.getSheetName(s - 1) + "'!B" + n + "*2");
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void evalAll() {
+		_book.getFormulaEvaluator().clearAllCachedResultValues();
+		for (int s = 0; s < sheets; ++s) {
+			((SheetCtrl) _book.getWorksheetAt(s)).evalAll();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/* EvaluateBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 8:58:41 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.model.sys.impl.BookHelper;
+
+/**
+ * Measures {@link BookHelper#evaluate(XBook, Cell)} of a column of formulas
+ * depending on each other, with the cached results of the evaluator cleared
+ * first, as after a change of the source data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+	@Param({"1000", "5000"})
+	public int rows;
+
+	@Param({"1", "20"})
+	public int window;
+
+	private XBook _book;
+	private Cell[] _cells;
+
+	@Setup
+	public void setUp() {
+		_book = Books.load("blank.xls");
+		final XSheet sheet = _book.getWorksheetAt(0);
+		Books.fillNumbers(sheet, 0, 0, rows - 1, 0, new Random(20080318L));
+		Books.fillFormulas(sheet, 1, 0, rows - 1, window);
+		Books.fillFormulas(sheet, 2, 0, rows - 1, window);
+		_cells = new Cell[rows];
+		for (int r = 0; r < rows; ++r) {
+			_cells[r] = sheet.getRow(r).getCell(2);
+		}
+	}
+
+	@Benchmark
+	public void evaluate(Blackhole bh) {
+		_book.getFormulaEvaluator().clearAllCachedResultValues();
+		for (Cell cell : _cells) {
+			bh.consume(BookHelper.evaluate(_book, cell));
+		}
+	}
+}
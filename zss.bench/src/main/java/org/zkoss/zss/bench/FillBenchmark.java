@@ -0,0 +1,82 @@
+/* FillBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 3:41:18 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XRange;
+import org.zkoss.zss.model.sys.XRanges;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Measures {@link XRange#fillDown()} of a formula and of a number over a
+ * column of an xlsx sheet, and the filled formulas further copied with
+ * {@link XRange#fillRight()}; the sheet is loaded again before each call, so
+ * every call fills empty cells.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FillBenchmark {
+	private static final int COLS = 10;
+
+	@Param({"10000", "100000"})
+	public int rows;
+
+	private XSheet _sheet;
+
+	@Setup(Level.Invocation)
+	public void setUp() {
+		final XBook book = Books.load("blank.xlsx");
+		_sheet = book.getWorksheetAt(0);
+		Books.fillNumbers(_sheet, 0, 0, rows - 1, 0, new Random(20080318L));
+		XRanges.range(_sheet, 0, 1).setEditText("=A1*2+$A$1");
+		XRanges.range(_sheet, 0, 2).setEditText("1");
+	}
+
+	@Benchmark
+	public XSheet fillDownFormula() {
+		XRanges.range(_sheet, 0, 1, rows - 1, 1).fillDown();
+		return _sheet;
+	}
+
+	@Benchmark
+	public XSheet fillDownValue() {
+		XRanges.range(_sheet, 0, 2, rows - 1, 2).fillDown();
+		return _sheet;
+	}
+
+	@Benchmark
+	public XSheet fillRightFormula() {
+		XRanges.range(_sheet, 0, 1, rows - 1, 1).fillDown();
+		XRanges.range(_sheet, 0, 1, rows - 1, COLS).fillRight();
+		return _sheet;
+	}
+}
@@ -0,0 +1,111 @@
+/* FormatBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 10:40:22 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zkoss.poi.ss.format.CellFormat;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.CellStyle;
+import org.zkoss.poi.ss.usermodel.DataFormatter;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.poi.ss.usermodel.ZssContext;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.model.sys.impl.BookHelper;
+import org.zkoss.zss.model.sys.impl.FormatCache;
+
+/**
+ * Measures the formatting of a 10k-cell block (500 rows x 20 columns) of
+ * mixed date, currency and percent formats: {@link BookHelper#getFormatText}
+ * and {@link BookHelper#getText} with the compiled formats of
+ * {@link FormatCache}, against compiling the formats for every cell.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+	private static final String[] FORMATS = {"yyyy/mm/dd", "mmm d, yyyy h:mm AM/PM", "\"$\"#,##0.00",
+		"\"$\"#,##0.00_);[Red](\"$\"#,##0.00)", "0.00%", "0%", "#,##0.000", "General"};
+
+	private Cell[] _cells;
+	private Locale _locale;
+
+	@Setup
+	public void setUp() {
+		final XBook book = Books.load("blank.xls");
+		final XSheet sheet = book.getWorksheetAt(0);
+		final CellStyle[] styles = new CellStyle[FORMATS.length];
+		for (int j = 0; j < FORMATS.length; ++j) {
+			styles[j] = book.createCellStyle();
+			styles[j].setDataFormat(book.createDataFormat().getFormat(FORMATS[j]));
+		}
+		final Random random = new Random(20080318L);
+		_cells = new Cell[500 * 20];
+		int j = 0;
+		for (int r = 0; r < 500; ++r) {
+			final Row row = sheet.createRow(r);
+			for (int c = 0; c < 20; ++c) {
+				final Cell cell = row.createCell(c);
+				cell.setCellValue(random.nextInt(50000) - 5000 + random.nextInt(10000) / 10000d);
+				cell.setCellStyle(styles[random.nextInt(styles.length)]);
+				_cells[j++] = cell;
+			}
+		}
+		_locale = ZssContext.getCurrent().getLocale();
+	}
+
+	@Benchmark
+	public void cached(Blackhole bh) {
+		for (Cell cell : _cells) {
+			bh.consume(BookHelper.getFormatText(cell));
+		}
+	}
+
+	@Benchmark
+	public void compiledPerCell(Blackhole bh) {
+		for (Cell cell : _cells) {
+			bh.consume(CellFormat.getInstance(cell.getCellStyle().getDataFormatString(), _locale).apply(cell));
+		}
+	}
+
+	@Benchmark
+	public void cachedText(Blackhole bh) {
+		for (Cell cell : _cells) {
+			bh.consume(BookHelper.getText(cell));
+		}
+	}
+
+	@Benchmark
+	public void textCompiledPerCell(Blackhole bh) {
+		for (Cell cell : _cells) {
+			bh.consume(new DataFormatter(_locale, false).formatCellValue(cell, cell.getCellType()));
+		}
+	}
+}
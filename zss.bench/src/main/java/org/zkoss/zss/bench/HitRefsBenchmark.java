@@ -0,0 +1,83 @@
+/* HitRefsBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 8:52:10 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zkoss.zss.engine.RefSheet;
+import org.zkoss.zss.engine.impl.RefBookImpl;
+
+/**
+ * Measures {@link RefSheet#getHitRefs(int, int)}, which is called for every
+ * changed cell to find the references (and so the formulas) it hits.
+ * References are random areas of the size a formula usually refers, from a
+ * single cell to a few hundreds rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HitRefsBenchmark {
+	private static final int ROWS = 10000;
+	private static final int COLS = 50;
+	private static final int PROBES = 1024;
+
+	@Param({"1000", "10000", "100000"})
+	public int refs;
+
+	private RefSheet _refSheet;
+	private int[] _rows;
+	private int[] _cols;
+
+	@Setup
+	public void setUp() {
+		final Random random = new Random(20080318L);
+		_refSheet = new RefBookImpl("book1", 65535, 255).getOrCreateRefSheet("Sheet1");
+		for (int j = 0; j < refs; ++j) {
+			final int tRow = random.nextInt(ROWS);
+			final int lCol = random.nextInt(COLS);
+			final int height = random.nextInt(4) == 0 ? random.nextInt(300) : 0;
+			final int width = random.nextInt(4) == 0 ? random.nextInt(5) : 0;
+			_refSheet.getOrCreateRef(tRow, lCol, tRow + height, lCol + width);
+		}
+		_rows = new int[PROBES];
+		_cols = new int[PROBES];
+		for (int j = 0; j < PROBES; ++j) {
+			_rows[j] = random.nextInt(ROWS);
+			_cols[j] = random.nextInt(COLS);
+		}
+		_refSheet.getHitRefs(0, 0); //build the index before measuring
+	}
+
+	@Benchmark
+	public void getHitRefs(Blackhole bh) {
+		for (int j = 0; j < PROBES; ++j) {
+			bh.consume(_refSheet.getHitRefs(_rows[j], _cols[j]));
+		}
+	}
+}
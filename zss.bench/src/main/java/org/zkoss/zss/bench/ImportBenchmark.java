@@ -0,0 +1,172 @@
+/* ImportBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 2:21:40 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.util.logging.Log;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.poi.ss.usermodel.Sheet;
+import org.zkoss.poi.xssf.streaming.SXSSFWorkbook;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XImporter;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.model.sys.impl.BookHelper;
+import org.zkoss.zss.model.sys.impl.ExcelImporter;
+import org.zkoss.zss.model.sys.impl.StreamingExcelImporter;
+
+/**
+ * Measures the time to the first render of a generated xlsx file, that is
+ * the import plus the formatting of the cells of the first screen, with
+ * {@link ExcelImporter} and {@link StreamingExcelImporter}.
+ * <p>The peak heap of the imports is not measured by JMH; run the main
+ * method for it, which logs the time and peak heap of each importer:
+ * ImportBenchmark [rows]</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ImportBenchmark {
+	private static final Log log = Log.lookup(ImportBenchmark.class);
+	private static final int COLS = 20;
+	private static final int SCREEN_ROWS = 50;
+
+	@Param({"10000", "100000"})
+	public int rows;
+
+	private File _file;
+
+	@Setup
+	public void setUp() throws IOException {
+		_file = newWorkbook(rows);
+	}
+
+	@TearDown
+	public void tearDown() {
+		_file.delete();
+	}
+
+	@Benchmark
+	public int importDom() throws IOException {
+		return firstRender(new ExcelImporter(), _file);
+	}
+
+	@Benchmark
+	public int importStreaming() throws IOException {
+		return firstRender(new StreamingExcelImporter(), _file);
+	}
+
+	/**
+	 * Imports the file and formats the cells of the first screen; returns the
+	 * length of the texts.
+	 */
+	private static int firstRender(XImporter importer, File file) throws IOException {
+		final XBook book = importer.imports(file);
+		final XSheet sheet = book.getWorksheetAt(0);
+		int length = 0;
+		for (int r = 0; r < SCREEN_ROWS; ++r) {
+			final Row row = sheet.getRow(r);
+			for (int c = 0; c < COLS; ++c) {
+				length += BookHelper.getCellText(row.getCell(c)).length();
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Writes a workbook of numbers, texts (repeated 1000 distinct ones) and
+	 * formulas into a temporary file.
+	 */
+	/*package*/ static File newWorkbook(int rows) throws IOException {
+		final Random random = new Random(20080318L);
+		final SXSSFWorkbook wb = new SXSSFWorkbook(100);
+		final Sheet sheet = wb.createSheet("data");
+		for (int r = 0; r < rows; ++r) {
+			final Row row = sheet.createRow(r);
+			for (int c = 0; c < COLS; ++c) {
+				final Cell cell = row.createCell(c);
+				switch (c % 4) {
+				case 0:
+				case 1:
+					cell.setCellValue(random.nextInt(100000) / 100d);
+					break;
+				case 2:
+					cell.setCellValue("item " + random.nextInt(1000));
+					break;
+				default:
+					cell.setCellFormula(Books.columnName(c - 3) + (r + 1) + "*2");
+				}
+			}
+		}
+		final File file = File.createTempFile("zssbench", ".xlsx");
+		final OutputStream os = new FileOutputStream(file);
+		try {
+			wb.write(os);
+		} finally {
+			os.close();
+			wb.dispose();
+		}
+		return file;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		final File file = newWorkbook(rows);
+		try {
+			for (XImporter importer : new XImporter[] {new ExcelImporter(), new StreamingExcelImporter()}) {
+				System.gc();
+				for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+					pool.resetPeakUsage();
+				}
+				final long start = System.nanoTime();
+				firstRender(importer, file);
+				final long time = System.nanoTime() - start;
+				long peak = 0;
+				for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+					if (pool.getType() == MemoryType.HEAP) {
+						peak += pool.getPeakUsage().getUsed();
+					}
+				}
+				log.info(importer.getClass().getSimpleName() + ": " + rows + " rows, "
+					+ TimeUnit.NANOSECONDS.toMillis(time) + " ms to the first render, peak heap "
+					+ (peak >> 20) + " MB");
+			}
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/* InsertRowsBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 5:14:20 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XRange;
+import org.zkoss.zss.model.sys.XRanges;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Measures {@link XRange#insert(int, int)} and {@link XRange#delete(int)}
+ * of a row of a large xlsx sheet of numbers, where every row below is
+ * shifted; the inserted row is deleted again, and the deleted row inserted
+ * again, before the next call. The row is at the top or near the bottom
+ * ({@link #at}), the shifting is still linear in the number of rows below.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class InsertRowsBenchmark {
+	private static final int COLS = 10;
+
+	@Param({"10000", "100000"})
+	public int rows;
+
+	@Param({"top", "bottom"})
+	public String at;
+
+	private XSheet _sheet;
+	private boolean _inserted;
+	private boolean _deleted;
+
+	@Setup
+	public void setUp() {
+		final XBook book = Books.load("blank.xlsx");
+		_sheet = book.getWorksheetAt(0);
+		Books.fillNumbers(_sheet, 0, 0, rows - 1, COLS - 1, new Random(20080318L));
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		if (_inserted) {
+			editedRow().delete(XRange.SHIFT_DEFAULT);
+			_inserted = false;
+		}
+		if (_deleted) {
+			editedRow().insert(XRange.SHIFT_DEFAULT, XRange.FORMAT_NONE);
+			_deleted = false;
+		}
+	}
+
+	@Benchmark
+	public XSheet insertRow() {
+		editedRow().insert(XRange.SHIFT_DEFAULT, XRange.FORMAT_NONE);
+		_inserted = true;
+		return _sheet;
+	}
+
+	@Benchmark
+	public XSheet deleteRow() {
+		editedRow().delete(XRange.SHIFT_DEFAULT);
+		_deleted = true;
+		return _sheet;
+	}
+
+	private XRange editedRow() {
+		return XRanges.range(_sheet, "top".equals(at) ? 0 : rows - 100, 0).getRows();
+	}
+}
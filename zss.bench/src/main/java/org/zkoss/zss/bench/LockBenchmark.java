@@ -0,0 +1,94 @@
+/* LockBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 4:18:40 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.util.logging.Log;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XBookLock;
+import org.zkoss.zss.model.sys.XRanges;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Measures the readers of a shared xls book, which get the formatted text
+ * of cells, while a writer sets cell values; the contention of the book's
+ * {@link XBookLock} is logged after each trial.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockBenchmark {
+	private static final Log log = Log.lookup(LockBenchmark.class);
+	private static final int ROWS = 1000;
+
+	private XSheet _sheet;
+
+	@Setup
+	public void setUp() {
+		final XBook book = Books.load("blank.xls");
+		_sheet = book.getWorksheetAt(0);
+		Books.fillNumbers(_sheet, 0, 0, ROWS - 1, 0, new Random(20080318L));
+		Books.fillFormulas(_sheet, 1, 0, ROWS - 1, 10);
+		book.getLock().resetStatistics();
+	}
+
+	@TearDown
+	public void tearDown() {
+		final XBookLock lock = _sheet.getBook().getLock();
+		log.info("acquired: " + lock.getAcquiredCount()
+			+ ", contended: " + lock.getContendedCount()
+			+ ", waited: " + lock.getWaitTime(TimeUnit.MILLISECONDS) + "ms");
+	}
+
+	@Benchmark
+	@Group("shared")
+	@GroupThreads(4)
+	public String read(Rows state) {
+		return XRanges.range(_sheet, state.next(), 1).getFormatText().getCellFormatResult().text;
+	}
+
+	@Benchmark
+	@Group("shared")
+	@GroupThreads(1)
+	public XSheet write(Rows state) {
+		XRanges.range(_sheet, state.next(), 0).setValue(state.random.nextInt(1000));
+		return _sheet;
+	}
+
+	@State(Scope.Thread)
+	public static class Rows {
+		private final Random random = new Random(20080318L);
+
+		private int next() {
+			return random.nextInt(ROWS);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/* RangeBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 9:05:27 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.zss.engine.Ref;
+import org.zkoss.zss.engine.RefSheet;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XRange;
+import org.zkoss.zss.model.sys.XRanges;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.model.sys.impl.BookHelper;
+
+/**
+ * Measures the range operations on a sheet of numbers with two columns of
+ * dependent formulas: {@link XRange#setValue(Object)} of a source cell
+ * (including the re-evaluation of its dependents), the write of the whole
+ * data block cell by cell against {@link XRange#setValues(Object[][])},
+ * {@link BookHelper#sort}
+ * of the data and {@link BookHelper#insertRows} in the middle of the data.
+ * The sorted numbers are shuffled and the inserted rows are deleted again
+ * before the next call, so every call works on the same amount of data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeBenchmark {
+	private static final int COLS = 10;
+	private static final int WINDOW = 10;
+	private static final int INSERTED_ROWS = 10;
+
+	@Param({"200", "1000"})
+	public int rows;
+
+	private Random _random;
+	private XBook _book;
+	private XSheet _sheet;
+	private boolean _sorted;
+	private boolean _inserted;
+
+	@Setup
+	public void setUp() {
+		_random = new Random(20080318L);
+		_book = Books.load("blank.xls");
+		_sheet = _book.getWorksheetAt(0);
+		Books.fillNumbers(_sheet, 0, 0, rows - 1, COLS - 1, _random);
+		Books.fillFormulas(_sheet, COLS, 0, rows - 1, WINDOW);
+		Books.fillFormulas(_sheet, COLS + 1, 0, rows - 1, WINDOW);
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		if (_sorted) {
+			Books.fillNumbers(_sheet, 0, 0, rows - 1, COLS - 1, _random);
+			_sorted = false;
+		}
+		if (_inserted) {
+			BookHelper.deleteRows(_sheet, rows / 2, INSERTED_ROWS);
+			_inserted = false;
+		}
+	}
+
+	@Benchmark
+	public void setValue() {
+		XRanges.range(_sheet, _random.nextInt(rows), COLS - 1).setValue(Double.valueOf(_random.nextInt(1000)));
+	}
+
+	@Benchmark
+	public void setValueEach() {
+		final Object[][] values = newValues();
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < COLS; ++c) {
+				XRanges.range(_sheet, r, c).setValue(values[r][c]);
+			}
+		}
+	}
+
+	@Benchmark
+	public void setValues() {
+		XRanges.range(_sheet, 0, 0).setValues(newValues());
+	}
+
+	private Object[][] newValues() {
+		final Object[][] values = new Object[rows][COLS];
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < COLS; ++c) {
+				values[r][c] = Double.valueOf(_random.nextInt(1000));
+			}
+		}
+		return values;
+	}
+
+	@Benchmark
+	public Object sort() {
+		final RefSheet refSheet = BookHelper.getRefSheet(_book, _sheet);
+		final Ref key = refSheet.getOrCreateRef(0, 0, rows - 1, 0);
+		final Object info = BookHelper.sort(_sheet, 0, 0, rows - 1, COLS - 1,
+			key, false, null, 0, false, null, false, BookHelper.SORT_HEADER_NO, 0,
+			false, false, 0, BookHelper.SORT_NORMAL_DEFAULT, BookHelper.SORT_NORMAL_DEFAULT, BookHelper.SORT_NORMAL_DEFAULT);
+		_sorted = true;
+		return info;
+	}
+
+	@Benchmark
+	public Object insertRows() {
+		final Object info = BookHelper.insertRows(_sheet, rows / 2, INSERTED_ROWS, XRange.FORMAT_LEFTABOVE);
+		_inserted = true;
+		return info;
+	}
+}
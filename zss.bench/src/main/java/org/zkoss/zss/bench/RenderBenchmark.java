@@ -0,0 +1,80 @@
+/* RenderBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 9:14:03 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.zats.mimic.DesktopAgent;
+import org.zkoss.zats.mimic.Zats;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.ui.Spreadsheet;
+import org.zkoss.zss.ui.sys.SpreadsheetCtrl;
+import org.zkoss.zss.ui.sys.SpreadsheetCtrl.CellAttribute;
+import org.zkoss.zss.ui.sys.SpreadsheetCtrl.Header;
+
+/**
+ * Measures {@link SpreadsheetCtrl#getRangeAttrs}, which generates the JSON
+ * of a block of cells sent to the client when the user scrolls, on the
+ * first sheet of TestFile2007.xlsx (displayed by /display.zul of the
+ * zss.test web application).
+ * <p>The web application directory is given by the system property
+ * "zss.bench.webapp"; "../zss.test/src/main/webapp" by default.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+	private SpreadsheetCtrl _ctrl;
+	private XSheet _sheet;
+
+	@Setup
+	public void setUp() {
+		Zats.init(System.getProperty("zss.bench.webapp", "../zss.test/src/main/webapp"));
+		final DesktopAgent desktop = Zats.newClient().connect("/display.zul");
+		final Spreadsheet spreadsheet = desktop.query("spreadsheet").as(Spreadsheet.class);
+		_ctrl = (SpreadsheetCtrl) spreadsheet.getExtraCtrl();
+		_sheet = spreadsheet.getSelectedXSheet();
+	}
+
+	@TearDown
+	public void tearDown() {
+		Zats.cleanup();
+		Zats.end();
+	}
+
+	@Benchmark
+	public Object getRangeAttrs() {
+		return _ctrl.getRangeAttrs(_sheet, Header.BOTH, CellAttribute.ALL, 0, 0,
+			SpreadsheetCtrl.DEFAULT_LOAD_COLUMN_SIZE - 1, SpreadsheetCtrl.DEFAULT_LOAD_ROW_SIZE - 1);
+	}
+
+	@Benchmark
+	public Object getRangeAttrsText() {
+		return _ctrl.getRangeAttrs(_sheet, Header.NONE, CellAttribute.TEXT, 0, 0,
+			SpreadsheetCtrl.DEFAULT_LOAD_COLUMN_SIZE - 1, SpreadsheetCtrl.DEFAULT_LOAD_ROW_SIZE - 1);
+	}
+}
@@ -0,0 +1,85 @@
+/* UndoBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 5:53:36 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.util.logging.Log;
+import org.zkoss.zss.api.model.Sheet;
+import org.zkoss.zss.api.model.impl.SheetImpl;
+import org.zkoss.zss.api.model.impl.SimpleRef;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.ui.impl.undo.ReserveUtil;
+import org.zkoss.zss.ui.impl.undo.ReserveUtil.ReservedResult;
+
+/**
+ * Measures the reservation of an area of numbers and formulas in an xls
+ * sheet for undo, as clearing the area does, and the restoration of the
+ * area, which clears it before setting the reserved cells back; the
+ * estimated size of the reservation is logged once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class UndoBenchmark {
+	private static final Log log = Log.lookup(UndoBenchmark.class);
+	private static final int COLS = 10;
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	private Sheet _sheet;
+	private ReservedResult _reserved;
+
+	@Setup
+	public void setUp() {
+		final XBook book = Books.load("blank.xls");
+		final XSheet sheet = book.getWorksheetAt(0);
+		Books.fillNumbers(sheet, 0, 0, rows - 1, COLS - 2, new Random(20080318L));
+		Books.fillFormulas(sheet, COLS - 1, 0, rows - 1, 10);
+		_sheet = new SheetImpl(new SimpleRef<XBook>(book), new SimpleRef<XSheet>(sheet));
+		_reserved = reserve();
+		log.info("reserved " + rows * COLS + " cells: " + _reserved.getEstimatedSize() + " bytes");
+	}
+
+	@Benchmark
+	public ReservedResult reserveArea() {
+		return reserve();
+	}
+
+	@Benchmark
+	public Sheet restoreArea() {
+		_reserved.restore();
+		return _sheet;
+	}
+
+	private ReservedResult reserve() {
+		return ReserveUtil.reserve(_sheet, 0, 0, rows - 1, COLS - 1, ReserveUtil.RESERVE_ALL);
+	}
+}
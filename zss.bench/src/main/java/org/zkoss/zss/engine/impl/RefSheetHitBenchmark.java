@@ -0,0 +1,90 @@
+/* RefSheetHitBenchmark.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 11:05:12 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.engine.impl;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link RefSheetImpl#getHitRefs(int, int)} (served by
+ * {@link RefHitIndex}) against the four ordered lists scanning
+ * {@link RefSheetImpl#scanHitRefs(int, int)} it replaced; in this package to
+ * reach the scanning.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefSheetHitBenchmark {
+	private static final int REFS = 50000;
+	private static final int HITS = 1000;
+	private static final int MAXROW = 64*1024-1;
+	private static final int MAXCOL = 255;
+
+	private RefSheetImpl _sheet;
+	private int[] _rows;
+	private int[] _cols;
+
+	@Setup
+	public void setUp() {
+		final RefBookImpl book = new RefBookImpl("book1", MAXROW, MAXCOL);
+		_sheet = (RefSheetImpl) book.getOrCreateRefSheet("sheet1");
+		final Random random = new Random(20100306L);
+		//formula like model: mostly single cells and short column ranges
+		for (int j = 0; j < REFS; ++j) {
+			final int row = random.nextInt(MAXROW - 64);
+			final int col = random.nextInt(MAXCOL - 8);
+			if (j % 4 == 0) {
+				_sheet.getOrCreateRef(row, col, row + random.nextInt(64), col + random.nextInt(8));
+			} else {
+				_sheet.getOrCreateRef(row, col, row, col);
+			}
+		}
+		_rows = new int[HITS];
+		_cols = new int[HITS];
+		for (int j = 0; j < HITS; ++j) {
+			_rows[j] = random.nextInt(MAXROW);
+			_cols[j] = random.nextInt(MAXCOL);
+		}
+		_sheet.getHitRefs(0, 0); //build the index before measuring
+	}
+
+	@Benchmark
+	public void scanHitRefs(Blackhole bh) {
+		for (int j = 0; j < HITS; ++j) {
+			bh.consume(_sheet.scanHitRefs(_rows[j], _cols[j]));
+		}
+	}
+
+	@Benchmark
+	public void getHitRefs(Blackhole bh) {
+		for (int j = 0; j < HITS; ++j) {
+			bh.consume(_sheet.getHitRefs(_rows[j], _cols[j]));
+		}
+	}
+}
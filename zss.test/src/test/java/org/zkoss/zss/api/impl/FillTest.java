@@ -107,6 +107,30 @@ public class FillTest {
 		testFillDown(book);
 	}
 	
+	@Test
+	public void testFillDownFormula2003() throws IOException {
+		Book book = Util.loadBook(this,"book/blank.xls");
+		testFillDownFormula(book);
+	}
+	
+	@Test
+	public void testFillDownFormula2007() throws IOException {
+		Book book = Util.loadBook(this,"book/blank.xlsx");
+		testFillDownFormula(book);
+	}
+	
+	@Test
+	public void testFillRightFormula2003() throws IOException {
+		Book book = Util.loadBook(this,"book/blank.xls");
+		testFillRightFormula(book);
+	}
+	
+	@Test
+	public void testFillRightFormula2007() throws IOException {
+		Book book = Util.loadBook(this,"book/blank.xlsx");
+		testFillRightFormula(book);
+	}
+	
 	
 	protected void testFillDown(Book workbook) throws IOException {
 		Sheet sheet = workbook.getSheet("Sheet1");
@@ -121,6 +145,41 @@ public class FillTest {
 		assertEquals("1", Ranges.range(sheet, "A5").getCellEditText());
 	}
 	
+	protected void testFillDownFormula(Book workbook) throws IOException {
+		Sheet sheet = workbook.getSheet("Sheet1");
+		for (int r = 1; r <= 5; ++r) {
+			Ranges.range(sheet, "A" + r).setCellEditText(String.valueOf(r));
+		}
+		Ranges.range(sheet, "B1").setCellEditText("=A1*$A$1*2");
+		Ranges.range(sheet, "C1").setCellEditText("=SUM(B1:B5)");
+		assertEquals("2", Ranges.range(sheet, "C1").getCellFormatText());
+		Ranges.range(sheet, "B1:B5").fillDown();
+		
+		assertEquals("=A2*$A$1*2", Ranges.range(sheet, "B2").getCellEditText());
+		assertEquals("=A5*$A$1*2", Ranges.range(sheet, "B5").getCellEditText());
+		assertEquals("8", Ranges.range(sheet, "B4").getCellFormatText());
+		//the dependents of the filled cells are evaluated
+		assertEquals("30", Ranges.range(sheet, "C1").getCellFormatText());
+		//the precedents of the filled formulas are registered
+		Ranges.range(sheet, "A3").setCellEditText("10");
+		assertEquals("20", Ranges.range(sheet, "B3").getCellFormatText());
+		assertEquals("44", Ranges.range(sheet, "C1").getCellFormatText());
+	}
+	
+	protected void testFillRightFormula(Book workbook) throws IOException {
+		Sheet sheet = workbook.getSheet("Sheet1");
+		for (int c = 0; c < 5; ++c) {
+			Ranges.range(sheet, 0, c).setCellEditText(String.valueOf(c + 1));
+		}
+		Ranges.range(sheet, "A2").setCellEditText("=SUM($A1:A1)");
+		Ranges.range(sheet, "A2:E2").fillRight();
+		
+		assertEquals("=SUM($A1:E1)", Ranges.range(sheet, "E2").getCellEditText());
+		assertEquals("6", Ranges.range(sheet, "C2").getCellFormatText());
+		Ranges.range(sheet, "B1").setCellEditText("20");
+		assertEquals("33", Ranges.range(sheet, "E2").getCellFormatText());
+	}
+	
 	protected void testFillUp(Book workbook) throws IOException {
 		Sheet sheet = workbook.getSheet("Sheet1");
 		Range rA5 = Ranges.range(sheet, "A5");
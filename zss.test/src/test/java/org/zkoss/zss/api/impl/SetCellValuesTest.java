@@ -0,0 +1,82 @@
+/* SetCellValuesTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 11:06:40 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.poi.ss.usermodel.DateUtil;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.Range;
+import org.zkoss.zss.api.Ranges;
+import org.zkoss.zss.api.model.Book;
+import org.zkoss.zss.api.model.CellData.CellType;
+import org.zkoss.zss.api.model.Sheet;
+
+/**
+ * Unit test for {@link Range#setCellValues(Object[][])}.
+ */
+public class SetCellValuesTest {
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Test
+	public void testValues() throws IOException {
+		final Book book = Util.loadBook(this, "book/blank.xls");
+		final Sheet sheet = book.getSheetAt(0);
+		final Date date = new Date(100, 0, 1);
+		Ranges.range(sheet, "B2").setCellValue("old");
+		Ranges.range(sheet, "C3").setCellValue("old");
+		Ranges.range(sheet, "B2:D3").setCellValues(new Object[][] {
+			{1, "abc", Boolean.TRUE},
+			{date, null}});
+
+		assertEquals(1d, Ranges.range(sheet, "B2").getCellData().getDoubleValue(), 0);
+		assertEquals("abc", Ranges.range(sheet, "C2").getCellData().getStringValue());
+		assertEquals(Boolean.TRUE, Ranges.range(sheet, "D2").getCellData().getBooleanValue());
+		assertEquals(DateUtil.getExcelDate(date), Ranges.range(sheet, "B3").getCellData().getDoubleValue(), 0);
+		assertEquals(CellType.BLANK, Ranges.range(sheet, "C3").getCellData().getType());
+		assertNull(Ranges.range(sheet, "D3").getCellData().getValue());
+	}
+
+	@Test
+	public void testRecalculate() throws IOException {
+		final Book book = Util.loadBook(this, "book/blank.xls");
+		final Sheet sheet = book.getSheetAt(0);
+		Ranges.range(sheet, "D1").setCellEditText("=SUM(A1:C2)");
+		Ranges.range(sheet, "D2").setCellEditText("=D1*2");
+		Ranges.range(sheet, "E1").setCellEditText("=A2");
+		assertEquals(0d, Ranges.range(sheet, "D2").getCellData().getDoubleValue(), 0);
+
+		Ranges.range(sheet, "A1").setCellValues(new Object[][] {
+			{1, 2, 3},
+			{4, 5, 6}});
+		assertEquals(21d, Ranges.range(sheet, "D1").getCellData().getDoubleValue(), 0);
+		assertEquals(42d, Ranges.range(sheet, "D2").getCellData().getDoubleValue(), 0);
+		assertEquals(4d, Ranges.range(sheet, "E1").getCellData().getDoubleValue(), 0);
+
+		//the formula of a written cell is replaced by the value
+		Ranges.range(sheet, "D1").setCellValues(new Object[][] {{"x"}});
+		assertEquals("x", Ranges.range(sheet, "D1").getCellData().getStringValue());
+		assertEquals(CellType.ERROR, Ranges.range(sheet, "D2").getCellData().getResultType());
+	}
+}
@@ -0,0 +1,206 @@
+/* SyncLevelTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 4:02:35 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.Range;
+import org.zkoss.zss.api.Range.SyncLevel;
+import org.zkoss.zss.api.RangeRunner;
+import org.zkoss.zss.api.Ranges;
+import org.zkoss.zss.api.model.Book;
+import org.zkoss.zss.api.model.Sheet;
+import org.zkoss.zss.api.model.impl.BookImpl;
+import org.zkoss.zss.engine.Ref;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XBookLock;
+import org.zkoss.zss.model.sys.XBookSeries;
+import org.zkoss.zss.model.sys.impl.BookHelper;
+
+/**
+ * Unit test for the read/write lock of a book taken by {@link Range}
+ * (see {@link XBookLock}).
+ */
+public class SyncLevelTest {
+	private Sheet _sheet;
+	private XBookLock _lock;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		final Book book = Util.loadBook(this, "book/blank.xls");
+		_sheet = book.getSheetAt(0);
+		_lock = ((BookImpl)book).getNative().getLock();
+		Ranges.range(_sheet, "A1").setCellEditText("1");
+		Ranges.range(_sheet, "A2").setCellEditText("=A1+1");
+	}
+
+	@Test
+	public void testReadersShareBook() throws InterruptedException {
+		final Reader reader = new Reader();
+		reader.start();
+		assertTrue(reader.entered.await(5, TimeUnit.SECONDS));
+		//reads while the other reader holds the lock
+		assertEquals("=A1+1", Ranges.range(_sheet, "A2").getCellEditText());
+		assertEquals("2", Ranges.range(_sheet, "A2").getCellFormatText());
+		reader.done.countDown();
+		reader.join();
+		assertFalse(reader.timeout);
+	}
+
+	@Test
+	public void testWriterWaitsForReaders() throws InterruptedException {
+		final Reader reader = new Reader();
+		reader.start();
+		assertTrue(reader.entered.await(5, TimeUnit.SECONDS));
+		final long contended = _lock.getContendedCount();
+		final Thread writer = new Thread() {
+			public void run() {
+				Ranges.range(_sheet, "A1").setCellEditText("5");
+			}
+		};
+		writer.start();
+		for (int j = 0; j < 500 && _lock.getContendedCount() == contended; ++j) {
+			Thread.sleep(10);
+		}
+		assertEquals(contended + 1, _lock.getContendedCount());
+		assertTrue(writer.isAlive());
+		reader.done.countDown();
+		writer.join();
+		reader.join();
+		assertEquals("6", Ranges.range(_sheet, "A2").getCellFormatText());
+	}
+
+	@Test
+	public void testReaderWaitsForQueuedWriter() throws InterruptedException {
+		final Reader reader = new Reader();
+		reader.start();
+		assertTrue(reader.entered.await(5, TimeUnit.SECONDS));
+		final Thread writer = new Thread() {
+			public void run() {
+				_lock.writeLock().lock();
+				_lock.writeLock().unlock();
+			}
+		};
+		writer.start();
+		waitForBlocked(writer);
+		final CountDownLatch read = new CountDownLatch(1);
+		final Thread reader2 = new Thread() {
+			public void run() {
+				_lock.readLock().lock();
+				read.countDown();
+				_lock.readLock().unlock();
+			}
+		};
+		reader2.start();
+		//a new reader doesn't barge past the queued writer
+		assertFalse(read.await(200, TimeUnit.MILLISECONDS));
+		reader.done.countDown();
+		assertTrue(read.await(5, TimeUnit.SECONDS));
+		writer.join();
+		reader2.join();
+		reader.join();
+	}
+
+	@Test
+	public void testNoUpgrade() {
+		final Range range = Ranges.range(_sheet, "A1");
+		range.setSyncLevel(SyncLevel.READ);
+		final boolean[] failed = new boolean[1];
+		range.sync(new RangeRunner() {
+			public void run(Range range) {
+				try {
+					Ranges.range(_sheet, "A1").setCellEditText("5");
+				} catch (IllegalStateException e) {
+					failed[0] = true;
+				}
+			}
+		});
+		//instead of waiting for itself forever
+		assertTrue(failed[0]);
+		assertEquals(0, _lock.getReadHoldCount());
+		Ranges.range(_sheet, "A1").setCellEditText("5");
+		assertEquals("6", Ranges.range(_sheet, "A2").getCellFormatText());
+	}
+
+	@Test
+	public void testBookSeriesShareLock() throws IOException {
+		final XBook book1 = ((BookImpl)_sheet.getBook()).getNative();
+		final XBook book2 = ((BookImpl)Util.loadBook(this, "book/blank.xls")).getNative();
+		final XBookSeries series = new XBookSeries() {
+			public XBook getBook(String bookName) {
+				return book1.getBookName().equals(bookName) ? book1 : book2;
+			}
+			public Set<Ref> clear() {
+				return Collections.emptySet();
+			}
+		};
+		BookHelper.setBookSeries(book1, series);
+		BookHelper.setBookSeries(book2, series);
+		//the formulas of a book evaluate those of the other
+		assertSame(book1.getLock(), book2.getLock());
+		assertNotSame(_lock, book1.getLock());
+
+		BookHelper.setBookSeries(book1, null);
+		assertSame(_lock, book1.getLock());
+		assertNotSame(_lock, book2.getLock());
+	}
+
+	private static void waitForBlocked(Thread thread) throws InterruptedException {
+		for (int j = 0; j < 500 && thread.getState() != Thread.State.WAITING; ++j) {
+			Thread.sleep(10);
+		}
+		assertEquals(Thread.State.WAITING, thread.getState());
+	}
+
+	//holds the read lock of the book until done
+	private class Reader extends Thread {
+		private final CountDownLatch entered = new CountDownLatch(1);
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile boolean timeout;
+
+		public void run() {
+			final Range range = Ranges.range(_sheet);
+			range.setSyncLevel(SyncLevel.READ);
+			range.sync(new RangeRunner() {
+				public void run(Range range) {
+					entered.countDown();
+					try {
+						timeout = !done.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						timeout = true;
+					}
+				}
+			});
+		}
+	}
+}
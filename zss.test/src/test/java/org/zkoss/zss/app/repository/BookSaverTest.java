@@ -0,0 +1,191 @@
+/* BookSaverTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 9:41:05 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.app.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.lang.Library;
+import org.zkoss.zk.ui.Desktop;
+import org.zkoss.zk.ui.event.Event;
+import org.zkoss.zk.ui.event.EventListener;
+import org.zkoss.zk.ui.event.EventQueue;
+import org.zkoss.zk.ui.sys.DesktopCtrl;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.model.Book;
+import org.zkoss.zss.app.repository.impl.SimpleRepository;
+import org.zkoss.zss.engine.RefBook;
+import org.zkoss.zss.engine.event.SSDataEvent;
+import org.zkoss.zss.engine.impl.RefBookImpl;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.impl.BookCtrl;
+import org.zkoss.zss.model.sys.impl.BookCtrlImpl;
+
+/**
+ * Unit test for saving a book in background with {@link BookSaver}, whose
+ * reference book has a desktop event queue as in a ZK application.
+ */
+public class BookSaverTest {
+	//the tasks scheduled to the desktop by server push, {listener, event}
+	private static final BlockingQueue<Object[]> _scheduled = new LinkedBlockingQueue<Object[]>();
+	//the events published to the queue of the book
+	private static final List<Event> _published = new ArrayList<Event>();
+	private static boolean _inExecution;
+	private static final Desktop _desktop = newDesktop();
+
+	private String _bookCtrl;
+	private File _root;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Before
+	public void setUp() {
+		_bookCtrl = Library.setProperty(BookCtrl.CLASS, QueuedBookCtrl.class.getName());
+		_root = Setup.getTempFile("booksaver", "");
+		_root.delete();
+		_root.mkdirs();
+		_scheduled.clear();
+		_published.clear();
+	}
+
+	@After
+	public void tearDown() {
+		Library.setProperty(BookCtrl.CLASS, _bookCtrl);
+		for (File f : _root.listFiles()) {
+			f.delete();
+		}
+		_root.delete();
+	}
+
+	@Test
+	public void testSaveInBackground() throws Exception {
+		final Book book = Util.loadBook(this, "/org/zkoss/zss/api/impl/book/blank.xls");
+		final BookSaver saver = new BookSaver(new SimpleRepository(_root), 1);
+		try {
+			final List<Event> results = new ArrayList<Event>();
+			saver.saveAs("saved", book, _desktop, new EventListener<Event>() {
+				public void onEvent(Event event) {
+					results.add(event);
+				}
+			});
+			//run the scheduled tasks in the execution of the desktop, as the server push does
+			while (results.isEmpty()) {
+				final Object[] task = _scheduled.poll(10, TimeUnit.SECONDS);
+				assertNotNull("the save is not done", task);
+				runInExecution(task);
+			}
+			assertEquals(String.valueOf(results.get(0).getData()), BookSaver.ON_SAVE, results.get(0).getName());
+			assertTrue(new File(_root, "saved.xls").length() > 0);
+			assertEquals(1, _published.size());
+			assertEquals(SSDataEvent.ON_BOOK_EXPORT, _published.get(0).getName());
+		} finally {
+			saver.shutdown();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void runInExecution(Object[] task) throws Exception {
+		_inExecution = true;
+		try {
+			((EventListener<Event>) task[0]).onEvent((Event) task[1]);
+		} finally {
+			_inExecution = false;
+		}
+	}
+
+	private static Desktop newDesktop() {
+		return (Desktop) Proxy.newProxyInstance(BookSaverTest.class.getClassLoader(),
+			new Class[] {Desktop.class, DesktopCtrl.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				final String name = method.getName();
+				if ("scheduleServerPush".equals(name)) {
+					_scheduled.add(args);
+				} else if ("isServerPushEnabled".equals(name) || "isAlive".equals(name)) {
+					return true;
+				} else if ("equals".equals(name)) {
+					return proxy == args[0];
+				} else if ("hashCode".equals(name)) {
+					return System.identityHashCode(proxy);
+				} else if ("toString".equals(name)) {
+					return "desktop";
+				}
+				return null;
+			}
+		});
+	}
+
+	public static class QueuedBookCtrl extends BookCtrlImpl {
+		@Override
+		public synchronized RefBook newRefBook(XBook book) {
+			return new RefBookImpl(book.getBookName(), book.getSpreadsheetVersion().getLastRowIndex(), book.getSpreadsheetVersion().getLastColumnIndex()) {
+				@Override
+				protected EventQueue getEventQueue() {
+					return DesktopQueue.INSTANCE;
+				}
+				@Override
+				protected Desktop getDesktop() {
+					return _desktop;
+				}
+			};
+		}
+	}
+
+	//like a desktop scoped queue, it can be published only in an execution of its desktop
+	@SuppressWarnings("rawtypes")
+	private static class DesktopQueue implements EventQueue {
+		private static final DesktopQueue INSTANCE = new DesktopQueue();
+
+		public void publish(Event event) {
+			if (!_inExecution) {
+				throw new ClassCastException("not in an execution of the desktop");
+			}
+			_published.add(event);
+		}
+		public void subscribe(EventListener listener) {
+		}
+		public void subscribe(EventListener listener, EventListener callback) {
+		}
+		public void subscribe(EventListener listener, boolean async) {
+		}
+		public boolean unsubscribe(EventListener listener) {
+			return false;
+		}
+		public boolean isSubscribed(EventListener listener) {
+			return false;
+		}
+		public void close() {
+		}
+		public boolean isClose() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/* ContentChangeBatchTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 4:58:30 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zkoss.zk.ui.event.Event;
+import org.zkoss.zk.ui.event.EventListener;
+import org.zkoss.zk.ui.event.EventQueue;
+import org.zkoss.zss.engine.Ref;
+import org.zkoss.zss.engine.event.SSDataEvent;
+
+/**
+ * Unit test for {@link ContentChangeBatch}.
+ */
+public class ContentChangeBatchTest {
+	private RefBookImpl _book;
+	private ContentChangeBatch _batch;
+
+	@Before
+	public void setUp() throws Exception {
+		_book = new RefBookImpl("book1", 64*1024-1, 255);
+		_batch = new ContentChangeBatch();
+	}
+
+	@Test
+	public void testPastedBlock() {
+		final RefSheetImpl sheet = (RefSheetImpl) _book.getOrCreateRefSheet("sheet1");
+		_batch.start();
+		//1000x20 block, cell by cell
+		for (int r = 10; r < 1010; ++r) {
+			for (int c = 3; c < 23; ++c) {
+				assertTrue(_batch.add(contentChange(new CellRefImpl(r, c, sheet))));
+			}
+		}
+		assertTrue(_batch.end());
+		final List<SSDataEvent> events = _batch.drain();
+		assertEquals(1, events.size());
+		assertArea(10, 3, 1009, 22, events.get(0).getRef());
+		assertTrue(_batch.isEmpty());
+	}
+
+	@Test
+	public void testPerSheet() {
+		final RefSheetImpl sheet1 = (RefSheetImpl) _book.getOrCreateRefSheet("sheet1");
+		final RefSheetImpl sheet2 = (RefSheetImpl) _book.getOrCreateRefSheet("sheet2");
+		_batch.start();
+		_batch.add(contentChange(new CellRefImpl(0, 0, sheet1)));
+		_batch.add(contentChange(new CellRefImpl(0, 0, sheet2)));
+		_batch.add(contentChange(new CellRefImpl(1, 0, sheet1)));
+		_batch.add(contentChange(new CellRefImpl(0, 0, sheet1))); //duplicated
+		final List<SSDataEvent> events = _batch.drain();
+		assertEquals(2, events.size());
+		assertEquals(sheet1, events.get(0).getRef().getOwnerSheet());
+		assertArea(0, 0, 1, 0, events.get(0).getRef());
+		assertEquals(sheet2, events.get(1).getRef().getOwnerSheet());
+		assertArea(0, 0, 0, 0, events.get(1).getRef());
+	}
+
+	@Test
+	public void testNotCollected() {
+		final RefSheetImpl sheet = (RefSheetImpl) _book.getOrCreateRefSheet("sheet1");
+		final Ref ref = new CellRefImpl(0, 0, sheet);
+		assertFalse(_batch.add(new SSDataEvent(SSDataEvent.ON_SIZE_CHANGE, ref, SSDataEvent.MOVE_NO)));
+		assertFalse(_batch.add(new SSDataEvent(SSDataEvent.ON_CONTENTS_CHANGE, ref, SSDataEvent.MOVE_V)));
+		assertFalse(_batch.add(new SSDataEvent(SSDataEvent.ON_CONTENTS_CHANGE, new VarRefImpl("x", sheet), SSDataEvent.MOVE_NO)));
+		assertTrue(_batch.isEmpty());
+	}
+
+	@Test
+	public void testNestedBatch() {
+		_batch.start();
+		_batch.start();
+		assertFalse(_batch.end());
+		assertTrue(_batch.isActive());
+		assertTrue(_batch.end());
+		assertFalse(_batch.isActive());
+	}
+
+	@Test
+	public void testBatchPerThread() throws InterruptedException {
+		final RecordingQueue queue = new RecordingQueue();
+		final RefBookImpl book = new RefBookImpl("book2", 64*1024-1, 255) {
+			@Override
+			protected EventQueue getEventQueue() {
+				return queue;
+			}
+		};
+		final RefSheetImpl sheet = (RefSheetImpl) book.getOrCreateRefSheet("sheet1");
+		book.startPublishBatch();
+		book.publish(contentChange(new CellRefImpl(0, 0, sheet)));
+		//published by another thread, e.g. a reader of the book, is not collected
+		final Thread other = new Thread() {
+			public void run() {
+				book.publish(contentChange(new CellRefImpl(5, 5, sheet)));
+			}
+		};
+		other.start();
+		other.join();
+		assertEquals(1, queue.events.size());
+		assertArea(5, 5, 5, 5, ((SSDataEvent) queue.events.get(0)).getRef());
+		book.publish(contentChange(new CellRefImpl(1, 0, sheet)));
+		book.endPublishBatch();
+		assertEquals(2, queue.events.size());
+		assertArea(0, 0, 1, 0, ((SSDataEvent) queue.events.get(1)).getRef());
+		//no batch is left behind
+		book.publish(contentChange(new CellRefImpl(2, 0, sheet)));
+		assertEquals(3, queue.events.size());
+	}
+
+	@Test
+	public void testCoalesceScattered() {
+		final Random random = new Random(20101125L);
+		final List<int[]> areas = new ArrayList<int[]>();
+		final boolean[][] changed = new boolean[500][100];
+		for (int j = 0; j < 3000; ++j) {
+			final int row = random.nextInt(500);
+			final int col = random.nextInt(100);
+			areas.add(new int[] {row, col, row, col});
+			changed[row][col] = true;
+		}
+		final List<int[]> result = ContentChangeBatch.coalesce(areas, ContentChangeBatch.MAX_AREAS);
+		assertTrue(result.size() <= ContentChangeBatch.MAX_AREAS);
+		//every changed cell is covered
+		for (int row = 0; row < 500; ++row) {
+			for (int col = 0; col < 100; ++col) {
+				if (changed[row][col]) {
+					assertTrue(covered(result, row, col));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCoalesceExact() {
+		final List<int[]> areas = new ArrayList<int[]>();
+		areas.add(new int[] {0, 0, 0, 0});
+		areas.add(new int[] {5, 5, 5, 5});
+		areas.add(new int[] {0, 1, 0, 1});
+		areas.add(new int[] {1, 0, 1, 1});
+		final List<int[]> result = ContentChangeBatch.coalesce(areas, ContentChangeBatch.MAX_AREAS);
+		//A1:B2 plus F6; no unchanged cell is included when not needed
+		assertEquals(3, result.size());
+		assertTrue(covered(result, 0, 0) && covered(result, 0, 1) && covered(result, 1, 0)
+			&& covered(result, 1, 1) && covered(result, 5, 5));
+		assertFalse(covered(result, 2, 0));
+		assertFalse(covered(result, 3, 3));
+	}
+
+	private static boolean covered(List<int[]> areas, int row, int col) {
+		for (int[] area : areas) {
+			if (area[0] <= row && row <= area[2] && area[1] <= col && col <= area[3]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static class RecordingQueue implements EventQueue {
+		private final List<Event> events = Collections.synchronizedList(new ArrayList<Event>());
+
+		public void publish(Event event) {
+			events.add(event);
+		}
+		public void subscribe(EventListener listener) {
+		}
+		public void subscribe(EventListener listener, EventListener callback) {
+		}
+		public void subscribe(EventListener listener, boolean async) {
+		}
+		public boolean unsubscribe(EventListener listener) {
+			return false;
+		}
+		public boolean isSubscribed(EventListener listener) {
+			return false;
+		}
+		public void close() {
+		}
+		public boolean isClose() {
+			return false;
+		}
+	}
+
+	private static SSDataEvent contentChange(Ref ref) {
+		return new SSDataEvent(SSDataEvent.ON_CONTENTS_CHANGE, ref, SSDataEvent.MOVE_NO);
+	}
+
+	private static void assertArea(int tRow, int lCol, int bRow, int rCol, Ref ref) {
+		assertEquals(tRow, ref.getTopRow());
+		assertEquals(lCol, ref.getLeftCol());
+		assertEquals(bRow, ref.getBottomRow());
+		assertEquals(rCol, ref.getRightCol());
+	}
+}
@@ -0,0 +1,94 @@
+/* RefAddrMapTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 4:05:51 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zkoss.zss.engine.Ref;
+
+/**
+ * Unit test for {@link RefAddrMap}.
+ */
+public class RefAddrMapTest {
+	private RefSheetImpl _sheet;
+	private RefAddrMap _map;
+
+	@Before
+	public void setUp() throws Exception {
+		_sheet = (RefSheetImpl) new RefBookImpl("book1", 1024*1024-1, 16*1024-1).getOrCreateRefSheet("sheet1");
+		_map = new RefAddrMap();
+	}
+
+	@Test
+	public void testCellAndArea() {
+		final Ref cell = new CellRefImpl(3, 4, _sheet);
+		final Ref area = new AreaRefImpl(3, 4, 5, 6, _sheet);
+		assertNull(_map.put(3, 4, 3, 4, cell));
+		assertNull(_map.put(3, 4, 5, 6, area));
+		assertEquals(2, _map.size());
+		assertSame(cell, _map.get(3, 4, 3, 4));
+		assertSame(area, _map.get(3, 4, 5, 6));
+		assertNull(_map.get(4, 3, 4, 3));
+		assertNull(_map.get(3, 4, 6, 5));
+
+		//address beyond 16 bits
+		final Ref big = new AreaRefImpl(1024*1024-2, 16*1024-2, 1024*1024-1, 16*1024-1, _sheet);
+		assertNull(_map.put(1024*1024-2, 16*1024-2, 1024*1024-1, 16*1024-1, big));
+		assertSame(big, _map.get(1024*1024-2, 16*1024-2, 1024*1024-1, 16*1024-1));
+
+		assertSame(cell, _map.remove(3, 4, 3, 4));
+		assertNull(_map.remove(3, 4, 3, 4));
+		assertNull(_map.get(3, 4, 3, 4));
+		assertSame(area, _map.get(3, 4, 5, 6));
+		assertEquals(2, _map.size());
+		assertEquals(new HashSet<Ref>(Arrays.asList(area, big)), new HashSet<Ref>(_map.values()));
+	}
+
+	@Test
+	public void testRandomAgainstHashMap() {
+		final Random random = new Random(20101119L);
+		final Map<RefAddr, Ref> expected = new HashMap<RefAddr, Ref>();
+		for (int j = 0; j < 200000; ++j) {
+			//small address space to get both hits and collisions
+			final int tRow = random.nextInt(64);
+			final int lCol = random.nextInt(16);
+			final int bRow = tRow + random.nextInt(2);
+			final int rCol = lCol + random.nextInt(2);
+			final RefAddr addr = new RefAddr(tRow, lCol, bRow, rCol);
+			switch (random.nextInt(3)) {
+			case 0:
+				final Ref ref = new AreaRefImpl(tRow, lCol, bRow, rCol, _sheet);
+				assertSame(expected.put(addr, ref), _map.put(tRow, lCol, bRow, rCol, ref));
+				break;
+			case 1:
+				assertSame(expected.remove(addr), _map.remove(tRow, lCol, bRow, rCol));
+				break;
+			default:
+				assertSame(expected.get(addr), _map.get(tRow, lCol, bRow, rCol));
+			}
+			assertEquals(expected.size(), _map.size());
+		}
+		assertEquals(new HashSet<Ref>(expected.values()), new HashSet<Ref>(_map.values()));
+	}
+}
@@ -20,8 +20,10 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
@@ -197,6 +199,92 @@ public class RefSheetTest {
 		}
 	}
 	
+	@Test
+	public void testGetHitRefsIndexConsistency() {
+		List<Ref> refs = new ArrayList<Ref>(5000);
+		//randomly generate refs (enough to build the hit index and keep pending ones)
+		for(int j = 0; j < 5000; ++j) {
+			refs.add(createRandomRef(4096, 200));
+		}
+		assertSameHits(4096, 200);
+		
+		//remove some and add some more after the index is built
+		for(int j = 0; j < 500; ++j) {
+			Ref ref = refs.remove(_random.nextInt(refs.size()));
+			_sheet.removeRef(ref.getTopRow(), ref.getLeftCol(), ref.getBottomRow(), ref.getRightCol());
+			refs.add(createRandomRef(4096, 200));
+			if (j % 50 == 0) {
+				assertSameHits(4096, 200);
+			}
+		}
+		assertSameHits(4096, 200);
+		
+		//structural changes shift the refs
+		_sheet.insertRows(100, 10);
+		assertSameHits(4096, 200);
+		_sheet.deleteRows(50, 20);
+		assertSameHits(4096, 200);
+		_sheet.insertColumns(30, 5);
+		assertSameHits(4096, 200);
+		_sheet.deleteColumns(10, 3);
+		assertSameHits(4096, 200);
+		_sheet.moveRange(200, 20, 300, 40, 10, 0);
+		assertSameHits(4096, 200);
+	}
+	
+	@Test
+	public void testGetAreaHitRefs() {
+		Set<Ref> refs = new HashSet<Ref>();
+		for(int j = 0; j < 3000; ++j) {
+			refs.add(createRandomRef(4096, 200));
+		}
+		assertSameAreaHits(refs, 4096, 200);
+		
+		//remove some after the index is built
+		Iterator<Ref> it = refs.iterator();
+		for(int j = 0; j < 300; ++j) {
+			Ref ref = it.next();
+			it.remove();
+			_sheet.removeRef(ref.getTopRow(), ref.getLeftCol(), ref.getBottomRow(), ref.getRightCol());
+		}
+		assertSameAreaHits(refs, 4096, 200);
+	}
+	
+	private void assertSameAreaHits(Set<Ref> refs, int maxrow, int maxcol) {
+		for (int j = 0; j < 200; ++j) {
+			int tRow = _random.nextInt(maxrow);
+			int lCol = _random.nextInt(maxcol);
+			int bRow = Math.min(maxrow - 1, tRow + _random.nextInt(100));
+			int rCol = Math.min(maxcol - 1, lCol + _random.nextInt(20));
+			Set<Ref> expected = new HashSet<Ref>();
+			for (Ref ref : refs) {
+				if (ref.getTopRow() <= bRow && ref.getBottomRow() >= tRow
+					&& ref.getLeftCol() <= rCol && ref.getRightCol() >= lCol) {
+					expected.add(ref);
+				}
+			}
+			assertEquals(expected, _sheet.getHitRefs(tRow, lCol, bRow, rCol));
+		}
+		//a single cell area is the same as the point query
+		assertEquals(_sheet.getHitRefs(7, 9), _sheet.getHitRefs(7, 9, 7, 9));
+	}
+	
+	private Ref createRandomRef(int maxrow, int maxcol) {
+		int row1 = _random.nextInt(maxrow);
+		int col1 = _random.nextInt(maxcol);
+		int row2 = Math.min(maxrow - 1, row1 + _random.nextInt(64));
+		int col2 = Math.min(maxcol - 1, col1 + _random.nextInt(16));
+		return _sheet.getOrCreateRef(row1, col1, row2, col2);
+	}
+	
+	private void assertSameHits(int maxrow, int maxcol) {
+		for (int j = 0; j < 1000; ++j) {
+			int row = _random.nextInt(maxrow);
+			int col = _random.nextInt(maxcol);
+			assertEquals(_sheet.scanHitRefs(row, col), _sheet.getHitRefs(row, col));
+		}
+	}
+	
 	@Test
 	public void testAddDependency() {
 		//D1, A1:C1
@@ -276,6 +364,65 @@ public class RefSheetTest {
 		
 	}
 	
+	@Test
+	public void testGetEvaluationOrderDiamond() {
+		//B1=A1, C1=A1, D1=B1+C1, E1=D1
+		_sheet.addDependency(0, 1, null, 0, 0, 0, 0);
+		_sheet.addDependency(0, 2, null, 0, 0, 0, 0);
+		_sheet.addDependency(0, 3, null, 0, 1, 0, 1);
+		_sheet.addDependency(0, 3, null, 0, 2, 0, 2);
+		_sheet.addDependency(0, 4, null, 0, 3, 0, 3);
+
+		Set<Ref> all = _sheet.getAllDependents(0, 0); //change A1
+		assertEquals(4, all.size()); //B1, C1, D1, E1
+		Set<Ref> cyclic = new HashSet<Ref>();
+		List<Ref> order = DependencyTrackerHelper.getEvaluationOrder(all, cyclic);
+		assertTrue(cyclic.isEmpty());
+		assertEquals(4, order.size());
+		int b1 = order.indexOf(_sheet.getRef(0, 1, 0, 1));
+		int c1 = order.indexOf(_sheet.getRef(0, 2, 0, 2));
+		int d1 = order.indexOf(_sheet.getRef(0, 3, 0, 3));
+		int e1 = order.indexOf(_sheet.getRef(0, 4, 0, 4));
+		assertTrue(b1 < d1 && c1 < d1 && d1 < e1);
+	}
+	
+	@Test
+	public void testGetEvaluationOrderCircular() {
+		//B1=A1+D1, C1=B1, D1=C1, E1=A1
+		_sheet.addDependency(0, 1, null, 0, 0, 0, 0);
+		_sheet.addDependency(0, 1, null, 0, 3, 0, 3);
+		_sheet.addDependency(0, 2, null, 0, 1, 0, 1);
+		_sheet.addDependency(0, 3, null, 0, 2, 0, 2);
+		_sheet.addDependency(0, 4, null, 0, 0, 0, 0);
+		
+		Set<Ref> all = _sheet.getAllDependents(0, 0); //change A1
+		assertEquals(4, all.size()); //B1, C1, D1, E1
+		Set<Ref> cyclic = new HashSet<Ref>();
+		List<Ref> order = DependencyTrackerHelper.getEvaluationOrder(all, cyclic);
+		assertEquals(1, order.size()); //E1
+		assertSame(_sheet.getRef(0, 4, 0, 4), order.get(0));
+		assertEquals(3, cyclic.size()); //B1, C1, D1
+	}
+	
+	@Test
+	public void testGetEvaluationOrderLongChain() {
+		//A2=A1, A3=A2, ... a chained model
+		final int len = 50000;
+		for (int r = 1; r < len; ++r) {
+			_sheet.addDependency(r, 0, null, r - 1, 0, r - 1, 0);
+		}
+		Set<Ref> last = new HashSet<Ref>();
+		Set<Ref> all = new HashSet<Ref>();
+		DependencyTrackerHelper.getBothDependents(_sheet, 0, 0, all, last);
+		assertEquals(len - 1, all.size());
+		assertEquals(1, last.size());
+		List<Ref> order = DependencyTrackerHelper.getEvaluationOrder(all, null);
+		assertEquals(len - 1, order.size());
+		for (int r = 1; r < len; ++r) {
+			assertEquals(r, order.get(r - 1).getTopRow());
+		}
+	}
+	
 	private void myTestGetOrCreateRef(int tRow, int lCol, int bRow, int rCol) {
 		final Ref ref1 = _sheet.getOrCreateRef(tRow, lCol, bRow, rCol);
 		assertNotNull(ref1);
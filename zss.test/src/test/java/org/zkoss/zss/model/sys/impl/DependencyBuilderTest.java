@@ -0,0 +1,107 @@
+/* DependencyBuilderTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 4:48:26 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.model.impl.BookImpl;
+import org.zkoss.zss.engine.Ref;
+import org.zkoss.zss.engine.RefBook;
+import org.zkoss.zss.engine.RefSheet;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XRange;
+import org.zkoss.zss.model.sys.XRanges;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Unit test for registering the precedents of formulas with
+ * {@link DependencyBuilder}, without evaluating them.
+ */
+public class DependencyBuilderTest {
+	private XBook _book;
+	private XSheet _sheet;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		_book = ((BookImpl)Util.loadBook(this, "/org/zkoss/zss/api/impl/book/blank.xls")).getNative();
+		_sheet = _book.getWorksheetAt(0);
+		//formulas set on the cells directly are neither evaluated nor tracked
+		final Row row = _sheet.createRow(0);
+		row.createCell(0).setCellValue(1);
+		row.createCell(1).setCellFormula("A1*2");
+		row.createCell(2).setCellFormula("SUM(A1:B1)");
+		row.createCell(3).setCellFormula(_book.getSheetName(1) + "!A1+1");
+		row.createCell(4).setCellFormula("INDIRECT(\"A1\")");
+	}
+
+	@Test
+	public void testBuildDependencies() {
+		final SheetCtrl ctrl = (SheetCtrl) _sheet;
+		assertFalse(ctrl.isDependencyBuilt());
+		ctrl.buildDependencies();
+		assertTrue(ctrl.isDependencyBuilt());
+		assertFalse(ctrl.isEvalAll());
+
+		final RefBook refBook = BookHelper.getRefBook(_book);
+		final RefSheet refSheet = refBook.getOrCreateRefSheet(_sheet.getSheetName());
+		assertPrecedent(refSheet.getDirectPrecedents(0, 1), refSheet, 0, 0, 0, 0);
+		assertPrecedent(refSheet.getDirectPrecedents(0, 2), refSheet, 0, 0, 0, 1);
+		assertPrecedent(refSheet.getDirectPrecedents(0, 3), refBook.getOrCreateRefSheet(_book.getSheetName(1)), 0, 0, 0, 0);
+		assertTrue(refSheet.getRef(0, 4, 0, 4).isWithIndirectPrecedent());
+		assertEquals(2, refSheet.getAllDependents(0, 0).size());
+
+		//not evaluated
+		assertEquals(0, _sheet.getRow(0).getCell(1).getNumericCellValue(), 0);
+	}
+
+	@Test
+	public void testInsertRowsWithoutEvalAll() {
+		XRanges.range(_sheet, 0, 0).getRows().insert(XRange.SHIFT_DEFAULT, XRange.FORMAT_NONE);
+		assertTrue(((SheetCtrl) _sheet).isDependencyBuilt());
+		assertFalse(((SheetCtrl) _sheet).isEvalAll());
+		final Cell cellC2 = _sheet.getRow(1).getCell(2);
+		assertEquals("SUM(A2:B2)", cellC2.getCellFormula());
+
+		//the dependents of the shifted cell are found
+		XRanges.range(_sheet, 1, 0).setValue(5);
+		assertEquals(15, cellC2.getNumericCellValue(), 0);
+		assertEquals(10, _sheet.getRow(1).getCell(1).getNumericCellValue(), 0);
+	}
+
+	private static void assertPrecedent(Set<Ref> precedents, RefSheet refSheet, int tRow, int lCol, int bRow, int rCol) {
+		assertEquals(1, precedents.size());
+		final Ref ref = precedents.iterator().next();
+		assertEquals(refSheet, ref.getOwnerSheet());
+		assertEquals(tRow, ref.getTopRow());
+		assertEquals(lCol, ref.getLeftCol());
+		assertEquals(bRow, ref.getBottomRow());
+		assertEquals(rCol, ref.getRightCol());
+	}
+}
@@ -0,0 +1,152 @@
+/* FilterIndexTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 1:02:37 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.Range.InsertCopyOrigin;
+import org.zkoss.zss.api.Range.InsertShift;
+import org.zkoss.zss.api.Ranges;
+import org.zkoss.zss.api.model.Sheet;
+import org.zkoss.zss.api.model.impl.SheetImpl;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Unit test for {@link FilterIndex} and {@link FilterColumnIndex}.
+ */
+public class FilterIndexTest {
+	private Sheet _sheet;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		_sheet = Util.loadBook(this, "/org/zkoss/zss/api/impl/book/blank.xls").getSheetAt(0);
+		final String[] texts = {"b", "a", null, "b", "1", "a"};
+		for (int j = 0; j < texts.length; ++j) {
+			if (texts[j] != null) {
+				Ranges.range(_sheet, j, 0).setCellEditText(texts[j]);
+			}
+		}
+	}
+
+	@Test
+	public void testEntries() {
+		final FilterColumnIndex index = getFilterIndex().getColumn(0, 0, 5);
+		final List<FilterColumnIndex.Entry> entries = index.getEntries();
+		assertEquals(4, entries.size());
+		assertEquals("b", entries.get(0).getText());
+		assertEquals("a", entries.get(1).getText());
+		assertTrue(entries.get(2).isBlank());
+		assertEquals("1", entries.get(3).getText());
+		assertEquals(1d, entries.get(3).getValue());
+
+		assertEquals(bits(0, 1, 3, 5), index.getRows(Arrays.asList("a", "b")));
+		assertEquals(bits(2), index.getRows(Arrays.asList(FilterColumnIndex.BLANK)));
+		assertTrue(index.getRows(Arrays.asList("x")).isEmpty());
+	}
+
+	@Test
+	public void testInvalidate() {
+		final FilterColumnIndex index = getFilterIndex().getColumn(0, 0, 5);
+		assertEquals(bits(1, 5), index.getRows(Arrays.asList("a")));
+
+		//cell changes are notified to the index
+		Ranges.range(_sheet, "A2").setCellEditText("c");
+		Ranges.range(_sheet, "A3").setCellEditText("a");
+		assertEquals("c", index.getText(1));
+		assertEquals(bits(2, 5), index.getRows(Arrays.asList("a")));
+		assertEquals(bits(1), index.getRows(Arrays.asList("c")));
+		assertTrue(index.getRows(Arrays.asList(FilterColumnIndex.BLANK)).isEmpty());
+		for (FilterColumnIndex.Entry entry : index.getEntries()) {
+			assertFalse(entry.isBlank());
+		}
+	}
+
+	@Test
+	public void testRange() {
+		final FilterIndex filterIndex = getFilterIndex();
+		final FilterColumnIndex index = filterIndex.getColumn(0, 0, 5);
+		assertSame(index, filterIndex.getColumn(0, 0, 5));
+		//the filter range changed
+		final FilterColumnIndex index2 = filterIndex.getColumn(0, 1, 5);
+		assertNotSame(index, index2);
+		assertEquals(bits(0, 4), index2.getRows(Arrays.asList("a")));
+
+		//inserting rows shifts the cells
+		Ranges.range(_sheet, "A1").toRowRange().insert(InsertShift.DEFAULT, InsertCopyOrigin.FORMAT_NONE);
+		assertNotSame(index2, filterIndex.getColumn(0, 1, 5));
+	}
+
+	@Test
+	public void testLocale() {
+		Ranges.range(_sheet, "A7").setCellEditText("1.5");
+		final FilterColumnIndex index = getFilterIndex().getColumn(0, 0, 6);
+		assertEquals("1.5", index.getText(6));
+		Setup.pushZssContextLocale(Locale.GERMANY);
+		try {
+			final FilterColumnIndex index2 = getFilterIndex().getColumn(0, 0, 6);
+			assertNotSame(index, index2);
+			assertEquals(Locale.GERMANY, index2.getLocale());
+			assertEquals("1,5", index2.getText(6));
+		} finally {
+			Setup.popZssContextLocale();
+		}
+		assertSame(index, getFilterIndex().getColumn(0, 0, 6));
+		//both are notified
+		Ranges.range(_sheet, "A7").setCellEditText("2.5");
+		assertEquals("2.5", index.getText(6));
+	}
+
+	@Test
+	public void testVolatile() {
+		Ranges.range(_sheet, "A7").setCellEditText("=RAND()");
+		final FilterColumnIndex index = getFilterIndex().getColumn(0, 0, 6);
+		final String text = index.getText(6);
+		assertEquals("b", index.getText(0));
+		//recalculated without any cell change
+		((SheetImpl)_sheet).getNative().getBook().getFormulaEvaluator().clearAllCachedResultValues();
+		assertFalse(text.equals(index.getText(6)));
+	}
+
+	private FilterIndex getFilterIndex() {
+		final XSheet sheet = ((SheetImpl)_sheet).getNative();
+		return ((SheetCtrl)sheet).getFilterIndex();
+	}
+
+	private static BitSet bits(int... rows) {
+		final BitSet bits = new BitSet();
+		for (int row : rows) {
+			bits.set(row);
+		}
+		return bits;
+	}
+}
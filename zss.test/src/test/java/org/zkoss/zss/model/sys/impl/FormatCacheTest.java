@@ -0,0 +1,109 @@
+/* FormatCacheTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 10:31:05 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zkoss.poi.hssf.usermodel.HSSFWorkbook;
+import org.zkoss.poi.ss.format.CellFormat;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.Sheet;
+
+/**
+ * Unit test for {@link FormatCache}.
+ */
+public class FormatCacheTest {
+	private static final String[] FORMATS = {"yyyy/mm/dd", "\"$\"#,##0.00", "0.00%", "General", "0.000E+00"};
+
+	@Before
+	public void setUp() {
+		FormatCache.clear();
+	}
+
+	@Test
+	public void testHitAndMiss() {
+		final CellFormat format = FormatCache.getCellFormat("0.00%", Locale.US);
+		assertSame(format, FormatCache.getCellFormat("0.00%", Locale.US));
+		assertNotSame(format, FormatCache.getCellFormat("0.00%", Locale.GERMANY));
+		FormatCache.getCellFormat("0.0%", Locale.US);
+		assertEquals(1, FormatCache.getHitCount());
+		assertEquals(3, FormatCache.getMissCount());
+		assertEquals(3, FormatCache.size());
+
+		FormatCache.clear();
+		assertEquals(0, FormatCache.getHitCount());
+		assertEquals(0, FormatCache.size());
+	}
+
+	@Test
+	public void testApply() {
+		final Sheet sheet = new HSSFWorkbook().createSheet();
+		final Cell cell = sheet.createRow(0).createCell(0);
+		for (int j = 0; j < 100; ++j) {
+			cell.setCellValue(40000.25 + j * 37.5);
+			for (String format : FORMATS) {
+				assertEquals(CellFormat.getInstance(format, Locale.US).apply(cell).text,
+					FormatCache.apply(format, Locale.US, cell).text);
+			}
+		}
+		assertEquals(FORMATS.length, FormatCache.getMissCount());
+	}
+
+	@Test
+	public void testConcurrentApply() throws Exception {
+		final Sheet sheet = new HSSFWorkbook().createSheet();
+		final int count = 200;
+		final Cell[] cells = new Cell[count];
+		final String[][] expected = new String[count][FORMATS.length];
+		for (int j = 0; j < count; ++j) {
+			cells[j] = sheet.createRow(j).createCell(0);
+			cells[j].setCellValue(30000 + j * 13.125);
+			for (int k = 0; k < FORMATS.length; ++k) {
+				expected[j][k] = CellFormat.getInstance(FORMATS[k], Locale.US).apply(cells[j]).text;
+			}
+		}
+		final AtomicInteger failures = new AtomicInteger();
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; ++t) {
+			final int offset = t;
+			threads.add(new Thread() {
+				public void run() {
+					for (int n = 0; n < 20; ++n) {
+						for (int j = 0; j < count; ++j) {
+							final int k = (j + offset) % FORMATS.length;
+							if (!expected[j][k].equals(FormatCache.apply(FORMATS[k], Locale.US, cells[j]).text)) {
+								failures.incrementAndGet();
+							}
+						}
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, failures.get());
+	}
+}
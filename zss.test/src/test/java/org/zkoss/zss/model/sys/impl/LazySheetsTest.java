@@ -0,0 +1,114 @@
+/* LazySheetsTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 2:47:12 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zkoss.lang.Library;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.util.resource.ClassLocator;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.ui.impl.XUtils;
+
+/**
+ * Unit test for reading the sheets of xlsx books when first asked
+ * (see {@link XSSFBookImpl#LAZY_SHEETS}).
+ */
+public class LazySheetsTest {
+	private static final String FILENAME = "org/zkoss/zss/api/impl/book/494-reorder-sheet-break-formula.xlsx";
+	private String _lazySheets;
+
+	@Before
+	public void setUp() {
+		_lazySheets = Library.setProperty(XSSFBookImpl.LAZY_SHEETS, "true");
+	}
+
+	@After
+	public void tearDown() {
+		Library.setProperty(XSSFBookImpl.LAZY_SHEETS, _lazySheets);
+	}
+
+	@Test
+	public void testSheetsReadWhenAsked() throws IOException {
+		final XBook book = importBook(new ClassLocator().getResourceAsStream(FILENAME));
+		assertEquals(5, book.getNumberOfSheets());
+		assertEquals("Sheet3", book.getSheetName(2));
+		assertFalse(book.isSheetRead(4));
+		//the uuid doesn't read the sheet
+		final XSheet sheet = XUtils.getSheetByUuid(book, book.getSheetUuid(4));
+		assertSame(book.getWorksheet("Sheet5"), sheet);
+		assertFalse(((XSSFSheetImpl)sheet).readDeferred());
+		assertTrue(book.isSheetRead(4));
+
+		//the formulas refer to the other sheets, which are read by the evaluation
+		final XBook expected = importEagerly(new ClassLocator().getResourceAsStream(FILENAME));
+		assertSameSheet(expected.getWorksheetAt(0), book.getWorksheetAt(0));
+	}
+
+	@Test
+	public void testWriteUnreadSheets() throws IOException {
+		final XBook book = importBook(new ClassLocator().getResourceAsStream(FILENAME));
+		book.getWorksheetAt(0);
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		book.write(os);
+
+		final XBook expected = importEagerly(new ClassLocator().getResourceAsStream(FILENAME));
+		final XBook actual = importEagerly(new ByteArrayInputStream(os.toByteArray()));
+		assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+		for (int j = 0; j < expected.getNumberOfSheets(); ++j) {
+			assertSameSheet(expected.getWorksheetAt(j), actual.getWorksheetAt(j));
+		}
+	}
+
+	private XBook importEagerly(InputStream is) throws IOException {
+		Library.setProperty(XSSFBookImpl.LAZY_SHEETS, "false");
+		try {
+			return importBook(is);
+		} finally {
+			Library.setProperty(XSSFBookImpl.LAZY_SHEETS, "true");
+		}
+	}
+
+	private XBook importBook(InputStream is) throws IOException {
+		try {
+			return new ExcelImporter().imports(is, FILENAME);
+		} finally {
+			is.close();
+		}
+	}
+
+	private void assertSameSheet(XSheet expected, XSheet actual) {
+		assertEquals(expected.getSheetName(), actual.getSheetName());
+		for (Row row1 : expected) {
+			final Row row2 = actual.getRow(row1.getRowNum());
+			for (Cell cell1 : row1) {
+				final Cell cell2 = row2.getCell(cell1.getColumnIndex());
+				assertEquals(BookHelper.getEditText(cell1), BookHelper.getEditText(cell2));
+				assertEquals(BookHelper.getCellText(cell1), BookHelper.getCellText(cell2));
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/* MergedRegionIndexTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 8:14:03 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link MergedRegionIndex}.
+ */
+public class MergedRegionIndexTest {
+
+	@Test
+	public void testLookup() {
+		final MergedRegionIndex<String> index = new MergedRegionIndex<String>();
+		index.put(0, 0, 0, 3, "A1:D1");
+		index.put(2, 1, 5, 2, "B3:C6");
+		assertEquals("A1:D1", index.get(0, 3));
+		assertEquals("B3:C6", index.get(4, 2));
+		assertNull(index.get(1, 1));
+		assertEquals("B3:C6", index.getByLeftTop(2, 1));
+		assertNull(index.getByLeftTop(3, 1));
+		assertEquals(2, index.getByColumn(1).size());
+		assertEquals(1, index.getByRow(5).size());
+
+		assertEquals("A1:D1", index.remove(0, 0));
+		assertNull(index.get(0, 3));
+		assertEquals(1, index.getByColumn(1).size());
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	public void testRandomOperations() {
+		final Random random = new Random(20080318L);
+		final MergedRegionIndex<int[]> index = new MergedRegionIndex<int[]>();
+		final List<int[]> regions = new ArrayList<int[]>();
+		final int[][] owner = new int[300][40]; //1 + region number per cell, 0 for none
+		for (int op = 0; op < 5000; ++op) {
+			if (regions.isEmpty() || random.nextInt(3) != 0) {
+				final int tRow = random.nextInt(290);
+				final int lCol = random.nextInt(35);
+				final int[] region = {tRow, lCol, tRow + random.nextInt(10), lCol + random.nextInt(5)};
+				if (isFree(owner, region)) {
+					regions.add(region);
+					fill(owner, region, regions.size());
+					index.put(region[0], region[1], region[2], region[3], region);
+				}
+			} else {
+				final int[] region = regions.get(random.nextInt(regions.size()));
+				if (region[0] >= 0) {
+					assertEquals(region, index.remove(region[0], region[1]));
+					fill(owner, region, 0);
+					region[0] = -1; //removed
+				}
+			}
+			if (op % 250 == 0) {
+				assertIndex(index, regions, owner);
+			}
+		}
+		assertIndex(index, regions, owner);
+	}
+
+	private static void assertIndex(MergedRegionIndex<int[]> index, List<int[]> regions, int[][] owner) {
+		for (int r = 0; r < owner.length; ++r) {
+			final HashSet<int[]> expected = new HashSet<int[]>();
+			for (int c = 0; c < owner[r].length; ++c) {
+				final int[] region = owner[r][c] == 0 ? null : regions.get(owner[r][c] - 1);
+				assertEquals(region, index.get(r, c));
+				if (region != null) {
+					expected.add(region);
+				}
+			}
+			assertEquals(expected, new HashSet<int[]>(index.getByRow(r)));
+		}
+		for (int c = 0; c < owner[0].length; ++c) {
+			final HashSet<int[]> expected = new HashSet<int[]>();
+			for (int r = 0; r < owner.length; ++r) {
+				if (owner[r][c] != 0) {
+					expected.add(regions.get(owner[r][c] - 1));
+				}
+			}
+			assertEquals(expected, new HashSet<int[]>(index.getByColumn(c)));
+		}
+	}
+
+	private static boolean isFree(int[][] owner, int[] region) {
+		for (int r = region[0]; r <= region[2]; ++r) {
+			for (int c = region[1]; c <= region[3]; ++c) {
+				if (owner[r][c] != 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static void fill(int[][] owner, int[] region, int value) {
+		for (int r = region[0]; r <= region[2]; ++r) {
+			for (int c = region[1]; c <= region[3]; ++c) {
+				owner[r][c] = value;
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/* ParallelEvaluatorTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 10:24:48 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.Name;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.model.impl.BookImpl;
+import org.zkoss.zss.engine.Ref;
+import org.zkoss.zss.engine.RefSheet;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Unit test for evaluating the formulas of a sheet in parallel with
+ * {@link ParallelEvaluator}; the results shall be the same as evaluated one
+ * by one on the calling thread.
+ */
+public class ParallelEvaluatorTest {
+	private static final int ROWS = 300;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Test
+	public void testSameAsSequential() throws IOException {
+		final XBook parallelBook = newBook();
+		final XBook sequentialBook = newBook();
+		final XSheet parallelSheet = parallelBook.getWorksheetAt(0);
+		final XSheet sequentialSheet = sequentialBook.getWorksheetAt(0);
+
+		assertTrue(ParallelEvaluator.evalAll(parallelBook, parallelSheet, 4));
+		for (Row row : sequentialSheet) {
+			for (Cell cell : row) {
+				if (cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
+					BookHelper.evaluate(sequentialBook, cell);
+				}
+			}
+		}
+
+		for (int r = 0; r < ROWS; ++r) {
+			final Row expected = sequentialSheet.getRow(r);
+			final Row actual = parallelSheet.getRow(r);
+			for (int c = 1; c < expected.getLastCellNum(); ++c) {
+				assertSameResult(expected.getCell(c), actual.getCell(c));
+			}
+		}
+		//the dependencies are tracked as well
+		final RefSheet refSheet = BookHelper.getRefBook(parallelBook).getOrCreateRefSheet(parallelSheet.getSheetName());
+		final Set<Ref> precedents = refSheet.getDirectPrecedents(ROWS - 1, 1);
+		assertEquals(1, precedents.size());
+		assertEquals(ROWS - 1, precedents.iterator().next().getTopRow());
+		assertEquals(0, precedents.iterator().next().getLeftCol());
+	}
+
+	@Test
+	public void testFewFormulas() throws IOException {
+		final XBook book = newBook();
+		final XSheet sheet = book.getWorksheetAt(1);
+		final Row row = sheet.getRow(0);
+		row.createCell(1).setCellFormula("A1*2");
+		//evaluated on the calling thread
+		assertFalse(ParallelEvaluator.evalAll(book, sheet, 4));
+	}
+
+	@Test
+	public void testEvalAll() throws IOException {
+		final XBook book = newBook();
+		book.setParallelEvaluation(true);
+		final XSheet sheet = book.getWorksheetAt(0);
+		((SheetCtrl) sheet).evalAll();
+		assertTrue(((SheetCtrl) sheet).isEvalAll());
+		assertEquals(2 * sheet.getRow(ROWS - 1).getCell(0).getNumericCellValue(),
+			sheet.getRow(ROWS - 1).getCell(1).getNumericCellValue(), 0);
+	}
+
+	private static void assertSameResult(Cell expected, Cell actual) {
+		final String at = actual.getCellFormula();
+		assertEquals(at, expected.getCellFormula(), actual.getCellFormula());
+		assertEquals(at, expected.getCachedFormulaResultType(), actual.getCachedFormulaResultType());
+		switch (expected.getCachedFormulaResultType()) {
+		case Cell.CELL_TYPE_NUMERIC:
+			assertEquals(at, expected.getNumericCellValue(), actual.getNumericCellValue(), 0);
+			break;
+		case Cell.CELL_TYPE_STRING:
+			assertEquals(at, expected.getStringCellValue(), actual.getStringCellValue());
+			break;
+		case Cell.CELL_TYPE_BOOLEAN:
+			assertEquals(at, expected.getBooleanCellValue(), actual.getBooleanCellValue());
+			break;
+		case Cell.CELL_TYPE_ERROR:
+			assertEquals(at, expected.getErrorCellValue(), actual.getErrorCellValue());
+			break;
+		}
+	}
+
+	//formulas set on the cells directly are neither evaluated nor tracked
+	private XBook newBook() throws IOException {
+		final XBook book = ((BookImpl)Util.loadBook(this, "/org/zkoss/zss/api/impl/book/blank.xls")).getNative();
+		final XSheet sheet = book.getWorksheetAt(0);
+		final XSheet other = book.getWorksheetAt(1);
+		final String otherName = other.getSheetName();
+		final Name name = book.createName();
+		name.setNameName("Rate");
+		name.setRefersToFormula(sheet.getSheetName() + "!$A$1");
+		for (int r = 0; r < ROWS; ++r) {
+			final int n = r + 1;
+			other.createRow(r).createCell(0).setCellValue(r % 7);
+			final Row row = sheet.createRow(r);
+			row.createCell(0).setCellValue(r * 1.5);
+			row.createCell(1).setCellFormula("A" + n + "*2");
+			row.createCell(2).setCellFormula(r == 0 ? "B1" : "B" + n + "+C" + r); //a long chain
+			row.createCell(3).setCellFormula("SUM($A$1:A" + n + ")");
+			row.createCell(4).setCellFormula(otherName + "!A" + n + "+D" + n);
+			row.createCell(5).setCellFormula("IF(" + otherName + "!A" + n + "=0,\"zero\",A" + n + "/" + otherName + "!A" + n + ")");
+			row.createCell(6).setCellFormula("1/" + otherName + "!A" + n);
+			row.createCell(7).setCellFormula("Rate+B" + n);
+		}
+		return book;
+	}
+}
@@ -0,0 +1,105 @@
+/* RowShiftTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 5:06:44 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.poi.xssf.usermodel.XSSFCell;
+import org.zkoss.poi.xssf.usermodel.XSSFWorkbook;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.model.impl.BookImpl;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XRange;
+import org.zkoss.zss.model.sys.XRanges;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Unit test for shifting the rows of an xlsx sheet, whose cell references
+ * are renumbered when the sheet is written (see {@link XSSFSheetImpl}).
+ */
+public class RowShiftTest {
+	private XBook _book;
+	private XSheet _sheet;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		_book = ((BookImpl)Util.loadBook(this, "/org/zkoss/zss/api/impl/book/blank.xlsx")).getNative();
+		_sheet = _book.getWorksheetAt(0);
+		for (int r = 0; r < 5; ++r) {
+			XRanges.range(_sheet, r, 0).setValue(r + 1);
+		}
+		XRanges.range(_sheet, 5, 0).setEditText("=SUM(A1:A5)");
+	}
+
+	@Test
+	public void testInsertRows() throws IOException {
+		XRanges.range(_sheet, 1, 0, 2, 0).getRows().insert(XRange.SHIFT_DEFAULT, XRange.FORMAT_NONE);
+		assertEquals(1, _sheet.getRow(0).getCell(0).getNumericCellValue(), 0);
+		assertNull(_sheet.getRow(1));
+		assertEquals(2, _sheet.getRow(3).getCell(0).getNumericCellValue(), 0);
+		assertEquals("SUM(A1:A7)", _sheet.getRow(7).getCell(0).getCellFormula());
+		//the stale chain is dropped, not only its part
+		assertNull(((XSSFWorkbook)_book).getCalculationChain());
+
+		final XSheet sheet = writeAndRead();
+		assertEquals("A4", ((XSSFCell)sheet.getRow(3).getCell(0)).getReference());
+		assertEquals(2, sheet.getRow(3).getCell(0).getNumericCellValue(), 0);
+		assertEquals("A8", ((XSSFCell)sheet.getRow(7).getCell(0)).getReference());
+		assertEquals("SUM(A1:A7)", sheet.getRow(7).getCell(0).getCellFormula());
+	}
+
+	@Test
+	public void testDeleteRows() throws IOException {
+		XRanges.range(_sheet, 0, 0, 1, 0).getRows().delete(XRange.SHIFT_DEFAULT);
+		assertEquals(3, _sheet.getRow(0).getCell(0).getNumericCellValue(), 0);
+		assertEquals("SUM(A1:A3)", _sheet.getRow(3).getCell(0).getCellFormula());
+		assertNull(_sheet.getRow(4));
+
+		final XSheet sheet = writeAndRead();
+		assertEquals("A1", ((XSSFCell)sheet.getRow(0).getCell(0)).getReference());
+		assertEquals(3, sheet.getRow(0).getCell(0).getNumericCellValue(), 0);
+		assertEquals("A4", ((XSSFCell)sheet.getRow(3).getCell(0)).getReference());
+		assertNull(sheet.getRow(4));
+	}
+
+	@Test
+	public void testCloneShiftedSheet() {
+		XRanges.range(_sheet, 1, 0, 2, 0).getRows().insert(XRange.SHIFT_DEFAULT, XRange.FORMAT_NONE);
+		final XSheet sheet = (XSheet) _book.cloneSheet(_book.getSheetIndex(_sheet));
+		assertEquals("A1", ((XSSFCell)sheet.getRow(0).getCell(0)).getReference());
+		assertEquals("A4", ((XSSFCell)sheet.getRow(3).getCell(0)).getReference());
+		assertEquals(2, sheet.getRow(3).getCell(0).getNumericCellValue(), 0);
+		assertEquals("A8", ((XSSFCell)sheet.getRow(7).getCell(0)).getReference());
+		assertEquals("SUM(A1:A7)", sheet.getRow(7).getCell(0).getCellFormula());
+	}
+
+	private XSheet writeAndRead() throws IOException {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		_book.write(os);
+		return new ExcelImporter().imports(new ByteArrayInputStream(os.toByteArray()), "blank.xlsx").getWorksheetAt(0);
+	}
+}
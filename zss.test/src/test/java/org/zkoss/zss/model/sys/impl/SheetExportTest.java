@@ -0,0 +1,87 @@
+/* SheetExportTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 3:18:52 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.poi.ss.util.AreaReference;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.Ranges;
+import org.zkoss.zss.api.model.Sheet;
+import org.zkoss.zss.api.model.impl.SheetImpl;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Unit test for exporting a sheet or a selection with {@link CsvExporter}
+ * and {@link ExcelExporter}.
+ */
+public class SheetExportTest {
+	private Sheet _sheet;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		_sheet = Util.loadBook(this, "/org/zkoss/zss/api/impl/book/blank.xls").getSheetAt(0);
+		Ranges.range(_sheet, "A1").setCellEditText("name");
+		Ranges.range(_sheet, "B1").setCellEditText("amount");
+		Ranges.range(_sheet, "A2").setCellEditText("Smith, \"Bob\"");
+		Ranges.range(_sheet, "B2").setCellEditText("12.5");
+		Ranges.range(_sheet, "B3").setCellEditText("=B2*2");
+		Ranges.range(_sheet, "D3").setCellEditText("TRUE");
+	}
+
+	@Test
+	public void testCsvSheet() throws IOException {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		new CsvExporter().export(getNative(), os);
+		assertEquals("name,amount,,\r\n\"Smith, \"\"Bob\"\"\",12.5,,\r\n,25,,TRUE\r\n", os.toString("UTF-8"));
+	}
+
+	@Test
+	public void testCsvSelection() throws IOException {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		new CsvExporter().exportSelection(getNative(), new AreaReference("B2:C1000"), os);
+		assertEquals("12.5,\r\n25,\r\n", os.toString("UTF-8"));
+	}
+
+	@Test
+	public void testExcelSelection() throws IOException {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		new ExcelExporter().exportSelection(getNative(), new AreaReference("B2:D3"), os);
+		final XBook book = new ExcelImporter().imports(new ByteArrayInputStream(os.toByteArray()), "selection.xlsx");
+		final XSheet sheet = book.getWorksheetAt(0);
+		assertEquals(_sheet.getSheetName(), sheet.getSheetName());
+		assertEquals(12.5, sheet.getRow(0).getCell(0).getNumericCellValue(), 0);
+		//formulas are exported as values
+		assertEquals(25, sheet.getRow(1).getCell(0).getNumericCellValue(), 0);
+		assertTrue(sheet.getRow(1).getCell(2).getBooleanCellValue());
+	}
+
+	private XSheet getNative() {
+		return ((SheetImpl)_sheet).getNative();
+	}
+}
@@ -0,0 +1,123 @@
+/* SortEngineTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 11:58:02 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zkoss.poi.hssf.usermodel.HSSFRichTextString;
+import org.zkoss.poi.hssf.usermodel.HSSFWorkbook;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.poi.ss.usermodel.Sheet;
+
+/**
+ * Unit test for {@link SortEngine}.
+ */
+public class SortEngineTest {
+	private Sheet _sheet;
+
+	@Before
+	public void setUp() {
+		_sheet = new HSSFWorkbook().createSheet();
+	}
+
+	@Test
+	public void testTypeOrder() {
+		final Cell[] cells = {
+			stringCell(0, "b"), null, numberCell(1, 3), booleanCell(2, true), errorCell(3),
+			stringCell(4, "A"), numberCell(5, -1), booleanCell(6, false), stringCell(7, "a")};
+		//number < string < boolean < error, blank at the end; "A" and "a" are equal without case
+		assertArrayEquals(new int[] {6, 2, 5, 8, 0, 7, 3, 4, 1}, sort(cells, false, false));
+		//descending, blank is still at the end
+		assertArrayEquals(new int[] {4, 3, 7, 0, 5, 8, 2, 6, 1}, sort(cells, true, false));
+		//match case: a < A
+		assertArrayEquals(new int[] {6, 2, 8, 5, 0, 7, 3, 4, 1}, sort(cells, false, true));
+	}
+
+	@Test
+	public void testTextAsNumbers() {
+		final Cell[] cells = {stringCell(0, "10"), stringCell(1, "9"), numberCell(2, 9.5), stringCell(3, "x")};
+		final SortEngine engine = new SortEngine(null, cells.length, new boolean[] {false}, false);
+		for (int j = 0; j < cells.length; ++j) {
+			engine.setCell(0, j, cells[j], BookHelper.SORT_TEXT_AS_NUMBERS);
+		}
+		assertArrayEquals(new int[] {3, 1, 2, 0}, engine.sort());
+	}
+
+	@Test
+	public void testMultipleKeysAndStable() {
+		final Random random = new Random(20080318L);
+		final int size = 5000;
+		final SortEngine engine = new SortEngine(null, size, new boolean[] {false, true}, false);
+		final int[][] keys = new int[size][2];
+		for (int j = 0; j < size; ++j) {
+			keys[j][0] = random.nextInt(20);
+			keys[j][1] = random.nextInt(5);
+			engine.setCell(0, j, stringCell(j, "k" + (char)('a' + keys[j][0])), BookHelper.SORT_NORMAL_DEFAULT);
+			engine.setCell(1, j, numberCell(j, keys[j][1]), BookHelper.SORT_NORMAL_DEFAULT);
+		}
+		final int[] order = engine.sort(false);
+		for (int j = 1; j < size; ++j) {
+			final int[] k1 = keys[order[j - 1]];
+			final int[] k2 = keys[order[j]];
+			assertTrue(k1[0] < k2[0] || (k1[0] == k2[0] && (k1[1] > k2[1]
+				|| (k1[1] == k2[1] && order[j - 1] < order[j])))); //equal keys keep the original order
+		}
+		//same order when sorted in parallel
+		assertArrayEquals(order, engine.sort(true));
+	}
+
+	private int[] sort(Cell[] cells, boolean desc, boolean matchCase) {
+		final SortEngine engine = new SortEngine(null, cells.length, new boolean[] {desc}, matchCase);
+		for (int j = 0; j < cells.length; ++j) {
+			engine.setCell(0, j, cells[j], BookHelper.SORT_NORMAL_DEFAULT);
+		}
+		final int[] order = engine.sort(false);
+		assertArrayEquals(order, engine.sort(true));
+		return order;
+	}
+
+	private Cell newCell(int row) {
+		final Row r = _sheet.getRow(row);
+		return (r != null ? r : _sheet.createRow(row)).createCell(0);
+	}
+
+	private Cell stringCell(int row, String value) {
+		final Cell cell = newCell(row);
+		cell.setCellValue(new HSSFRichTextString(value));
+		return cell;
+	}
+
+	private Cell numberCell(int row, double value) {
+		final Cell cell = newCell(row);
+		cell.setCellValue(value);
+		return cell;
+	}
+
+	private Cell booleanCell(int row, boolean value) {
+		final Cell cell = newCell(row);
+		cell.setCellValue(value);
+		return cell;
+	}
+
+	private Cell errorCell(int row) {
+		final Cell cell = newCell(row);
+		cell.setCellErrorValue((byte) 7); //#DIV/0!
+		return cell;
+	}
+}
@@ -0,0 +1,131 @@
+/* StreamingExcelImporterTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 2:06:49 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.CellStyle;
+import org.zkoss.poi.ss.usermodel.Font;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.poi.ss.usermodel.Sheet;
+import org.zkoss.poi.ss.usermodel.Workbook;
+import org.zkoss.poi.xssf.usermodel.XSSFSheet;
+import org.zkoss.util.resource.ClassLocator;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XImporter;
+
+/**
+ * Unit test for {@link StreamingExcelImporter}; the imported books are
+ * compared with the books imported by {@link ExcelImporter}.
+ */
+public class StreamingExcelImporterTest {
+
+	@Test
+	public void testImportsFromXlsInputStream() throws IOException {
+		final XBook book = importBook(new StreamingExcelImporter(), "Book1.xls");
+		assertTrue(book instanceof HSSFBookImpl);
+		assertEquals("Book1.xls", book.getBookName());
+	}
+
+	@Test
+	public void testImportsFromXlsxInputStream() throws IOException {
+		final XBook book = importBook(new StreamingExcelImporter(), "Book1.xlsx");
+		assertTrue(book instanceof XSSFBookImpl);
+		assertEquals("Book1.xlsx", book.getBookName());
+		assertSameBook(importBook(new ExcelImporter(), "Book1.xlsx"), book);
+	}
+
+	@Test
+	public void testMergedCells() throws IOException {
+		final String filename = "org/zkoss/zss/api/impl/book/401-cut-merged.xlsx";
+		assertSameBook(importBook(new ExcelImporter(), filename), importBook(new StreamingExcelImporter(), filename));
+	}
+
+	@Test
+	public void testDateCell() {
+		//the serial dates of Excel
+		assertEquals(41000, StreamingExcelImporter.getExcelDate("2012-04-01", false), 0);
+		assertEquals(41000.5625, StreamingExcelImporter.getExcelDate("2012-04-01T13:30:00", false), 1e-9);
+		assertEquals(41000.5625, StreamingExcelImporter.getExcelDate("2012-04-01T13:30:00Z", false), 1e-9);
+		assertEquals(41000 - 1462, StreamingExcelImporter.getExcelDate("2012-04-01", true), 0);
+		assertEquals(0.25, StreamingExcelImporter.getExcelDate("06:00:00", false), 1e-9);
+		assertEquals(0.25, StreamingExcelImporter.getExcelDate("T06:00:00", false), 1e-9);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotDateCell() {
+		StreamingExcelImporter.getExcelDate("April 1", false);
+	}
+
+	private XBook importBook(XImporter importer, String filename) throws IOException {
+		final InputStream is = new ClassLocator().getResourceAsStream(filename);
+		try {
+			return importer.imports(is, filename);
+		} finally {
+			is.close();
+		}
+	}
+
+	private void assertSameBook(Workbook expected, Workbook actual) {
+		assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+		assertEquals(expected.getNumberOfNames(), actual.getNumberOfNames());
+		assertEquals(expected.getActiveSheetIndex(), actual.getActiveSheetIndex());
+		assertEquals(expected.getFirstVisibleTab(), actual.getFirstVisibleTab());
+		final Font font1 = expected.getFontAt((short) 0);
+		final Font font2 = actual.getFontAt((short) 0);
+		assertEquals(font1.getFontName(), font2.getFontName());
+		assertEquals(font1.getFontHeight(), font2.getFontHeight());
+		assertSameStyle(expected.getCellStyleAt((short) 0), actual.getCellStyleAt((short) 0));
+		for (int j = 0; j < expected.getNumberOfSheets(); ++j) {
+			final Sheet sheet1 = expected.getSheetAt(j);
+			final Sheet sheet2 = actual.getSheetAt(j);
+			assertEquals(sheet1.getSheetName(), sheet2.getSheetName());
+			assertEquals(sheet1.isSelected(), sheet2.isSelected());
+			assertEquals(sheet1.getDefaultColumnWidth(), sheet2.getDefaultColumnWidth());
+			assertEquals(((XSSFSheet) sheet1).getCTWorksheet().getSheetFormatPr().getDefaultColWidth(),
+				((XSSFSheet) sheet2).getCTWorksheet().getSheetFormatPr().getDefaultColWidth(), 0);
+			assertEquals(sheet1.getNumMergedRegions(), sheet2.getNumMergedRegions());
+			for (int k = 0; k < sheet1.getNumMergedRegions(); ++k) {
+				assertEquals(sheet1.getMergedRegion(k).formatAsString(), sheet2.getMergedRegion(k).formatAsString());
+			}
+			for (Row row1 : sheet1) {
+				final Row row2 = sheet2.getRow(row1.getRowNum());
+				assertEquals(row1.getZeroHeight(), row2.getZeroHeight());
+				assertEquals(row1.getHeight(), row2.getHeight());
+				for (Cell cell1 : row1) {
+					final Cell cell2 = row2.getCell(cell1.getColumnIndex());
+					assertEquals(BookHelper.getEditText(cell1), BookHelper.getEditText(cell2));
+					assertEquals(BookHelper.getCellText(cell1), BookHelper.getCellText(cell2));
+					assertSameStyle(cell1.getCellStyle(), cell2.getCellStyle());
+				}
+			}
+		}
+	}
+
+	private void assertSameStyle(CellStyle expected, CellStyle actual) {
+		assertEquals(expected.getDataFormatString(), actual.getDataFormatString());
+		assertEquals(expected.getAlignment(), actual.getAlignment());
+		assertEquals(expected.getWrapText(), actual.getWrapText());
+		assertEquals(expected.getFillPattern(), actual.getFillPattern());
+		assertEquals(expected.getBorderBottom(), actual.getBorderBottom());
+		assertEquals(expected.getBorderTop(), actual.getBorderTop());
+		assertEquals(expected.getBorderLeft(), actual.getBorderLeft());
+		assertEquals(expected.getBorderRight(), actual.getBorderRight());
+	}
+}
@@ -0,0 +1,105 @@
+/* CellRenderSnapshotTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 9:58:14 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.impl.RangeAPITest;
+import org.zkoss.zss.api.model.impl.BookImpl;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XRanges;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.ui.sys.CellDisplayLoader;
+
+/**
+ * Unit test for {@link CellRenderSnapshot}.
+ */
+public class CellRenderSnapshotTest {
+	private XBook _book;
+	private XSheet _sheet;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		_book = (XBook) ((BookImpl) Util.loadBook(RangeAPITest.class, "book/blank.xls")).getNative();
+		_sheet = _book.getWorksheetAt(0);
+	}
+
+	@Test
+	public void testTexts() {
+		XRanges.range(_sheet, 0, 0).setEditText("12.5");
+		XRanges.range(_sheet, 0, 1).setEditText("a <b>");
+		XRanges.range(_sheet, 0, 2).setEditText("=A1*2");
+		XRanges.range(_sheet, 0, 3).setEditText("=B1&\"!\"");
+		XRanges.range(_sheet, 0, 4).setEditText("=1/0");
+		XRanges.range(_sheet, 0, 5).setEditText("TRUE");
+
+		final CellRenderSnapshot snapshot = new CellRenderSnapshot(_book);
+		for (int col = 0; col <= 5; ++col) {
+			final Cell cell = XUtils.getCell(_sheet, 0, col);
+			assertEquals(XUtils.getCellHtmlText(_sheet, 0, col), snapshot.getCellHtmlText(cell));
+			assertEquals(XUtils.getEditText(_sheet, 0, col), snapshot.getEditText(cell));
+			assertEquals(XUtils.getCellFormatText(_sheet, 0, col), snapshot.getCellFormatText(cell));
+		}
+		assertEquals("25", snapshot.getCellFormatText(XUtils.getCell(_sheet, 0, 2)));
+		assertEquals("=A1*2", snapshot.getEditText(XUtils.getCell(_sheet, 0, 2)));
+		assertEquals("a&nbsp;&lt;b&gt;!", snapshot.getCellHtmlText(XUtils.getCell(_sheet, 0, 3)));
+	}
+
+	@Test
+	public void testEvaluateOnce() {
+		XRanges.range(_sheet, 0, 0).setEditText("1");
+		XRanges.range(_sheet, 0, 1).setEditText("=A1+1");
+		final Cell cell = XUtils.getCell(_sheet, 0, 1);
+		final CellRenderSnapshot snapshot = new CellRenderSnapshot(_book);
+		final Object formatText = snapshot.getFormatText(cell);
+		snapshot.getCellHtmlText(cell);
+		snapshot.getCellFormatText(cell);
+		assertSame(formatText, snapshot.getFormatText(cell));
+
+		//another cell loaded, then the texts of the cell are formatted again
+		snapshot.getFormatText(XUtils.getCell(_sheet, 0, 0));
+		XRanges.range(_sheet, 0, 0).setEditText("5");
+		assertEquals("6", snapshot.getCellFormatText(cell));
+	}
+
+	@Test
+	public void testLoaderSubclass() {
+		XRanges.range(_sheet, 0, 0).setEditText("1");
+		XRanges.range(_sheet, 0, 1).setEditText("=A1+1");
+		final CellRenderSnapshot snapshot = new CellRenderSnapshot(_book);
+		final CellDisplayLoader loader = new SimpleCellDisplayLoader() {};
+		final String text;
+		CellRenderSnapshot.setCurrent(snapshot);
+		try {
+			text = loader.getCellHtmlText(_sheet, 0, 1);
+			assertEquals("", loader.getCellHtmlText(_sheet, 5, 5));
+		} finally {
+			CellRenderSnapshot.setCurrent(null);
+		}
+		//the text of the snapshot
+		assertSame(text, snapshot.getCellHtmlText(XUtils.getCell(_sheet, 0, 1)));
+		assertEquals("2", text);
+	}
+}
@@ -0,0 +1,103 @@
+/* CellStyleCSSCacheTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 7:05:52 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.poi.ss.usermodel.CellStyle;
+import org.zkoss.poi.ss.usermodel.IndexedColors;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.impl.RangeAPITest;
+import org.zkoss.zss.api.model.impl.BookImpl;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.model.sys.impl.BookHelper;
+
+/**
+ * Unit test for {@link CellStyleCSSCache}.
+ */
+public class CellStyleCSSCacheTest {
+	private XBook _book;
+	private XSheet _sheet;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		_book = (XBook) ((BookImpl) Util.loadBook(RangeAPITest.class, "book/blank.xls")).getNative();
+		_sheet = _book.getWorksheetAt(0);
+	}
+
+	@Test
+	public void testKey() {
+		final long key = CellStyleCSSCache.key(CellStyleCSSCache.BOTTOM_BORDER, 3, 0, 5);
+		assertFalse(key == CellStyleCSSCache.key(CellStyleCSSCache.RIGHT_BORDER, 3, 0, 5));
+		assertFalse(key == CellStyleCSSCache.key(CellStyleCSSCache.BOTTOM_BORDER, 5, 0, 3));
+		assertFalse(key == CellStyleCSSCache.key(CellStyleCSSCache.BOTTOM_BORDER, 3, 5, 0));
+		assertEquals(0, CellStyleCSSCache.styleKey(null));
+	}
+
+	@Test
+	public void testValidation() {
+		final CellStyleCSSCache cache = CellStyleCSSCache.getInstance(_book);
+		assertSame(cache, CellStyleCSSCache.getInstance(_book));
+		cache.put(1L, "color:#000000;");
+		assertEquals("color:#000000;", CellStyleCSSCache.getInstance(_book).get(1L));
+
+		_book.createCellStyle(); //new style drops the cached fragments
+		assertNull(CellStyleCSSCache.getInstance(_book).get(1L));
+
+		cache.put(1L, "color:#000000;");
+		CellStyleCSSCache.invalidate(_book);
+		final CellStyleCSSCache cache2 = CellStyleCSSCache.getInstance(_book);
+		assertNotSame(cache, cache2);
+		assertNull(cache2.get(1L));
+	}
+
+	@Test
+	public void testStyleApplied() {
+		final CellStyle style = _book.createCellStyle();
+		style.setBorderBottom(CellStyle.BORDER_DASHED);
+		BookHelper.setCellStyle(_sheet, 0, 0, 0, 1, style);
+		final String css = newHelper(0, 0).getHtmlStyle();
+		assertTrue(css, css.indexOf("border-bottom:dashed") >= 0);
+		assertEquals(css, newHelper(0, 1).getHtmlStyle()); //same styles, same fragments
+		assertFalse(newHelper(0, 0).hasRightBorder());
+
+		//modify the applied style and apply again
+		style.setFillPattern(CellStyle.SOLID_FOREGROUND);
+		style.setFillForegroundColor(IndexedColors.RED.getIndex());
+		BookHelper.setCellStyle(_sheet, 0, 0, 0, 1, style);
+		final String css2 = newHelper(0, 0).getHtmlStyle();
+		assertTrue(css2, css2.indexOf("background-color:") >= 0);
+		assertTrue(newHelper(0, 0).hasRightBorder()); //border of the background color
+	}
+
+	private CellFormatHelper newHelper(int row, int col) {
+		return new CellFormatHelper(_sheet, row, col, new MergeMatrixHelper(new ArrayList(), -1, -1));
+	}
+}
@@ -0,0 +1,185 @@
+/* DataBlockEncoderTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 6:10:37 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.zkoss.json.JSONArray;
+import org.zkoss.json.JSONObject;
+
+/**
+ * Unit test for {@link DataBlockEncoder}; decodes as zss.DataBlock.decode does
+ * at client and compares with the JSON cell attributes.
+ */
+public class DataBlockEncoderTest {
+
+	@Test
+	public void testRoundTrip() {
+		final Random random = new Random(20120116L);
+		final List<Map<Object, Object>> cells = new ArrayList<Map<Object, Object>>();
+		for (int j = 0; j < 5000; ++j) {
+			final Map<Object, Object> attrs = new HashMap<Object, Object>();
+			if (j > 0 && random.nextInt(3) == 0) { //same as previous
+				attrs.putAll(cells.get(j - 1));
+			} else if (random.nextInt(4) != 0) {
+				attrs.put("s", random.nextInt(20));
+				if (random.nextBoolean()) {
+					attrs.put("ct", 0); //numeric
+					attrs.put("meft", j);
+					attrs.put("ha", "r");
+				} else if (random.nextBoolean()) {
+					attrs.put("ct", 1); //string
+					attrs.put("t", j);
+					attrs.put("et", j + 1);
+					attrs.put("ft", j + 2);
+					attrs.put("ovf", 3);
+				}
+				if (random.nextInt(5) == 0) {
+					attrs.put("l", "f");
+					attrs.put("wp", 1);
+					attrs.put("rb", 1);
+					attrs.put("va", random.nextBoolean() ? "t" : "c");
+					attrs.put("fs", (short) 14);
+					attrs.put("mi", random.nextInt(3));
+					attrs.put("mc", random.nextInt(3));
+					attrs.put("is", 100000 + random.nextInt(3)); //large delta
+				}
+			}
+			cells.add(attrs);
+		}
+		final DataBlockEncoder encoder = new DataBlockEncoder();
+		final JSONArray json = new JSONArray();
+		for (Map<Object, Object> attrs : cells) {
+			encoder.add(attrs);
+			final JSONObject obj = new JSONObject();
+			obj.putAll(attrs);
+			json.add(obj);
+		}
+		assertEquals(cells.size(), encoder.size());
+		final String text = encoder.toBase64();
+		final List<Map<Object, Object>> decoded = decode(text, cells.size());
+		for (int j = 0; j < cells.size(); ++j) {
+			assertEquals("cell " + j, normalize(cells.get(j)), decoded.get(j));
+		}
+		assertTrue("encoded " + text.length() + " vs. JSON " + json.toJSONString().length(),
+			text.length() * 3 < json.toJSONString().length());
+	}
+
+	@Test
+	public void testBlankCells() {
+		final DataBlockEncoder encoder = new DataBlockEncoder();
+		for (int j = 0; j < 100 * 50; ++j) {
+			encoder.add(new HashMap<Object, Object>());
+		}
+		//one empty cell plus one repeat run
+		assertEquals(4, encoder.toBase64().length());
+	}
+
+	//number values are decoded as Integer
+	private static Map<Object, Object> normalize(Map<Object, Object> attrs) {
+		final Map<Object, Object> result = new HashMap<Object, Object>();
+		for (Map.Entry<Object, Object> entry : attrs.entrySet()) {
+			final Object value = entry.getValue();
+			result.put(entry.getKey(), value instanceof Number ? Integer.valueOf(((Number) value).intValue()) : value);
+		}
+		return result;
+	}
+
+	//the same algorithm as zss.DataBlock.decode
+	private static List<Map<Object, Object>> decode(String text, int count) {
+		final byte[] bytes = base64(text);
+		final int[] pos = new int[1];
+		final int[] last = new int[DataBlockEncoder.KEYS.length];
+		final List<Map<Object, Object>> cells = new ArrayList<Map<Object, Object>>(count);
+		Map<Object, Object> prev = null;
+		int repeat = 0;
+		while (cells.size() < count) {
+			if (repeat > 0) {
+				--repeat;
+				cells.add(new HashMap<Object, Object>(prev));
+				continue;
+			}
+			final int h = readVarint(bytes, pos);
+			if ((h & 1) != 0) {
+				repeat = (h >>> 1) - 1;
+				cells.add(new HashMap<Object, Object>(prev));
+				continue;
+			}
+			final int mask = h >>> 1;
+			final Map<Object, Object> cell = new HashMap<Object, Object>();
+			for (int j = 0; j < DataBlockEncoder.KEYS.length; ++j) {
+				if ((mask & (1 << j)) == 0) {
+					continue;
+				}
+				final String key = DataBlockEncoder.KEYS[j];
+				if ("rb".equals(key) || "wp".equals(key)) {
+					cell.put(key, 1);
+				} else if ("l".equals(key)) {
+					cell.put(key, "f");
+				} else {
+					final int z = readVarint(bytes, pos);
+					last[j] += (z >>> 1) ^ -(z & 1);
+					final String[] enums = DataBlockEncoder.ENUMS[j];
+					cell.put(key, enums != null ? enums[last[j] - 1] : Integer.valueOf(last[j]));
+				}
+			}
+			prev = cell;
+			cells.add(new HashMap<Object, Object>(cell));
+		}
+		assertEquals(bytes.length, pos[0]);
+		return cells;
+	}
+
+	private static int readVarint(byte[] bytes, int[] pos) {
+		int result = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = bytes[pos[0]++];
+			result |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return result;
+	}
+
+	private static byte[] base64(String text) {
+		final String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		int len = text.length();
+		while (len > 0 && text.charAt(len - 1) == '=') {
+			--len;
+		}
+		final byte[] bytes = new byte[len * 3 / 4];
+		int k = 0;
+		for (int j = 0; j < len; j += 4) {
+			final int v = chars.indexOf(text.charAt(j)) << 18 | chars.indexOf(text.charAt(j + 1)) << 12
+				| (j + 2 < len ? chars.indexOf(text.charAt(j + 2)) << 6 : 0)
+				| (j + 3 < len ? chars.indexOf(text.charAt(j + 3)) : 0);
+			bytes[k++] = (byte) (v >>> 16);
+			if (j + 2 < len) {
+				bytes[k++] = (byte) (v >>> 8);
+			}
+			if (j + 3 < len) {
+				bytes[k++] = (byte) v;
+			}
+		}
+		return bytes;
+	}
+}
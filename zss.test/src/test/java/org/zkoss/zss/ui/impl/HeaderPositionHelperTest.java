@@ -14,12 +14,15 @@ Copyright (C) 2010 Potix Corporation. All Rights Reserved.
 package org.zkoss.zss.ui.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import org.zkoss.zss.ui.impl.HeaderPositionHelper.HeaderPositionInfo;
 
@@ -75,4 +78,79 @@ public class HeaderPositionHelperTest {
 		assertEquals(11,_helper.getCellIndex(430));// 11
 		assertEquals(12,_helper.getCellIndex(480));// 12
 	}
+	
+	@Test
+	public void testShiftMeta() {
+		_helper.shiftMeta(5, 2); //insert 2 rows at 5
+		assertEquals(30, _helper.getSize(3));
+		assertEquals(20, _helper.getSize(11));
+		assertEquals(60, _helper.getSize(12));
+		assertNull(_helper.getInfo(9));
+		assertEquals(430 + 80, _helper.getStartPixel(13));
+		
+		_helper.unshiftMeta(2, 10); //delete 10 rows at 2
+		assertEquals(1, _helper.getInfos().size());
+		assertEquals(2, _helper.getInfos().get(0).index);
+		assertEquals(60, _helper.getSize(2));
+		assertEquals(80 + 60, _helper.getStartPixel(3));
+		assertEquals(2, _helper.getCellIndex(139));
+		assertEquals(3, _helper.getCellIndex(140));
+	}
+	
+	@Test
+	public void testRandomOperations() {
+		final int length = 500;
+		final int defaultSize = 20;
+		final Random random = new Random(20100813L);
+		final int[] sizes = new int[length]; //expected size per index; -1 for default
+		Arrays.fill(sizes, -1);
+		final HeaderPositionHelper helper = new HeaderPositionHelper(defaultSize, new ArrayList<HeaderPositionInfo>());
+		for (int op = 0; op < 3000; ++op) {
+			final int index = random.nextInt(length - 10);
+			switch (random.nextInt(5)) {
+			case 0:
+			case 1:
+				final boolean hidden = random.nextInt(3) == 0;
+				final int size = random.nextInt(50) + 1;
+				helper.setInfoValues(index, size, op, hidden);
+				sizes[index] = hidden ? 0 : size;
+				break;
+			case 2:
+				helper.removeInfo(index);
+				sizes[index] = -1;
+				break;
+			case 3: //insert
+				final int n = random.nextInt(5) + 1;
+				helper.shiftMeta(index, n);
+				for (int j = length; j < length + n; ++j) { //shifted out
+					helper.removeInfo(j);
+				}
+				System.arraycopy(sizes, index, sizes, index + n, length - index - n);
+				Arrays.fill(sizes, index, index + n, -1);
+				break;
+			default: //delete
+				final int m = random.nextInt(5) + 1;
+				helper.unshiftMeta(index, m);
+				System.arraycopy(sizes, index + m, sizes, index, length - index - m);
+				Arrays.fill(sizes, length - m, length, -1);
+			}
+			if (op % 100 == 0) {
+				assertPositions(helper, sizes, defaultSize);
+			}
+		}
+		assertPositions(helper, sizes, defaultSize);
+	}
+	
+	private static void assertPositions(HeaderPositionHelper helper, int[] sizes, int defaultSize) {
+		int px = 0;
+		for (int j = 0; j < sizes.length; ++j) {
+			assertEquals("start of " + j, px, helper.getStartPixel(j));
+			final int size = sizes[j] < 0 ? defaultSize : sizes[j];
+			if (size > 0) {
+				assertEquals("index at " + px, j, helper.getCellIndex(px));
+				assertEquals("index at " + (px + size - 1), j, helper.getCellIndex(px + size - 1));
+			}
+			px += size;
+		}
+	}
 }
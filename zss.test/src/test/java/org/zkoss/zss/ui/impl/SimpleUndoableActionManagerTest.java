@@ -0,0 +1,121 @@
+/* SimpleUndoableActionManagerTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 5:49:03 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.zkoss.zss.api.AreaRef;
+import org.zkoss.zss.api.model.Sheet;
+import org.zkoss.zss.ui.sys.SizedUndoableAction;
+
+/**
+ * Unit test for the history limits of {@link SimpleUndoableActionManager}.
+ */
+public class SimpleUndoableActionManagerTest {
+
+	@Test
+	public void testMaxHistorySize() {
+		final SimpleUndoableActionManager uam = new SimpleUndoableActionManager();
+		uam.setMaxHsitorySize(2);
+		final Action a = new Action("a", 10), b = new Action("b", 10), c = new Action("c", 10);
+		uam.doAction(a);
+		uam.doAction(b);
+		uam.doAction(c);
+		uam.undoAction();
+		assertEquals("b", uam.getUndoLabel());
+		assertEquals("c", uam.getRedoLabel());
+		uam.undoAction();
+		assertFalse(uam.isUndoable()); //a was dropped
+		assertEquals("b", uam.getRedoLabel());
+		uam.redoAction();
+		assertEquals("c", uam.getRedoLabel());
+		assertTrue(b.isUndoable());
+	}
+
+	@Test
+	public void testMaxHistoryBytes() {
+		final SimpleUndoableActionManager uam = new SimpleUndoableActionManager();
+		uam.setMaxHistoryBytes(100);
+		uam.doAction(new Action("a", 40));
+		uam.doAction(new Action("b", 40));
+		assertEquals(80, uam.getHistoryBytes());
+		uam.doAction(new Action("c", 40));
+		assertEquals(80, uam.getHistoryBytes());
+		uam.undoAction();
+		uam.undoAction();
+		assertFalse(uam.isUndoable());
+
+		//the last action is kept even if it exceeds the budget
+		uam.doAction(new Action("d", 500));
+		assertEquals(500, uam.getHistoryBytes());
+		assertTrue(uam.isUndoable());
+		assertFalse(uam.isRedoable());
+
+		uam.clear();
+		assertEquals(0, uam.getHistoryBytes());
+	}
+
+	private static class Action implements SizedUndoableAction {
+		private final String _label;
+		private final long _size;
+		private boolean _done;
+
+		private Action(String label, long size) {
+			_label = label;
+			_size = size;
+		}
+
+		public String getLabel() {
+			return _label;
+		}
+
+		public void doAction() {
+			_done = true;
+		}
+
+		public boolean isUndoable() {
+			return _done;
+		}
+
+		public boolean isRedoable() {
+			return !_done;
+		}
+
+		public void undoAction() {
+			_done = false;
+		}
+
+		public long getEstimatedSize() {
+			return _size;
+		}
+
+		public AreaRef getUndoSelection() {
+			return null;
+		}
+
+		public AreaRef getRedoSelection() {
+			return null;
+		}
+
+		public Sheet getUndoSheet() {
+			return null;
+		}
+
+		public Sheet getRedoSheet() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/* ReserveUtilTest.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 5:44:18 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.impl.undo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zkoss.zss.Setup;
+import org.zkoss.zss.Util;
+import org.zkoss.zss.api.Range;
+import org.zkoss.zss.api.Ranges;
+import org.zkoss.zss.api.model.Book;
+import org.zkoss.zss.api.model.CellStyle;
+import org.zkoss.zss.api.model.EditableCellStyle;
+import org.zkoss.zss.api.model.Sheet;
+import org.zkoss.zss.ui.impl.undo.ReserveUtil.ReservedResult;
+
+/**
+ * Unit test for reserving cells into the compact form of {@link ReserveUtil}
+ * and restoring them in bulk.
+ */
+public class ReserveUtilTest {
+	private Sheet _sheet;
+
+	@BeforeClass
+	public static void setUpLibrary() throws Exception {
+		Setup.touch();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		final Book book = Util.loadBook(this, "/org/zkoss/zss/api/impl/book/blank.xls");
+		_sheet = book.getSheetAt(0);
+	}
+
+	@Test
+	public void testRestore() {
+		Ranges.range(_sheet, 0, 0).setCellEditText("1");
+		Ranges.range(_sheet, 1, 0).setCellEditText("=A1*2");
+		Ranges.range(_sheet, 0, 1).setCellEditText("text");
+		Ranges.range(_sheet, 2, 2).setCellEditText("2013/7/25");
+		final Range styled = Ranges.range(_sheet, 1, 1);
+		final EditableCellStyle style = styled.getCellStyleHelper().createCellStyle(styled.getCellStyle());
+		style.setWrapText(true);
+		styled.setCellStyle(style);
+		Ranges.range(_sheet, 3, 0).setCellEditText("=A2+1"); //outside, depends on the area
+
+		final ReservedResult result = ReserveUtil.reserve(_sheet, 0, 0, 2, 2, ReserveUtil.RESERVE_ALL);
+		final Range area = Ranges.range(_sheet, 0, 0, 2, 2);
+		area.clearContents();
+		area.clearStyles();
+		Ranges.range(_sheet, 0, 1).setCellEditText("changed");
+		assertEquals(1D, Ranges.range(_sheet, 3, 0).getCellValue());
+
+		result.restore();
+		assertEquals(1D, Ranges.range(_sheet, 0, 0).getCellValue());
+		assertEquals("=A1*2", Ranges.range(_sheet, 1, 0).getCellEditText());
+		assertEquals(2D, Ranges.range(_sheet, 1, 0).getCellValue());
+		assertEquals("text", Ranges.range(_sheet, 0, 1).getCellEditText());
+		assertEquals("", Ranges.range(_sheet, 1, 2).getCellEditText());
+		assertEquals("2013/7/25", Ranges.range(_sheet, 2, 2).getCellFormatText());
+		assertTrue(Ranges.range(_sheet, 1, 1).getCellStyle().isWrapText());
+		assertFalse(Ranges.range(_sheet, 0, 1).getCellStyle().isWrapText());
+		//the dependent outside is re-evaluated
+		assertEquals(3D, Ranges.range(_sheet, 3, 0).getCellValue());
+	}
+
+	@Test
+	public void testEstimatedSize() {
+		final Object[][] values = new Object[1000][10];
+		for (int r = 0; r < values.length; ++r) {
+			for (int c = 0; c < values[r].length; ++c) {
+				values[r][c] = "same text";
+			}
+		}
+		Ranges.range(_sheet, 0, 0).setCellValues(values);
+		final ReservedResult result = ReserveUtil.reserve(_sheet, 0, 0, 999, 9, ReserveUtil.RESERVE_ALL);
+		//10,000 cells sharing a text and a style
+		assertTrue(result.getEstimatedSize() < 10000);
+
+		Ranges.range(_sheet, 0, 0, 999, 9).clearContents();
+		result.restore();
+		assertEquals("same text", Ranges.range(_sheet, 999, 9).getCellEditText());
+		final CellStyle style = Ranges.range(_sheet, 999, 9).getCellStyle();
+		assertEquals(style, Ranges.range(_sheet, 0, 0).getCellStyle());
+	}
+}
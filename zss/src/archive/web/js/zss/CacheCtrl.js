@@ -824,6 +824,7 @@ zss.ActiveRange = zk.$extends(zk.Object, {
 		this.updateCells(v, dir);
 	},
 	updateCells: function (v, dir) {
+		zss.DataBlock.decode(v); //compact cells, if any
 		var attrType = v.at;
 		var top = v.t;
 		var left = v.l;
@@ -0,0 +1,114 @@
+/* DataBlock.js
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 5:48:02 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+(function () {
+
+	//cell attribute keys in bit order, see org.zkoss.zss.ui.impl.DataBlockEncoder
+	var KEYS = ['mi', 'mc', 'ovf', 's', 'is', 'rb', 'ct', 'meft', 't', 'et', 'ft', 'l', 'wp', 'ha', 'va', 'fs'],
+		FLAGS = {5: 1, 11: 'f', 12: 1}, //rb, l, wp: value of the flag
+		ENUMS = {13: ['c', 'r'], 14: ['t', 'c']}, //ha, va
+		B64 = 'ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/',
+		B64_INDEX = {};
+	for (var i = 0; i < 64; i++)
+		B64_INDEX[B64.charAt(i)] = i;
+
+	function toBytes(text) {
+		var bytes = [],
+			len = text.length;
+		while (len > 0 && text.charAt(len - 1) == '=')
+			len--;
+		for (var j = 0; j < len; j += 4) {
+			var v = B64_INDEX[text.charAt(j)] << 18 | B64_INDEX[text.charAt(j + 1)] << 12
+				| (j + 2 < len ? B64_INDEX[text.charAt(j + 2)] << 6 : 0)
+				| (j + 3 < len ? B64_INDEX[text.charAt(j + 3)] : 0);
+			bytes.push(v >>> 16 & 0xff);
+			if (j + 2 < len)
+				bytes.push(v >>> 8 & 0xff);
+			if (j + 3 < len)
+				bytes.push(v & 0xff);
+		}
+		return bytes;
+	}
+
+/**
+ * Decoder of the compact data block encoded by org.zkoss.zss.ui.impl.DataBlockEncoder
+ */
+zss.DataBlock = {
+	/**
+	 * The encoding version this client can decode; sent to server on cell fetch.
+	 */
+	VERSION: 1,
+	/**
+	 * Decode the compact cell records (cb) of the data block into the cells (cs)
+	 * of each row, as if the data block is sent in JSON.
+	 * @param JSON Object v data block from server
+	 */
+	decode: function (v) {
+		var text = v.cb;
+		if (text == null)
+			return;
+		var bytes = toBytes(text),
+			pos = 0,
+			last = [],
+			rows = v.rs,
+			width = v.r - v.l + 1,
+			prev = {},
+			repeat = 0;
+		for (var k = 0; k < KEYS.length; k++)
+			last[k] = 0;
+
+		function readVarint() {
+			var result = 0, shift = 0, b;
+			do {
+				b = bytes[pos++];
+				result += (b & 0x7f) * Math.pow(2, shift); //avoid 32 bits sign overflow
+				shift += 7;
+			} while (b & 0x80);
+			return result;
+		}
+		function nextCell() {
+			if (repeat > 0) {
+				repeat--;
+				return zk.copy({}, prev);
+			}
+			var h = readVarint();
+			if (h & 1) { //repeat last cell
+				repeat = (h - 1) / 2 - 1;
+				return zk.copy({}, prev);
+			}
+			var mask = h / 2,
+				c = {};
+			for (var j = 0; mask && j < KEYS.length; j++, mask = Math.floor(mask / 2)) {
+				if (!(mask & 1))
+					continue;
+				var flag = FLAGS[j];
+				if (flag !== undefined) {
+					c[KEYS[j]] = flag;
+				} else {
+					var z = readVarint(),
+						val = last[j] += (z % 2 ? -(z + 1) / 2 : z / 2), //zigzag
+						enums = ENUMS[j];
+					c[KEYS[j]] = enums ? enums[val - 1] : val;
+				}
+			}
+			prev = c;
+			return zk.copy({}, c);
+		}
+		for (var r = 0; r < rows.length; r++) {
+			var cs = rows[r].cs = [];
+			for (var col = 0; col < width; col++)
+				cs.push(nextCell());
+		}
+		delete v.cb;
+	}
+};
+})();
@@ -278,7 +278,7 @@ zss.MainBlockCtrl = zk.$extends(zss.CellBlockCtrl, {
 		 fetchLeft: fetchLeft, fetchTop: fetchTop, fetchWidth: fetchWidth, fetchHeight: fetchHeight,
 		 rangeLeft: vrange.left, rangeTop: vrange.top, rangeRight: vrange.right, rangeBottom: vrange.bottom,
 		 arLeft: arRect.left, arTop: arRect.top, arRight: arRect.right, arBottom: arRect.bottom,
-		 arFetchTopHeight: arTopHgh, arFetchBtmHeight: arBtmHgh}, {toServer: true}, 25);
+		 arFetchTopHeight: arTopHgh, arFetchBtmHeight: arBtmHgh, dbenc: zss.DataBlock.VERSION}, {toServer: true}, 25);
 	},
 	/**
 	 * Returns Load Cell Direction
@@ -12,6 +12,9 @@ Copyright (C) 2010 Potix Corporation. All Rights Reserved.
 
 package org.zkoss.poi.xssf.usermodel;
 
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.util.CellReference;
+
 /**
  * A helper class to make XSSFRow package method visible.
  * @author henrichen
@@ -26,4 +29,35 @@ public class XSSFRowHelper {
     public void shift(int n) {
     	_row.shift(n);
     }
+    
+    /**
+     * Shifts the row number only; unlike {@link #shift(int)}, the references
+     * of the cells are not renumbered (see {@link #renumberCells()}) and the
+     * cells are not removed from the calculation chain.
+     */
+    public void shiftRowNum(int n) {
+    	final String msg = "Row[rownum="+_row.getRowNum()+"] contains cell(s) included in a multi-cell array formula. " +
+    			"You cannot change part of an array.";
+    	final int rownum = _row.getRowNum() + n;
+    	for (Cell c : _row) {
+    		final XSSFCell cell = (XSSFCell) c;
+    		if (cell.isPartOfArrayFormulaGroup()) {
+    			cell.notifyArrayFormulaChanging(msg);
+    			//a single cell array formula refers its range by the cell reference
+    			cell.getCTCell().setR(new CellReference(rownum, cell.getColumnIndex()).formatAsString());
+    		}
+    	}
+    	_row.setRowNum(rownum);
+    }
+    
+    /**
+     * Renumbers the references of the cells to the row number.
+     */
+    public void renumberCells() {
+    	final int rownum = _row.getRowNum();
+    	for (Cell c : _row) {
+    		final XSSFCell cell = (XSSFCell) c;
+    		cell.getCTCell().setR(new CellReference(rownum, cell.getColumnIndex()).formatAsString());
+    	}
+    }
 }
@@ -43,5 +43,14 @@ public class Exporters {
 	public static Exporter getExporter() {
 		return getExporter("excel");
 	}
+	
+	/**
+	 * Gets the csv exporter. It exports the display texts of the cells of a
+	 * sheet or a selection (a book exports its active sheet), row by row.
+	 * @return csv exporter instance, null if not found
+	 */
+	public static Exporter getCsvExporter() {
+		return getExporter("csv");
+	}
 
 }
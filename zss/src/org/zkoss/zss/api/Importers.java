@@ -44,4 +44,16 @@ public class Importers {
 	public static Importer getImporter() {
 		return getImporter("excel");
 	}
+	
+	/**
+	 * Gets the streaming excel importer. It reads the sheets of an Excel 2007
+	 * file with an event reader and creates the cells directly instead of
+	 * parsing each sheet into an XMLBeans tree first, but imports only the
+	 * contents and the layout of the cells, not the pictures, charts,
+	 * comments, hyperlinks, validations, conditional formats or auto filters.
+	 * @return importer instance for excel, null if not found
+	 */
+	public static Importer getStreamingImporter() {
+		return getImporter("excel-streaming");
+	}
 }
@@ -53,8 +53,16 @@ import org.zkoss.zss.api.model.Sheet;
  */
 public interface Range {
 	
+	/**
+	 * The synchronization level of {@link Range#sync(RangeRunner)} and {@link Range#visit(CellVisitor)}.
+	 */
 	public enum SyncLevel{
+		/** holds the write lock of the book, the runner can read and change the book */
 		BOOK,
+		/** holds the read lock of the book shared with other readers, the runner can only read the book;
+		 * changing the book in the runner throws {@link IllegalStateException}, since the read lock
+		 * cannot be upgraded to the write lock */
+		READ,
 		NONE//for you just visit and do nothing
 	}
 
@@ -207,6 +215,8 @@ public interface Range {
 	
 	/**
 	 * Runs runer under synchronization protection
+	 * <p>Note: with {@link SyncLevel#READ}, the runner shall not change the book, or
+	 * {@link IllegalStateException} is thrown (see {@link SyncLevel#READ}).</p>
 	 * @param run the runner
 	 * @see #setSyncLevel(SyncLevel)
 	 */
@@ -445,6 +455,15 @@ public interface Range {
 	 */
 	public void setCellStyle(CellStyle nstyle);
 	
+	/**
+	 * Sets cell styles from the left top cell of this range, styles[i][j]
+	 * into the cell i rows below and j columns right of it; the change is
+	 * notified once for the whole area.
+	 * @param styles the cell styles, a null one leaves the cell untouched
+	 * @see #setCellStyle(CellStyle)
+	 */
+	public void setCellStyles(CellStyle[][] styles);
+	
 	/**
 	 * Sets cell editText, applies it to all cells of this range 
 	 * @param editText the eidtText, it could be a string, integer string, date string or a formula (start with '=')
@@ -458,6 +477,26 @@ public interface Range {
 	 */
 	public void setCellValue(Object value);
 	
+	/**
+	 * Sets cell data values from the left top cell of this range, values[i][j]
+	 * into the cell i rows below and j columns right of it. It is much faster
+	 * than setting the cells one by one, the formulas depending on the cells are
+	 * re-evaluated and the change is notified once for the whole area.
+	 * @param values the cell values, each could be null, String, Number, Date or Boolean
+	 */
+	public void setCellValues(Object[][] values);
+	
+	/**
+	 * Sets cell editTexts from the left top cell of this range, editTexts[i][j]
+	 * into the cell i rows below and j columns right of it. As {@link #setCellValues(Object[][])},
+	 * the formulas depending on the cells are re-evaluated and the change is
+	 * notified once for the whole area.
+	 * @param editTexts the editTexts, a null one leaves the cell untouched
+	 * @throws IllegalFormulaException if a formula is illegal, after the other cells are set
+	 * @see #setCellEditText(String)
+	 */
+	public void setCellEditTexts(String[][] editTexts);
+	
 	/**
 	 * Sets cell hyperlink, applies it too all cells
 	 * @param type the hyperlink type
@@ -18,6 +18,7 @@ package org.zkoss.zss.api.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 import org.zkoss.poi.ss.formula.FormulaParseException;
 import org.zkoss.poi.ss.usermodel.Cell;
@@ -57,6 +58,7 @@ import org.zkoss.zss.api.model.impl.PictureImpl;
 import org.zkoss.zss.api.model.impl.SheetImpl;
 import org.zkoss.zss.api.model.impl.SimpleRef;
 import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XBookLock;
 import org.zkoss.zss.model.sys.XRange;
 import org.zkoss.zss.model.sys.XRanges;
 import org.zkoss.zss.model.sys.XSheet;
@@ -236,6 +238,24 @@ public class RangeImpl implements Range{
 		//TODO the syncLevel
 		_range.setStyle(nstyle==null?null:((CellStyleImpl)nstyle).getNative());
 	}
+	
+	public void setCellStyles(CellStyle[][] styles) {
+		//TODO the syncLevel
+		if(styles==null){
+			return;
+		}
+		org.zkoss.poi.ss.usermodel.CellStyle[][] nstyles = new org.zkoss.poi.ss.usermodel.CellStyle[styles.length][];
+		for(int i=0;i<styles.length;i++){
+			if(styles[i]==null){
+				continue;
+			}
+			nstyles[i] = new org.zkoss.poi.ss.usermodel.CellStyle[styles[i].length];
+			for(int j=0;j<styles[i].length;j++){
+				nstyles[i][j] = styles[i][j]==null?null:((CellStyleImpl)styles[i][j]).getNative();
+			}
+		}
+		_range.setStyles(nstyles);
+	}
 
 
 	public int getColumn() {
@@ -257,8 +277,13 @@ public class RangeImpl implements Range{
 			run.run(this);
 			return;
 		case BOOK:
-			synchronized(_sharedCtx.getBook().getSync()){//it just show concept, we have to has a betterway to do read-write lock
+		case READ:
+			final Lock lock = getLock(_syncLevel);
+			lock.lock();
+			try {
 				run.run(this);
+			} finally {
+				lock.unlock();
 			}
 			return;
 		}
@@ -294,13 +319,23 @@ public class RangeImpl implements Range{
 			run.run();
 			return;
 		case BOOK:
-			synchronized(_sharedCtx.getBook().getSync()){
+		case READ:
+			final Lock lock = getLock(sync);
+			lock.lock();
+			try {
 				run.run();
+			} finally {
+				lock.unlock();
 			}
 			return;
 		}
 	}
 	
+	private Lock getLock(SyncLevel sync) {
+		final XBookLock lock = ((BookImpl)_sharedCtx.getBook()).getNative().getLock();
+		return sync == SyncLevel.READ ? lock.readLock() : lock.writeLock();
+	}
+	
 	private boolean visitCell(CellVisitor visitor,int r, int c){
 		boolean ignore = false;
 		boolean ignoreSet = false;
@@ -661,6 +696,20 @@ public class RangeImpl implements Range{
 		_range.setValue(value);
 	}
 	
+	public void setCellValues(Object[][] values){
+		//TODO the syncLevel
+		_range.setValues(values);
+	}
+	
+	public void setCellEditTexts(String[][] editTexts){
+		//TODO the syncLevel
+		try{
+			_range.setEditTexts(editTexts);
+		}catch(FormulaParseException x){
+			throw new IllegalFormulaException(x.getMessage(),x);
+		}
+	}
+	
 	private ModelRef<XBook> getBookRef(){
 		return ((BookImpl)getBook()).getRef();
 	}
@@ -37,6 +37,8 @@ public interface Book {
 	/**
 	 * Gets the object for synchronized a book.
 	 * Note: you shouldn't synchronize a book directly, you have to get the sync object to synchronize it
+	 * Note: the operations of {@link org.zkoss.zss.api.Range} lock the book with a read/write lock instead of this object, 
+	 * use {@link org.zkoss.zss.api.Range#sync(org.zkoss.zss.api.RangeRunner)} to run with them
 	 * @return
 	 */
 	public Object getSync();
@@ -92,6 +92,26 @@ public interface RefBook {
 	 */
 	public void publish(Event event);
 	
+	/**
+	 * Starts a publish batch. Until the matching {@link #endPublishBatch()},
+	 * the published content change events of cells and areas are collected
+	 * and then published as a few coalesced area events per sheet. Batches
+	 * can be nested; other events are published right away (after the
+	 * collected content changes, to keep the order).
+	 * <p>A batch belongs to the calling thread: the events published by other
+	 * threads (e.g. readers of the book at the same time) are not collected
+	 * into it.</p>
+	 * <p>A coalesced area can cover cells that are not changed, see
+	 * {@link org.zkoss.zss.ui.event.Events#ON_AFTER_CELL_CHANGE}.</p>
+	 */
+	public void startPublishBatch();
+	
+	/**
+	 * Ends a publish batch started by {@link #startPublishBatch()}; when the
+	 * outermost batch ends, publish the coalesced content change events.
+	 */
+	public void endPublishBatch();
+	
 	/**
 	 * Return or create if not exist the specified variable reference.
 	 * @param name the name of the specified variable reference
@@ -42,6 +42,16 @@ public interface RefSheet {
 	 */
 	public Set<Ref> getHitRefs(int row, int col);
 	
+	/**
+	 * Given an area, return the {@link Ref} set that intersects the area.
+	 * @param tRow top row index of the area
+	 * @param lCol left column index of the area
+	 * @param bRow bottom row index of the area
+	 * @param rCol right column index of the area
+	 * @return the hit {@link Ref} set.
+	 */
+	public Set<Ref> getHitRefs(int tRow, int lCol, int bRow, int rCol);
+	
 	/**
 	 * Returns the reference area from the reference sheet; return null if not exists.
 	 * @param tRow top row index   
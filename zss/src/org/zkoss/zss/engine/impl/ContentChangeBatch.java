@@ -0,0 +1,200 @@
+/* ContentChangeBatch.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 4:32:09 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.zkoss.zk.ui.event.Event;
+import org.zkoss.zss.engine.Ref;
+import org.zkoss.zss.engine.RefSheet;
+import org.zkoss.zss.engine.event.SSDataEvent;
+
+/**
+ * Collects the {@link SSDataEvent#ON_CONTENTS_CHANGE} events published by
+ * {@link RefBookImpl} during a batch and coalesces them into a few area events
+ * per sheet when the batch ends.
+ * <p>The changed areas of a sheet are first merged exactly: vertically
+ * adjacent areas of the same columns into column runs, then horizontally
+ * adjacent runs of the same rows into blocks; so a pasted block becomes one
+ * area. If there are still more than {@link #MAX_AREAS} areas (e.g. scattered
+ * formula cells), they are grouped by row into {@link #MAX_AREAS} bounding
+ * areas; repainting a few unchanged cells is much cheaper than a round of
+ * update per cell.</p>
+ * <p>It is not thread safe; {@link RefBookImpl} keeps one per thread which
+ * started a batch.</p>
+ */
+/*package*/ class ContentChangeBatch {
+	/*package*/ static final int MAX_AREAS = 16; //maximum areas per sheet after coalescing
+
+	private static final Comparator<int[]> COLUMN_RUN_ORDER = new Comparator<int[]>() {
+		@Override
+		public int compare(int[] o1, int[] o2) {
+			int diff = o1[1] - o2[1]; //left
+			if (diff == 0) {
+				diff = o1[3] - o2[3]; //right
+				if (diff == 0) {
+					diff = o1[0] - o2[0]; //top
+				}
+			}
+			return diff;
+		}
+	};
+	private static final Comparator<int[]> ROW_RUN_ORDER = new Comparator<int[]>() {
+		@Override
+		public int compare(int[] o1, int[] o2) {
+			int diff = o1[0] - o2[0]; //top
+			if (diff == 0) {
+				diff = o1[2] - o2[2]; //bottom
+				if (diff == 0) {
+					diff = o1[1] - o2[1]; //left
+				}
+			}
+			return diff;
+		}
+	};
+
+	private final Map<RefSheet, List<int[]>> _changes; //changed areas {top, left, bottom, right} per sheet
+	private int _depth;
+
+	/*package*/ ContentChangeBatch() {
+		_changes = new LinkedHashMap<RefSheet, List<int[]>>(4);
+	}
+
+	/*package*/ void start() {
+		++_depth;
+	}
+
+	/**
+	 * Ends a (nested) batch.
+	 * @return true if the outermost batch is ended and the collected changes
+	 * shall be {@link #drain() drained}.
+	 */
+	/*package*/ boolean end() {
+		if (_depth > 0) {
+			--_depth;
+		}
+		return _depth == 0;
+	}
+
+	/*package*/ boolean isActive() {
+		return _depth > 0;
+	}
+
+	/*package*/ boolean isEmpty() {
+		return _changes.isEmpty();
+	}
+
+	/**
+	 * Collects the event if it is a plain content change of a cell or an area.
+	 * @return whether the event is collected; otherwise, the event shall be
+	 * published as is.
+	 */
+	/*package*/ boolean add(Event event) {
+		if (!(event instanceof SSDataEvent) || !SSDataEvent.ON_CONTENTS_CHANGE.equals(event.getName())) {
+			return false;
+		}
+		final SSDataEvent evt = (SSDataEvent) event;
+		final Ref ref = evt.getRef();
+		if (!(ref instanceof CellRefImpl) || evt.getOriginalRef() != null
+			|| evt.getDirection() != SSDataEvent.MOVE_NO || evt.getPayload() != null) {
+			return false;
+		}
+		final RefSheet refSheet = ref.getOwnerSheet();
+		List<int[]> areas = _changes.get(refSheet);
+		if (areas == null) {
+			areas = new ArrayList<int[]>();
+			_changes.put(refSheet, areas);
+		}
+		areas.add(new int[] {ref.getTopRow(), ref.getLeftCol(), ref.getBottomRow(), ref.getRightCol()});
+		return true;
+	}
+
+	/**
+	 * Returns the coalesced content change events and clears the collected
+	 * changes.
+	 */
+	/*package*/ List<SSDataEvent> drain() {
+		final List<SSDataEvent> events = new ArrayList<SSDataEvent>();
+		for (Entry<RefSheet, List<int[]>> entry : _changes.entrySet()) {
+			final RefSheet refSheet = entry.getKey();
+			for (int[] area : coalesce(entry.getValue(), MAX_AREAS)) {
+				final Ref ref = area[0] == area[2] && area[1] == area[3] ?
+					new CellRefImpl(area[0], area[1], refSheet) :
+					new AreaRefImpl(area[0], area[1], area[2], area[3], refSheet);
+				events.add(new SSDataEvent(SSDataEvent.ON_CONTENTS_CHANGE, ref, SSDataEvent.MOVE_NO));
+			}
+		}
+		_changes.clear();
+		return events;
+	}
+
+	/**
+	 * Coalesces the areas into at most maxAreas areas which cover all of them.
+	 * @param areas the areas {top, left, bottom, right}; the list is modified.
+	 */
+	/*package*/ static List<int[]> coalesce(List<int[]> areas, int maxAreas) {
+		//same columns, adjacent or overlapped rows
+		Collections.sort(areas, COLUMN_RUN_ORDER);
+		List<int[]> runs = new ArrayList<int[]>();
+		int[] last = null;
+		for (int[] area : areas) {
+			if (last != null && last[1] == area[1] && last[3] == area[3] && area[0] <= last[2] + 1) {
+				last[2] = Math.max(last[2], area[2]);
+			} else {
+				last = area.clone();
+				runs.add(last);
+			}
+		}
+
+		//same rows, adjacent or overlapped columns
+		Collections.sort(runs, ROW_RUN_ORDER);
+		final List<int[]> blocks = new ArrayList<int[]>();
+		last = null;
+		for (int[] run : runs) {
+			if (last != null && last[0] == run[0] && last[2] == run[2] && run[1] <= last[3] + 1) {
+				last[3] = Math.max(last[3], run[3]);
+			} else {
+				last = run;
+				blocks.add(last);
+			}
+		}
+		if (blocks.size() <= maxAreas) {
+			return blocks;
+		}
+
+		//still too many, bound them group by group in row order
+		final List<int[]> bounds = new ArrayList<int[]>(maxAreas);
+		final int size = blocks.size();
+		for (int g = 0; g < maxAreas; ++g) {
+			final int from = (int) ((long) size * g / maxAreas);
+			final int to = (int) ((long) size * (g + 1) / maxAreas);
+			final int[] bound = blocks.get(from).clone();
+			for (int j = from + 1; j < to; ++j) {
+				final int[] block = blocks.get(j);
+				bound[0] = Math.min(bound[0], block[0]);
+				bound[1] = Math.min(bound[1], block[1]);
+				bound[2] = Math.max(bound[2], block[2]);
+				bound[3] = Math.max(bound[3], block[3]);
+			}
+			bounds.add(bound);
+		}
+		return bounds;
+	}
+}
@@ -13,7 +13,13 @@ Copyright (C) 2010 Potix Corporation. All Rights Reserved.
 
 package org.zkoss.zss.engine.impl;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.zkoss.zss.engine.Ref;
@@ -30,6 +36,15 @@ public class DependencyTrackerHelper {
 		getBothDependents(dependents, all, last);
 	}
 	
+	/**
+	 * Collects the dependents of all cells in the area with one hit test and
+	 * one walk, instead of one walk per cell.
+	 */
+	public static void getBothDependents(RefSheet sheet, int tRow, int lCol, int bRow, int rCol, Set<Ref> all, Set<Ref> last) {
+		final Set<Ref> dependents = getDirectDependents(sheet.getHitRefs(tRow, lCol, bRow, rCol));
+		getBothDependents(dependents, all, last);
+	}
+	
 	public static void getBothDependents(Set<Ref> dependents, Set<Ref> all, Set<Ref> last) {
 		for (Ref dependent : dependents) {
 			getDependentsRecursive(dependent, all, last); //recursive
@@ -50,16 +65,81 @@ public class DependencyTrackerHelper {
 	}
 	
 	//TODO can form a cell link per the formula
+	//walk with an explicit stack; a long chained model would overflow the call stack
 	private static void getDependentsRecursive(Ref srcRef, Set<Ref> all, Set<Ref> last) {
-		if (all.contains(srcRef)) return; //circular graph, return to avoid endless loop
-		all.add(srcRef);
-		final Set<Ref> dependents = getDirectDependents(srcRef.getOwnerSheet(), srcRef.getTopRow(), srcRef.getLeftCol());
-		if (last != null && dependents.isEmpty()) { //no more dependents, so I am the last
-			last.add(srcRef);
+		final Deque<Ref> stack = new ArrayDeque<Ref>();
+		stack.push(srcRef);
+		while (!stack.isEmpty()) {
+			final Ref ref = stack.pop();
+			if (!all.add(ref)) continue; //circular graph, skip to avoid endless loop
+			final Set<Ref> dependents = getDirectDependents(ref.getOwnerSheet(), ref.getTopRow(), ref.getLeftCol());
+			if (last != null && dependents.isEmpty()) { //no more dependents, so I am the last
+				last.add(ref);
+			}
+			for (Ref dependent : dependents) {
+				if (!all.contains(dependent)) {
+					stack.push(dependent);
+				}
+			}
 		}
-		for (Ref dependent : dependents) {
-			getDependentsRecursive(dependent, all, last); //recursive
+	}
+	
+	/**
+	 * Returns the specified dirty {@link Ref}s in evaluation order; i.e. every 
+	 * Ref comes after all its precedents within the dirty set, so evaluating in 
+	 * this order visits each formula cell exactly once and finds its precedents 
+	 * already evaluated. 
+	 * <p>Refs that are part of a circular reference (or depend on one) cannot be 
+	 * ordered; they are excluded from the returned list and collected into the 
+	 * specified cyclic set instead.</p>
+	 * @param dirty the Refs to be evaluated (e.g. the "all" set of {@link #getBothDependents(Set, Set, Set)})
+	 * @param cyclic the set to collect Refs that are in or depend on a circular reference; can be null 
+	 * @return the acyclic dirty Refs in topological order (precedents first)
+	 */
+	public static List<Ref> getEvaluationOrder(Set<Ref> dirty, Set<Ref> cyclic) {
+		final int size = dirty.size();
+		final Map<Ref, Set<Ref>> successors = new HashMap<Ref, Set<Ref>>(size * 4 / 3 + 1);
+		final Map<Ref, int[]> indegrees = new HashMap<Ref, int[]>(size * 4 / 3 + 1);
+		for (Ref ref : dirty) {
+			indegrees.put(ref, new int[1]);
+		}
+		//dependency edges inside the dirty set
+		for (Ref ref : dirty) {
+			final Set<Ref> dependents = getDirectDependents(ref.getOwnerSheet(), ref.getTopRow(), ref.getLeftCol());
+			dependents.retainAll(dirty);
+			successors.put(ref, dependents);
+			for (Ref dependent : dependents) {
+				++indegrees.get(dependent)[0];
+			}
+		}
+		
+		//Kahn's algorithm
+		final List<Ref> order = new ArrayList<Ref>(size);
+		final Deque<Ref> ready = new ArrayDeque<Ref>();
+		for (Ref ref : dirty) {
+			if (indegrees.get(ref)[0] == 0) {
+				ready.add(ref);
+			}
+		}
+		while (!ready.isEmpty()) {
+			final Ref ref = ready.poll();
+			order.add(ref);
+			for (Ref dependent : successors.get(ref)) {
+				if (--indegrees.get(dependent)[0] == 0) {
+					ready.add(dependent);
+				}
+			}
+		}
+		
+		//whatever left is in (or behind) a cycle
+		if (cyclic != null && order.size() < size) {
+			for (Map.Entry<Ref, int[]> entry : indegrees.entrySet()) {
+				if (entry.getValue()[0] > 0) {
+					cyclic.add(entry.getKey());
+				}
+			}
 		}
+		return order;
 	}
 
 	public static void addDependency(CellRefImpl srcRef, RefSheet sheet,
@@ -0,0 +1,233 @@
+/* RefAddrMap.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 3:40:18 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.engine.impl;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.zkoss.zss.engine.Ref;
+
+/**
+ * Map from the left/top/right/bottom address of an area to its {@link Ref};
+ * used by {@link RefSheetImpl} instead of a HashMap keyed by {@link RefAddr}.
+ * <p>The map is an open addressing hash table (linear probing with backward
+ * shift deletion, no tombstones) over primitive arrays. The top/left corner of
+ * an area is packed into one long and the bottom/right corner into another;
+ * for a single cell both longs are the same. Looking up, adding and removing
+ * do not allocate any object, and an entry costs two longs and one reference
+ * instead of a map entry plus a {@link RefAddr}.</p>
+ *
+ * <p>The coordinates are kept in the map, so the {@link Ref}s may change
+ * their position while they are in the map; however such an entry can only be
+ * found (and removed) by its old address.</p>
+ */
+/*package*/ class RefAddrMap {
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] _keys; //packed top row and left column
+	private long[] _ends; //packed bottom row and right column
+	private Ref[] _values; //null means the slot is empty
+	private int _mask;
+	private int _size;
+	private int _threshold;
+	private int _modCount;
+	private Collection<Ref> _valuesView;
+
+	/*package*/ RefAddrMap() {
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * Returns the {@link Ref} of the specified address, or null if not found.
+	 */
+	/*package*/ Ref get(int tRow, int lCol, int bRow, int rCol) {
+		final int j = indexOf(pack(tRow, lCol), pack(bRow, rCol));
+		return j < 0 ? null : _values[j];
+	}
+
+	/**
+	 * Associates the specified {@link Ref} with the specified address.
+	 * @return the previous {@link Ref} of the address, or null if none.
+	 */
+	/*package*/ Ref put(int tRow, int lCol, int bRow, int rCol, Ref ref) {
+		if (ref == null) {
+			throw new IllegalArgumentException("null Ref");
+		}
+		final long key = pack(tRow, lCol);
+		final long end = pack(bRow, rCol);
+		int j = hash(key, end) & _mask;
+		for (Ref value = _values[j]; value != null; value = _values[j]) {
+			if (_keys[j] == key && _ends[j] == end) {
+				_values[j] = ref;
+				return value;
+			}
+			j = (j + 1) & _mask;
+		}
+		_keys[j] = key;
+		_ends[j] = end;
+		_values[j] = ref;
+		++_modCount;
+		if (++_size > _threshold) {
+			rehash(_values.length << 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the {@link Ref} of the specified address.
+	 * @return the removed {@link Ref}, or null if not found.
+	 */
+	/*package*/ Ref remove(int tRow, int lCol, int bRow, int rCol) {
+		final int j = indexOf(pack(tRow, lCol), pack(bRow, rCol));
+		if (j < 0) {
+			return null;
+		}
+		final Ref ref = _values[j];
+		removeAt(j);
+		return ref;
+	}
+
+	/*package*/ int size() {
+		return _size;
+	}
+
+	/**
+	 * Returns a live read only view of the {@link Ref}s in this map.
+	 */
+	/*package*/ Collection<Ref> values() {
+		if (_valuesView == null) {
+			_valuesView = new Values();
+		}
+		return _valuesView;
+	}
+
+	private int indexOf(long key, long end) {
+		int j = hash(key, end) & _mask;
+		while (_values[j] != null) {
+			if (_keys[j] == key && _ends[j] == end) {
+				return j;
+			}
+			j = (j + 1) & _mask;
+		}
+		return -1;
+	}
+
+	//shift back the following entries of the probe sequence into the gap
+	private void removeAt(int gap) {
+		int j = gap;
+		while (true) {
+			j = (j + 1) & _mask;
+			if (_values[j] == null) {
+				break;
+			}
+			final int ideal = hash(_keys[j], _ends[j]) & _mask;
+			if (((j - ideal) & _mask) >= ((j - gap) & _mask)) {
+				_keys[gap] = _keys[j];
+				_ends[gap] = _ends[j];
+				_values[gap] = _values[j];
+				gap = j;
+			}
+		}
+		_values[gap] = null;
+		--_size;
+		++_modCount;
+	}
+
+	private void allocate(int capacity) {
+		_keys = new long[capacity];
+		_ends = new long[capacity];
+		_values = new Ref[capacity];
+		_mask = capacity - 1;
+		_threshold = (capacity >> 1) + (capacity >> 2); //load factor 0.75
+	}
+
+	private void rehash(int capacity) {
+		final long[] keys = _keys;
+		final long[] ends = _ends;
+		final Ref[] values = _values;
+		allocate(capacity);
+		for (int k = 0, len = values.length; k < len; ++k) {
+			if (values[k] != null) {
+				int j = hash(keys[k], ends[k]) & _mask;
+				while (_values[j] != null) {
+					j = (j + 1) & _mask;
+				}
+				_keys[j] = keys[k];
+				_ends[j] = ends[k];
+				_values[j] = values[k];
+			}
+		}
+	}
+
+	private static long pack(int row, int col) {
+		return (((long)row) << 32) | (col & 0xffffffffL);
+	}
+
+	private static int hash(long key, long end) {
+		long h = key * 0x9E3779B97F4A7C15L + end; //single cell: end == key
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 29;
+		return (int) h;
+	}
+
+	private class Values extends AbstractCollection<Ref> {
+		@Override
+		public Iterator<Ref> iterator() {
+			return new Iterator<Ref>() {
+				private final int _expectedModCount = _modCount;
+				private int _next = seek(0);
+
+				private int seek(int j) {
+					final Ref[] values = _values;
+					while (j < values.length && values[j] == null) {
+						++j;
+					}
+					return j;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return _next < _values.length;
+				}
+
+				@Override
+				public Ref next() {
+					if (_modCount != _expectedModCount) {
+						throw new ConcurrentModificationException();
+					}
+					if (_next >= _values.length) {
+						throw new NoSuchElementException();
+					}
+					final Ref ref = _values[_next];
+					_next = seek(_next + 1);
+					return ref;
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return _size;
+		}
+	}
+}
@@ -13,13 +13,15 @@ Copyright (C) 2010 Potix Corporation. All Rights Reserved.
 
 package org.zkoss.zss.engine.impl;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.zkoss.util.logging.Log;
+import org.zkoss.zk.ui.Desktop;
+import org.zkoss.zk.ui.DesktopUnavailableException;
+import org.zkoss.zk.ui.Executions;
 import org.zkoss.zk.ui.event.Event;
 import org.zkoss.zk.ui.event.EventListener;
 import org.zkoss.zk.ui.event.EventQueue;
@@ -27,6 +29,7 @@ import org.zkoss.zk.ui.event.EventQueues;
 import org.zkoss.zss.engine.Ref;
 import org.zkoss.zss.engine.RefBook;
 import org.zkoss.zss.engine.RefSheet;
+import org.zkoss.zss.engine.event.SSDataEvent;
 
 /**
  * Implementation of {@link RefBook} that manage the {@link RefSheet}s associated in this RefBook.
@@ -34,13 +37,17 @@ import org.zkoss.zss.engine.RefSheet;
  *
  */
 public class RefBookImpl implements RefBook {
+	private static final Log log = Log.lookup(RefBookImpl.class);
+
 	private final String _bookname;
-	private final Map<String, RefSheet> _sheetRefs;
+	private final ConcurrentMap<String, RefSheet> _sheetRefs; //asked by the readers of the book at the same time
 	private final int _maxrow;
 	private final int _maxcol;
 	private final ConcurrentMap<String, Ref> _variableRefs;
 	private final EventQueue _queue;
+	private final Desktop _desktop; //of the queue
 	private final String _queueName;
+	private final ThreadLocal<ContentChangeBatch> _batch; //content changes collected in a publish batch of the current thread
 	private static int _lastQueueId = -1;
 	
 	/**
@@ -48,7 +55,7 @@ public class RefBookImpl implements RefBook {
 	 */
 	public RefBookImpl(String bookname, int maxrow, int maxcol) {
 		_bookname = bookname;
-		_sheetRefs = new HashMap<String, RefSheet>(3);
+		_sheetRefs = new ConcurrentHashMap<String, RefSheet>(3);
 		_variableRefs = new ConcurrentHashMap<String, Ref>(4);
 		_maxrow = maxrow;
 		_maxcol = maxcol;
@@ -61,6 +68,8 @@ public class RefBookImpl implements RefBook {
 			//ignore for zsstest case(No execution)
 		}
 		_queue = tmp;
+		_desktop = tmp != null ? Executions.getCurrent().getDesktop() : null;
+		_batch = new ThreadLocal<ContentChangeBatch>();
 	}
 	
 	private static synchronized int nextQueueId(){
@@ -77,7 +86,10 @@ public class RefBookImpl implements RefBook {
 		RefSheet sheet = _sheetRefs.get(sheetname);
 		if (sheet == null) {
 			sheet = new RefSheetImpl(this, sheetname);
-			_sheetRefs.put(sheetname, sheet);
+			final RefSheet old = _sheetRefs.putIfAbsent(sheetname, sheet);
+			if (old != null) {
+				sheet = old;
+			}
 		}
 		return sheet;
 	}
@@ -106,13 +118,81 @@ public class RefBookImpl implements RefBook {
 	public void publish(Event event) {
 		final EventQueue que = getEventQueue();
 		if (que != null) {
+			final ContentChangeBatch batch = _batch.get();
+			if (batch != null) {
+				if (batch.add(event)) {
+					return; //published when the batch ends
+				}
+				publishBatch(que, batch); //keep the order of events
+			}
+			publish(que, event);
+		}
+	}
+	
+	//a desktop queue can be published only in an execution of its desktop; in a thread without
+	//execution (e.g. exporting a book being saved in background), the event is scheduled to the
+	//desktop by server push, so the listeners run in its event thread as usual
+	private void publish(final EventQueue que, Event event) {
+		final Desktop desktop = getDesktop();
+		if (desktop == null || Executions.getCurrent() != null) {
 			que.publish(event);
+			return;
+		}
+		try {
+			Executions.schedule(desktop, new EventListener<Event>() {
+				@Override
+				public void onEvent(Event event) throws Exception {
+					que.publish(event);
+				}
+			}, event);
+		} catch (DesktopUnavailableException ex) {
+			//the desktop is gone, nobody listens
+		} catch (IllegalStateException ex) {
+			log.warning("Server push is not enabled, "+event.getName()+" of "+_bookname+" is not published in "+desktop);
+		}
+	}
+	
+	@Override
+	public void startPublishBatch() {
+		ContentChangeBatch batch = _batch.get();
+		if (batch == null) {
+			batch = new ContentChangeBatch();
+			_batch.set(batch);
+		}
+		batch.start();
+	}
+	
+	@Override
+	public void endPublishBatch() {
+		final ContentChangeBatch batch = _batch.get();
+		if (batch != null && batch.end()) {
+			_batch.remove();
+			final EventQueue que = getEventQueue();
+			if (que != null) {
+				publishBatch(que, batch);
+			}
+		}
+	}
+	
+	private void publishBatch(EventQueue que, ContentChangeBatch batch) {
+		if (!batch.isEmpty()) {
+			for (SSDataEvent event : batch.drain()) {
+				publish(que, event);
+			}
 		}
 	}
 	
 	protected EventQueue getEventQueue() {
 		return _queue;
 	}
+	
+	/**
+	 * Returns the desktop of the {@link #getEventQueue() event queue}, the
+	 * events published in a thread without execution are scheduled to it.
+	 */
+	protected Desktop getDesktop() {
+		return _desktop;
+	}
 
 	@Override
 	public RefSheet removeRefSheet(String sheetname) {
@@ -0,0 +1,220 @@
+/* RefHitIndex.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 10:12:40 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.zkoss.zss.engine.Ref;
+
+/**
+ * Spatial index used by {@link RefSheetImpl} for point hit test among
+ * reference areas {@link Ref}.
+ * <p>The index is an augmented interval tree over the row spans of the
+ * reference areas. The areas are sorted by top row in flat arrays and the array
+ * is treated as an implicit balanced binary tree (the middle element of a range
+ * is the root of that range); each node also records the maximum bottom row of
+ * its subtree. A hit test descends only into subtrees whose maximum bottom row
+ * is not less than the tested row and whose top rows are not greater than the
+ * tested row, then filters the candidates by column. That makes a hit test
+ * O(log n + k) and allocation free except for the returned hits.</p>
+ *
+ * <p>The tree itself is static. Areas added after the last build are kept in
+ * a small pending list and areas removed after the last build are kept as
+ * tombstones; both are consulted on hit test and folded into the tree on the
+ * next rebuild once they grow beyond a threshold. Structural operations
+ * (insert/delete rows and columns, move range, ...) which shift many areas at
+ * once simply {@link #invalidate()} the index, so it is rebuilt lazily from the
+ * owner's live {@link Ref}s on next hit test.</p>
+ */
+/*package*/ class RefHitIndex {
+	private static final int MIN_THRESHOLD = 64;
+	private static final Comparator<Ref> TOP_ROW_COMPARATOR = new Comparator<Ref>() {
+		@Override
+		public int compare(Ref o1, Ref o2) {
+			final int t1 = o1.getTopRow();
+			final int t2 = o2.getTopRow();
+			return t1 < t2 ? -1 : t1 == t2 ? 0 : 1;
+		}
+	};
+
+	private final Collection<Ref> _source; //live Refs of the owner, used to rebuild
+	private final List<Ref> _pending; //added after last build
+	private final Set<Ref> _removed; //removed after last build (tombstones)
+	private Ref[] _refs; //built Refs, sorted by top row
+	private int[] _tRows;
+	private int[] _bRows;
+	private int[] _lCols;
+	private int[] _rCols;
+	private int[] _maxBRows; //maximum bottom row of the implicit subtree rooted at j
+	private int _size;
+	private boolean _dirty;
+
+	/**
+	 * @param source the live collection of all indexed {@link Ref}s; used when
+	 * the index has to be rebuilt.
+	 */
+	/*package*/ RefHitIndex(Collection<Ref> source) {
+		_source = source;
+		_pending = new ArrayList<Ref>();
+		_removed = new HashSet<Ref>();
+		_refs = new Ref[0];
+		_tRows = _bRows = _lCols = _rCols = _maxBRows = new int[0];
+		_dirty = true;
+	}
+
+	/**
+	 * Adds a newly created {@link Ref} into this index.
+	 */
+	/*package*/ void add(Ref ref) {
+		if (_dirty) {
+			return; //will be picked up on rebuild
+		}
+		if (_removed.contains(ref)) { //re-added, the built position might be stale
+			invalidate();
+			return;
+		}
+		_pending.add(ref);
+	}
+
+	/**
+	 * Removes a {@link Ref} from this index.
+	 */
+	/*package*/ void remove(Ref ref) {
+		if (_dirty) {
+			return;
+		}
+		if (!_pending.remove(ref)) {
+			_removed.add(ref);
+		}
+	}
+
+	/**
+	 * Mark this index as out of date; it will be rebuilt on next hit test.
+	 * Shall be called whenever the position of the indexed {@link Ref}s are
+	 * changed in batch.
+	 */
+	/*package*/ void invalidate() {
+		if (!_dirty) {
+			_dirty = true;
+			_pending.clear();
+			_removed.clear();
+			_refs = new Ref[0]; //release the references
+			_size = 0;
+		}
+	}
+
+	/**
+	 * Collects the {@link Ref}s that contain the specified cell into hits.
+	 * @param row the row index of the cell
+	 * @param col the column index of the cell
+	 * @param hits the set to collect the hit {@link Ref}s
+	 */
+	/*package*/ void getHitRefs(int row, int col, Set<Ref> hits) {
+		getHitRefs(row, col, row, col, hits);
+	}
+
+	/**
+	 * Collects the {@link Ref}s that intersect the specified area into hits.
+	 * @param tRow top row index of the area
+	 * @param lCol left column index of the area
+	 * @param bRow bottom row index of the area
+	 * @param rCol right column index of the area
+	 * @param hits the set to collect the hit {@link Ref}s
+	 */
+	/*package*/ void getHitRefs(int tRow, int lCol, int bRow, int rCol, Set<Ref> hits) {
+		if (_dirty || (_pending.size() + _removed.size()) > threshold()) {
+			rebuild();
+		}
+		if (_size > 0) {
+			search(0, _size, tRow, lCol, bRow, rCol, hits);
+		}
+		for (int j = 0, len = _pending.size(); j < len; ++j) {
+			final Ref ref = _pending.get(j);
+			if (ref.getTopRow() <= bRow && ref.getBottomRow() >= tRow
+				&& ref.getLeftCol() <= rCol && ref.getRightCol() >= lCol) {
+				hits.add(ref);
+			}
+		}
+	}
+
+	//number of pending changes allowed before a rebuild is cheaper than scanning them
+	private int threshold() {
+		return Math.max(MIN_THRESHOLD, ((int) Math.sqrt(_size)) << 2);
+	}
+
+	private void search(int lo, int hi, int tRow, int lCol, int bRow, int rCol, Set<Ref> hits) {
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (_maxBRows[mid] < tRow) {
+				return; //no area in this subtree reaches down to the top row
+			}
+			search(lo, mid, tRow, lCol, bRow, rCol, hits); //left subtree
+			if (_tRows[mid] > bRow) {
+				return; //mid and the right subtree all start below the bottom row
+			}
+			if (_bRows[mid] >= tRow && _lCols[mid] <= rCol && _rCols[mid] >= lCol) {
+				final Ref ref = _refs[mid];
+				if (_removed.isEmpty() || !_removed.contains(ref)) {
+					hits.add(ref);
+				}
+			}
+			lo = mid + 1; //right subtree
+		}
+	}
+
+	private void rebuild() {
+		final Ref[] refs = _source.toArray(new Ref[_source.size()]);
+		Arrays.sort(refs, TOP_ROW_COMPARATOR);
+		final int size = refs.length;
+		final int[] tRows = new int[size];
+		final int[] bRows = new int[size];
+		final int[] lCols = new int[size];
+		final int[] rCols = new int[size];
+		for (int j = 0; j < size; ++j) {
+			final Ref ref = refs[j];
+			tRows[j] = ref.getTopRow();
+			bRows[j] = ref.getBottomRow();
+			lCols[j] = ref.getLeftCol();
+			rCols[j] = ref.getRightCol();
+		}
+		_refs = refs;
+		_tRows = tRows;
+		_bRows = bRows;
+		_lCols = lCols;
+		_rCols = rCols;
+		_maxBRows = new int[size];
+		_size = size;
+		buildMaxBRows(0, size);
+		_pending.clear();
+		_removed.clear();
+		_dirty = false;
+	}
+
+	private int buildMaxBRows(int lo, int hi) {
+		if (lo >= hi) {
+			return -1;
+		}
+		final int mid = (lo + hi) >>> 1;
+		final int max = Math.max(_bRows[mid],
+			Math.max(buildMaxBRows(lo, mid), buildMaxBRows(mid + 1, hi)));
+		_maxBRows[mid] = max;
+		return max;
+	}
+}
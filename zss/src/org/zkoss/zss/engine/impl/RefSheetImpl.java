@@ -15,10 +15,8 @@ package org.zkoss.zss.engine.impl;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.Map;
 import java.util.Set;
 
 import org.zkoss.poi.ss.util.CellReference;
@@ -48,12 +46,18 @@ import org.zkoss.zss.engine.RefSheet;
  * The only difference is that this time we shall scan in reverse order and check 
  * whether row0 is greater than the area's bottom row index. And the same algorithm is 
  * applied to two area columns scanning. 
+ * 
+ * <p>The four ordered lists are maintained for shifting reference areas on 
+ * structural changes (insert/delete rows, columns and ranges). The point hit test 
+ * {@link #getHitRefs(int, int)} itself is served by a {@link RefHitIndex}, an interval 
+ * tree over the area row spans with column filtering, which avoids scanning and 
+ * intersecting the four lists on every changed cell.</p>
  *    
  * @author henrichen
  *
  */
 public class RefSheetImpl implements RefSheet {
-	private final Map<RefAddr, Ref> _ltrbIndex; //index of Ref left/top/right/bottom 
+	private final RefAddrMap _ltrbIndex; //index of Ref left/top/right/bottom 
 	private final IndexArrayList _tRowIndex; //index of Ref top row
 	private final IndexArrayList _bRowIndex; //index of Ref bottom row
 	private final IndexArrayList _lColIndex; //index of Ref left column
@@ -61,16 +65,18 @@ public class RefSheetImpl implements RefSheet {
 	private final RefBook _ownerBook;
 	private String _sheetName;
 	private final Set<Ref> _indirectDependentRefs; //formula reference contains indirect function(always hit)
+	private final RefHitIndex _hitIndex; //spatial index for hit test
 	
 	public RefSheetImpl(RefBook ownerBook, String sheetName) {
 		_ownerBook = ownerBook;
 		_sheetName = sheetName;
-		_ltrbIndex = new HashMap<RefAddr, Ref>();
+		_ltrbIndex = new RefAddrMap();
 		_tRowIndex = new IndexArrayList();
 		_bRowIndex = new IndexArrayList();
 		_lColIndex = new IndexArrayList();
 		_rColIndex = new IndexArrayList();
 		_indirectDependentRefs = new HashSet<Ref>(16);
+		_hitIndex = new RefHitIndex(_ltrbIndex.values());
 	}
 	
 	/*package*/void setSheetName(String newsheetname) {
@@ -92,8 +98,7 @@ public class RefSheetImpl implements RefSheet {
 	 */
 	@Override
 	public Ref getOrCreateRef(int tRow, int lCol, int bRow, int rCol) {
-		final RefAddr addr = new RefAddr(tRow, lCol, bRow, rCol); 
-		final Ref ref = _ltrbIndex.get(addr);
+		final Ref ref = _ltrbIndex.get(tRow, lCol, bRow, rCol);
 		if (ref != null) {
 			return ref;
 		}
@@ -103,7 +108,7 @@ public class RefSheetImpl implements RefSheet {
 			new CellRefImpl(tRow, lCol, this) : new AreaRefImpl(tRow, lCol, bRow, rCol, this);
 		
 		//update the ltrb index
-		_ltrbIndex.put(addr, candidateRef);
+		_ltrbIndex.put(tRow, lCol, bRow, rCol, candidateRef);
 		
 		final Indexable tri = new RefIndex(tRow);
 		final Indexable bri = new RefIndex(bRow);
@@ -121,21 +126,56 @@ public class RefSheetImpl implements RefSheet {
 		lColRefIndex.addRef(candidateRef);
 		rColRefIndex.addRef(candidateRef);
 		
+		//update the hit index
+		_hitIndex.add(candidateRef);
+		
 		return candidateRef; 
 	}
 
 	@Override
 	public Ref getRef(int tRow, int lCol, int bRow, int rCol) {
-		final RefAddr addr = new RefAddr(tRow, lCol, bRow, rCol); 
-		return _ltrbIndex.get(addr);
+		return _ltrbIndex.get(tRow, lCol, bRow, rCol);
 	}
 	
 	/* (non-Javadoc)
 	 * @see org.zkoss.zss.engine.RefMatrix#getHitRefs(int, int)
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
 	public Set<Ref> getHitRefs(int row, int col) {
+		final Set<Ref> hits = new HashSet<Ref>();
+		_hitIndex.getHitRefs(row, col, hits);
+		if (hits.isEmpty()) //special case
+			return _indirectDependentRefs;
+		
+		//add indirectDependentRefs
+		hits.addAll(_indirectDependentRefs);
+		
+		return hits;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.zkoss.zss.engine.RefSheet#getHitRefs(int, int, int, int)
+	 */
+	@Override
+	public Set<Ref> getHitRefs(int tRow, int lCol, int bRow, int rCol) {
+		final Set<Ref> hits = new HashSet<Ref>();
+		_hitIndex.getHitRefs(tRow, lCol, bRow, rCol, hits);
+		if (hits.isEmpty()) //special case
+			return _indirectDependentRefs;
+		
+		//add indirectDependentRefs
+		hits.addAll(_indirectDependentRefs);
+		
+		return hits;
+	}
+	
+	/**
+	 * Returns the hit {@link Ref}s by scanning and intersecting the four ordered
+	 * indexes; the same result as {@link #getHitRefs(int, int)}. Kept for 
+	 * verification and benchmark of the hit index.
+	 */
+	@SuppressWarnings("unchecked")
+	/*package*/ Set<Ref> scanHitRefs(int row, int col) {
 		final Set<Ref> tRowHits = new HashSet<Ref>();
 		final Set<Ref> bRowHits = new HashSet<Ref>();
 		final Set<Ref> lColHits = new HashSet<Ref>();
@@ -223,8 +263,7 @@ public class RefSheetImpl implements RefSheet {
 	 */
 	@Override
 	public Ref removeRef(int tRow, int lCol, int bRow, int rCol) {
-		final RefAddr addr = new RefAddr(tRow, lCol, bRow, rCol); 
-		final Ref ref = _ltrbIndex.get(addr);
+		final Ref ref = _ltrbIndex.get(tRow, lCol, bRow, rCol);
 		if (ref == null)
 			return null;
 		removeRefDirectly(ref);
@@ -237,15 +276,16 @@ public class RefSheetImpl implements RefSheet {
 		final int lCol = ref.getLeftCol();
 		final int bRow = ref.getBottomRow();
 		final int rCol = ref.getRightCol();
-			
-		final RefAddr addr = new RefAddr(tRow, lCol, bRow, rCol);
 		
 		//update ltrb index
-		_ltrbIndex.remove(addr);
+		_ltrbIndex.remove(tRow, lCol, bRow, rCol);
 		
 		//update 4 indexes
 		remove4Indexes(ref);
 		
+		//update hit index
+		_hitIndex.remove(ref);
+		
 		//update _indirectDependentRefs
 		_indirectDependentRefs.remove(ref);
 	}
@@ -407,6 +447,7 @@ public class RefSheetImpl implements RefSheet {
 		if (num <= 0) {
 			throw new UiException("Cannot insert a negative number of rows: "+num);
 		}
+		_hitIndex.invalidate(); //Refs are shifted in batch
 		final Set<Ref> hits = new HashSet<Ref>();
 		
 		//bRow hits
@@ -494,6 +535,7 @@ public class RefSheetImpl implements RefSheet {
 		if (num <= 0) {
 			throw new UiException("Cannot remove a negative number of rows: "+num);
 		}
+		_hitIndex.invalidate(); //Refs are shifted in batch
 		final Set<Ref> hits = new HashSet<Ref>();
 		
 		//bRow hits
@@ -608,6 +650,7 @@ public class RefSheetImpl implements RefSheet {
 		if (num <= 0) {
 			throw new UiException("Cannot insert a negative number of columns: "+num);
 		}
+		_hitIndex.invalidate(); //Refs are shifted in batch
 		final Set<Ref> hits = new HashSet<Ref>();
 		
 		//rCol hits
@@ -673,6 +716,7 @@ public class RefSheetImpl implements RefSheet {
 		if (num <= 0) {
 			throw new UiException("Cannot remove a negative number of columns: "+num);
 		}
+		_hitIndex.invalidate(); //Refs are shifted in batch
 		final Set<Ref> hits = new HashSet<Ref>();
 		
 		//rCol hits
@@ -772,10 +816,13 @@ public class RefSheetImpl implements RefSheet {
 	}
 	
 	private void addOrMergeBackLtrbIndex(Ref ref) {
-		final RefAddr refAddr = new RefAddr(ref);
-		final Ref refX = _ltrbIndex.get(refAddr);
+		final int tRow = ref.getTopRow();
+		final int lCol = ref.getLeftCol();
+		final int bRow = ref.getBottomRow();
+		final int rCol = ref.getRightCol();
+		final Ref refX = _ltrbIndex.get(tRow, lCol, bRow, rCol);
 		if (refX == null)
-			_ltrbIndex.put(refAddr, ref);
+			_ltrbIndex.put(tRow, lCol, bRow, rCol, ref);
 		else {
 			final Set<Ref> dependents = ref.getDependents(); 
 			refX.getDependents().addAll(dependents);
@@ -799,7 +846,7 @@ public class RefSheetImpl implements RefSheet {
 	
 	private void removeFromLtrbIndex(Set<Ref> refs) {
 		for (Ref ref : refs) {
-			_ltrbIndex.remove(new RefAddr(ref));
+			_ltrbIndex.remove(ref.getTopRow(), ref.getLeftCol(), ref.getBottomRow(), ref.getRightCol());
 		}
 	}
 	
@@ -899,6 +946,7 @@ public class RefSheetImpl implements RefSheet {
 	
 	@Override
 	public Set<Ref>[] deleteRange(int startRow, int startCol, int endRow, int endCol, boolean horizontal) {
+		_hitIndex.invalidate(); //Refs are shifted in batch
 		final Set<Ref> hits = getIntersectRefs(startRow, startCol, endRow, endCol);
 		//remove hits from the ltrbIndex(before adjust col and row)
 		removeFromLtrbIndex(hits);
@@ -1153,6 +1201,7 @@ public class RefSheetImpl implements RefSheet {
 	
 	@Override
 	public Set<Ref>[] insertRange(int startRow, int startCol, int endRow, int endCol, boolean horizontal) {
+		_hitIndex.invalidate(); //Refs are shifted in batch
 		final Set<Ref> removeHits = new HashSet<Ref>(); //totally removed
 		Set<Ref> hits = new HashSet<Ref>();
 		//adjust those moved because of the insert
@@ -1291,6 +1340,7 @@ public class RefSheetImpl implements RefSheet {
 			throw new UiException("Move out of bound");
 		}
 		
+		_hitIndex.invalidate(); //Refs are shifted in batch
 		final Set<Ref> srcHits = getIntersectRefs(startRow, startCol, endRow, endCol);
 		
 		//remove hits from the ltrbIndex(before adjust col and row)
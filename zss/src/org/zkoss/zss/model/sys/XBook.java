@@ -143,6 +143,19 @@ public interface XBook extends Workbook {
 	 * Returns ZK Spreadsheet {@link XSheet} by index(0-based). 
 	 */
 	public XSheet getWorksheetAt(int index);
+	
+	/**
+	 * Returns the uuid of the sheet at the index(0-based). Unlike
+	 * {@link #getWorksheetAt(int)}, this does not read a sheet whose reading
+	 * is deferred (see {@link org.zkoss.zss.model.sys.impl.XSSFBookImpl#LAZY_SHEETS}).
+	 */
+	public String getSheetUuid(int index);
+
+	/**
+	 * Returns whether the sheet at the index(0-based) is read; false only if
+	 * its reading is deferred and it is not accessed yet (see {@link #getSheetUuid(int)}).
+	 */
+	public boolean isSheetRead(int index);
 
     /**
      * Delete the PictureData.
@@ -159,4 +172,34 @@ public interface XBook extends Workbook {
      * @return true if the date systems used in the workbook starts in 1904
      */
     boolean isDate1904();
+    
+	/**
+	 * Sets whether to evaluate the formulas of a whole sheet (see
+	 * {@link org.zkoss.zss.model.sys.impl.SheetCtrl#evalAll()}) on multiple
+	 * threads. Default is the library property
+	 * {@link org.zkoss.zss.model.sys.impl.BookHelper#PARALLEL_EVALUATION}, or false.
+	 * <p>The worker threads evaluate with their own evaluators and are not in
+	 * a ZK execution, so don't enable it if the formulas refer variables of
+	 * the page (names not defined in the book) or functions requiring an
+	 * execution; the formulas of the sheet referring names, and those
+	 * depending on them in the sheet, are evaluated on the calling thread
+	 * though. A book of a {@link XBookSeries} is always evaluated on the
+	 * calling thread.</p>
+	 * @param parallel whether to evaluate formulas in parallel
+	 */
+	public void setParallelEvaluation(boolean parallel);
+	
+	/**
+	 * Returns whether to evaluate the formulas of a whole sheet on multiple threads.
+	 * @see #setParallelEvaluation(boolean)
+	 */
+	public boolean isParallelEvaluation();
+	
+	/**
+	 * Returns the read/write lock of this book; the operations of {@link XRange}
+	 * hold it when reading or changing this book. The books of a 
+	 * {@link XBookSeries} share one lock, since evaluating a formula of a book
+	 * reads the others and tracks the dependencies into them.
+	 */
+	public XBookLock getLock();
 }
@@ -0,0 +1,200 @@
+/* XBookLock.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 3:52:07 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.model.sys;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The read/write lock of a {@link XBook}. The operations of {@link XRange}
+ * that only read the book hold the read lock, so many readers (e.g. the
+ * desktops sharing a book) run at the same time; the operations that change
+ * the book hold the write lock.
+ * <p>The lock is reentrant, and the write lock can acquire the read lock,
+ * but not the other way around: the read lock cannot be upgraded to the
+ * write lock. Since it would wait for itself forever, acquiring the write
+ * lock while holding the read lock throws {@link IllegalStateException}.</p>
+ * <p>It counts how many times a lock was acquired, how many times it has
+ * to wait for other threads, and the time waited.</p>
+ * @see XBook#getLock()
+ */
+public class XBookLock implements ReadWriteLock {
+	private final ReentrantReadWriteLock _lock = new ReentrantReadWriteLock();
+	private final AtomicLong _acquired = new AtomicLong();
+	private final AtomicLong _contended = new AtomicLong();
+	private final AtomicLong _waitNanos = new AtomicLong();
+	private final Lock _readLock = new CountingLock(_lock.readLock(), false);
+	private final Lock _writeLock = new CountingLock(_lock.writeLock(), true);
+
+	@Override
+	public Lock readLock() {
+		return _readLock;
+	}
+
+	@Override
+	public Lock writeLock() {
+		return _writeLock;
+	}
+
+	/**
+	 * Returns whether the current thread holds the write lock.
+	 */
+	public boolean isWriteLockedByCurrentThread() {
+		return _lock.isWriteLockedByCurrentThread();
+	}
+
+	/**
+	 * Returns the number of holds of the read lock by the current thread.
+	 */
+	public int getReadHoldCount() {
+		return _lock.getReadHoldCount();
+	}
+
+	/**
+	 * Returns the number of times the read or write lock was acquired.
+	 */
+	public long getAcquiredCount() {
+		return _acquired.get();
+	}
+
+	/**
+	 * Returns the number of times the read or write lock was held by other
+	 * threads when asked, so the asking thread had to wait. A thread still
+	 * waiting is counted.
+	 */
+	public long getContendedCount() {
+		return _contended.get();
+	}
+
+	/**
+	 * Returns the total time waited for the lock, in the specified unit.
+	 */
+	public long getWaitTime(TimeUnit unit) {
+		return unit.convert(_waitNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Resets the counts and the time waited to zero.
+	 */
+	public void resetStatistics() {
+		_acquired.set(0);
+		_contended.set(0);
+		_waitNanos.set(0);
+	}
+
+	private class CountingLock implements Lock {
+		private final Lock _delegate;
+		private final boolean _write;
+
+		private CountingLock(Lock lock, boolean write) {
+			_delegate = lock;
+			_write = write;
+		}
+
+		@Override
+		public void lock() {
+			checkUpgrade();
+			if (!probe()) {
+				final long start = contended();
+				_delegate.lock();
+				waited(start);
+			}
+			_acquired.incrementAndGet();
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			checkUpgrade();
+			if (!_delegate.tryLock(0, TimeUnit.NANOSECONDS)) {
+				final long start = contended();
+				try {
+					_delegate.lockInterruptibly();
+				} finally {
+					waited(start);
+				}
+			}
+			_acquired.incrementAndGet();
+		}
+
+		@Override
+		public boolean tryLock() {
+			if (_delegate.tryLock()) {
+				_acquired.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+			if (_delegate.tryLock(0, TimeUnit.NANOSECONDS)) {
+				_acquired.incrementAndGet();
+				return true;
+			}
+			final long start = contended();
+			final boolean locked;
+			try {
+				locked = _delegate.tryLock(time, unit);
+			} finally {
+				waited(start);
+			}
+			if (locked) {
+				_acquired.incrementAndGet();
+			}
+			return locked;
+		}
+
+		@Override
+		public void unlock() {
+			_delegate.unlock();
+		}
+
+		@Override
+		public Condition newCondition() {
+			return _delegate.newCondition();
+		}
+
+		//the write lock waits for all readers, the current thread included
+		private void checkUpgrade() {
+			if (_write && _lock.getReadHoldCount() > 0 && !_lock.isWriteLockedByCurrentThread()) {
+				throw new IllegalStateException("The read lock of the book cannot be upgraded to the write lock; change the book with the write lock (e.g. SyncLevel.BOOK) instead");
+			}
+		}
+
+		//tries without waiting; unlike tryLock(), a reader doesn't barge past
+		//the queued writers, so the readers can't starve a writer
+		private boolean probe() {
+			try {
+				return _delegate.tryLock(0, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); //left to lock(), which ignores it
+				return false;
+			}
+		}
+
+		//counts the contention before waiting, so it is seen while waiting
+		private long contended() {
+			_contended.incrementAndGet();
+			return System.nanoTime();
+		}
+
+		private void waited(long start) {
+			_waitNanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+}
@@ -323,6 +323,15 @@ public interface XRange {
 	 */
 	public void setStyle(CellStyle style);
 	
+	/**
+	 * Sets a two dimensional array of Style objects into the cells of this
+	 * Range, styles[i][j] into the cell at (i, j) off the left top cell of
+	 * this Range, and notifies the change once for the whole area. A null
+	 * style leaves the cell untouched.
+	 * @param styles the style objects; a row can be shorter than the others
+	 */
+	public void setStyles(CellStyle[][] styles);
+	
 	/**
 	 * Perform an auto fill on the specified destination Range. Note the given destination Range
 	 * must include this source Range.
@@ -500,6 +509,28 @@ public interface XRange {
 	 */
 	public void setValue(Object value);
 	
+	/**
+	 * Set a two dimensional array of values into the cells of this Range,
+	 * values[i][j] into the cell at (i, j) off the left top cell of this Range.
+	 * Each value is set as {@link #setValue(Object)} does, but all cells are
+	 * written first and the affected formula cells are then re-evaluated and
+	 * notified once for the whole area.
+	 * @param values the values; a row can be shorter than the others
+	 */
+	public void setValues(Object[][] values);
+	
+	/**
+	 * Set a two dimensional array of edit texts into the cells of this Range,
+	 * texts[i][j] into the cell at (i, j) off the left top cell of this Range.
+	 * Each text is set as {@link #setEditText(String)} does, but all cells are
+	 * written first and the affected formula cells are then re-evaluated and
+	 * notified once for the whole area. A null text leaves the cell untouched.
+	 * <p>If some formulas cannot be parsed, the other cells are still set and
+	 * the first parse exception is thrown afterward.</p>
+	 * @param texts the edit texts; a row can be shorter than the others
+	 */
+	public void setEditTexts(String[][] texts);
+	
 	/**
 	 * Returns left top cell value of this Range.
 	 * @return left top cell value of this Range
@@ -13,12 +13,9 @@ Copyright (C) 2010 Potix Corporation. All Rights Reserved.
 
 package org.zkoss.zss.model.sys.impl;
 
-import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +26,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -61,8 +59,8 @@ import org.zkoss.poi.hssf.util.HSSFColor;
 import org.zkoss.poi.hssf.util.HSSFColorExt;
 import org.zkoss.poi.hssf.util.PaneInformation;
 import org.zkoss.poi.ss.SpreadsheetVersion;
-import org.zkoss.poi.ss.format.CellFormat;
 import org.zkoss.poi.ss.format.Formatters;
+import org.zkoss.poi.ss.formula.DependencyTracker;
 import org.zkoss.poi.ss.formula.FormulaParseException;
 import org.zkoss.poi.ss.formula.FormulaParser;
 import org.zkoss.poi.ss.formula.FormulaParsingWorkbook;
@@ -77,8 +75,10 @@ import org.zkoss.poi.ss.formula.eval.EvaluationException;
 import org.zkoss.poi.ss.formula.eval.OperandResolver;
 import org.zkoss.poi.ss.formula.eval.ValueEval;
 import org.zkoss.poi.ss.formula.ptg.Area3DPtg;
+import org.zkoss.poi.ss.formula.ptg.AreaPtg;
 import org.zkoss.poi.ss.formula.ptg.AreaPtgBase;
 import org.zkoss.poi.ss.formula.ptg.Ptg;
+import org.zkoss.poi.ss.formula.ptg.RefPtg;
 import org.zkoss.poi.ss.formula.ptg.RefPtgBase;
 import org.zkoss.poi.ss.usermodel.AutoFilter;
 import org.zkoss.poi.ss.usermodel.BorderStyle;
@@ -99,6 +99,7 @@ import org.zkoss.poi.ss.usermodel.DateUtil;
 import org.zkoss.poi.ss.usermodel.ErrorConstants;
 import org.zkoss.poi.ss.usermodel.FilterColumn;
 import org.zkoss.poi.ss.usermodel.Font;
+import org.zkoss.poi.ss.usermodel.FormulaEvaluator;
 import org.zkoss.poi.ss.usermodel.Hyperlink;
 import org.zkoss.poi.ss.usermodel.Picture;
 import org.zkoss.poi.ss.usermodel.RichTextString;
@@ -135,13 +136,17 @@ import org.zkoss.zss.engine.RefBook;
 import org.zkoss.zss.engine.RefSheet;
 import org.zkoss.zss.engine.event.SSDataEvent;
 import org.zkoss.zss.engine.impl.AreaRefImpl;
+import org.zkoss.zss.engine.impl.CellRefImpl;
 import org.zkoss.zss.engine.impl.ChangeInfo;
+import org.zkoss.zss.engine.impl.DependencyTrackerHelper;
 import org.zkoss.zss.engine.impl.MergeChange;
 import org.zkoss.zss.engine.impl.RefSheetImpl;
 import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XBookLock;
 import org.zkoss.zss.model.sys.XBookSeries;
 import org.zkoss.zss.model.sys.XRange;
 import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.ui.impl.CellStyleCSSCache;
 import org.zkoss.zss.ui.impl.Styles;
 
 /**
@@ -151,6 +156,13 @@ import org.zkoss.zss.ui.impl.Styles;
 public final class BookHelper {
 	public static final String AUTO_COLOR = "AUTO_COLOR";
 
+	/**
+	 * The library property whether the books evaluate the formulas of a whole
+	 * sheet on multiple threads by default; "true" or "false"(default).
+	 * @see XBook#setParallelEvaluation(boolean)
+	 */
+	public static final String PARALLEL_EVALUATION = "org.zkoss.zss.model.parallelEvaluation";
+
 	//@see #setBorders()
 	public static final short BORDER_EDGE_BOTTOM		= 0x01;
 	public static final short BORDER_EDGE_RIGHT			= 0x02;
@@ -234,6 +246,39 @@ public final class BookHelper {
 				((XSSFBookImpl)book).getBookSeries();
 	}
 	
+	/**
+	 * Returns the lock to evaluate formulas of the book. The books of a book
+	 * series share one, since evaluating a formula of a book evaluates the
+	 * formulas and tracks the dependencies of the other books it refers. 
+	 */
+	/*package*/ static Object getEvaluationLock(XBook book) {
+		final XBookSeries books = getBookSeries(book);
+		return books != null ? books : book.getFormulaEvaluator();
+	}
+	
+	//the read/write lock shared by the books of a book series
+	private static final Map<XBookSeries, XBookLock> _seriesLocks = new WeakHashMap<XBookSeries, XBookLock>();
+	
+	private static XBookLock getSeriesLock(XBookSeries books) {
+		if (books == null) {
+			return null;
+		}
+		synchronized (_seriesLocks) {
+			XBookLock lock = _seriesLocks.get(books);
+			if (lock == null) {
+				lock = new XBookLock();
+				_seriesLocks.put(books, lock);
+			}
+			return lock;
+		}
+	}
+	
+	/**
+	 * Sets the book series of the book; the books of a series share one 
+	 * read/write lock (see {@link XBook#getLock()}) since they evaluate
+	 * the formulas of each other, so the series shall be set before the book
+	 * is shared by other threads.
+	 */
 	public static void setBookSeries(XBook book, XBookSeries books) {
 		Set<Ref> refs = null;
 		if (book instanceof HSSFBookImpl){
@@ -242,14 +287,14 @@ public final class BookHelper {
 			else if(bs!=null) {
 				refs = bs.clear();
 			}
-			((HSSFBookImpl)book).setBookSeries(books);
+			((HSSFBookImpl)book).setBookSeries(books, getSeriesLock(books));
 		}else{
 			XBookSeries bs = ((XSSFBookImpl)book).getBookSeries();
 			if(bs==books) return;
 			else if(bs!=null) {
 				refs = bs.clear();
 			}
-			((XSSFBookImpl)book).setBookSeries(books);
+			((XSSFBookImpl)book).setBookSeries(books, getSeriesLock(books));
 		}
 		//shouldn't notify, it will cause the same issue as zss-334
 //		if(refs!=null && refs.size()>0){
@@ -297,6 +342,20 @@ public final class BookHelper {
 			return ((XSSFBookImpl)book).getFunctionMapper();
 	}
 	
+	/*package*/ static DependencyTracker getDependencyTracker(XBook book) {
+		if (book instanceof HSSFBookImpl) 
+			return ((HSSFBookImpl)book).getDependencyTracker();
+		else
+			return ((XSSFBookImpl)book).getDependencyTracker();
+	}
+	
+	/*package*/ static FormulaEvaluator newFormulaEvaluator(XBook book, DependencyTracker tracker) {
+		if (book instanceof HSSFBookImpl) 
+			return ((HSSFBookImpl)book).newFormulaEvaluator(tracker);
+		else
+			return ((XSSFBookImpl)book).newFormulaEvaluator(tracker);
+	}
+	
 	public static void clearFormulaCache(Cell cell) {
 		if (cell != null) {
 			((XBook)cell.getSheet().getWorkbook()).getFormulaEvaluator().notifySetFormula(cell);
@@ -318,17 +377,49 @@ public final class BookHelper {
 	/*package*/ static void reevaluate(XBook book, Set<Ref> last) {
 		if (last != null) {
 			for(Ref ref : last) {
-				final RefSheet refSheet = ref.getOwnerSheet();
-				//locate the model book and sheet of the refSheet
-				final XBook bookTarget = BookHelper.getBook(book, refSheet);
-				final Cell cell = getCell(book, ref.getTopRow(), ref.getLeftCol(), refSheet);
-				if (cell!=null && cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
-					evaluate(bookTarget, cell);
+				reevaluate(book, ref);
+			}
+		}
+	}
+	
+	/**
+	 * Re-evaluate all the dirty formula cells in dependency order; each formula
+	 * cell is evaluated exactly once and after all its dirty precedents. Cells 
+	 * in (or depending on) a circular reference are evaluated last and let the 
+	 * formula evaluator handle the circular reference.
+	 */
+	/*package*/ static void reevaluateInOrder(XBook book, Set<Ref> all) {
+		if (all != null) {
+			final Set<Ref> cyclic = new HashSet<Ref>();
+			final List<Ref> order = DependencyTrackerHelper.getEvaluationOrder(all, cyclic);
+			for(Ref ref : order) {
+				if (ref instanceof CellRefImpl) { //only a formula cell can be evaluated
+					reevaluate(book, ref);
+				}
+			}
+			if (!cyclic.isEmpty()) {
+				if (logger.isLoggable(Level.FINE)) {
+					logger.fine("circular reference found in "+cyclic.size()+" cells: "+cyclic);
+				}
+				for(Ref ref : cyclic) {
+					if (ref instanceof CellRefImpl) {
+						reevaluate(book, ref);
+					}
 				}
 			}
 		}
 	}
 	
+	private static void reevaluate(XBook book, Ref ref) {
+		final RefSheet refSheet = ref.getOwnerSheet();
+		//locate the model book and sheet of the refSheet
+		final XBook bookTarget = BookHelper.getBook(book, refSheet);
+		final Cell cell = getCell(book, ref.getTopRow(), ref.getLeftCol(), refSheet);
+		if (cell!=null && cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
+			evaluate(bookTarget, cell);
+		}
+	}
+	
 	public static void notifyBookExport(XBook book, String type) {
 		RefBook refBook = BookHelper.getOrCreateRefBook(book);
 		refBook.publish(new SSDataEvent(SSDataEvent.ON_BOOK_EXPORT, null, (Object)type));
@@ -336,10 +427,32 @@ public final class BookHelper {
 	
 	public static void notifyCellChanges(XBook book, Set<Ref> all) {
 		if (all != null) {
-			for(Ref ref : all) {
-				final RefSheet refSheet = ref.getOwnerSheet();
-				final RefBook refBook = refSheet.getOwnerBook();
-				refBook.publish(new SSDataEvent(SSDataEvent.ON_CONTENTS_CHANGE, ref, SSDataEvent.MOVE_NO));
+			//coalesce the changes into a few areas per sheet (see RefBook#startPublishBatch)
+			final List<RefBook> batches = new ArrayList<RefBook>(2);
+			RefSheet lastRefSheet = null;
+			FilterIndex filterIndex = null;
+			try {
+				for(Ref ref : all) {
+					final RefSheet refSheet = ref.getOwnerSheet();
+					final RefBook refBook = refSheet.getOwnerBook();
+					if (refSheet != lastRefSheet) {
+						final XSheet sheet = getSheet(book, refSheet);
+						filterIndex = sheet != null ? ((SheetCtrl)sheet).getFilterIndex() : null;
+						lastRefSheet = refSheet;
+					}
+					if (filterIndex != null) { //the changed cells are read again by the filter
+						filterIndex.invalidate(ref.getTopRow(), ref.getLeftCol(), ref.getBottomRow(), ref.getRightCol());
+					}
+					if (!batches.contains(refBook)) {
+						refBook.startPublishBatch();
+						batches.add(refBook);
+					}
+					refBook.publish(new SSDataEvent(SSDataEvent.ON_CONTENTS_CHANGE, ref, SSDataEvent.MOVE_NO));
+				}
+			} finally {
+				for(RefBook refBook : batches) {
+					refBook.endPublishBatch();
+				}
 			}
 		}
 	}
@@ -492,40 +605,86 @@ public final class BookHelper {
 		//clear cached formula value
 		clearFormulaCache(book, all);
 		
-		//re-evaluate all required formula cells
-		reevaluate(book, last);
+		//re-evaluate all required formula cells, in dependency order
+		if (all != null) {
+			reevaluateInOrder(book, all);
+		} else {
+			reevaluate(book, last);
+		}
 
 		//notify all changed cells
 		notifyCellChanges(book, all);
 	}
 
 	public static CellValue evaluate(XBook book, Cell cell) {
+		return evaluate(book, cell, (XelContext) null);
+	}
+	
+	/**
+	 * Evaluate the formula cell within the specified context (see {@link #newXelContext(XBook)}),
+	 * so a context can be shared by the evaluation of many cells, and set the
+	 * result back into the cell.
+	 * @param ctx the context; null to create a new one.
+	 */
+	public static CellValue evaluate(XBook book, Cell cell, XelContext ctx) {
+		final XelContext old = XelContextHolder.getXelContext();
+		try {
+			XelContextHolder.setXelContext(ctx != null ? ctx : newXelContext(book));
+			//the readers of a book (see XBookLock) share the evaluator and its cache, and 
+			//set the result back into the same cell, so both are done in the evaluation lock
+			//(of the book series, if any, since the evaluator enters the other books)
+			final FormulaEvaluator evaluator = book.getFormulaEvaluator();
+			synchronized (getEvaluationLock(book)) {
+				final CellValue cv = evaluate(evaluator, cell);
+				//set back into Cell formula record(update value and cachedFormulaResultType)
+				setCellValue(cell, cv);
+				return cv;
+			}
+		}finally{
+			XelContextHolder.setXelContext(old);
+		}
+	}
+	
+	/**
+	 * Evaluate the formula cell with the specified evaluator, which is used by
+	 * the calling thread only, within the specified context; the result is 
+	 * not set back into the cell (see {@link #setCellValue(Cell, CellValue)}).
+	 */
+	/*package*/ static CellValue evaluate(Cell cell, FormulaEvaluator evaluator, XelContext ctx) {
 		final XelContext old = XelContextHolder.getXelContext();
 		try {
-			final VariableResolver resolver = BookHelper.getVariableResolver(book);
-			final FunctionMapper mapper = BookHelper.getFunctionMapper(book);
-			final XelContext ctx = new SimpleXelContext(resolver, mapper);
-			ctx.setAttribute("zkoss.zss.CellType", Object.class);
 			XelContextHolder.setXelContext(ctx);
-			final CellValue cv = book.getFormulaEvaluator().evaluate(cell);
-			//set back into Cell formula record(update value and cachedFormulaResultType)
-			setCellValue(cell, cv);
-			return cv;
+			return evaluate(evaluator, cell);
+		}finally{
+			XelContextHolder.setXelContext(old);
+		}
+	}
+	
+	private static CellValue evaluate(FormulaEvaluator evaluator, Cell cell) {
+		try {
+			return evaluator.evaluate(cell);
 		} catch(Exception e){ //handle all runtime exceptions happened in evaluating formulas, hawk
 			if(e instanceof FormulaParseException){
-				setCellValue(cell, CellValue.getError(ErrorEval.REF_INVALID.getErrorCode()));
 				return CellValue.getError(ErrorEval.REF_INVALID.getErrorCode());
 			}else{
 				logger.log(Level.SEVERE, "error evaluating formula: "+cell.getCellFormula()+" at "+Ranges.getCellRefString(cell.getRowIndex(),cell.getColumnIndex()), e);
-				setCellValue(cell, CellValue.getError(ErrorEval.VALUE_INVALID.getErrorCode()));
 				return CellValue.getError(ErrorEval.VALUE_INVALID.getErrorCode());
 			}
-		}finally{
-			XelContextHolder.setXelContext(old);
 		}
 	}
 	
-	private static void setCellValue(Cell cell, CellValue cv) {
+	/**
+	 * Returns a new context to evaluate formula cells of the book.
+	 */
+	public static XelContext newXelContext(XBook book) {
+		final VariableResolver resolver = BookHelper.getVariableResolver(book);
+		final FunctionMapper mapper = BookHelper.getFunctionMapper(book);
+		final XelContext ctx = new SimpleXelContext(resolver, mapper);
+		ctx.setAttribute("zkoss.zss.CellType", Object.class);
+		return ctx;
+	}
+	
+	/*package*/ static void setCellValue(Cell cell, CellValue cv) {
 		final int type = cv.getCellType();
 		switch(type) {
 		case Cell.CELL_TYPE_BLANK:
@@ -653,9 +812,15 @@ public final class BookHelper {
 		if (style == null)
 			return "";
 
+		return getTextCSSStyle(style, getRealAlignment(cell));
+	}
+	
+	/**
+	 * Returns the text CSS style of the cell style per the given real alignment.
+	 * @see #getRealAlignment(Cell)
+	 */
+	public static String getTextCSSStyle(CellStyle style, int textHAlign) {
 		final StringBuffer sb = new StringBuffer();
-		int textHAlign = getRealAlignment(cell);
-		
 		switch(textHAlign) {
 		case CellStyle.ALIGN_RIGHT:
 			sb.append("text-align:").append("right").append(";");
@@ -1063,15 +1228,23 @@ public final class BookHelper {
 		} else if (cellType == Cell.CELL_TYPE_STRING) {
 			return cell.getRichStringCellValue();
 		}
-	    final String result = new DataFormatter(ZssContext.getCurrent().getLocale(), false).formatCellValue(cell, cellType); //ZSS-68
+	    final String result = FormatCache.formatCellValue(ZssContext.getCurrent().getLocale(), cell, cellType); //ZSS-68
 		return newRichTextString(cell, result);
 	}
 	public static FormatTextImpl getFormatText(Cell cell) {
+		return getFormatText(cell, null);
+	}
+	
+	/**
+	 * Returns the format text of the cell; a formula cell is evaluated within
+	 * the specified context (null to create a new one).
+	 */
+	public static FormatTextImpl getFormatText(Cell cell, XelContext ctx) {
 		int cellType = cell.getCellType();
         final String formatStr = cell.getCellStyle().getDataFormatString();
 		if (cellType == Cell.CELL_TYPE_FORMULA) {
 			final XBook book = (XBook)cell.getSheet().getWorkbook();
-			final CellValue cv = BookHelper.evaluate(book, cell);
+			final CellValue cv = BookHelper.evaluate(book, cell, ctx);
 			cellType = cv.getCellType();
 //			final Hyperlink hyperlink = cv.getEvalHyperlink();
 //			if (hyperlink != null) { //might be HYPERLINK function
@@ -1084,8 +1257,7 @@ public final class BookHelper {
 			}
 		}
 	
-		final CellFormat format = CellFormat.getInstance(formatStr == null ? "" : formatStr, ZssContext.getCurrent().getLocale()); //ZSS-68
-		return new FormatTextImpl(format.apply(cell));
+		return new FormatTextImpl(FormatCache.apply(formatStr == null ? "" : formatStr, ZssContext.getCurrent().getLocale(), cell)); //ZSS-68
 	}
 
 	//Return simple String form of the cell 
@@ -1152,7 +1324,7 @@ public final class BookHelper {
 					}
 				}
 				final boolean date1904 = ((XBook)cell.getSheet().getWorkbook()).isDate1904();
-				return new DataFormatter(locale, false).formatRawCellContents(val, -1, formatString, date1904); //ZSS-68
+				return FormatCache.formatRawCellContents(locale, val, -1, formatString, date1904); //ZSS-68
 			} else {
 				return NumberToTextConverter.toText(val);
 			}
@@ -1381,6 +1553,71 @@ public final class BookHelper {
 		return getBothDependents(cell); 
 	}
 	
+	/**
+	 * Writes the value into the cell without collecting its dependents; the
+	 * formula cache of the cell is updated. It is used by the bulk writes that
+	 * collect the dependents of the whole written area at once, see
+	 * {@link #getBothDependents(XSheet, int, int, int, int)}.
+	 * @param value a Number, a Boolean, an error code (a Byte), a Date, a
+	 * RichTextString, a String or null(blank)
+	 * @return whether the cell was changed
+	 */
+	public static boolean writeCellValue(Cell cell, Object value) {
+		final int type;
+		if (value instanceof Byte) {
+			type = Cell.CELL_TYPE_ERROR;
+		} else if (value instanceof Number || value instanceof Date) {
+			type = Cell.CELL_TYPE_NUMERIC;
+		} else if (value instanceof Boolean) {
+			type = Cell.CELL_TYPE_BOOLEAN;
+		} else {
+			if (value == null || value instanceof String) {
+				final String text = (String) value;
+				value = text == null || text.length() == 0 ? null : cell.getSheet().getWorkbook().getCreationHelper().createRichTextString(text);
+			}
+			type = Cell.CELL_TYPE_STRING;
+		}
+		//same type and value, return!
+		if (sameTypeAndValue(cell, type, value))
+			return false;
+		//remove formula cell and crete a blank one
+		removeFormula(cell, true);
+		//set value into cell model
+		if (value instanceof Byte) {
+			cell.setCellErrorValue(((Byte)value).byteValue());
+		} else if (value instanceof Number) {
+			cell.setCellValue(((Number)value).doubleValue());
+		} else if (value instanceof Date) {
+			cell.setCellValue((Date)value);
+		} else if (value instanceof Boolean) {
+			cell.setCellValue(((Boolean)value).booleanValue());
+		} else {
+			cell.setCellValue((RichTextString)value);
+		}
+		//clear/update formula cache
+		((XBook)cell.getSheet().getWorkbook()).getFormulaEvaluator().notifySetFormula(cell);
+		return true;
+	}
+	
+	/**
+	 * Returns the affected dependents of all cells in the specified area of
+	 * the sheet with one hit test and one dependency walk.
+	 * @return [0]: last, [1]: all
+	 */
+	@SuppressWarnings("unchecked")
+	public static Set<Ref>[] getBothDependents(XSheet sheet, int tRow, int lCol, int bRow, int rCol) {
+		final RefSheet refSheet = getRefSheet((XBook) sheet.getWorkbook(), sheet);
+		final Set<Ref> last = new HashSet<Ref>();
+		final Set<Ref> all = new HashSet<Ref>();
+		DependencyTrackerHelper.getBothDependents(refSheet, tRow, lCol, bRow, rCol, all, last);
+		return (Set<Ref>[]) new Set[] {last, all};
+	}
+	
+	//when set, the cell changes of this thread skip collecting the dependents 
+	//of each cell; the caller collects the dependents of the whole changed area 
+	//at once instead, see #getBothDependents(XSheet, int, int, int, int)
+	private static final ThreadLocal<Boolean> _areaDependents = new ThreadLocal<Boolean>();
+	
 	private static boolean sameTypeAndValue(Cell cell, int type, Object value) {
 		if (cell.getCellType() != type) return false;
 		final Object cellValue = getCellValue(cell);
@@ -1388,6 +1625,7 @@ public final class BookHelper {
 	}
 	
 	//[0]:last, [1]:all
+	@SuppressWarnings("unchecked")
 	private static Set<Ref>[] getBothDependents(Cell cell) {
 		final XSheet sheet = (XSheet) cell.getSheet();
 		final XBook book = (XBook) sheet.getWorkbook();
@@ -1398,7 +1636,9 @@ public final class BookHelper {
 		//get affected dependents(last, all)
 		final int row = cell.getRowIndex();
 		final int col = cell.getColumnIndex();
-		Set<Ref>[] refs = ((RefSheetImpl)refSheet).getBothDependents(row, col);
+		Set<Ref>[] refs = _areaDependents.get() != null ?
+			(Set<Ref>[]) new Set[] {new HashSet<Ref>(), new HashSet<Ref>()} : //collected for the whole area by the caller
+			((RefSheetImpl)refSheet).getBothDependents(row, col);
 		//no dependent but myself is a formula cell
 		if (refs[0].isEmpty() && cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
 			final Ref srcRef = refSheet.getRef(row, col, row, col);
@@ -1901,7 +2141,17 @@ public final class BookHelper {
         XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create(book);
         final String formula = FormulaRenderer.toFormulaString(fpb, ptgs);
         if (formula != null && formula.length() > 0) {
-        	cell.setCellFormula(formula);
+        	if (cell.isPartOfArrayFormulaGroup()) {
+        		cell.setCellFormula(formula);
+        	} else { //rendered from the tokens, no need to parse and validate it again
+        		final CTCell ctCell = cell.getCTCell();
+        		final CTCellFormula f = CTCellFormula.Factory.newInstance();
+        		f.setStringValue(formula);
+        		ctCell.setF(f);
+        		if (ctCell.isSetV()) {
+        			ctCell.unsetV();
+        		}
+        	}
         }
 	}
 	public static Ptg[] getCellPtgs(Cell cell) {
@@ -1942,11 +2192,14 @@ public final class BookHelper {
 	}
 	
 	private static Ptg[] offsetPtgs(Cell srcCell, XSheet srcSheet, Cell dstCell, XSheet dstSheet, int offRow, int offCol) {
-		final Ptg[] srcPtgs = getCellPtgs(srcCell);
+		final SpreadsheetVersion ver = ((XBook)dstSheet.getWorkbook()).getSpreadsheetVersion();
+		return offsetPtgs(getCellPtgs(srcCell), dstCell, offRow, offCol, ver);
+	}
+	
+	//the relative references of the tokens are shifted in place
+	private static Ptg[] offsetPtgs(Ptg[] srcPtgs, Cell dstCell, int offRow, int offCol, SpreadsheetVersion ver) {
 		final int ptglen = srcPtgs.length;
 		final Ptg[] dstPtgs = new Ptg[ptglen];
-		
-		final SpreadsheetVersion ver = ((XBook)dstSheet.getWorkbook()).getSpreadsheetVersion();
 		for(int j = 0; j < ptglen; ++j) {
 			final Ptg srcPtg = srcPtgs[j];
 			final Ptg dstPtg = offsetPtg(srcPtg, dstCell, offRow, offCol, ver);
@@ -2750,11 +3003,11 @@ public final class BookHelper {
 		}
 		validateKeyIndexes(keyIndexes, tRow, lCol, bRow, rCol, sortByRows);
 		
-		final List<SortKey> sortKeys = new ArrayList<SortKey>(sortByRows ? rCol - lCol + 1 : bRow - tRow + 1);
+		final XBook book = (XBook)sheet.getWorkbook();
 		final int begRow = Math.max(tRow, sheet.getFirstRowNum());
 		final int endRow = Math.min(bRow, sheet.getLastRowNum());
 		if (sortByRows) {
-			int begCol = ((XBook)sheet.getWorkbook()).getSpreadsheetVersion().getLastColumnIndex();
+			int begCol = book.getSpreadsheetVersion().getLastColumnIndex();
 			int endCol = 0;
 			//locate begCol/endCol of the sheet
 			for (int rowNum = begRow; rowNum <= endRow; ++rowNum) {
@@ -2766,153 +3019,159 @@ public final class BookHelper {
 			}
 			begCol = Math.max(lCol, begCol);
 			endCol = Math.min(rCol, endCol);
-			for (int colnum = begCol; colnum <= endCol; ++colnum) {
-				final Object[] values = new Object[keyCount];
-				for(int j = 0; j < keyCount; ++j) {
-					final Row row = sheet.getRow(keyIndexes[j]);
-					final Cell cell = row != null ? row.getCell(colnum, Row.RETURN_BLANK_AS_NULL) : null;
-					final Object val = getCellObject(cell, dataOptions[j]);
-					values[j] = val;
+			if (begCol > endCol) {
+				return null; //nothing to sort
+			}
+			final int size = endCol - begCol + 1;
+			final SortEngine engine = new SortEngine(book, size, descs, matchCase);
+			for(int j = 0; j < keyCount; ++j) {
+				final Row row = sheet.getRow(keyIndexes[j]);
+				for (int k = 0; k < size; ++k) {
+					final Cell cell = row != null ? row.getCell(begCol + k, Row.RETURN_BLANK_AS_NULL) : null;
+					engine.setCell(j, k, cell, dataOptions[j]);
 				}
-				final SortKey sortKey = new SortKey(colnum, values);
-				sortKeys.add(sortKey);
 			}
-			if (!sortKeys.isEmpty()) {
-				final Comparator<SortKey> keyComparator = new KeyComparator(descs, matchCase, sortMethod, type);
-				Collections.sort(sortKeys, keyComparator);
-				return BookHelper.assignColumns(sheet, sortKeys, begRow, lCol, endRow, rCol);
-			} else {
-				return null;
+			final int[] order = engine.sort();
+			for (int k = 0; k < size; ++k) {
+				order[k] += begCol; //to column index
 			}
+			return BookHelper.assignColumns(sheet, order, begRow, lCol, endRow, rCol);
 		} else { //sortByColumn, default case
+			final int[] rowNums = new int[Math.max(0, endRow - begRow + 1)];
+			int size = 0;
 			for (int rownum = begRow; rownum <= endRow; ++rownum) {
-				final Row row = sheet.getRow(rownum);
-				if (row == null) {
-					continue; //nothing to sort
+				if (sheet.getRow(rownum) != null) { //null row, nothing to sort
+					rowNums[size++] = rownum;
 				}
-				final Object[] values = new Object[keyCount];
+			}
+			if (size == 0) {
+				return null;
+			}
+			final SortEngine engine = new SortEngine(book, size, descs, matchCase);
+			for (int k = 0; k < size; ++k) {
+				final Row row = sheet.getRow(rowNums[k]);
 				for(int j = 0; j < keyCount; ++j) {
-					final Cell cell = row.getCell(keyIndexes[j], Row.RETURN_BLANK_AS_NULL);
-					final Object val = getCellObject(cell, dataOptions[j]);
-					values[j] = val;
+					engine.setCell(j, k, row.getCell(keyIndexes[j], Row.RETURN_BLANK_AS_NULL), dataOptions[j]);
 				}
-				final SortKey sortKey = new SortKey(rownum, values);
-				sortKeys.add(sortKey);
 			}
-			if (!sortKeys.isEmpty()) {
-				final Comparator<SortKey> keyComparator = new KeyComparator(descs, matchCase, sortMethod, type);
-				Collections.sort(sortKeys, keyComparator);
-				return BookHelper.assignRows(sheet, sortKeys, tRow, lCol, bRow, rCol);
-			} else {
-				return null;
+			final int[] order = engine.sort();
+			for (int k = 0; k < size; ++k) {
+				order[k] = rowNums[order[k]]; //to row index
 			}
+			return BookHelper.assignRows(sheet, order, tRow, lCol, bRow, rCol);
 		}
 	}
 	
-	private static Object getCellObject(Cell cell, int dataOption) {
-		Object val = cell != null ? BookHelper.getCellObject(cell) : null;
-		if (val instanceof RichTextString && dataOption == BookHelper.SORT_TEXT_AS_NUMBERS) {
-			try {
-				val = new Double((String)((RichTextString)val).getString());
-			} catch(NumberFormatException ex) {
-				val = new Double(0);//ignore
-			}
-		}
-		return val;
-	}
+	//sorted columns are moved cell by cell, and the dependents of the whole range are collected once
 	@SuppressWarnings("unchecked")
-	private static ChangeInfo  assignColumns(XSheet sheet, List<SortKey> sortKeys, int tRow, int lCol, int bRow, int rCol) {
+	private static ChangeInfo  assignColumns(XSheet sheet, int[] order, int tRow, int lCol, int bRow, int rCol) {
 		final int cellCount = bRow - tRow + 1;
 		final Map<Integer, List<Cell>> newCols = new HashMap<Integer, List<Cell>>();  
 		final Set<Ref> toEval = new HashSet<Ref>();
 		final Set<Ref> affected = new HashSet<Ref>();
 		final List<MergeChange> mergeChanges = new ArrayList<MergeChange>();
 		final ChangeInfo changeInfo = new ChangeInfo(toEval, affected, mergeChanges);
-		int j = 0;
-		for(final Iterator<SortKey> it = sortKeys.iterator(); it.hasNext();++j) {
-			final SortKey sortKey = it.next();
-			final int oldColNum = sortKey.getIndex();
-			final int newColNum = lCol + j;
-			it.remove();
-			if (oldColNum == newColNum) { //no move needed, skip it
-				continue;
-			}
-			//remove cells from the old column of the Range
-			final List<Cell> cells = new ArrayList<Cell>(cellCount);
-			for(int k = tRow; k <= bRow; ++k) {
-				final Cell cell = BookHelper.getCell(sheet, k, oldColNum);
-				if (cell != null) {
-					cells.add(cell);
-					final Set<Ref>[] refs = BookHelper.removeCell(cell, false);
-					toEval.addAll(refs[0]);
-					affected.addAll(refs[1]);
+		_areaDependents.set(Boolean.TRUE);
+		try {
+			for(int j = 0; j < order.length; ++j) {
+				final int oldColNum = order[j];
+				final int newColNum = lCol + j;
+				if (oldColNum == newColNum) { //no move needed, skip it
+					continue;
+				}
+				//remove cells from the old column of the Range
+				final List<Cell> cells = new ArrayList<Cell>(cellCount);
+				for(int k = tRow; k <= bRow; ++k) {
+					final Cell cell = BookHelper.getCell(sheet, k, oldColNum);
+					if (cell != null) {
+						cells.add(cell);
+						final Set<Ref>[] refs = BookHelper.removeCell(cell, false);
+						assignRefs(toEval, affected, refs);
+					}
+				}
+				if (!cells.isEmpty()) {
+					newCols.put(Integer.valueOf(newColNum), cells);
 				}
 			}
-			if (!cells.isEmpty()) {
-				newCols.put(Integer.valueOf(newColNum), cells);
-			}
-		}
-		
-		//move cells
-		for(Entry<Integer, List<Cell>> entry : newCols.entrySet()) {
-			final int colNum = entry.getKey().intValue();
-			final List<Cell> cells = entry.getValue();
-			for(Cell cell : cells) {
-				final int rowNum = cell.getRowIndex();
-				final ChangeInfo changeInfo0 = BookHelper.copyCell(cell, sheet, rowNum, colNum, XRange.PASTE_ALL, XRange.PASTEOP_NONE, false);
-				assignChangeInfo(toEval, affected, mergeChanges, changeInfo0);
+			
+			//move cells
+			for(Entry<Integer, List<Cell>> entry : newCols.entrySet()) {
+				final int colNum = entry.getKey().intValue();
+				final List<Cell> cells = entry.getValue();
+				for(Cell cell : cells) {
+					final int rowNum = cell.getRowIndex();
+					final ChangeInfo changeInfo0 = BookHelper.copyCell(cell, sheet, rowNum, colNum, XRange.PASTE_ALL, XRange.PASTEOP_NONE, false);
+					assignChangeInfo(toEval, affected, mergeChanges, changeInfo0);
+				}
 			}
+		} finally {
+			_areaDependents.remove();
 		}
+		assignRefs(toEval, affected, getBothDependents(sheet, tRow, lCol + firstMoved(order, lCol), bRow, rCol));
 		return changeInfo;
 	}
 
+	//sorted rows are moved cell by cell, and the dependents of the whole range are collected once
 	@SuppressWarnings("unchecked")
-	private static ChangeInfo assignRows(XSheet sheet, List<SortKey> sortKeys, int tRow, int lCol, int bRow, int rCol) {
+	private static ChangeInfo assignRows(XSheet sheet, int[] order, int tRow, int lCol, int bRow, int rCol) {
 		final int cellCount = rCol - lCol + 1;
 		final Map<Integer, List<Cell>> newRows = new HashMap<Integer, List<Cell>>();  
 		final Set<Ref> toEval = new HashSet<Ref>();
 		final Set<Ref> affected = new HashSet<Ref>();
 		final List<MergeChange> mergeChanges = new ArrayList<MergeChange>();
 		final ChangeInfo changeInfo = new ChangeInfo(toEval, affected, mergeChanges);
-		int j = 0;
-		for(final Iterator<SortKey> it = sortKeys.iterator(); it.hasNext();++j) {
-			final SortKey sortKey = it.next();
-			final int oldRowNum = sortKey.getIndex();
-			final Row row = sheet.getRow(oldRowNum); 
-			final int newRowNum = tRow + j;
-			it.remove();
-			if (oldRowNum == newRowNum) { //no move needed, skip it
-				continue;
-			}
-			//remove cells from the old row of the Range
-			final List<Cell> cells = new ArrayList<Cell>(cellCount);
-			final int begCol = Math.max(lCol, row.getFirstCellNum());
-			final int endCol = Math.min(rCol, row.getLastCellNum() - 1);
-			for(int k = begCol; k <= endCol; ++k) {
-				final Cell cell = row.getCell(k);
-				if (cell != null) {
-					cells.add(cell);
-					final Set<Ref>[] refs = BookHelper.removeCell(cell, false);
-					assignRefs(toEval, affected, refs);
+		_areaDependents.set(Boolean.TRUE);
+		try {
+			for(int j = 0; j < order.length; ++j) {
+				final int oldRowNum = order[j];
+				final Row row = sheet.getRow(oldRowNum); 
+				final int newRowNum = tRow + j;
+				if (oldRowNum == newRowNum) { //no move needed, skip it
+					continue;
+				}
+				//remove cells from the old row of the Range
+				final List<Cell> cells = new ArrayList<Cell>(cellCount);
+				final int begCol = Math.max(lCol, row.getFirstCellNum());
+				final int endCol = Math.min(rCol, row.getLastCellNum() - 1);
+				for(int k = begCol; k <= endCol; ++k) {
+					final Cell cell = row.getCell(k);
+					if (cell != null) {
+						cells.add(cell);
+						final Set<Ref>[] refs = BookHelper.removeCell(cell, false);
+						assignRefs(toEval, affected, refs);
+					}
+				}
+				if (!cells.isEmpty()) {
+					newRows.put(Integer.valueOf(newRowNum), cells);
 				}
 			}
-			if (!cells.isEmpty()) {
-				newRows.put(Integer.valueOf(newRowNum), cells);
-			}
-		}
-		
-		//move cells
-		for(Entry<Integer, List<Cell>> entry : newRows.entrySet()) {
-			final int rowNum = entry.getKey().intValue();
-			final List<Cell> cells = entry.getValue();
-			for(Cell cell : cells) {
-				final int colNum = cell.getColumnIndex();
-				final ChangeInfo changeInfo0 = BookHelper.copyCell(cell, sheet, rowNum, colNum, XRange.PASTE_ALL, XRange.PASTEOP_NONE, false);
-				assignChangeInfo(toEval, affected, mergeChanges, changeInfo0);
+			
+			//move cells
+			for(Entry<Integer, List<Cell>> entry : newRows.entrySet()) {
+				final int rowNum = entry.getKey().intValue();
+				final List<Cell> cells = entry.getValue();
+				for(Cell cell : cells) {
+					final int colNum = cell.getColumnIndex();
+					final ChangeInfo changeInfo0 = BookHelper.copyCell(cell, sheet, rowNum, colNum, XRange.PASTE_ALL, XRange.PASTEOP_NONE, false);
+					assignChangeInfo(toEval, affected, mergeChanges, changeInfo0);
+				}
 			}
+		} finally {
+			_areaDependents.remove();
 		}
+		assignRefs(toEval, affected, getBothDependents(sheet, tRow + firstMoved(order, tRow), lCol, bRow, rCol));
 		return changeInfo;
 	}
+	
+	//offset of the first moved item of the sorted order; the items before stay
+	private static int firstMoved(int[] order, int first) {
+		int j = 0;
+		while (j < order.length && order[j] == first + j) {
+			++j;
+		}
+		return j;
+	}
+	
 	private static Object getCellObject(Cell cell) {
 		if (cell == null) {
 			return "";
@@ -2947,106 +3206,6 @@ public final class BookHelper {
 		}
 	}
 	
-	public static class SortKey {
-		final private int _index; //original row/column index
-		final private Object[] _values;
-		public SortKey(int index, Object[] values) {
-			this._index = index;
-			this._values = values;
-		}
-		public int getIndex() {
-			return _index;
-		}
-		public Object[] getValues() {
-			return _values;
-		}
-	}
-	
-	private static class KeyComparator implements Comparator<SortKey>, Serializable {
-		final private boolean[] _descs;
-		final private boolean _matchCase;
-		final private int _sortMethod; //TODO byNumberOfStroks, byPinyYin
-		final private int _type; //TODO PivotTable only: byLabel, byValue
-		
-		public KeyComparator(boolean[] descs, boolean matchCase, int sortMethod, int type) {
-			_descs = descs;
-			_matchCase = matchCase;
-			_sortMethod = sortMethod;
-			_type = type;
-		}
-		@Override
-		public int compare(SortKey o1, SortKey o2) {
-			final Object[] values1 = o1.getValues();
-			final Object[] values2 = o2.getValues();
-			return compare(values1, values2);
-		}
-
-		private int compare(Object[] values1, Object[] values2) {
-			final int len = values1.length;
-			for(int j = 0; j < len; ++j) {
-				int p = compareValue(values1[j], values2[j], _descs[j]);
-				if (p != 0) {
-					return p;
-				}
-			}
-			return 0;
-		}
-		//1. null is always sorted at the end
-		//2. Error(Byte) > Boolean > String > Double
-		private int compareValue(Object val1, Object val2, boolean desc) {
-			if (val1 == val2) {
-				return 0;
-			}
-			final int order1 = val1 instanceof Byte ? 4 : val1 instanceof Boolean ? 3 : val1 instanceof RichTextString ? 2 : val1 instanceof Number ? 1 : desc ? 0 : 5;
-			final int order2 = val2 instanceof Byte ? 4 : val2 instanceof Boolean ? 3 : val2 instanceof RichTextString ? 2 : val2 instanceof Number ? 1 : desc ? 0 : 5;
-			int ret = 0;
-			if (order1 != order2) {
-				ret = order1 - order2;
-			} else { //order1 == order2
-				switch(order1) {
-				case 4: //error, no order among different errors
-					ret = 0;
-					break;
-				case 3: //Boolean
-					ret = ((Boolean)val1).compareTo((Boolean)val2);
-					break;
-				case 2: //RichTextString
-					ret = compareString(((RichTextString)val1).getString(), ((RichTextString)val2).getString());
-					break;
-				case 1: //Double
-					ret =((Double)val1).compareTo((Double)val2);
-					break;
-				default:
-					throw new UiException("Unknown value type: "+val1.getClass());
-				}
-			}
-			return desc ? -ret : ret;
-		}
-		private int compareString(String s1, String s2) {
-			return _matchCase ? compareString0(s1, s2) : s1.compareToIgnoreCase(s2);
-		}
-		//bug 59 Sort with case sensitive should be in special spreadsheet order
-		private int compareString0(String s1, String s2) {
-			final int len1 = s1.length();
-			final int len2 = s2.length();
-			final int len = len1 > len2 ? len2 : len1;
-			for (int j = 0; j < len; ++j) {
-				final int ret = compareChar(s1.charAt(j), s2.charAt(j));
-				if ( ret != 0) {
-					return ret;
-				}
-			}
-			return len1 - len2;
-		}
-		private int compareChar(char ch1, char ch2) {
-			final char uch1 = Character.toUpperCase(ch1);
-			final char uch2 = Character.toUpperCase(ch2);
-			return uch1 == uch2 ? 
-					(ch2 - ch1) : //yes, a < A
-					(uch1 - uch2); //yes, a < b, a < B, A < b, and A < B
-		}
-	}
-	 
 	public static Font getOrCreateFont(XBook book, short boldWeight, Color color, short fontHeight, java.lang.String name, 
 			boolean italic, boolean strikeout, short typeOffset, byte underline) {
 		Font font = book.findFont(boldWeight, color, fontHeight, name, italic, strikeout, typeOffset, underline);
@@ -3365,6 +3524,7 @@ public final class BookHelper {
 				}
 			}
 		}
+		CellStyleCSSCache.invalidate((XBook)sheet.getWorkbook()); //the style might be modified before applied
 		final Set<Ref> all = new HashSet<Ref>(1);
 		final RefSheet refSheet = BookHelper.getRefSheet((XBook)sheet.getWorkbook(), sheet);
 		all.add(new AreaRefImpl(tRow, lCol, bRow, rCol, refSheet));
@@ -4063,10 +4223,6 @@ public final class BookHelper {
 			pasteType = BookHelper.INNERPASTE_FILL_VALUE;
 			break;
 		}
-		final Set<Ref> toEval = new HashSet<Ref>();
-		final Set<Ref> affected = new HashSet<Ref>();
-		final List<MergeChange> mergeChanges = new ArrayList<MergeChange>();
-		final ChangeInfo changeInfo = new ChangeInfo(toEval, affected, mergeChanges);
 		final int rowCount = srcRef.getRowCount();
 		final int colCount = srcRef.getColumnCount();
 		final int srctRow = srcRef.getTopRow();
@@ -4083,6 +4239,7 @@ public final class BookHelper {
 		}
 		//handle special copy only case (two consecutive same type of row)
 		handleSpecialCopyStep(stepChunks, rowCount, colCount);
+		final CellFiller filler = new CellFiller(sheet, pasteType, srcbRow + 1, srclCol, dstbRow, srcrCol);
 		for(int c = srclCol, j = 0; c <= srcrCol; ++c) {
 			final StepChunk stepChunk = stepChunks[j++];
 			for(int srcIndex = 0, r = srcbRow + 1; r <= dstbRow; ++r, ++srcIndex) {
@@ -4090,17 +4247,13 @@ public final class BookHelper {
 				final int srcrow = srctRow + index;
 				final Cell srcCell = BookHelper.getCell(sheet, srcrow, c);
 				if (srcCell == null) {
-					final Set<Ref>[] refs = BookHelper.removeCell(sheet, r, c);
-					assignRefs(toEval, affected, refs);
+					filler.removeCell(r, c);
 				} else {
-					final ChangeInfo changeInfo0 = BookHelper.copyCell(stepChunk.getStep(index).next(srcCell), srcCell, sheet, r, c, pasteType, BookHelper.PASTEOP_NONE, false);
-					assignChangeInfo(toEval, affected, mergeChanges, changeInfo0);
+					filler.copyCell(stepChunk.getStep(index).next(srcCell), srcCell, r, c);
 				}
 			}
 		}
-		final RefSheet refSheet = BookHelper.getRefSheet((XBook)sheet.getWorkbook(), sheet);
-		affected.add(new AreaRefImpl(srcbRow + 1, srclCol, dstbRow, srcrCol, refSheet));
-		return changeInfo;
+		return filler.getChangeInfo();
 	}
 	
 	public static ChangeInfo fillUp(XSheet sheet, Ref srcRef, Ref dstRef, int fillType) {
@@ -4120,10 +4273,6 @@ public final class BookHelper {
 		default:
 			return null;
 		}
-		final Set<Ref> toEval = new HashSet<Ref>();
-		final Set<Ref> affected = new HashSet<Ref>();
-		final List<MergeChange> mergeChanges = new ArrayList<MergeChange>();
-		final ChangeInfo changeInfo = new ChangeInfo(toEval, affected, mergeChanges);
 		final int rowCount = srcRef.getRowCount();
 		final int colCount = srcRef.getColumnCount();
 		final int srctRow = srcRef.getTopRow();
@@ -4139,6 +4288,7 @@ public final class BookHelper {
 		}
 		//handle special copy only case (two consecutive same type of row)
 		handleSpecialCopyStep(stepChunks, rowCount, colCount);
+		final CellFiller filler = new CellFiller(sheet, pasteType, dsttRow, srclCol, srctRow - 1, srcrCol);
 		for(int c = srclCol, j = 0; c <= srcrCol; ++c) {
 			final StepChunk stepChunk = stepChunks[j++];
 			for(int srcIndex = 0, r = srctRow - 1; r >= dsttRow; --r, ++srcIndex) {
@@ -4146,17 +4296,13 @@ public final class BookHelper {
 				final int srcrow = srcbRow - index;
 				final Cell srcCell = BookHelper.getCell(sheet, srcrow, c);
 				if (srcCell == null) {
-					final Set<Ref>[] refs = BookHelper.removeCell(sheet, r, c);
-					assignRefs(toEval, affected, refs);
+					filler.removeCell(r, c);
 				} else {
-					final ChangeInfo changeInfo0 = BookHelper.copyCell(stepChunk.getStep(index).next(srcCell), srcCell, sheet, r, c, pasteType, BookHelper.PASTEOP_NONE, false);
-					assignChangeInfo(toEval, affected, mergeChanges, changeInfo0);
+					filler.copyCell(stepChunk.getStep(index).next(srcCell), srcCell, r, c);
 				}
 			}
 		}
-		final RefSheet refSheet = BookHelper.getRefSheet((XBook)sheet.getWorkbook(), sheet);
-		affected.add(new AreaRefImpl(dsttRow, srclCol, srctRow - 1, srcrCol, refSheet));
-		return changeInfo;
+		return filler.getChangeInfo();
 	}
 	
 	public static ChangeInfo fillRight(XSheet sheet, Ref srcRef, Ref dstRef, int fillType) {
@@ -4176,10 +4322,6 @@ public final class BookHelper {
 		default:
 			return null;
 		}
-		final Set<Ref> toEval = new HashSet<Ref>();
-		final Set<Ref> affected = new HashSet<Ref>();
-		final List<MergeChange> mergeChanges = new ArrayList<MergeChange>();
-		final ChangeInfo changeInfo = new ChangeInfo(toEval, affected, mergeChanges);
 		final int rowCount = srcRef.getRowCount();
 		final int colCount = srcRef.getColumnCount();
 		final int srclCol = srcRef.getLeftCol();
@@ -4195,6 +4337,7 @@ public final class BookHelper {
 		}
 		//handle special copy only case (two consecutive same type of row)
 		handleSpecialCopyStep(stepChunks, colCount, rowCount);
+		final CellFiller filler = new CellFiller(sheet, pasteType, srctRow, srcrCol + 1, srcbRow, dstrCol);
 		for(int r = srctRow, j = 0; r <= srcbRow; ++r) {
 			final StepChunk stepChunk = stepChunks[j++];
 			for(int srcIndex = 0, c = srcrCol + 1; c <= dstrCol; ++c, ++srcIndex) {
@@ -4202,17 +4345,13 @@ public final class BookHelper {
 				final int srccol = srclCol + index;
 				final Cell srcCell = BookHelper.getCell(sheet, r, srccol);
 				if (srcCell == null) {
-					final Set<Ref>[] refs = BookHelper.removeCell(sheet, r, c);
-					assignRefs(toEval, affected, refs);
+					filler.removeCell(r, c);
 				} else {
-					final ChangeInfo changeInfo0 = BookHelper.copyCell(stepChunk.getStep(index).next(srcCell), srcCell, sheet, r, c, pasteType, BookHelper.PASTEOP_NONE, false);
-					assignChangeInfo(toEval, affected, mergeChanges, changeInfo0);
+					filler.copyCell(stepChunk.getStep(index).next(srcCell), srcCell, r, c);
 				}
 			}
 		}
-		final RefSheet refSheet = BookHelper.getRefSheet((XBook)sheet.getWorkbook(), sheet);
-		affected.add(new AreaRefImpl(srctRow, srcrCol + 1, srcbRow, dstrCol, refSheet));
-		return changeInfo;
+		return filler.getChangeInfo();
 	}
 	
 	public static ChangeInfo fillLeft(XSheet sheet, Ref srcRef, Ref dstRef, int fillType) {
@@ -4232,10 +4371,6 @@ public final class BookHelper {
 		default:
 			return null;
 		}
-		final Set<Ref> toEval = new HashSet<Ref>();
-		final Set<Ref> affected = new HashSet<Ref>();
-		final List<MergeChange> mergeChanges = new ArrayList<MergeChange>();
-		final ChangeInfo changeInfo = new ChangeInfo(toEval, affected, mergeChanges);
 		final int rowCount = srcRef.getRowCount();
 		final int colCount = srcRef.getColumnCount();
 		final int srclCol = srcRef.getLeftCol();
@@ -4251,6 +4386,7 @@ public final class BookHelper {
 		}
 		//handle special copy only case (two consecutive same type of row)
 		handleSpecialCopyStep(stepChunks, colCount, rowCount);
+		final CellFiller filler = new CellFiller(sheet, pasteType, srctRow, dstlCol, srcbRow, srclCol - 1);
 		for(int r = srctRow, j = 0; r <= srcbRow; ++r) {
 			final StepChunk stepChunk = stepChunks[j++];
 			for(int srcIndex = 0, c = srclCol - 1; c >= dstlCol; --c, ++srcIndex) {
@@ -4258,17 +4394,141 @@ public final class BookHelper {
 				final int srccol = srcrCol - index;
 				final Cell srcCell = BookHelper.getCell(sheet, r, srccol);
 				if (srcCell == null) {
-					final Set<Ref>[] refs = BookHelper.removeCell(sheet, r, c);
-					assignRefs(toEval, affected, refs);
+					filler.removeCell(r, c);
 				} else {
-					final ChangeInfo changeInfo0 = BookHelper.copyCell(stepChunk.getStep(index).next(srcCell), srcCell, sheet, r, c, pasteType, BookHelper.PASTEOP_NONE, false);
-					assignChangeInfo(toEval, affected, mergeChanges, changeInfo0);
+					filler.copyCell(stepChunk.getStep(index).next(srcCell), srcCell, r, c);
 				}
 			}
 		}
-		final RefSheet refSheet = BookHelper.getRefSheet((XBook)sheet.getWorkbook(), sheet);
-		affected.add(new AreaRefImpl(srctRow, dstlCol, srcbRow, srclCol - 1, refSheet));
-		return changeInfo;
+		return filler.getChangeInfo();
+	}
+	
+	/**
+	 * Fills the cells of an area one by one, and collects the dependents of
+	 * the whole area at once (see {@link #getBothDependents(XSheet, int, int, int, int)}).
+	 * The formulas are filled by shifting the tokens of the source formula, which
+	 * is parsed once; they are not evaluated when filled but their precedents are
+	 * registered from the tokens, so they are evaluated when shown or referred.
+	 */
+	private static class CellFiller {
+		private final XSheet _sheet;
+		private final int _pasteType;
+		private final int _tRow, _lCol, _bRow, _rCol; //the filled area
+		private final SpreadsheetVersion _ver;
+		private final Set<Ref> _toEval = new HashSet<Ref>();
+		private final Set<Ref> _affected = new HashSet<Ref>();
+		private final List<MergeChange> _mergeChanges = new ArrayList<MergeChange>();
+		private final Map<Cell, Ptg[]> _srcPtgs = new HashMap<Cell, Ptg[]>(); //source cell -> parsed tokens; null if cannot be copied
+		private final List<Cell> _cells = new ArrayList<Cell>(); //the filled formula cells
+		private final List<Ptg[]> _ptgs = new ArrayList<Ptg[]>(); //the tokens of the filled formula cells
+		
+		private CellFiller(XSheet sheet, int pasteType, int tRow, int lCol, int bRow, int rCol) {
+			_sheet = sheet;
+			_pasteType = pasteType;
+			_tRow = tRow;
+			_lCol = lCol;
+			_bRow = bRow;
+			_rCol = rCol;
+			_ver = ((XBook)sheet.getWorkbook()).getSpreadsheetVersion();
+		}
+		
+		private void removeCell(int row, int col) {
+			_areaDependents.set(Boolean.TRUE);
+			try {
+				assignRefs(_toEval, _affected, BookHelper.removeCell(_sheet, row, col));
+			} finally {
+				_areaDependents.remove();
+			}
+		}
+		
+		private void copyCell(Object cellValue, Cell srcCell, int row, int col) {
+			_areaDependents.set(Boolean.TRUE);
+			try {
+				if (srcCell.getCellType() != Cell.CELL_TYPE_FORMULA || (_pasteType & INNERPASTE_FORMULAS) == 0) {
+					assignChangeInfo(_toEval, _affected, _mergeChanges, 
+						BookHelper.copyCell(cellValue, srcCell, _sheet, row, col, _pasteType, PASTEOP_NONE, false));
+					return;
+				}
+				final Cell dstCell = getOrCreateCell(_sheet, row, col);
+				//paste formats and validation
+				final int pasteType = _pasteType & ~INNERPASTE_VALUES_AND_FORMULAS;
+				if (pasteType != 0) {
+					assignChangeInfo(_toEval, _affected, _mergeChanges, 
+						BookHelper.copyCell(cellValue, srcCell, dstCell, pasteType, PASTEOP_NONE, false));
+				}
+				//paste formula
+				removeFormula(dstCell, true);
+				final Ptg[] ptgs = offsetPtgs(getSourcePtgs(srcCell), null, 
+					row - srcCell.getRowIndex(), col - srcCell.getColumnIndex(), _ver);
+				setCellPtgs(dstCell, ptgs);
+				((XBook)_sheet.getWorkbook()).getFormulaEvaluator().notifySetFormula(dstCell);
+				_cells.add(dstCell);
+				_ptgs.add(ptgs);
+			} finally {
+				_areaDependents.remove();
+			}
+		}
+		
+		//the tokens of a source formula to be shifted; the xlsx formulas are parsed 
+		//once and copied, the xls ones are decoded from the formula record
+		private Ptg[] getSourcePtgs(Cell srcCell) {
+			if (srcCell instanceof XSSFCell) {
+				if (_srcPtgs.containsKey(srcCell)) {
+					final Ptg[] ptgs = _srcPtgs.get(srcCell);
+					return ptgs != null ? copyPtgs(ptgs) : getCellPtgs(srcCell);
+				}
+				//the parsed tokens are kept, and a copy of them is shifted
+				final Ptg[] ptgs = getCellPtgs(srcCell);
+				final Ptg[] copy = copyPtgs(ptgs);
+				_srcPtgs.put(srcCell, copy != null ? ptgs : null);
+				return copy != null ? copy : ptgs;
+			}
+			return getCellPtgs(srcCell);
+		}
+		
+		private ChangeInfo getChangeInfo() {
+			final XBook book = (XBook)_sheet.getWorkbook();
+			final RefSheet refSheet = getRefSheet(book, _sheet);
+			//the dependents must be collected before the filled formulas are registered
+			assignRefs(_toEval, _affected, getBothDependents(_sheet, _tRow, _lCol, _bRow, _rCol));
+			final DependencyBuilder builder = new DependencyBuilder(book);
+			final List<Cell> evalCells = new ArrayList<Cell>();
+			for (int j = 0, len = _cells.size(); j < len; ++j) {
+				final Cell cell = _cells.get(j);
+				if (!builder.addPrecedents(refSheet, cell.getRowIndex(), cell.getColumnIndex(), _ptgs.get(j))) {
+					evalCells.add(cell);
+				}
+			}
+			for (Cell cell : evalCells) {
+				evaluate(book, cell);
+			}
+			_affected.add(new AreaRefImpl(_tRow, _lCol, _bRow, _rCol, refSheet));
+			return new ChangeInfo(_toEval, _affected, _mergeChanges);
+		}
+	}
+	
+	//copies the tokens for shifting; null if the tokens refer to other sheets 
+	//which cannot be copied
+	private static Ptg[] copyPtgs(Ptg[] ptgs) {
+		final Ptg[] copy = new Ptg[ptgs.length];
+		for (int j = 0; j < ptgs.length; ++j) {
+			final Ptg ptg = ptgs[j];
+			if (ptg instanceof RefPtg) {
+				final RefPtg rptg = (RefPtg) ptg;
+				copy[j] = new RefPtg(rptg.getRow(), rptg.getColumn(), rptg.isRowRelative(), rptg.isColRelative());
+				copy[j].setClass(ptg.getPtgClass());
+			} else if (ptg instanceof AreaPtg) {
+				final AreaPtg aptg = (AreaPtg) ptg;
+				copy[j] = new AreaPtg(aptg.getFirstRow(), aptg.getLastRow(), aptg.getFirstColumn(), aptg.getLastColumn(), 
+					aptg.isFirstRowRelative(), aptg.isLastRowRelative(), aptg.isFirstColRelative(), aptg.isLastColRelative());
+				copy[j].setClass(ptg.getPtgClass());
+			} else if (ptg instanceof RefPtgBase || ptg instanceof AreaPtgBase) {
+				return null;
+			} else { //not changed by shifting
+				copy[j] = ptg;
+			}
+		}
+		return copy;
 	}
 	
 	private static int getFillDirection(XSheet sheet, Ref srcRef, Ref dstRef) {
@@ -5022,8 +5282,10 @@ public final class BookHelper {
 			final XelContext ctx = new SimpleXelContext(resolver, mapper);
 			ctx.setAttribute("zkoss.zss.CellType", Object.class);
 			XelContextHolder.setXelContext(ctx);
-			final CellValue cv = book.getFormulaEvaluator().evaluateFormula(sheetIndex, formula);
-			return cv;
+			final FormulaEvaluator evaluator = book.getFormulaEvaluator();
+			synchronized (getEvaluationLock(book)) {
+				return evaluator.evaluateFormula(sheetIndex, formula);
+			}
 		} finally {
 			XelContextHolder.setXelContext(old);
 		}
@@ -5037,7 +5299,10 @@ public final class BookHelper {
 			final XelContext ctx = new SimpleXelContext(resolver, mapper);
 			ctx.setAttribute("zkoss.zss.CellType", Object.class);
 			XelContextHolder.setXelContext(ctx);
-			return book.getFormulaEvaluator().evaluateFormulaValueEval(sheetIndex, formula, ignoreDereference);
+			final FormulaEvaluator evaluator = book.getFormulaEvaluator();
+			synchronized (getEvaluationLock(book)) {
+				return evaluator.evaluateFormulaValueEval(sheetIndex, formula, ignoreDereference);
+			}
 		} finally {
 			XelContextHolder.setXelContext(old);
 		}
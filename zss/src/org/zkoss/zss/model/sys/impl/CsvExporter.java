@@ -0,0 +1,96 @@
+/* CsvExporter.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 3:04:26 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.model.sys.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.poi.ss.util.AreaReference;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XExporter;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Exports the cells of a sheet as comma separated values (RFC 4180) in
+ * UTF-8. A cell is exported as its display text, the same as shown in
+ * the sheet; the rows are written one by one, so the memory used does not
+ * grow with the number of rows.
+ * <p>Exporting a book exports its active sheet.</p>
+ */
+public class CsvExporter implements XExporter {
+	private static final String LINE_SEPARATOR = "\r\n";
+
+	public void export(XBook workbook, OutputStream outputStream) throws IOException {
+		export(workbook.getWorksheetAt(workbook.getActiveSheetIndex()), outputStream);
+	}
+
+	public void export(XSheet worksheet, OutputStream outputStream) throws IOException {
+		final int bRow = worksheet.getLastRowNum();
+		exportArea(worksheet, 0, 0, bRow, ExcelExporter.getLastColumn(worksheet, 0, bRow), outputStream);
+	}
+
+	public void exportSelection(XSheet worksheet, AreaReference area, OutputStream outputStream) throws IOException {
+		final int[] bounds = ExcelExporter.getSelectionBounds(worksheet, area);
+		exportArea(worksheet, bounds[0], bounds[1], bounds[2], bounds[3], outputStream);
+	}
+
+	private void exportArea(XSheet worksheet, int tRow, int lCol, int bRow, int rCol, OutputStream outputStream) throws IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+		if (rCol >= lCol) {
+			for (int r = tRow; r <= bRow; ++r) {
+				final Row row = worksheet.getRow(r);
+				for (int c = lCol; c <= rCol; ++c) {
+					if (c > lCol) {
+						writer.write(',');
+					}
+					final Cell cell = row == null ? null : row.getCell(c);
+					if (cell != null) {
+						writeField(writer, BookHelper.getCellText(cell));
+					}
+				}
+				writer.write(LINE_SEPARATOR);
+			}
+		}
+		writer.flush(); //the stream is closed by the caller
+	}
+
+	private static void writeField(Writer writer, String text) throws IOException {
+		if (text.length() == 0) {
+			return;
+		}
+		boolean quote = text.charAt(0) == ' ' || text.charAt(text.length() - 1) == ' ';
+		for (int j = 0, len = text.length(); !quote && j < len; ++j) {
+			final char cc = text.charAt(j);
+			quote = cc == ',' || cc == '"' || cc == '\n' || cc == '\r';
+		}
+		if (!quote) {
+			writer.write(text);
+			return;
+		}
+		writer.write('"');
+		for (int j = 0, len = text.length(); j < len; ++j) {
+			final char cc = text.charAt(j);
+			if (cc == '"') {
+				writer.write('"');
+			}
+			writer.write(cc);
+		}
+		writer.write('"');
+	}
+}
@@ -0,0 +1,208 @@
+/* DependencyBuilder.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 4:31:12 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.model.sys.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.zkoss.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.zkoss.poi.hssf.usermodel.HSSFWorkbook;
+import org.zkoss.poi.ss.formula.EvaluationWorkbook;
+import org.zkoss.poi.ss.formula.EvaluationWorkbook.ExternalSheet;
+import org.zkoss.poi.ss.formula.ExternSheetReferenceToken;
+import org.zkoss.poi.ss.formula.FormulaParseException;
+import org.zkoss.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.zkoss.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.zkoss.poi.ss.formula.ptg.Area3DPtg;
+import org.zkoss.poi.ss.formula.ptg.AreaPtg;
+import org.zkoss.poi.ss.formula.ptg.AreaPtgBase;
+import org.zkoss.poi.ss.formula.ptg.ExpPtg;
+import org.zkoss.poi.ss.formula.ptg.NamePtg;
+import org.zkoss.poi.ss.formula.ptg.NameXPtg;
+import org.zkoss.poi.ss.formula.ptg.Ptg;
+import org.zkoss.poi.ss.formula.ptg.Ref3DPtg;
+import org.zkoss.poi.ss.formula.ptg.RefPtg;
+import org.zkoss.poi.ss.formula.ptg.RefPtgBase;
+import org.zkoss.poi.ss.formula.ptg.TblPtg;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.zkoss.poi.xssf.usermodel.XSSFWorkbook;
+import org.zkoss.zss.engine.Ref;
+import org.zkoss.zss.engine.RefBook;
+import org.zkoss.zss.engine.RefSheet;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Registers the precedents of formula cells into the {@link RefBook} from
+ * the formula tokens, without evaluating the formulas.
+ * <p>The precedents are the same as those registered by the evaluation (see
+ * {@link org.zkoss.poi.ss.formula.DefaultDependencyTracker}): the cells and
+ * areas of this sheet, of other sheets and of other books of the book series;
+ * a formula with INDIRECT is marked so it is always evaluated. The formulas
+ * referring names or array formulas cannot be resolved from their tokens and
+ * are evaluated as before.</p>
+ * @see SheetCtrl#buildDependencies()
+ */
+/*package*/ class DependencyBuilder {
+	private final XBook _book;
+	private final RefBook _refBook;
+	private EvaluationWorkbook _workbook; //resolves 3D references, created on demand
+
+	/*package*/ DependencyBuilder(XBook book) {
+		_book = book;
+		_refBook = BookHelper.getOrCreateRefBook(book);
+	}
+
+	/**
+	 * Registers the precedents of all formula cells of the specified sheet.
+	 * The formula cells whose precedents are known already (e.g. evaluated)
+	 * are skipped.
+	 * @return the formula cells evaluated since their precedents cannot be
+	 * registered from their tokens
+	 */
+	/*package*/ List<Cell> build(XSheet sheet) {
+		final RefSheet refSheet = _refBook.getOrCreateRefSheet(sheet.getSheetName());
+		final List<Cell> evalCells = new ArrayList<Cell>();
+		for (Row row : sheet) {
+			if (row == null) {
+				continue;
+			}
+			for (Cell cell : row) {
+				if (cell == null || cell.getCellType() != Cell.CELL_TYPE_FORMULA) {
+					continue;
+				}
+				final int r = cell.getRowIndex();
+				final int c = cell.getColumnIndex();
+				final Ref srcRef = refSheet.getRef(r, c, r, c);
+				if (srcRef != null && (!srcRef.getPrecedents().isEmpty() || srcRef.isWithIndirectPrecedent())) {
+					continue;
+				}
+				Ptg[] ptgs = null;
+				try {
+					ptgs = BookHelper.getCellPtgs(cell);
+				} catch (FormulaParseException e) {
+					//left to the evaluation
+				}
+				if (ptgs == null || !addPrecedents(refSheet, r, c, ptgs)) {
+					evalCells.add(cell);
+				}
+			}
+		}
+		for (Cell cell : evalCells) {
+			BookHelper.evaluate(_book, cell);
+		}
+		return evalCells;
+	}
+
+	/**
+	 * Registers the precedents of a formula cell from its tokens.
+	 * @return false if the formula refers names, is an array formula, or
+	 * refers a book not in the book series; nothing is registered then and
+	 * the caller shall evaluate the formula.
+	 */
+	/*package*/ boolean addPrecedents(RefSheet refSheet, int row, int col, Ptg[] ptgs) {
+		boolean withIndirect = false;
+		final List<RefSheet> sheets = new ArrayList<RefSheet>();
+		final List<int[]> areas = new ArrayList<int[]>();
+		for (Ptg ptg : ptgs) {
+			if (ptg instanceof AbstractFunctionPtg) {
+				if (((AbstractFunctionPtg)ptg).getFunctionIndex() == FunctionMetadataRegistry.FUNCTION_INDEX_INDIRECT) {
+					withIndirect = true;
+				}
+			} else if (ptg instanceof NamePtg || ptg instanceof NameXPtg
+				|| ptg instanceof ExpPtg || ptg instanceof TblPtg) {
+				return false;
+			} else if (ptg instanceof RefPtg || ptg instanceof AreaPtg) {
+				sheets.add(refSheet);
+				areas.add(getArea(ptg));
+			} else if (ptg instanceof Ref3DPtg || ptg instanceof Area3DPtg) {
+				final List<RefSheet> targets = getRefSheets((ExternSheetReferenceToken)ptg);
+				if (targets == null) {
+					return false;
+				}
+				final int[] area = getArea(ptg);
+				for (RefSheet target : targets) {
+					sheets.add(target);
+					areas.add(area);
+				}
+			} else if (ptg instanceof RefPtgBase || ptg instanceof AreaPtgBase) {
+				return false; //relative tokens of shared formulas
+			}
+		}
+		if (withIndirect) { //always evaluated, no need to register other references
+			refSheet.getOrCreateRef(row, col, row, col).setWithIndirectPrecedent(true);
+			return true;
+		}
+		for (int j = 0, len = sheets.size(); j < len; ++j) {
+			final int[] area = areas.get(j);
+			refSheet.addDependency(row, col, sheets.get(j), area[0], area[1], area[2], area[3]);
+		}
+		return true;
+	}
+
+	private static int[] getArea(Ptg ptg) {
+		if (ptg instanceof RefPtgBase) {
+			final RefPtgBase rptg = (RefPtgBase) ptg;
+			return new int[] {rptg.getRow(), rptg.getColumn(), rptg.getRow(), rptg.getColumn()};
+		}
+		final AreaPtgBase aptg = (AreaPtgBase) ptg;
+		return new int[] {aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn()};
+	}
+
+	//the sheets referred by a 3D reference; empty if the sheet was deleted,
+	//null if it refers a book not in the book series
+	private List<RefSheet> getRefSheets(ExternSheetReferenceToken ptg) {
+		final EvaluationWorkbook workbook = getEvaluationWorkbook();
+		final int index = ptg.getExternSheetIndex();
+		final ExternalSheet externalSheet = workbook.getExternalSheet(index);
+		if (externalSheet != null) {
+			final XBook book = BookHelper.getBook(_book, externalSheet.getWorkbookName());
+			if (book == null) {
+				return null;
+			}
+			final String lastSheetName = externalSheet.getLastSheetName();
+			return getRefSheets(book, book.getSheetIndex(externalSheet.getSheetName()),
+				lastSheetName == null ? -1 : book.getSheetIndex(lastSheetName));
+		}
+		return getRefSheets(_book, workbook.convertFromExternSheetIndex(index),
+			workbook.convertLastIndexFromExternSheetIndex(index));
+	}
+
+	private static List<RefSheet> getRefSheets(XBook book, int s1, int s2) {
+		if (s1 < 0) { //refer to deleted sheet
+			return Collections.emptyList();
+		}
+		if (s2 < 0) {
+			s2 = s1;
+		}
+		final RefBook refBook = BookHelper.getOrCreateRefBook(book);
+		final List<RefSheet> sheets = new ArrayList<RefSheet>();
+		for (int j = Math.min(s1, s2), last = Math.max(s1, s2); j <= last; ++j) {
+			sheets.add(refBook.getOrCreateRefSheet(book.getSheetName(j)));
+		}
+		return sheets;
+	}
+
+	private EvaluationWorkbook getEvaluationWorkbook() {
+		if (_workbook == null) {
+			_workbook = _book instanceof HSSFWorkbook ?
+				HSSFEvaluationWorkbook.create((HSSFWorkbook)_book) :
+				XSSFEvaluationWorkbook.create((XSSFWorkbook)_book);
+		}
+		return _workbook;
+	}
+}
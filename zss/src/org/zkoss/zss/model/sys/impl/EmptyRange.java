@@ -213,6 +213,10 @@ public class EmptyRange implements XRange {
 	public void setStyle(CellStyle style) {
 	}
 
+	@Override
+	public void setStyles(CellStyle[][] styles) {
+	}
+
 	@Override
 	public void sort(XRange rng1, boolean desc1, XRange rng2, int type,
 			boolean desc2, XRange rng3, boolean desc3, int header,
@@ -253,6 +257,14 @@ public class EmptyRange implements XRange {
 	public void setValue(Object value) {
 	}
 
+	@Override
+	public void setValues(Object[][] values) {
+	}
+
+	@Override
+	public void setEditTexts(String[][] texts) {
+	}
+
 	@Override
 	public XRange getOffset(int rowOffset, int colOffset) {
 		return this;
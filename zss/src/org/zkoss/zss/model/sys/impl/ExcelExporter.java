@@ -15,18 +15,38 @@ package org.zkoss.zss.model.sys.impl;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.zkoss.lang.Library;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.CellStyle;
+import org.zkoss.poi.ss.usermodel.Font;
+import org.zkoss.poi.ss.usermodel.RichTextString;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.poi.ss.usermodel.Sheet;
 import org.zkoss.poi.ss.util.AreaReference;
+import org.zkoss.poi.ss.util.CellRangeAddress;
+import org.zkoss.poi.ss.util.CellReference;
+import org.zkoss.poi.xssf.streaming.SXSSFWorkbook;
+import org.zkoss.poi.xssf.usermodel.XSSFCellStyle;
 import org.zkoss.zss.model.sys.XBook;
 import org.zkoss.zss.model.sys.XExporter;
 import org.zkoss.zss.model.sys.XSheet;
 
 /**
  * Exports {@link XBook} contents as an Excel file.
+ * <p>A sheet or a selection is exported as an Excel 2007 file written with a
+ * window of rows (see {@link SXSSFWorkbook}); the rows out of the window are
+ * flushed to a temporary file, so the memory used does not grow with the
+ * number of rows. The formulas are exported as their values, and the
+ * pictures, charts, comments and validations are not exported.</p>
  * @author ashish
  *
  */
 public class ExcelExporter implements XExporter {
+	/** Library property of the number of rows kept in memory when exporting a sheet or a selection. */
+	public static final String WINDOW_SIZE = "org.zkoss.zss.model.ExcelExporter.windowSize";
 
 	/**
 	 * Exports {@link XBook} as an Excel file to given {@link OutputStream}
@@ -37,11 +57,187 @@ public class ExcelExporter implements XExporter {
 	}
 
 	public void export(XSheet worksheet, OutputStream outputStream) throws IOException{
-		throw new UnsupportedOperationException();
+		exportArea(worksheet, 0, 0, worksheet.getLastRowNum(), getLastColumn(worksheet, 0, worksheet.getLastRowNum()), outputStream);
 	}
 
 	public void exportSelection(XSheet worksheet, AreaReference area,
 			OutputStream outputStream) throws IOException{
-		throw new UnsupportedOperationException();
+		final int[] bounds = getSelectionBounds(worksheet, area);
+		exportArea(worksheet, bounds[0], bounds[1], bounds[2], bounds[3], outputStream);
+	}
+
+	private void exportArea(XSheet worksheet, int tRow, int lCol, int bRow, int rCol, OutputStream outputStream) throws IOException {
+		final SXSSFWorkbook book = new SXSSFWorkbook(Library.getIntProperty(WINDOW_SIZE, SXSSFWorkbook.DEFAULT_WINDOW_SIZE));
+		book.setCompressTempFiles(true);
+		try {
+			final Sheet sheet = book.createSheet(worksheet.getSheetName());
+			final StyleCopier styles = new StyleCopier(worksheet, book);
+			final int defaultWidth = worksheet.getDefaultColumnWidth() * 256;
+			for (int c = lCol; c <= rCol; ++c) {
+				final int width = worksheet.getColumnWidth(c);
+				if (width != defaultWidth) {
+					sheet.setColumnWidth(c - lCol, width);
+				}
+				if (worksheet.isColumnHidden(c)) {
+					sheet.setColumnHidden(c - lCol, true);
+				}
+			}
+			final short defaultHeight = worksheet.getDefaultRowHeight();
+			for (int r = tRow; r <= bRow; ++r) {
+				final Row srcRow = worksheet.getRow(r);
+				if (srcRow == null) {
+					continue;
+				}
+				final Row row = sheet.createRow(r - tRow);
+				if (srcRow.getHeight() != defaultHeight) {
+					row.setHeight(srcRow.getHeight());
+				}
+				if (srcRow.getZeroHeight()) {
+					row.setZeroHeight(true);
+				}
+				if (srcRow.getRowStyle() != null) {
+					row.setRowStyle(styles.getStyle(srcRow.getRowStyle()));
+				}
+				final int left = Math.max(lCol, srcRow.getFirstCellNum());
+				final int right = Math.min(rCol, srcRow.getLastCellNum() - 1);
+				for (int c = left; c <= right; ++c) {
+					final Cell srcCell = srcRow.getCell(c);
+					if (srcCell != null) {
+						copyCell(srcCell, row.createCell(c - lCol), styles);
+					}
+				}
+			}
+			for (int j = 0, len = worksheet.getNumMergedRegions(); j < len; ++j) {
+				final CellRangeAddress region = worksheet.getMergedRegion(j);
+				if (region.getFirstRow() >= tRow && region.getLastRow() <= bRow
+					&& region.getFirstColumn() >= lCol && region.getLastColumn() <= rCol) {
+					sheet.addMergedRegion(new CellRangeAddress(region.getFirstRow() - tRow, region.getLastRow() - tRow,
+						region.getFirstColumn() - lCol, region.getLastColumn() - lCol));
+				}
+			}
+			book.write(outputStream);
+		} finally {
+			book.dispose();
+		}
+	}
+
+	private static void copyCell(Cell srcCell, Cell cell, StyleCopier styles) {
+		cell.setCellStyle(styles.getStyle(srcCell.getCellStyle()));
+		//formulas are copied as values; the references may not be in the exported area
+		final Object value = BookHelper.getEvalCellValue(srcCell);
+		if (value instanceof Double) {
+			cell.setCellValue(((Double)value).doubleValue());
+		} else if (value instanceof Boolean) {
+			cell.setCellValue(((Boolean)value).booleanValue());
+		} else if (value instanceof Byte) {
+			cell.setCellErrorValue(((Byte)value).byteValue());
+		} else if (value instanceof RichTextString) {
+			cell.setCellValue(((RichTextString)value).getString());
+		} else if (value instanceof String && ((String)value).length() > 0) {
+			cell.setCellValue((String)value);
+		}
+	}
+
+	/**
+	 * Returns the area of the selection to export, {top, left, bottom, right},
+	 * bounded by the last row of the sheet and the last column of the cells
+	 * in the rows; the bottom is less than the top, or the right is less than
+	 * the left, if there is nothing to export.
+	 */
+	/*package*/ static int[] getSelectionBounds(XSheet sheet, AreaReference area) {
+		final CellReference first = area.getFirstCell();
+		final CellReference last = area.getLastCell();
+		final int tRow = Math.min(first.getRow(), last.getRow());
+		final int lCol = Math.min(first.getCol(), last.getCol());
+		final int bRow = Math.min(Math.max(first.getRow(), last.getRow()), sheet.getLastRowNum());
+		final int rCol = Math.min(Math.max(first.getCol(), last.getCol()), getLastColumn(sheet, tRow, bRow));
+		return new int[] {tRow, lCol, bRow, rCol};
+	}
+
+	/**
+	 * Returns the last column index of the cells in the specified rows; -1 if none.
+	 */
+	/*package*/ static int getLastColumn(XSheet sheet, int tRow, int bRow) {
+		int last = -1;
+		for (int r = tRow; r <= bRow; ++r) {
+			final Row row = sheet.getRow(r);
+			if (row != null) {
+				last = Math.max(last, row.getLastCellNum() - 1);
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Creates the styles of the exported book, one per style of the
+	 * exported sheet.
+	 */
+	private static class StyleCopier {
+		private final XSheet _srcSheet;
+		private final SXSSFWorkbook _book;
+		private final Map<Short, CellStyle> _styles = new HashMap<Short, CellStyle>(); //source index -> style
+		private final Map<Short, Font> _fonts = new HashMap<Short, Font>(); //source index -> font
+
+		private StyleCopier(XSheet srcSheet, SXSSFWorkbook book) {
+			_srcSheet = srcSheet;
+			_book = book;
+		}
+
+		private CellStyle getStyle(CellStyle src) {
+			final Short key = Short.valueOf(src.getIndex());
+			CellStyle style = _styles.get(key);
+			if (style == null) {
+				style = _book.createCellStyle();
+				if (src instanceof XSSFCellStyle) {
+					style.cloneStyleFrom(src);
+				} else {
+					copyStyle(src, style);
+				}
+				_styles.put(key, style);
+			}
+			return style;
+		}
+
+		private void copyStyle(CellStyle src, CellStyle style) {
+			style.setDataFormat(_book.createDataFormat().getFormat(src.getDataFormatString()));
+			style.setAlignment(src.getAlignment());
+			style.setVerticalAlignment(src.getVerticalAlignment());
+			style.setWrapText(src.getWrapText());
+			style.setIndention(src.getIndention());
+			style.setRotation(src.getRotation());
+			style.setLocked(src.getLocked());
+			style.setHidden(src.getHidden());
+			style.setBorderTop(src.getBorderTop());
+			style.setBorderBottom(src.getBorderBottom());
+			style.setBorderLeft(src.getBorderLeft());
+			style.setBorderRight(src.getBorderRight());
+			style.setTopBorderColor(src.getTopBorderColor());
+			style.setBottomBorderColor(src.getBottomBorderColor());
+			style.setLeftBorderColor(src.getLeftBorderColor());
+			style.setRightBorderColor(src.getRightBorderColor());
+			style.setFillPattern(src.getFillPattern());
+			style.setFillForegroundColor(src.getFillForegroundColor());
+			style.setFillBackgroundColor(src.getFillBackgroundColor());
+			style.setFont(getFont(src.getFontIndex()));
+		}
+
+		private Font getFont(short index) {
+			final Short key = Short.valueOf(index);
+			Font font = _fonts.get(key);
+			if (font == null) {
+				final Font src = _srcSheet.getWorkbook().getFontAt(index);
+				font = _book.createFont();
+				font.setFontName(src.getFontName());
+				font.setFontHeight(src.getFontHeight());
+				font.setBoldweight(src.getBoldweight());
+				font.setItalic(src.getItalic());
+				font.setStrikeout(src.getStrikeout());
+				font.setUnderline(src.getUnderline());
+				font.setTypeOffset(src.getTypeOffset());
+				font.setColor(src.getColor());
+				_fonts.put(key, font);
+			}
+			return font;
+		}
 	}
 }
@@ -0,0 +1,268 @@
+/* FilterColumnIndex.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 12:24:51 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.model.sys.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.zkoss.poi.ss.formula.FormulaParseException;
+import org.zkoss.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.zkoss.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.zkoss.poi.ss.formula.ptg.Ptg;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.DateUtil;
+import org.zkoss.poi.ss.usermodel.RichTextString;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * The distinct display texts of a filter column, each mapped to the rows
+ * showing the text. The rows are kept as a {@link BitSet} of offsets from the
+ * top row of the column, so the rows selected by filter criteria are the
+ * union of the bitsets of the selected texts.
+ * <p>A blank cell is indexed with the text "=", the same as the filter
+ * criteria for blanks. The rows are read from the sheet when first asked,
+ * and then only the rows invalidated by cell changes are read again (see
+ * {@link FilterIndex#invalidate(int, int, int, int)}). The rows of a formula
+ * calling a volatile function, e.g. NOW() or RAND(), are read every time,
+ * since it is recalculated without any cell change.</p>
+ * <p>The texts are formatted in the locale of the index, see
+ * {@link FilterIndex#getColumn(int, int, int)}.</p>
+ */
+public class FilterColumnIndex {
+	/** The display text of the blank cells. */
+	public static final String BLANK = "=";
+
+	//the functions whose results change without any change of the cells
+	private static final String[] VOLATILE_FUNCTIONS = {"NOW", "TODAY", "RAND", "INDIRECT", "OFFSET", "CELL", "INFO"};
+	private static final BitSet VOLATILE_INDEXES = new BitSet();
+	static {
+		for (String name : VOLATILE_FUNCTIONS) {
+			final int index = FunctionMetadataRegistry.lookupIndexByName(name);
+			if (index >= 0) {
+				VOLATILE_INDEXES.set(index);
+			}
+		}
+	}
+
+	private final XSheet _sheet;
+	private final Locale _locale;
+	private final int _col;
+	private final int _top;
+	private final int _bottom;
+	private final String[] _texts; //[row offset] display text
+	private final Object[] _values; //[row offset] value for sorting the texts
+	private final Map<String, BitSet> _rows; //display text -> rows
+	private final BitSet _dirty;
+	private final BitSet _volatile; //rows of the formulas calling a volatile function
+
+	/*package*/ FilterColumnIndex(XSheet sheet, Locale locale, int col, int top, int bottom) {
+		_sheet = sheet;
+		_locale = locale;
+		_col = col;
+		_top = top;
+		_bottom = bottom;
+		final int size = Math.max(0, bottom - top + 1);
+		_texts = new String[size];
+		_values = new Object[size];
+		_rows = new HashMap<String, BitSet>();
+		_dirty = new BitSet(size);
+		_dirty.set(0, size);
+		_volatile = new BitSet(size);
+	}
+
+	/**
+	 * Returns the locale the display texts are formatted in.
+	 */
+	public Locale getLocale() {
+		return _locale;
+	}
+
+	/**
+	 * Returns the column index of this column.
+	 */
+	public int getColumn() {
+		return _col;
+	}
+
+	/**
+	 * Returns the top row index of this column.
+	 */
+	public int getTop() {
+		return _top;
+	}
+
+	/**
+	 * Returns the bottom row index of this column.
+	 */
+	public int getBottom() {
+		return _bottom;
+	}
+
+	/**
+	 * Returns the display text of the specified row; {@link #BLANK} if blank.
+	 */
+	public synchronized String getText(int row) {
+		refresh();
+		return _texts[row - _top];
+	}
+
+	/**
+	 * Returns the rows (as offsets from the top row) showing any of the
+	 * specified display texts; a new {@link BitSet} that can be modified.
+	 */
+	public synchronized BitSet getRows(Collection<?> texts) {
+		refresh();
+		final BitSet rows = new BitSet(_texts.length);
+		for (Object text : texts) {
+			final BitSet rows0 = _rows.get(text);
+			if (rows0 != null) {
+				rows.or(rows0);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the distinct display texts of this column, in the order of
+	 * their first row. The value of an entry is the value of its first row:
+	 * a Date for a date formatted number, a Double, a String, a Boolean, an
+	 * error code(Byte), or null for the blank entry.
+	 */
+	public synchronized List<Entry> getEntries() {
+		refresh();
+		final List<Entry> entries = new ArrayList<Entry>(_rows.size());
+		for (Map.Entry<String, BitSet> entry : _rows.entrySet()) {
+			final int first = entry.getValue().nextSetBit(0);
+			entries.add(new Entry(entry.getKey(), _values[first], first));
+		}
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry o1, Entry o2) {
+				return o1._first - o2._first;
+			}
+		});
+		return entries;
+	}
+
+	/*package*/ synchronized void invalidate(int tRow, int bRow) {
+		final int from = Math.max(tRow, _top) - _top;
+		final int to = Math.min(bRow, _bottom) - _top;
+		if (from <= to) {
+			_dirty.set(from, to + 1);
+		}
+	}
+
+	private void refresh() {
+		_dirty.or(_volatile);
+		for (int j = _dirty.nextSetBit(0); j >= 0; j = _dirty.nextSetBit(j + 1)) {
+			final String old = _texts[j];
+			if (old != null) {
+				final BitSet rows = _rows.get(old);
+				rows.clear(j);
+				if (rows.isEmpty()) {
+					_rows.remove(old);
+				}
+			}
+			final Cell cell = BookHelper.getCell(_sheet, _top + j, _col);
+			final String text;
+			if (BookHelper.isBlankCell(cell)) {
+				text = BLANK;
+				_values[j] = null;
+			} else {
+				text = BookHelper.getCellText(cell);
+				_values[j] = getValue(cell);
+			}
+			_volatile.set(j, isVolatile(cell));
+			_texts[j] = text;
+			BitSet rows = _rows.get(text);
+			if (rows == null) {
+				rows = new BitSet();
+				_rows.put(text, rows);
+			}
+			rows.set(j);
+		}
+		_dirty.clear();
+	}
+
+	private static boolean isVolatile(Cell cell) {
+		if (cell == null || cell.getCellType() != Cell.CELL_TYPE_FORMULA) {
+			return false;
+		}
+		final Ptg[] ptgs;
+		try {
+			ptgs = BookHelper.getCellPtgs(cell);
+		} catch (FormulaParseException e) {
+			return true; //not known, read every time
+		}
+		for (Ptg ptg : ptgs) {
+			if (ptg instanceof AbstractFunctionPtg && VOLATILE_INDEXES.get(((AbstractFunctionPtg)ptg).getFunctionIndex())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Object getValue(Cell cell) {
+		final Object val = BookHelper.getEvalCellValue(cell);
+		if (val instanceof RichTextString) {
+			return ((RichTextString)val).getString();
+		} else if (cell.getCellType() == Cell.CELL_TYPE_NUMERIC && DateUtil.isCellDateFormatted(cell)) {
+			return cell.getDateCellValue();
+		}
+		return val;
+	}
+
+	/**
+	 * A distinct display text of a filter column.
+	 */
+	public static class Entry {
+		private final String _text;
+		private final Object _value;
+		private final int _first;
+
+		private Entry(String text, Object value, int first) {
+			_text = text;
+			_value = value;
+			_first = first;
+		}
+
+		/**
+		 * Returns the display text; {@link FilterColumnIndex#BLANK} for blanks.
+		 */
+		public String getText() {
+			return _text;
+		}
+
+		/**
+		 * Returns the value of the first row showing the text.
+		 */
+		public Object getValue() {
+			return _value;
+		}
+
+		/**
+		 * Returns whether this is the entry of the blank cells.
+		 */
+		public boolean isBlank() {
+			return _value == null && BLANK.equals(_text);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/* FilterIndex.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 12:41:07 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.model.sys.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+import org.zkoss.poi.ss.usermodel.ZssContext;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * The {@link FilterColumnIndex}es of the filter columns of a sheet. It is
+ * owned by the {@link SheetCtrl} of the sheet and kept up to date by the cell
+ * changes notified of the sheet (see {@link BookHelper#notifyCellChanges}),
+ * so opening the filter dropdown or applying a filter does not read and
+ * format the cells of the whole column again.
+ * <p>The display texts depend on the locale, so the columns are indexed per
+ * locale of the users of the sheet.</p>
+ */
+public class FilterIndex {
+	private final XSheet _sheet;
+	private final Map<Locale, Map<Integer, FilterColumnIndex>> _columns = new HashMap<Locale, Map<Integer, FilterColumnIndex>>(2); //locale -> column -> index
+
+	public FilterIndex(XSheet sheet) {
+		_sheet = sheet;
+	}
+
+	/**
+	 * Returns the index of the specified column over the rows from top to
+	 * bottom, in the locale of the current {@link ZssContext}.
+	 */
+	public synchronized FilterColumnIndex getColumn(int col, int top, int bottom) {
+		final Locale locale = ZssContext.getCurrent().getLocale();
+		Map<Integer, FilterColumnIndex> columns = _columns.get(locale);
+		if (columns == null) {
+			columns = new HashMap<Integer, FilterColumnIndex>(4);
+			_columns.put(locale, columns);
+		}
+		final Integer key = Integer.valueOf(col);
+		FilterColumnIndex index = columns.get(key);
+		if (index == null || index.getTop() != top || index.getBottom() != bottom) { //the filter range changed
+			index = new FilterColumnIndex(_sheet, locale, col, top, bottom);
+			columns.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Invalidates the indexed rows of the specified area, they will be read
+	 * again when the index is used next time.
+	 */
+	public synchronized void invalidate(int tRow, int lCol, int bRow, int rCol) {
+		for (Map<Integer, FilterColumnIndex> columns : _columns.values()) {
+			for (FilterColumnIndex index : columns.values()) {
+				final int col = index.getColumn();
+				if (col >= lCol && col <= rCol) {
+					index.invalidate(tRow, bRow);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops the indexes of the columns in the specified column range, e.g. the
+	 * cells are shifted by inserting or deleting rows or columns.
+	 */
+	public synchronized void clear(int lCol, int rCol) {
+		for (Map<Integer, FilterColumnIndex> columns : _columns.values()) {
+			for (final Iterator<FilterColumnIndex> it = columns.values().iterator(); it.hasNext();) {
+				final int col = it.next().getColumn();
+				if (col >= lCol && col <= rCol) {
+					it.remove();
+				}
+			}
+		}
+	}
+}
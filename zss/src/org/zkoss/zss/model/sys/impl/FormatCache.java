@@ -0,0 +1,154 @@
+/* FormatCache.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 10:12:47 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import java.util.Locale;
+
+import org.zkoss.lang.Library;
+import org.zkoss.poi.ss.format.CellFormat;
+import org.zkoss.poi.ss.format.CellFormatResult;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.DataFormatter;
+import org.zkoss.util.CacheMap;
+import org.zkoss.util.Pair;
+
+/**
+ * Cache of the compiled number formats, shared by all books. Parsing a
+ * format pattern and building its formatters is much more expensive than
+ * applying it, and a workbook uses only a few distinct formats, so the
+ * {@link CellFormat} is cached by (format string, locale) and the
+ * {@link DataFormatter} by locale.
+ * <p>The cache is bounded by the library property
+ * "org.zkoss.zss.model.FormatCache.maxSize" (default: 512 formats). The
+ * compiled formatters keep internal state (e.g. a SimpleDateFormat), so a
+ * cached formatter is applied by one thread at a time.</p>
+ */
+public class FormatCache {
+	public static final String MAX_SIZE = "org.zkoss.zss.model.FormatCache.maxSize";
+
+	private static final CacheMap _cellFormats; //(format, locale) -> CellFormat
+	private static final CacheMap _dataFormatters; //locale -> DataFormatter
+	private static long _hits;
+	private static long _misses;
+	static {
+		_cellFormats = new CacheMap(64);
+		_cellFormats.setMaxSize(Library.getIntProperty(MAX_SIZE, 512));
+		_cellFormats.setLifetime(24*60*60*1000);
+		_dataFormatters = new CacheMap(4);
+		_dataFormatters.setLifetime(24*60*60*1000);
+	}
+
+	private FormatCache() {
+	}
+
+	/**
+	 * Formats the cell with the format string in the locale; see {@link CellFormat#apply(Cell)}.
+	 */
+	public static CellFormatResult apply(String format, Locale locale, Cell cell) {
+		final CellFormat cellFormat = getCellFormat(format, locale);
+		synchronized (cellFormat) {
+			return cellFormat.apply(cell);
+		}
+	}
+
+	/**
+	 * Formats the value of the cell as the specified type in the locale; see
+	 * {@link DataFormatter#formatCellValue(Cell, int)}.
+	 */
+	public static String formatCellValue(Locale locale, Cell cell, int cellType) {
+		final DataFormatter formatter = getDataFormatter(locale);
+		synchronized (formatter) {
+			return formatter.formatCellValue(cell, cellType);
+		}
+	}
+
+	/**
+	 * Formats the numeric value with the format string in the locale; see
+	 * {@link DataFormatter#formatRawCellContents(double, int, String, boolean)}.
+	 */
+	public static String formatRawCellContents(Locale locale, double value, int formatIndex, String format, boolean date1904) {
+		final DataFormatter formatter = getDataFormatter(locale);
+		synchronized (formatter) {
+			return formatter.formatRawCellContents(value, formatIndex, format, date1904);
+		}
+	}
+
+	/**
+	 * Returns the compiled format of the format string in the locale.
+	 */
+	public static CellFormat getCellFormat(String format, Locale locale) {
+		final Pair key = new Pair(format, locale);
+		synchronized (_cellFormats) {
+			CellFormat cellFormat = (CellFormat) _cellFormats.get(key);
+			if (cellFormat != null) {
+				++_hits;
+			} else { //create and cache
+				++_misses;
+				cellFormat = CellFormat.getInstance(format, locale);
+				_cellFormats.put(key, cellFormat);
+			}
+			return cellFormat;
+		}
+	}
+
+	private static DataFormatter getDataFormatter(Locale locale) {
+		synchronized (_dataFormatters) {
+			DataFormatter formatter = (DataFormatter) _dataFormatters.get(locale);
+			if (formatter == null) {
+				formatter = new DataFormatter(locale, false);
+				_dataFormatters.put(locale, formatter);
+			}
+			return formatter;
+		}
+	}
+
+	/**
+	 * Returns the number of formats found in the cache.
+	 */
+	public static long getHitCount() {
+		synchronized (_cellFormats) {
+			return _hits;
+		}
+	}
+
+	/**
+	 * Returns the number of formats compiled because not found in the cache.
+	 */
+	public static long getMissCount() {
+		synchronized (_cellFormats) {
+			return _misses;
+		}
+	}
+
+	/**
+	 * Returns the number of cached formats.
+	 */
+	public static int size() {
+		synchronized (_cellFormats) {
+			return _cellFormats.size();
+		}
+	}
+
+	/**
+	 * Drops the cached formats and resets the hit and miss counts.
+	 */
+	public static void clear() {
+		synchronized (_cellFormats) {
+			_cellFormats.clear();
+			_hits = _misses = 0;
+		}
+		synchronized (_dataFormatters) {
+			_dataFormatters.clear();
+		}
+	}
+}
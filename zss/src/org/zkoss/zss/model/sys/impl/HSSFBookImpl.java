@@ -30,6 +30,7 @@ import org.zkoss.poi.hssf.usermodel.HSSFWorkbookHelper;
 import org.zkoss.poi.hssf.util.HSSFColor;
 import org.zkoss.poi.hssf.util.HSSFColorExt;
 import org.zkoss.poi.ss.SpreadsheetVersion;
+import org.zkoss.poi.ss.formula.DependencyTracker;
 import org.zkoss.poi.ss.formula.WorkbookEvaluator;
 import org.zkoss.poi.ss.formula.ptg.Ptg;
 import org.zkoss.poi.ss.formula.udf.UDFFinder;
@@ -50,6 +51,7 @@ import org.zkoss.zss.formula.DefaultFunctionResolver;
 import org.zkoss.zss.formula.FunctionResolver;
 import org.zkoss.zss.formula.NoCacheClassifier;
 import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XBookLock;
 import org.zkoss.zss.model.sys.XBookSeries;
 import org.zkoss.zss.model.sys.XSheet;
 
@@ -66,6 +68,10 @@ public class HSSFBookImpl extends HSSFWorkbook implements XBook, BookCtrl {
 	private final VariableResolver _variableResolver;
 	private RefBook _refBook;
 	private XBookSeries _bookSeries;
+	private final DependencyTracker _dependencyTracker;
+	private boolean _parallelEvaluation = "true".equals(Library.getProperty(BookHelper.PARALLEL_EVALUATION));
+	private final XBookLock _lock = new XBookLock();
+	private volatile XBookLock _seriesLock; //shared by the books of the book series
 	private int _defaultCharWidth = 7; //TODO: don't know how to calculate this yet per the default font.
 	private final HSSFWorkbookHelper _helper;
 
@@ -83,7 +89,8 @@ public class HSSFBookImpl extends HSSFWorkbook implements XBook, BookCtrl {
 		}
 		_evaluator = HSSFFormulaEvaluator.create(this, NoCacheClassifier.instance, TolerantUDFFinder.instance); 
 		_bookEvaluator = _evaluator.getWorkbookEvaluator(); 
-		_bookEvaluator.setDependencyTracker(resolver.getDependencyTracker(this));
+		_dependencyTracker = resolver.getDependencyTracker(this);
+		_bookEvaluator.setDependencyTracker(_dependencyTracker);
 		_functionMapper = new JoinFunctionMapper(resolver.getFunctionMapper());
 		_variableResolver = new JoinVariableResolver();
 		_helper = new HSSFWorkbookHelper(this);
@@ -93,7 +100,22 @@ public class HSSFBookImpl extends HSSFWorkbook implements XBook, BookCtrl {
 		return _bookEvaluator;
 	}
 	
-	/*package*/ RefBook getOrCreateRefBook() {
+	/*package*/ DependencyTracker getDependencyTracker() {
+		return _dependencyTracker;
+	}
+	
+	/**
+	 * Create a new formula evaluator of this book with its own evaluation 
+	 * cache; used by a thread evaluating formulas besides the book evaluator.
+	 */
+	/*package*/ FormulaEvaluator newFormulaEvaluator(DependencyTracker tracker) {
+		final HSSFFormulaEvaluator evaluator = HSSFFormulaEvaluator.create(this, NoCacheClassifier.instance, TolerantUDFFinder.instance);
+		evaluator.getWorkbookEvaluator().setDependencyTracker(tracker);
+		return evaluator;
+	}
+	
+	//the readers sharing the read lock of this book might ask at the same time
+	/*package*/ synchronized RefBook getOrCreateRefBook() {
 		if (_refBook == null) {
 			_refBook = getBookCtrl().newRefBook(this);
 		}
@@ -104,8 +126,9 @@ public class HSSFBookImpl extends HSSFWorkbook implements XBook, BookCtrl {
 		return _bookSeries;
 	}
 	
-	/*package*/ void setBookSeries(XBookSeries bookSeries) {
+	/*package*/ void setBookSeries(XBookSeries bookSeries, XBookLock seriesLock) {
 		_bookSeries = bookSeries;
+		_seriesLock = seriesLock;
 	}
 	
 	/*package*/ VariableResolver getVariableResolver() {
@@ -317,6 +340,16 @@ public class HSSFBookImpl extends HSSFWorkbook implements XBook, BookCtrl {
 	public XSheet getWorksheetAt(int index) {
 		return (XSheet) getSheetAt(index);
 	}
+	
+	@Override
+	public String getSheetUuid(int index) {
+		return ((SheetCtrl)getSheetAt(index)).getUuid();
+	}
+
+	@Override
+	public boolean isSheetRead(int index) {
+		return true;
+	}
 
 	@Override
 	public XSheet getWorksheet(String name) {
@@ -328,6 +361,22 @@ public class HSSFBookImpl extends HSSFWorkbook implements XBook, BookCtrl {
 		return new HSSFWorkbookHelper(this).getInternalWorkbook().isUsing1904DateWindowing();
 	}
 
+	@Override
+	public void setParallelEvaluation(boolean parallel) {
+		_parallelEvaluation = parallel;
+	}
+
+	@Override
+	public boolean isParallelEvaluation() {
+		return _parallelEvaluation;
+	}
+
+	@Override
+	public XBookLock getLock() {
+		final XBookLock lock = _seriesLock;
+		return lock != null ? lock : _lock;
+	}
+
 	//--BookCtrl--//
 	@Override
 	public RefBook newRefBook(XBook book) {
@@ -1315,6 +1315,16 @@ public class HSSFSheetImpl extends HSSFSheet implements SheetCtrl, XSheet {
 		return getSheetCtrl().isEvalAll();
 	}
 
+	@Override
+	public void buildDependencies() {
+		getSheetCtrl().buildDependencies();
+	}
+
+	@Override
+	public boolean isDependencyBuilt() {
+		return getSheetCtrl().isDependencyBuilt();
+	}
+
 	@Override
     public String getUuid() {
     	return getSheetCtrl().getUuid();
@@ -1344,6 +1354,10 @@ public class HSSFSheetImpl extends HSSFSheet implements SheetCtrl, XSheet {
 	public void whenRenameSheet(String oldname, String newname) {
 		getSheetCtrl().whenRenameSheet(oldname, newname);
 	}
+	@Override
+	public FilterIndex getFilterIndex() {
+		return getSheetCtrl().getFilterIndex();
+	}
 	
 	// ZSS-397: remove drawing part
 	@Override
@@ -0,0 +1,302 @@
+/* MergedRegionIndex.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 7:48:26 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.model.sys.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of the merged regions of a sheet, each associated with a
+ * value (e.g. the CellRangeAddress or the MergedRect of the region). Merged
+ * regions never overlap, so a region is identified by its left-top cell.
+ * <p>The regions are kept twice in flat arrays, sorted by top row and sorted
+ * by left column, each treated as an implicit balanced interval tree (the
+ * middle element of a range is the root of that range) recording the maximum
+ * bottom row (right column) of the subtree. The region containing a cell and
+ * the regions across a row or a column are then found in O(log n + k) steps.
+ * Regions added after the last build are kept in a small pending list and
+ * removed regions are marked; the trees are rebuilt lazily on the next query
+ * once the pending changes grow beyond a threshold.</p>
+ * <p>The methods are synchronized, since the queries of the readers sharing a
+ * book (see {@link org.zkoss.zss.model.sys.XBookLock}) may rebuild the trees.</p>
+ */
+public class MergedRegionIndex<T> {
+	private static final int MIN_THRESHOLD = 64;
+	private static final Comparator<Entry> TOP_ROW_COMPARATOR = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			return o1.tRow < o2.tRow ? -1 : o1.tRow == o2.tRow ? 0 : 1;
+		}
+	};
+	private static final Comparator<Entry> LEFT_COL_COMPARATOR = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			return o1.lCol < o2.lCol ? -1 : o1.lCol == o2.lCol ? 0 : 1;
+		}
+	};
+
+	private final Map<Long, Entry> _entries; //live regions by left-top cell
+	private final List<Entry> _pending; //added after last build
+	private int _removed; //removed after last build
+	private Entry[] _byRow; //built regions, sorted by top row
+	private int[] _maxBRows; //maximum bottom row of the implicit subtree rooted at j
+	private Entry[] _byCol; //built regions, sorted by left column
+	private int[] _maxRCols; //maximum right column of the implicit subtree rooted at j
+
+	public MergedRegionIndex() {
+		_entries = new LinkedHashMap<Long, Entry>();
+		_pending = new ArrayList<Entry>();
+		_byRow = _byCol = new Entry[0];
+		_maxBRows = _maxRCols = new int[0];
+	}
+
+	/**
+	 * Adds a merged region; replaces the region of the same left-top cell.
+	 */
+	public synchronized void put(int tRow, int lCol, int bRow, int rCol, T value) {
+		final Entry entry = new Entry(tRow, lCol, bRow, rCol, value);
+		final Entry old = _entries.put(Long.valueOf(key(tRow, lCol)), entry);
+		if (old != null) {
+			markRemoved(old);
+		}
+		_pending.add(entry);
+	}
+
+	/**
+	 * Removes the merged region of the given left-top cell.
+	 * @return the value of the removed region; null if no such region.
+	 */
+	public synchronized T remove(int tRow, int lCol) {
+		final Entry entry = _entries.remove(Long.valueOf(key(tRow, lCol)));
+		if (entry == null) {
+			return null;
+		}
+		markRemoved(entry);
+		return value(entry);
+	}
+
+	public synchronized void clear() {
+		_entries.clear();
+		_pending.clear();
+		_removed = 0;
+		_byRow = _byCol = new Entry[0];
+		_maxBRows = _maxRCols = new int[0];
+	}
+
+	public synchronized int size() {
+		return _entries.size();
+	}
+
+	/**
+	 * Returns the values of all merged regions, in the order they were added.
+	 */
+	public synchronized List<T> values() {
+		final List<T> values = new ArrayList<T>(_entries.size());
+		for (Entry entry : _entries.values()) {
+			values.add(value(entry));
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the value of the merged region whose left-top cell is (row, col);
+	 * null if none.
+	 */
+	public synchronized T getByLeftTop(int row, int col) {
+		final Entry entry = _entries.get(Long.valueOf(key(row, col)));
+		return entry == null ? null : value(entry);
+	}
+
+	/**
+	 * Returns the value of the merged region which contains the cell (row,
+	 * col); null if none.
+	 */
+	public synchronized T get(int row, int col) {
+		if (_entries.isEmpty()) {
+			return null;
+		}
+		validate();
+		for (Entry entry : _pending) {
+			if (!entry.removed && entry.contains(row, col)) {
+				return value(entry);
+			}
+		}
+		final Entry entry = find(0, _byRow.length, row, col);
+		return entry == null ? null : value(entry);
+	}
+
+	/**
+	 * Returns the values of the merged regions which cross the row.
+	 */
+	public synchronized List<T> getByRow(int row) {
+		final List<T> hits = new ArrayList<T>();
+		if (!_entries.isEmpty()) {
+			validate();
+			for (Entry entry : _pending) {
+				if (!entry.removed && entry.tRow <= row && row <= entry.bRow) {
+					hits.add(value(entry));
+				}
+			}
+			searchRow(0, _byRow.length, row, hits);
+		}
+		return hits;
+	}
+
+	/**
+	 * Returns the values of the merged regions which cross the column.
+	 */
+	public synchronized List<T> getByColumn(int col) {
+		final List<T> hits = new ArrayList<T>();
+		if (!_entries.isEmpty()) {
+			validate();
+			for (Entry entry : _pending) {
+				if (!entry.removed && entry.lCol <= col && col <= entry.rCol) {
+					hits.add(value(entry));
+				}
+			}
+			searchColumn(0, _byCol.length, col, hits);
+		}
+		return hits;
+	}
+
+	private static long key(int row, int col) {
+		return ((long) row) << 32 | (col & 0xffffffffL);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T value(Entry entry) {
+		return (T) entry.value;
+	}
+
+	private void markRemoved(Entry entry) {
+		entry.removed = true;
+		++_removed;
+	}
+
+	//rebuild the trees if the pending changes are more than scanning them worth
+	private void validate() {
+		if (_pending.size() + _removed > Math.max(MIN_THRESHOLD, ((int) Math.sqrt(_entries.size())) << 2)) {
+			rebuild();
+		}
+	}
+
+	private Entry find(int lo, int hi, int row, int col) {
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (_maxBRows[mid] < row) {
+				return null; //no region in this subtree reaches down to the row
+			}
+			final Entry hit = find(lo, mid, row, col); //left subtree
+			if (hit != null) {
+				return hit;
+			}
+			final Entry entry = _byRow[mid];
+			if (entry.tRow > row) {
+				return null; //mid and the right subtree all start below the row
+			}
+			if (!entry.removed && entry.contains(row, col)) {
+				return entry;
+			}
+			lo = mid + 1; //right subtree
+		}
+		return null;
+	}
+
+	private void searchRow(int lo, int hi, int row, List<T> hits) {
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (_maxBRows[mid] < row) {
+				return;
+			}
+			searchRow(lo, mid, row, hits);
+			final Entry entry = _byRow[mid];
+			if (entry.tRow > row) {
+				return;
+			}
+			if (!entry.removed && entry.bRow >= row) {
+				hits.add(value(entry));
+			}
+			lo = mid + 1;
+		}
+	}
+
+	private void searchColumn(int lo, int hi, int col, List<T> hits) {
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (_maxRCols[mid] < col) {
+				return;
+			}
+			searchColumn(lo, mid, col, hits);
+			final Entry entry = _byCol[mid];
+			if (entry.lCol > col) {
+				return;
+			}
+			if (!entry.removed && entry.rCol >= col) {
+				hits.add(value(entry));
+			}
+			lo = mid + 1;
+		}
+	}
+
+	private void rebuild() {
+		final Entry[] byRow = _entries.values().toArray(new Entry[_entries.size()]);
+		final Entry[] byCol = byRow.clone();
+		Arrays.sort(byRow, TOP_ROW_COMPARATOR);
+		Arrays.sort(byCol, LEFT_COL_COMPARATOR);
+		_byRow = byRow;
+		_byCol = byCol;
+		_maxBRows = new int[byRow.length];
+		_maxRCols = new int[byCol.length];
+		buildMax(byRow, _maxBRows, true, 0, byRow.length);
+		buildMax(byCol, _maxRCols, false, 0, byCol.length);
+		_pending.clear();
+		_removed = 0;
+	}
+
+	private static int buildMax(Entry[] entries, int[] max, boolean row, int lo, int hi) {
+		if (lo >= hi) {
+			return -1;
+		}
+		final int mid = (lo + hi) >>> 1;
+		final Entry entry = entries[mid];
+		final int m = Math.max(row ? entry.bRow : entry.rCol,
+			Math.max(buildMax(entries, max, row, lo, mid), buildMax(entries, max, row, mid + 1, hi)));
+		max[mid] = m;
+		return m;
+	}
+
+	private static class Entry {
+		final int tRow;
+		final int lCol;
+		final int bRow;
+		final int rCol;
+		final Object value;
+		boolean removed;
+
+		Entry(int tRow, int lCol, int bRow, int rCol, Object value) {
+			this.tRow = tRow;
+			this.lCol = lCol;
+			this.bRow = bRow;
+			this.rCol = rCol;
+			this.value = value;
+		}
+
+		boolean contains(int row, int col) {
+			return tRow <= row && row <= bRow && lCol <= col && col <= rCol;
+		}
+	}
+}
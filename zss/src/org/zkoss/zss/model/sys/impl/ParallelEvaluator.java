@@ -0,0 +1,348 @@
+/* ParallelEvaluator.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 10:02:17 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.model.sys.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.zkoss.poi.ss.formula.DependencyTracker;
+import org.zkoss.poi.ss.formula.FormulaParseException;
+import org.zkoss.poi.ss.formula.OperationEvaluationContext;
+import org.zkoss.poi.ss.formula.eval.ValueEval;
+import org.zkoss.poi.ss.formula.ptg.NamePtg;
+import org.zkoss.poi.ss.formula.ptg.NameXPtg;
+import org.zkoss.poi.ss.formula.ptg.Ptg;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.CellValue;
+import org.zkoss.poi.ss.usermodel.FormulaEvaluator;
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.xel.XelContext;
+import org.zkoss.zss.engine.Ref;
+import org.zkoss.zss.engine.RefBook;
+import org.zkoss.zss.engine.RefSheet;
+import org.zkoss.zss.engine.impl.DependencyTrackerHelper;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XSheet;
+
+/**
+ * Evaluate all formula cells of a sheet on multiple threads.
+ * <p>The precedents of the formulas are registered first (see
+ * {@link DependencyBuilder}), then the formula cells are grouped into
+ * components, which don't depend on each other in the sheet, and the
+ * components are packed into balanced work units. Each work unit is evaluated
+ * on a worker thread with its own {@link FormulaEvaluator} and
+ * {@link XelContext} (the {@link XelContextHolder} is thread local), so the
+ * evaluation cache of the POI evaluator is never shared among threads; a
+ * precedent in another sheet is evaluated again by each worker needing it.
+ * Dependency registration into the {@link RefBook} is serialized with the
+ * book evaluator, and the results are set back into the cells on the calling
+ * thread.</p>
+ * <p>A component with a formula referring a name is evaluated on the calling
+ * thread with the book evaluator, since the name might be resolved by the
+ * variable resolvers of the book, which might require a ZK execution.</p>
+ * <p>The threads are started for the evaluation and stopped after it, so no
+ * thread outlives the web application.</p>
+ * @see XBook#setParallelEvaluation(boolean)
+ */
+/*package*/ class ParallelEvaluator {
+	private static final Logger logger = Logger.getLogger(ParallelEvaluator.class.getName());
+	private static final int MIN_CELLS = 256; //not worth to parallel for small sheet
+	private static final int UNITS_PER_THREAD = 4;
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	private ParallelEvaluator() {}
+
+	/**
+	 * Evaluate all formula cells of the specified sheet in parallel, with a
+	 * thread per processor.
+	 * @return false if the sheet is not evaluated since it is not suitable
+	 * to be evaluated in parallel (e.g. few formulas, single processor, or
+	 * book series); caller shall evaluate it on the calling thread then.
+	 */
+	/*package*/ static boolean evalAll(XBook book, XSheet sheet) {
+		return THREADS > 1 && evalAll(book, sheet, THREADS);
+	}
+
+	/**
+	 * Evaluate all formula cells of the specified sheet with at most the
+	 * specified number of threads.
+	 * @see #evalAll(XBook, XSheet)
+	 */
+	/*package*/ static boolean evalAll(final XBook book, XSheet sheet, int threads) {
+		if (BookHelper.getBookSeries(book) != null) {
+			return false;
+		}
+		final List<Cell> cells = new ArrayList<Cell>();
+		for(Row row : sheet) {
+			if (row != null) {
+				for(Cell cell : row) {
+					if (cell != null && cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
+						cells.add(cell);
+					}
+				}
+			}
+		}
+		final int size = cells.size();
+		if (size < MIN_CELLS) {
+			return false;
+		}
+
+		//the formulas whose precedents cannot be known from tokens are evaluated by the builder
+		final Set<Cell> evaluated = Collections.newSetFromMap(new IdentityHashMap<Cell, Boolean>());
+		evaluated.addAll(new DependencyBuilder(book).build(sheet));
+		final boolean[] done = new boolean[size];
+		for (int j = 0; j < size; ++j) {
+			done[j] = evaluated.contains(cells.get(j));
+		}
+
+		final RefSheet refSheet = BookHelper.getOrCreateRefBook(book).getOrCreateRefSheet(sheet.getSheetName());
+		final List<int[][]> units = partition(refSheet, cells, threads * UNITS_PER_THREAD);
+		final DependencyTracker tracker = new SyncDependencyTracker(BookHelper.getDependencyTracker(book), BookHelper.getEvaluationLock(book));
+		final CellValue[] results = new CellValue[size];
+		final List<int[]> rejected = Collections.synchronizedList(new ArrayList<int[]>());
+		final List<Future<?>> futures = new ArrayList<Future<?>>(units.size());
+		final ExecutorService executor = newExecutor(Math.min(threads, units.size()));
+		try {
+			for (final int[][] unit : units) {
+				futures.add(executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						final FormulaEvaluator evaluator = BookHelper.newFormulaEvaluator(book, tracker);
+						final XelContext ctx = BookHelper.newXelContext(book);
+						for (int[] component : unit) {
+							if (!isWithoutName(cells, component)) {
+								rejected.add(component);
+								continue;
+							}
+							for (int index : component) {
+								if (!done[index]) {
+									results[index] = BookHelper.evaluate(cells.get(index), evaluator, ctx);
+								}
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			logger.log(Level.WARNING, "parallel evaluation failed, evaluate sheet "+sheet.getSheetName()+" on calling thread", e.getCause());
+			return false;
+		} finally {
+			executor.shutdownNow(); //also cancels the units left if failed
+		}
+
+		//set back into Cell formula record; the readers of the book do it in the evaluation lock
+		synchronized (BookHelper.getEvaluationLock(book)) {
+			for (int j = 0; j < size; ++j) {
+				if (results[j] != null) {
+					BookHelper.setCellValue(cells.get(j), results[j]);
+				}
+			}
+		}
+		final XelContext ctx = BookHelper.newXelContext(book);
+		for (int[] component : rejected) {
+			for (int index : component) {
+				if (!done[index]) {
+					BookHelper.evaluate(book, cells.get(index), ctx);
+				}
+			}
+		}
+		return true;
+	}
+
+	//whether none of the formulas refers a name, which could be resolved by the variable resolvers
+	private static boolean isWithoutName(List<Cell> cells, int[] component) {
+		for (int index : component) {
+			final Ptg[] ptgs;
+			try {
+				ptgs = BookHelper.getCellPtgs(cells.get(index));
+			} catch (FormulaParseException e) {
+				return false;
+			}
+			for (Ptg ptg : ptgs) {
+				if (ptg instanceof NamePtg || ptg instanceof NameXPtg) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Group the formula cells into connected components per the dependency
+	 * graph of the sheet and pack them into at most maxUnits work units of
+	 * similar size. Each component is sorted by cell position so that
+	 * precedents (usually upper left) tend to be evaluated first.
+	 */
+	/*package*/ static List<int[][]> partition(RefSheet refSheet, List<Cell> cells, int maxUnits) {
+		final int size = cells.size();
+		final Map<Long, Integer> indexes = new HashMap<Long, Integer>(size * 4 / 3 + 1);
+		for (int j = 0; j < size; ++j) {
+			final Cell cell = cells.get(j);
+			indexes.put(Long.valueOf(key(cell.getRowIndex(), cell.getColumnIndex())), Integer.valueOf(j));
+		}
+
+		//union-find over the dependency edges among the formula cells
+		final int[] parents = new int[size];
+		for (int j = 0; j < size; ++j) {
+			parents[j] = j;
+		}
+		for (int j = 0; j < size; ++j) {
+			final Cell cell = cells.get(j);
+			for (Ref dependent : DependencyTrackerHelper.getDirectDependents(refSheet, cell.getRowIndex(), cell.getColumnIndex())) {
+				if (dependent.getOwnerSheet() != refSheet) {
+					continue;
+				}
+				final Integer index = indexes.get(Long.valueOf(key(dependent.getTopRow(), dependent.getLeftCol())));
+				if (index != null) {
+					union(parents, j, index.intValue());
+				}
+			}
+		}
+		final Map<Integer, List<Integer>> components = new HashMap<Integer, List<Integer>>();
+		for (int j = 0; j < size; ++j) {
+			final Integer root = Integer.valueOf(find(parents, j));
+			List<Integer> component = components.get(root);
+			if (component == null) {
+				component = new ArrayList<Integer>();
+				components.put(root, component);
+			}
+			component.add(Integer.valueOf(j));
+		}
+
+		//largest component first into the least loaded unit
+		final List<List<Integer>> sorted = new ArrayList<List<Integer>>(components.values());
+		Collections.sort(sorted, new Comparator<List<Integer>>() {
+			@Override
+			public int compare(List<Integer> o1, List<Integer> o2) {
+				return o2.size() - o1.size();
+			}
+		});
+		final int count = Math.max(1, Math.min(maxUnits, sorted.size()));
+		final PriorityQueue<Unit> queue = new PriorityQueue<Unit>(count);
+		for (int j = 0; j < count; ++j) {
+			queue.add(new Unit());
+		}
+		for (List<Integer> component : sorted) {
+			final Unit unit = queue.poll();
+			final int[] indexArray = new int[component.size()];
+			for (int j = 0; j < indexArray.length; ++j) {
+				indexArray[j] = component.get(j).intValue();
+			}
+			Arrays.sort(indexArray); //cells were collected in row major order
+			unit.components.add(indexArray);
+			unit.size += indexArray.length;
+			queue.add(unit);
+		}
+		final List<int[][]> units = new ArrayList<int[][]>(count);
+		for (Unit unit : queue) {
+			if (unit.size > 0) {
+				units.add(unit.components.toArray(new int[unit.components.size()][]));
+			}
+		}
+		return units;
+	}
+
+	private static long key(int row, int col) {
+		return (((long)row) << 32) | (col & 0xffffffffL);
+	}
+
+	private static int find(int[] parents, int j) {
+		while (parents[j] != j) {
+			parents[j] = parents[parents[j]]; //path halving
+			j = parents[j];
+		}
+		return j;
+	}
+
+	private static void union(int[] parents, int a, int b) {
+		final int ra = find(parents, a);
+		final int rb = find(parents, b);
+		if (ra != rb) {
+			parents[ra] = rb;
+		}
+	}
+
+	private static ExecutorService newExecutor(int threads) {
+		return Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			private final AtomicInteger _count = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r, "zss-eval-" + _count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private static class Unit implements Comparable<Unit> {
+		private final List<int[]> components = new ArrayList<int[]>();
+		private int size;
+
+		@Override
+		public int compareTo(Unit o) {
+			return size - o.size;
+		}
+	}
+
+	/**
+	 * Serialize the dependency registration of the worker evaluators with
+	 * the book evaluator (see {@link BookHelper#getEvaluationLock(XBook)});
+	 * the {@link RefBook} is not thread safe.
+	 */
+	private static class SyncDependencyTracker implements DependencyTracker {
+		private final DependencyTracker _tracker;
+		private final Object _lock;
+
+		private SyncDependencyTracker(DependencyTracker tracker, Object lock) {
+			_tracker = tracker;
+			_lock = lock;
+		}
+
+		@Override
+		public ValueEval postProcessValueEval(OperationEvaluationContext ec, ValueEval opResult, boolean eval) {
+			return _tracker.postProcessValueEval(ec, opResult, eval);
+		}
+
+		@Override
+		public void addDependency(OperationEvaluationContext ec, Ptg[] ptgs) {
+			synchronized (_lock) {
+				_tracker.addDependency(ec, ptgs);
+			}
+		}
+	}
+}
@@ -31,6 +31,20 @@ public interface SheetCtrl {
 	 * @return whether the associated sheet has evaluated all formulas. 
 	 */
 	public boolean isEvalAll();
+	
+	/**
+	 * Registers the precedents of all formulas of the associated sheet into
+	 * the {@link org.zkoss.zss.engine.RefBook} from the formula tokens,
+	 * without evaluating the formulas.
+	 */
+	public void buildDependencies();
+	
+	/**
+	 * Returns whether the precedents of all formulas of the associated sheet
+	 * are registered, by {@link #buildDependencies()} or {@link #evalAll()}.
+	 * @return whether the precedents of all formulas are registered.
+	 */
+	public boolean isDependencyBuilt();
     
     /**
      * Returns the universal unique id of the associated Sheet.
@@ -75,4 +89,10 @@ public interface SheetCtrl {
 	 * @param newname new sheet name
 	 */
 	public void whenRenameSheet(String oldname, String newname);
+	
+	/**
+	 * Returns the index of the filter columns of the associated sheet.
+	 * @return the index of the filter columns
+	 */
+	public FilterIndex getFilterIndex();
 }
@@ -13,9 +13,7 @@ Copyright (C) 2010 Potix Corporation. All Rights Reserved.
 package org.zkoss.zss.model.sys.impl;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.zkoss.poi.ss.usermodel.Cell;
 import org.zkoss.poi.ss.usermodel.Chart;
@@ -44,6 +42,7 @@ public class SheetCtrlImpl implements SheetCtrl {
 	private final XBook _book;
 	protected final XSheet _sheet;
 	private boolean _evalAll;
+	private boolean _dependencyBuilt;
 	private String _uuid;
 	
 	public SheetCtrlImpl(XBook book, XSheet sheet) {
@@ -58,7 +57,10 @@ public class SheetCtrlImpl implements SheetCtrl {
     
 	@Override
 	public void evalAll() {
-		// TODO Auto-generated method stub
+		if (_book.isParallelEvaluation() && ParallelEvaluator.evalAll(_book, _sheet)) {
+			_evalAll = true;
+			return;
+		}
 		for(Row row : _sheet) {
 			if (row != null) {
 				for(Cell cell : row) {
@@ -76,6 +78,17 @@ public class SheetCtrlImpl implements SheetCtrl {
 		return _evalAll;
 	}
 	
+	@Override
+	public void buildDependencies() {
+		new DependencyBuilder(_book).build(_sheet);
+		_dependencyBuilt = true;
+	}
+	
+	@Override
+	public boolean isDependencyBuilt() {
+		return _dependencyBuilt || _evalAll;
+	}
+	
 	@Override
 	public String getUuid() {
     	if (_uuid == null) {
@@ -83,44 +96,35 @@ public class SheetCtrlImpl implements SheetCtrl {
     	}
 		return _uuid;
 	}
-    private Map<String, CellRangeAddress> _mergedRegions;
-	private Map<String, CellRangeAddress> getMergedRegions() { //ZSS-77: Drag fill "Jan" on new sheet, cause NPE
+    private MergedRegionIndex<CellRangeAddress> _mergedRegions;
+	private synchronized MergedRegionIndex<CellRangeAddress> getMergedRegions() { //ZSS-77: Drag fill "Jan" on new sheet, cause NPE
 		if (_mergedRegions == null)
 			initMerged();
 		return _mergedRegions;
 	}
 	@Override
-	public void initMerged() {
+	public synchronized void initMerged() {
     	final int num = _sheet.getNumMergedRegions();
-    	_mergedRegions = new HashMap<String, CellRangeAddress>(num);
+    	_mergedRegions = new MergedRegionIndex<CellRangeAddress>();
     	for (int j = 0; j < num; ++j) {
     		final CellRangeAddress addr = _sheet.getMergedRegion(j);
-    		final int col = addr.getFirstColumn();
-    		final int row = addr.getFirstRow();
-    		_mergedRegions.put(mergeId(row, col), addr);
+    		put(_mergedRegions, addr);
     	}
 	}
 	@Override
 	public CellRangeAddress getMerged(int row, int col) {
-		final Map<String, CellRangeAddress> mergedRegions = getMergedRegions(); 
-		return mergedRegions.get(mergeId(row, col));	
+		return getMergedRegions().getByLeftTop(row, col);	
 	}
 	@Override
 	public void addMerged(CellRangeAddress addr) {
-		final int tRow = addr.getFirstRow();
-		final int lCol = addr.getFirstColumn();
-		final Map<String, CellRangeAddress> mergedRegions = getMergedRegions();
-		mergedRegions.put(mergeId(tRow, lCol), addr);
+		put(getMergedRegions(), addr);
 	}
 	@Override
 	public void deleteMerged(CellRangeAddress addr) {
-		final int tRow = addr.getFirstRow();
-		final int lCol = addr.getFirstColumn();
-		final Map<String, CellRangeAddress> mergedRegions = getMergedRegions();
-		mergedRegions.remove(mergeId(tRow, lCol));
+		getMergedRegions().remove(addr.getFirstRow(), addr.getFirstColumn());
 	}
-	private String mergeId(int row, int col) {
-		return row+"_"+col;
+	private static void put(MergedRegionIndex<CellRangeAddress> mergedRegions, CellRangeAddress addr) {
+		mergedRegions.put(addr.getFirstRow(), addr.getFirstColumn(), addr.getLastRow(), addr.getLastColumn(), addr);
 	}
 	
 	@Override
@@ -128,6 +132,15 @@ public class SheetCtrlImpl implements SheetCtrl {
 		//do nothing.
 	}
 	
+	private FilterIndex _filterIndex;
+	@Override
+	public synchronized FilterIndex getFilterIndex() {
+		if (_filterIndex == null) {
+			_filterIndex = new FilterIndex(_sheet);
+		}
+		return _filterIndex;
+	}
+	
 	@Override
 	public DrawingManager getDrawingManager() {
 		return new DrawingManager() {
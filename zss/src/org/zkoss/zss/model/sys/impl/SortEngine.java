@@ -0,0 +1,427 @@
+/* SortEngine.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 11:32:18 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.model.sys.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.zkoss.lang.Library;
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.poi.ss.usermodel.CellValue;
+import org.zkoss.xel.XelContext;
+import org.zkoss.zss.model.sys.XBook;
+
+/**
+ * Sort the rows (or columns) of a range by up to three keys.
+ * <p>The key values are extracted into primitive columns: a type tag, a
+ * double (number and boolean) and a string rank per key and item. The
+ * distinct strings of a key are sorted once and replaced by their ranks, so
+ * comparing two items never inspects a value type nor compares a string.
+ * The items are sorted with a stable merge sort of an index array; a large
+ * range (library property "org.zkoss.zss.model.SortEngine.parallelThreshold",
+ * default: 50000 items) is split into runs sorted on multiple threads and
+ * then merged. The threads are started for the sort and stopped after it,
+ * so no thread outlives the web application.</p>
+ * <p>Per key the values are in the order of number, string, boolean and
+ * error (all errors are equal); blank is always at the end, no matter
+ * ascending or descending.</p>
+ * @see BookHelper#sort
+ */
+/*package*/ class SortEngine {
+	private static final Logger logger = Logger.getLogger(SortEngine.class.getName());
+	private static final int PARALLEL_THRESHOLD = Library.getIntProperty("org.zkoss.zss.model.SortEngine.parallelThreshold", 50000);
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+	private static final int INSERTION_SORT_THRESHOLD = 7;
+
+	//type tags, in ascending order
+	private static final byte NUMBER = 1;
+	private static final byte STRING = 2;
+	private static final byte BOOLEAN = 3;
+	private static final byte ERROR = 4;
+	private static final byte BLANK = 5;
+
+	private final XBook _book;
+	private final int _size;
+	private final boolean[] _descs;
+	private final boolean _matchCase;
+	private final byte[][] _tags; //[key][item]
+	private final double[][] _numbers; //[key][item], number or boolean(0/1)
+	private final String[][] _strings; //[key][item], encoded into _ranks before sorting
+	private final int[][] _ranks; //[key][item], rank of the string among the distinct strings of the key
+	private XelContext _ctx; //shared by the formula cells, created on demand
+
+	/**
+	 * @param book the book of the sorted range
+	 * @param size number of items (rows or columns) to be sorted
+	 * @param descs whether each key is sorted descending
+	 * @param matchCase whether strings are compared case sensitively
+	 */
+	/*package*/ SortEngine(XBook book, int size, boolean[] descs, boolean matchCase) {
+		final int keyCount = descs.length;
+		_book = book;
+		_size = size;
+		_descs = descs;
+		_matchCase = matchCase;
+		_tags = new byte[keyCount][size];
+		_numbers = new double[keyCount][size];
+		_strings = new String[keyCount][];
+		_ranks = new int[keyCount][];
+	}
+
+	/**
+	 * Sets the value of the cell as the key of the item.
+	 * @param cell the cell; null means blank
+	 * @param dataOption {@link BookHelper#SORT_NORMAL_DEFAULT} or {@link BookHelper#SORT_TEXT_AS_NUMBERS}
+	 */
+	/*package*/ void setCell(int key, int item, Cell cell, int dataOption) {
+		if (cell == null) {
+			_tags[key][item] = BLANK;
+			return;
+		}
+		switch(cell.getCellType()) {
+		case Cell.CELL_TYPE_NUMERIC:
+			setNumber(key, item, cell.getNumericCellValue());
+			break;
+		case Cell.CELL_TYPE_STRING:
+			setString(key, item, cell.getRichStringCellValue().getString(), dataOption);
+			break;
+		case Cell.CELL_TYPE_BOOLEAN:
+			setBoolean(key, item, cell.getBooleanCellValue());
+			break;
+		case Cell.CELL_TYPE_ERROR:
+			_tags[key][item] = ERROR;
+			break;
+		case Cell.CELL_TYPE_FORMULA:
+			setFormulaResult(key, item, cell, dataOption);
+			break;
+		default: //blank
+			_tags[key][item] = BLANK;
+		}
+	}
+
+	private void setFormulaResult(int key, int item, Cell cell, int dataOption) {
+		if (_ctx == null) {
+			_ctx = BookHelper.newXelContext(_book);
+		}
+		final CellValue cv = BookHelper.evaluate(_book, cell, _ctx);
+		switch(cv.getCellType()) {
+		case Cell.CELL_TYPE_NUMERIC:
+			setNumber(key, item, cv.getNumberValue());
+			break;
+		case Cell.CELL_TYPE_STRING:
+			setString(key, item, cv.getStringValue(), dataOption);
+			break;
+		case Cell.CELL_TYPE_BOOLEAN:
+			setBoolean(key, item, cv.getBooleanValue());
+			break;
+		case Cell.CELL_TYPE_ERROR:
+			_tags[key][item] = ERROR;
+			break;
+		default: //blank
+			_tags[key][item] = BLANK;
+		}
+	}
+
+	private void setNumber(int key, int item, double value) {
+		_tags[key][item] = NUMBER;
+		_numbers[key][item] = value;
+	}
+
+	private void setBoolean(int key, int item, boolean value) {
+		_tags[key][item] = BOOLEAN;
+		_numbers[key][item] = value ? 1 : 0;
+	}
+
+	private void setString(int key, int item, String value, int dataOption) {
+		if (dataOption == BookHelper.SORT_TEXT_AS_NUMBERS) {
+			double number;
+			try {
+				number = Double.parseDouble(value);
+			} catch(NumberFormatException ex) {
+				number = 0; //ignore
+			}
+			setNumber(key, item, number);
+		} else {
+			if (_strings[key] == null) {
+				_strings[key] = new String[_size];
+			}
+			_tags[key][item] = STRING;
+			_strings[key][item] = value;
+		}
+	}
+
+	/**
+	 * Sorts the items.
+	 * @return the item indexes in sorted order; the items of equal keys keep
+	 * their original order.
+	 */
+	/*package*/ int[] sort() {
+		return sort(_size >= PARALLEL_THRESHOLD && THREADS > 1);
+	}
+
+	/*package*/ int[] sort(boolean parallel) {
+		for (int key = 0; key < _strings.length; ++key) {
+			if (_strings[key] != null) {
+				_ranks[key] = rank(_strings[key]);
+				_strings[key] = null;
+			}
+		}
+		final int[] order = newOrder();
+		if (parallel && parallelSort(order)) {
+			return order;
+		}
+		final int[] order0 = newOrder(); //parallel sort could leave order in any state
+		mergeSort(order0.clone(), order0, 0, _size);
+		return order0;
+	}
+
+	private int[] newOrder() {
+		final int[] order = new int[_size];
+		for (int j = 0; j < _size; ++j) {
+			order[j] = j;
+		}
+		return order;
+	}
+
+	//replace the strings by their ranks; equal strings per the comparison have the same rank
+	private int[] rank(String[] strings) {
+		final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+		for (int j = 0; j < _size; ++j) {
+			final String s = strings[j];
+			if (s != null && !dictionary.containsKey(s)) {
+				dictionary.put(s, null);
+			}
+		}
+		final String[] distinct = dictionary.keySet().toArray(new String[dictionary.size()]);
+		final Comparator<String> comparator = new Comparator<String>() {
+			@Override
+			public int compare(String s1, String s2) {
+				return compareString(s1, s2);
+			}
+		};
+		Arrays.sort(distinct, comparator);
+		int rank = 0;
+		for (int j = 0; j < distinct.length; ++j) {
+			if (j > 0 && comparator.compare(distinct[j - 1], distinct[j]) != 0) {
+				++rank;
+			}
+			dictionary.put(distinct[j], Integer.valueOf(rank));
+		}
+		final int[] ranks = new int[_size];
+		for (int j = 0; j < _size; ++j) {
+			final String s = strings[j];
+			if (s != null) {
+				ranks[j] = dictionary.get(s).intValue();
+			}
+		}
+		return ranks;
+	}
+
+	private int compareString(String s1, String s2) {
+		return _matchCase ? compareString0(s1, s2) : s1.compareToIgnoreCase(s2);
+	}
+
+	//bug 59 Sort with case sensitive should be in special spreadsheet order
+	private static int compareString0(String s1, String s2) {
+		final int len1 = s1.length();
+		final int len2 = s2.length();
+		final int len = len1 > len2 ? len2 : len1;
+		for (int j = 0; j < len; ++j) {
+			final int ret = compareChar(s1.charAt(j), s2.charAt(j));
+			if ( ret != 0) {
+				return ret;
+			}
+		}
+		return len1 - len2;
+	}
+
+	private static int compareChar(char ch1, char ch2) {
+		final char uch1 = Character.toUpperCase(ch1);
+		final char uch2 = Character.toUpperCase(ch2);
+		return uch1 == uch2 ?
+				(ch2 - ch1) : //yes, a < A
+				(uch1 - uch2); //yes, a < b, a < B, A < b, and A < B
+	}
+
+	/*package*/ int compare(int item1, int item2) {
+		for (int key = 0; key < _tags.length; ++key) {
+			final byte tag1 = _tags[key][item1];
+			final byte tag2 = _tags[key][item2];
+			if (tag1 == BLANK || tag2 == BLANK) { //blank is always at the end
+				if (tag1 != tag2) {
+					return tag1 == BLANK ? 1 : -1;
+				}
+				continue;
+			}
+			int ret;
+			if (tag1 != tag2) {
+				ret = tag1 - tag2;
+			} else {
+				switch(tag1) {
+				case NUMBER:
+				case BOOLEAN:
+					ret = Double.compare(_numbers[key][item1], _numbers[key][item2]);
+					break;
+				case STRING:
+					ret = _ranks[key][item1] - _ranks[key][item2];
+					break;
+				default: //error, no order among different errors
+					ret = 0;
+				}
+			}
+			if (ret != 0) {
+				return _descs[key] ? -ret : ret;
+			}
+		}
+		return 0;
+	}
+
+	//sort dst[lo, hi) stably; src holds the same items of dst
+	private void mergeSort(int[] src, int[] dst, int lo, int hi) {
+		final int len = hi - lo;
+		if (len < INSERTION_SORT_THRESHOLD) {
+			for (int i = lo; i < hi; ++i) {
+				for (int j = i; j > lo && compare(dst[j - 1], dst[j]) > 0; --j) {
+					final int t = dst[j];
+					dst[j] = dst[j - 1];
+					dst[j - 1] = t;
+				}
+			}
+			return;
+		}
+		final int mid = (lo + hi) >>> 1;
+		mergeSort(dst, src, lo, mid);
+		mergeSort(dst, src, mid, hi);
+		merge(src, dst, lo, mid, hi);
+	}
+
+	//merge the sorted src[lo, mid) and src[mid, hi) into dst[lo, hi)
+	private void merge(int[] src, int[] dst, int lo, int mid, int hi) {
+		if (compare(src[mid - 1], src[mid]) <= 0) { //already in order
+			System.arraycopy(src, lo, dst, lo, hi - lo);
+			return;
+		}
+		for (int i = lo, p = lo, q = mid; i < hi; ++i) {
+			if (q >= hi || (p < mid && compare(src[p], src[q]) <= 0)) {
+				dst[i] = src[p++];
+			} else {
+				dst[i] = src[q++];
+			}
+		}
+	}
+
+	//sort runs on multiple threads then merge them pairwise; return false if failed
+	private boolean parallelSort(final int[] order) {
+		final int runs = Math.max(THREADS, 2);
+		final int[] bounds = new int[runs + 1];
+		for (int j = 0; j <= runs; ++j) {
+			bounds[j] = (int) ((long) _size * j / runs);
+		}
+		final ExecutorService executor = newExecutor(runs);
+		final List<Future<?>> futures = new ArrayList<Future<?>>(runs);
+		try {
+			final int[] aux = order.clone();
+			for (int j = 0; j < runs; ++j) {
+				final int lo = bounds[j];
+				final int hi = bounds[j + 1];
+				futures.add(executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						mergeSort(aux, order, lo, hi);
+						return null;
+					}
+				}));
+			}
+			waitFor(futures);
+
+			//merge the runs pairwise, level by level
+			int[] src = order;
+			int[] dst = aux;
+			int[] levelBounds = bounds;
+			while (levelBounds.length > 2) {
+				final int n = levelBounds.length - 1; //number of runs
+				final int[] nextBounds = new int[(n + 1) / 2 + 1];
+				for (int j = 0; j < n; j += 2) {
+					final int lo = levelBounds[j];
+					final int mid = levelBounds[j + 1];
+					final int hi = j + 2 <= n ? levelBounds[j + 2] : mid;
+					nextBounds[j / 2] = lo;
+					final int[] src0 = src;
+					final int[] dst0 = dst;
+					futures.add(executor.submit(new Callable<Object>() {
+						@Override
+						public Object call() throws Exception {
+							if (hi == mid) { //odd run, copy only
+								System.arraycopy(src0, lo, dst0, lo, mid - lo);
+							} else {
+								merge(src0, dst0, lo, mid, hi);
+							}
+							return null;
+						}
+					}));
+				}
+				nextBounds[nextBounds.length - 1] = _size;
+				waitFor(futures);
+				final int[] tmp = src;
+				src = dst;
+				dst = tmp;
+				levelBounds = nextBounds;
+			}
+			if (src != order) {
+				System.arraycopy(src, 0, order, 0, _size);
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			logger.log(Level.WARNING, "parallel sort failed, sort on calling thread", e.getCause());
+			return false;
+		} finally {
+			executor.shutdownNow(); //also cancels the runs left if failed
+		}
+	}
+
+	private static void waitFor(List<Future<?>> futures) throws InterruptedException, ExecutionException {
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		futures.clear();
+	}
+
+	private static ExecutorService newExecutor(int threads) {
+		return Executors.newFixedThreadPool(Math.min(threads, THREADS), new ThreadFactory() {
+			private final AtomicInteger _count = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r, "zss-sort-" + _count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
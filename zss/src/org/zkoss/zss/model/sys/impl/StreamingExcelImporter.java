@@ -0,0 +1,616 @@
+/* StreamingExcelImporter.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 1:38:12 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+
+package org.zkoss.zss.model.sys.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheetFormatPr;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+import org.xml.sax.SAXException;
+import org.zkoss.io.Files;
+import org.zkoss.poi.POIXMLDocument;
+import org.zkoss.poi.openxml4j.exceptions.OpenXML4JException;
+import org.zkoss.poi.openxml4j.opc.OPCPackage;
+import org.zkoss.poi.openxml4j.opc.PackageAccess;
+import org.zkoss.poi.ss.SpreadsheetVersion;
+import org.zkoss.poi.ss.formula.FormulaParser;
+import org.zkoss.poi.ss.formula.FormulaRenderer;
+import org.zkoss.poi.ss.formula.FormulaType;
+import org.zkoss.poi.ss.formula.SharedFormula;
+import org.zkoss.poi.ss.formula.ptg.Ptg;
+import org.zkoss.poi.ss.usermodel.CellStyle;
+import org.zkoss.poi.ss.usermodel.DataFormat;
+import org.zkoss.poi.ss.usermodel.DateUtil;
+import org.zkoss.poi.ss.usermodel.FormulaError;
+import org.zkoss.poi.ss.usermodel.Workbook;
+import org.zkoss.poi.ss.util.CellRangeAddress;
+import org.zkoss.poi.ss.util.CellReference;
+import org.zkoss.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.zkoss.poi.xssf.eventusermodel.XSSFReader;
+import org.zkoss.poi.xssf.model.StylesTable;
+import org.zkoss.poi.xssf.usermodel.XSSFCell;
+import org.zkoss.poi.xssf.usermodel.XSSFCellStyle;
+import org.zkoss.poi.xssf.usermodel.XSSFColor;
+import org.zkoss.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.zkoss.poi.xssf.usermodel.XSSFFont;
+import org.zkoss.poi.xssf.usermodel.XSSFName;
+import org.zkoss.poi.xssf.usermodel.XSSFRow;
+import org.zkoss.poi.xssf.usermodel.XSSFSheet;
+import org.zkoss.poi.xssf.usermodel.extensions.XSSFCellBorder.BorderSide;
+import org.zkoss.util.logging.Log;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XImporter;
+import org.zkoss.zss.model.sys.XModelException;
+
+/**
+ * Imports an Excel 2007 file into a {@link XBook} by reading the sheets with
+ * an event (StAX) reader and creating the cells directly, instead of parsing
+ * every sheet into an XMLBeans tree first as {@link ExcelImporter} does. The
+ * package is read from a file part by part, the shared strings are read as
+ * plain strings, and every distinct cell style and font of the file is
+ * created once in the book. The cells themselves are still the
+ * {@link XSSFCell}s of the book model, backed by XMLBeans; what is saved is
+ * the XMLBeans tree of the whole sheet parsed before the cells are created.
+ * <p>Only the contents and the layout are imported: the cell values,
+ * formulas, styles (including the default style and font), merged cells,
+ * row heights, column widths, the default column width, frozen panes, the
+ * active and selected sheets, hidden sheets and defined names. Pictures,
+ * charts, comments, hyperlinks,
+ * data validations, conditional formats, auto filters and the page setup are
+ * not imported; use {@link ExcelImporter} for such files. Excel 2003 files
+ * are imported by {@link ExcelImporter}.</p>
+ * <p>It is registered as the "excel-streaming" importer.</p>
+ */
+public class StreamingExcelImporter implements XImporter {
+	private static final Log log = Log.lookup(StreamingExcelImporter.class);
+	private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	//a column range wider than this up to the last column is the default of the rest columns
+	private static final int MAX_COLUMN_RANGE = 1024;
+
+	@Override
+	public XBook imports(String filename) throws IOException {
+		return imports(new File(filename));
+	}
+
+	@Override
+	public XBook imports(File file) throws IOException {
+		InputStream is = null;
+		final boolean ooxml;
+		try {
+			is = new PushbackInputStream(new FileInputStream(file), 8);
+			ooxml = POIXMLDocument.hasOOXMLHeader(is);
+		} finally {
+			if (is != null) {
+				try {
+					is.close();
+				} catch (IOException e) {
+					throw XModelException.Aide.wrap(e);
+				}
+			}
+		}
+		return ooxml ? importsFromFile(file, file.getName()) : new ExcelImporter().imports(file);
+	}
+
+	@Override
+	public XBook imports(InputStream is, String bookname) throws IOException {
+		// If inputstream doesn't do mark/reset, wrap up
+		if(!is.markSupported()) {
+			is = new PushbackInputStream(is, 8);
+		}
+		if (!POIXMLDocument.hasOOXMLHeader(is)) {
+			return new ExcelImporter().imports(is, bookname);
+		}
+		//copy to a file, so the parts are read one by one rather than all into memory
+		final File file = File.createTempFile("zss", ".xlsx");
+		try {
+			Files.copy(file, is);
+			return importsFromFile(file, bookname);
+		} finally {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	private XBook importsFromFile(File file, String bookname) throws IOException {
+		final int j = bookname.lastIndexOf("/");
+		if (j >=0) {
+			bookname = bookname.substring(j+1);
+		}
+		final OPCPackage pkg;
+		try {
+			pkg = OPCPackage.open(file.getPath(), PackageAccess.READ);
+		} catch (OpenXML4JException e) {
+			throw XModelException.Aide.wrap(e);
+		}
+		try {
+			return new BookReader(pkg, bookname).read();
+		} catch (OpenXML4JException e) {
+			throw XModelException.Aide.wrap(e);
+		} catch (SAXException e) {
+			throw XModelException.Aide.wrap(e);
+		} catch (XMLStreamException e) {
+			throw XModelException.Aide.wrap(e);
+		} finally {
+			pkg.revert(); //close without saving
+		}
+	}
+
+	private static boolean isTrue(String value) {
+		return "1".equals(value) || "true".equals(value);
+	}
+
+	/**
+	 * Returns the serial date of the ISO 8601 date, time or date time of a
+	 * date cell (t="d"), e.g. 2026-10-18T13:30:00.
+	 * @throws IllegalArgumentException if the value is not an ISO 8601 date
+	 */
+	/*package*/ static double getExcelDate(String value, boolean date1904) {
+		final DatatypeFactory factory;
+		try {
+			factory = DatatypeFactory.newInstance();
+		} catch (DatatypeConfigurationException e) {
+			throw XModelException.Aide.wrap(e);
+		}
+		final XMLGregorianCalendar cal = factory.newXMLGregorianCalendar(value.startsWith("T") ? value.substring(1) : value);
+		if (cal.getYear() == DatatypeConstants.FIELD_UNDEFINED) { //a time only
+			final int ms = cal.getMillisecond() == DatatypeConstants.FIELD_UNDEFINED ? 0 : cal.getMillisecond();
+			return ((cal.getHour() * 60 + cal.getMinute()) * 60 + cal.getSecond() + ms / 1000d) / DateUtil.SECONDS_PER_DAY;
+		}
+		//in the time zone of the value if any, so the fields are not converted
+		final GregorianCalendar gcal = cal.toGregorianCalendar();
+		return DateUtil.getExcelDate(gcal, date1904);
+	}
+
+	/**
+	 * Reads a package into a new book.
+	 */
+	private static class BookReader {
+		private final OPCPackage _pkg;
+		private final XSSFReader _reader;
+		private final XSSFBookImpl _book;
+		private final XMLInputFactory _factory;
+		private final DataFormat _format;
+		private final XSSFEvaluationWorkbook _fpb;
+		private final SharedFormula _sharedFormula = new SharedFormula(SpreadsheetVersion.EXCEL2007);
+		private final Map<Integer, XSSFCellStyle> _styles = new HashMap<Integer, XSSFCellStyle>(); //index in file -> style
+		private final Map<Integer, XSSFFont> _fonts = new HashMap<Integer, XSSFFont>(); //index in file -> font
+		private String[] _strings;
+		private StylesTable _stylesTable;
+		private boolean _date1904;
+
+		private BookReader(OPCPackage pkg, String bookname) throws IOException, OpenXML4JException {
+			_pkg = pkg;
+			_reader = new XSSFReader(pkg);
+			_book = new XSSFBookImpl(bookname);
+			_format = _book.createDataFormat();
+			_fpb = XSSFEvaluationWorkbook.create(_book);
+			_factory = XMLInputFactory.newInstance();
+			_factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			_factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			_factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		}
+
+		private XBook read() throws IOException, OpenXML4JException, SAXException, XMLStreamException {
+			final List<String> strings = new ReadOnlySharedStringsTable(_pkg).getItems();
+			_strings = strings.toArray(new String[strings.size()]);
+			_stylesTable = _reader.getStylesTable();
+			if (_stylesTable != null) {
+				initDefaultStyle();
+			}
+
+			//workbook.xml: sheets and names
+			final List<String[]> sheets = new ArrayList<String[]>(); //name, relation id, state
+			final List<String[]> names = new ArrayList<String[]>(); //name, local sheet id, formula
+			int activeTab = 0;
+			int firstSheet = 0;
+			final XMLStreamReader r = _factory.createXMLStreamReader(_reader.getWorkbookData());
+			try {
+				while (r.hasNext()) {
+					if (r.next() != XMLStreamConstants.START_ELEMENT) continue;
+					final String name = r.getLocalName();
+					if ("sheet".equals(name)) {
+						sheets.add(new String[] {r.getAttributeValue(null, "name"), r.getAttributeValue(REL_NS, "id"), r.getAttributeValue(null, "state")});
+					} else if ("definedName".equals(name)) {
+						final String nm = r.getAttributeValue(null, "name");
+						final String localSheetId = r.getAttributeValue(null, "localSheetId");
+						names.add(new String[] {nm, localSheetId, r.getElementText()});
+					} else if ("workbookPr".equals(name) && isTrue(r.getAttributeValue(null, "date1904"))) {
+						setDate1904();
+					} else if ("workbookView".equals(name)) {
+						final String tab = r.getAttributeValue(null, "activeTab");
+						activeTab = tab != null ? Integer.parseInt(tab) : 0;
+						final String first = r.getAttributeValue(null, "firstSheet");
+						firstSheet = first != null ? Integer.parseInt(first) : 0;
+					}
+				}
+			} finally {
+				r.close();
+			}
+
+			final XSSFSheet[] sheetImpls = new XSSFSheet[sheets.size()];
+			for (int j = 0; j < sheetImpls.length; ++j) {
+				final String[] sheet = sheets.get(j);
+				sheetImpls[j] = _book.createSheet(sheet[0]);
+				if ("hidden".equals(sheet[2])) {
+					_book.setSheetHidden(j, Workbook.SHEET_STATE_HIDDEN);
+				} else if ("veryHidden".equals(sheet[2])) {
+					_book.setSheetHidden(j, Workbook.SHEET_STATE_VERY_HIDDEN);
+				}
+			}
+			//names before the cells, the formulas might refer them
+			for (String[] name : names) {
+				addName(name[0], name[1], name[2]);
+			}
+			for (int j = 0; j < sheetImpls.length; ++j) {
+				final InputStream is = _reader.getSheet(sheets.get(j)[1]);
+				try {
+					readSheet(sheetImpls[j], j, is);
+				} finally {
+					is.close();
+				}
+				((SheetCtrl)sheetImpls[j]).initMerged();
+			}
+			if (activeTab > 0 && activeTab < sheetImpls.length) {
+				_book.setActiveSheet(activeTab);
+			}
+			if (firstSheet > 0 && firstSheet < sheetImpls.length) {
+				_book.setFirstVisibleTab(firstSheet);
+			}
+			return _book;
+		}
+
+		private void setDate1904() {
+			final CTWorkbook wb = _book.getCTWorkbook();
+			(wb.isSetWorkbookPr() ? wb.getWorkbookPr() : wb.addNewWorkbookPr()).setDate1904(true);
+			_date1904 = true;
+		}
+
+		/**
+		 * Makes the default style and font of the book (index 0) the ones of
+		 * the file; cells without a style use them.
+		 */
+		private void initDefaultStyle() {
+			if (_stylesTable.getFonts().size() > 0) {
+				final XSSFFont font = _book.getFontAt((short) 0);
+				copyFont(_stylesTable.getFontAt(0), font);
+				_fonts.put(Integer.valueOf(0), font);
+			}
+			if (_stylesTable.getNumCellStyles() > 0) {
+				final XSSFCellStyle style = _book.getCellStyleAt((short) 0);
+				copyStyle(_stylesTable.getStyleAt(0), style);
+				_styles.put(Integer.valueOf(0), style);
+			}
+		}
+
+		private void addName(String nm, String localSheetId, String formula) {
+			final XSSFName name = _book.createName();
+			try {
+				name.setNameName(nm);
+				if (localSheetId != null) {
+					name.setSheetIndex(Integer.parseInt(localSheetId));
+				}
+				name.setRefersToFormula(formula);
+			} catch (RuntimeException ex) {
+				log.warning("Ignore the name " + nm + " of " + _book.getBookName() + ": " + ex.getMessage());
+				_book.removeName(_book.getNumberOfNames() - 1);
+			}
+		}
+
+		private void readSheet(XSSFSheet sheet, int sheetIndex, InputStream is) throws XMLStreamException {
+			final Map<String, Object[]> shared = new HashMap<String, Object[]>(); //si -> ptgs, row, column of the first cell
+			final XMLStreamReader r = _factory.createXMLStreamReader(is);
+			try {
+				XSSFRow row = null;
+				int rowIndex = -1;
+				int colIndex = -1;
+				while (r.hasNext()) {
+					if (r.next() != XMLStreamConstants.START_ELEMENT) continue;
+					final String name = r.getLocalName();
+					if ("c".equals(name)) {
+						final String ref = r.getAttributeValue(null, "r");
+						colIndex = ref != null ? new CellReference(ref).getCol() : colIndex + 1;
+						readCell(r, sheet, sheetIndex, row, colIndex, shared);
+					} else if ("row".equals(name)) {
+						final String ref = r.getAttributeValue(null, "r");
+						rowIndex = ref != null ? Integer.parseInt(ref) - 1 : rowIndex + 1;
+						colIndex = -1;
+						row = sheet.createRow(rowIndex);
+						final String ht = r.getAttributeValue(null, "ht");
+						if (ht != null) {
+							row.setHeightInPoints(Float.parseFloat(ht));
+						}
+						if (isTrue(r.getAttributeValue(null, "hidden"))) {
+							row.setZeroHeight(true);
+						}
+						if (isTrue(r.getAttributeValue(null, "customFormat"))) {
+							final XSSFCellStyle style = getStyle(r.getAttributeValue(null, "s"));
+							if (style != null) {
+								row.setRowStyle(style);
+							}
+						}
+					} else if ("col".equals(name)) {
+						readColumns(r, sheet);
+					} else if ("sheetFormatPr".equals(name)) {
+						final String baseColWidth = r.getAttributeValue(null, "baseColWidth");
+						if (baseColWidth != null) {
+							sheet.setDefaultColumnWidth(Integer.parseInt(baseColWidth));
+						}
+						final String defaultColWidth = r.getAttributeValue(null, "defaultColWidth");
+						if (defaultColWidth != null) {
+							final CTWorksheet worksheet = sheet.getCTWorksheet();
+							final CTSheetFormatPr pr = worksheet.isSetSheetFormatPr() ? worksheet.getSheetFormatPr() : worksheet.addNewSheetFormatPr();
+							pr.setDefaultColWidth(Double.parseDouble(defaultColWidth));
+						}
+						final String defaultRowHeight = r.getAttributeValue(null, "defaultRowHeight");
+						if (defaultRowHeight != null) {
+							sheet.setDefaultRowHeightInPoints(Float.parseFloat(defaultRowHeight));
+						}
+					} else if ("sheetView".equals(name)) {
+						sheet.setSelected(isTrue(r.getAttributeValue(null, "tabSelected")));
+					} else if ("pane".equals(name)) {
+						final String state = r.getAttributeValue(null, "state");
+						if ("frozen".equals(state) || "frozenSplit".equals(state)) {
+							final String xSplit = r.getAttributeValue(null, "xSplit");
+							final String ySplit = r.getAttributeValue(null, "ySplit");
+							sheet.createFreezePane(xSplit == null ? 0 : (int) Double.parseDouble(xSplit),
+								ySplit == null ? 0 : (int) Double.parseDouble(ySplit));
+						}
+					} else if ("mergeCell".equals(name)) {
+						sheet.addMergedRegion(CellRangeAddress.valueOf(r.getAttributeValue(null, "ref")));
+					}
+				}
+			} finally {
+				r.close();
+			}
+		}
+
+		private void readColumns(XMLStreamReader r, XSSFSheet sheet) {
+			final int last = SpreadsheetVersion.EXCEL2007.getLastColumnIndex();
+			final int min = Integer.parseInt(r.getAttributeValue(null, "min")) - 1;
+			int max = Math.min(Integer.parseInt(r.getAttributeValue(null, "max")) - 1, last);
+			final String width = r.getAttributeValue(null, "width");
+			if (max - min >= MAX_COLUMN_RANGE && max == last) { //rest columns, don't set one by one
+				if (width != null) {
+					sheet.setDefaultColumnWidth((int) Math.round(Double.parseDouble(width)));
+				}
+				max = min + MAX_COLUMN_RANGE - 1;
+			}
+			final boolean hidden = isTrue(r.getAttributeValue(null, "hidden"));
+			final XSSFCellStyle style = getStyle(r.getAttributeValue(null, "style"));
+			for (int c = min; c <= max; ++c) {
+				if (width != null) {
+					sheet.setColumnWidth(c, Math.min((int) Math.round(Double.parseDouble(width) * 256), 255 * 256));
+				}
+				if (hidden) {
+					sheet.setColumnHidden(c, true);
+				}
+				if (style != null) {
+					sheet.setDefaultColumnStyle(c, style);
+				}
+			}
+		}
+
+		private void readCell(XMLStreamReader r, XSSFSheet sheet, int sheetIndex, XSSFRow row, int col,
+				Map<String, Object[]> shared) throws XMLStreamException {
+			final String type = r.getAttributeValue(null, "t");
+			final XSSFCellStyle style = getStyle(r.getAttributeValue(null, "s"));
+			String value = null;
+			String formula = null;
+			StringBuilder inline = null;
+			while (r.hasNext()) {
+				final int event = r.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					final String name = r.getLocalName();
+					if ("v".equals(name)) {
+						value = r.getElementText();
+					} else if ("f".equals(name)) {
+						formula = readFormula(r, sheetIndex, row.getRowNum(), col, shared);
+					} else if ("is".equals(name)) {
+						inline = new StringBuilder();
+					} else if ("t".equals(name) && inline != null) {
+						inline.append(r.getElementText());
+					} else if ("rPh".equals(name)) { //phonetic text is not a part of the value
+						skipElement(r);
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(r.getLocalName())) {
+					break;
+				}
+			}
+
+			final XSSFCell cell = row.createCell(col);
+			if (style != null) {
+				cell.setCellStyle(style);
+			}
+			if (formula != null) {
+				try {
+					cell.setCellFormula(formula);
+				} catch (RuntimeException ex) {
+					log.warning("Ignore the formula " + formula + " of " + sheet.getSheetName() + "!"
+						+ new CellReference(row.getRowNum(), col).formatAsString() + ": " + ex.getMessage());
+				}
+			}
+			if (inline != null) {
+				cell.setCellValue(inline.toString());
+			} else if (value != null) {
+				if ("s".equals(type)) {
+					cell.setCellValue(_strings[Integer.parseInt(value)]);
+				} else if ("str".equals(type) || "inlineStr".equals(type)) {
+					cell.setCellValue(value);
+				} else if ("d".equals(type)) {
+					try {
+						cell.setCellValue(getExcelDate(value, _date1904));
+					} catch (IllegalArgumentException ex) {
+						log.warning("Import the date " + value + " of " + sheet.getSheetName() + "!"
+							+ new CellReference(row.getRowNum(), col).formatAsString() + " as a text: " + ex.getMessage());
+						cell.setCellValue(value);
+					}
+				} else if ("b".equals(type)) {
+					cell.setCellValue(isTrue(value));
+				} else if ("e".equals(type)) {
+					try {
+						cell.setCellErrorValue(FormulaError.forString(value).getCode());
+					} catch (IllegalArgumentException ex) {
+						cell.setCellErrorValue(FormulaError.NA.getCode());
+					}
+				} else {
+					cell.setCellValue(Double.parseDouble(value));
+				}
+			}
+		}
+
+		/**
+		 * Returns the formula of the cell; the formula of the first cell of a
+		 * shared formula is moved to the cell.
+		 */
+		private String readFormula(XMLStreamReader r, int sheetIndex, int row, int col,
+				Map<String, Object[]> shared) throws XMLStreamException {
+			final String type = r.getAttributeValue(null, "t");
+			final String si = r.getAttributeValue(null, "si");
+			final String formula = r.getElementText();
+			if (!"shared".equals(type) || si == null) {
+				return formula;
+			}
+			if (formula.length() > 0) { //the first cell of the shared formula
+				try {
+					shared.put(si, new Object[] {FormulaParser.parse(formula, _fpb, FormulaType.CELL, sheetIndex), row, col});
+				} catch (RuntimeException ex) {
+					//the formula is ignored by the cell
+				}
+				return formula;
+			}
+			final Object[] first = shared.get(si);
+			if (first == null) {
+				return null;
+			}
+			final Ptg[] ptgs = _sharedFormula.convertSharedFormulas((Ptg[]) first[0],
+				row - ((Integer) first[1]).intValue(), col - ((Integer) first[2]).intValue());
+			return FormulaRenderer.toFormulaString(_fpb, ptgs);
+		}
+
+		private void skipElement(XMLStreamReader r) throws XMLStreamException {
+			for (int depth = 1; depth > 0;) {
+				final int event = r.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					++depth;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					--depth;
+				}
+			}
+		}
+
+		/**
+		 * Returns the style of the book for the style index of the file; null
+		 * for the default style (see {@link #initDefaultStyle()}).
+		 */
+		private XSSFCellStyle getStyle(String s) {
+			if (s == null || _stylesTable == null) {
+				return null;
+			}
+			final int index = Integer.parseInt(s);
+			if (index <= 0 || index >= _stylesTable.getNumCellStyles()) {
+				return null;
+			}
+			final Integer key = Integer.valueOf(index);
+			XSSFCellStyle style = _styles.get(key);
+			if (style == null) {
+				style = _book.createCellStyle();
+				copyStyle(_stylesTable.getStyleAt(index), style);
+				_styles.put(key, style);
+			}
+			return style;
+		}
+
+		private void copyStyle(XSSFCellStyle src, XSSFCellStyle style) {
+			style.setAlignment(src.getAlignment());
+			style.setVerticalAlignment(src.getVerticalAlignment());
+			style.setWrapText(src.getWrapText());
+			style.setIndention(src.getIndention());
+			style.setRotation(src.getRotation());
+			style.setLocked(src.getLocked());
+			style.setHidden(src.getHidden());
+			final String format = src.getDataFormatString();
+			if (format != null) {
+				style.setDataFormat(_format.getFormat(format));
+			}
+			style.setFont(getFont(src.getFontIndex(), src.getFont()));
+			final short pattern = src.getFillPattern();
+			if (pattern != CellStyle.NO_FILL) {
+				style.setFillPattern(pattern);
+				final XSSFColor fg = src.getFillForegroundXSSFColor();
+				if (fg != null) {
+					style.setFillForegroundColor(fg);
+				}
+				final XSSFColor bg = src.getFillBackgroundXSSFColor();
+				if (bg != null) {
+					style.setFillBackgroundColor(bg);
+				}
+			}
+			style.setBorderTop(src.getBorderTop());
+			style.setBorderBottom(src.getBorderBottom());
+			style.setBorderLeft(src.getBorderLeft());
+			style.setBorderRight(src.getBorderRight());
+			for (BorderSide side : BorderSide.values()) {
+				final XSSFColor color = src.getBorderColor(side);
+				if (color != null) {
+					style.setBorderColor(side, color);
+				}
+			}
+		}
+
+		private XSSFFont getFont(short index, XSSFFont src) {
+			final Integer key = Integer.valueOf(index);
+			XSSFFont font = _fonts.get(key);
+			if (font == null) {
+				font = _book.createFont();
+				copyFont(src, font);
+				_fonts.put(key, font);
+			}
+			return font;
+		}
+
+		private void copyFont(XSSFFont src, XSSFFont font) {
+			font.setFontName(src.getFontName());
+			font.setFontHeight(src.getFontHeight());
+			font.setBold(src.getBold());
+			font.setItalic(src.getItalic());
+			font.setStrikeout(src.getStrikeout());
+			font.setUnderline(src.getUnderline());
+			font.setTypeOffset(src.getTypeOffset());
+			final XSSFColor color = src.getXSSFColor();
+			if (color != null) {
+				font.setColor(color);
+			}
+		}
+	}
+}
@@ -15,6 +15,7 @@ package org.zkoss.zss.model.sys.impl;
 
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -27,9 +28,11 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
 
 import org.zkoss.lang.Strings;
 import org.zkoss.poi.hssf.usermodel.HSSFSheet;
+import org.zkoss.poi.ss.formula.FormulaParseException;
 import org.zkoss.poi.ss.SpreadsheetVersion;
 import org.zkoss.poi.ss.usermodel.AutoFilter;
 import org.zkoss.poi.ss.usermodel.BorderStyle;
@@ -67,10 +70,12 @@ import org.zkoss.zss.engine.impl.RefAddr;
 import org.zkoss.zss.engine.impl.RefSheetImpl;
 import org.zkoss.zss.model.sys.XAreas;
 import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XBookLock;
 import org.zkoss.zss.model.sys.XFormatText;
 import org.zkoss.zss.model.sys.XRange;
 import org.zkoss.zss.model.sys.XRanges;
 import org.zkoss.zss.model.sys.XSheet;
+import org.zkoss.zss.ui.impl.CellStyleCSSCache;
 import org.zkoss.zul.Messagebox;
 /**
  * Implementation of {@link XRange} which plays a facade to operate on the spreadsheet data models
@@ -79,6 +84,9 @@ import org.zkoss.zul.Messagebox;
  *
  */
 public class XRangeImpl implements XRange {
+	//orders the locks of two books whose identity hash codes are the same
+	private static final Object TIE_LOCK = new Object();
+	
 	private final XSheet _sheet;
 	private int _left = Integer.MAX_VALUE;
 	private int _top = Integer.MAX_VALUE;
@@ -151,7 +159,8 @@ public class XRangeImpl implements XRange {
 
 	@Override
 	public Hyperlink getHyperlink() {
-		synchronized(_sheet) {
+		final Lock lock = lockRead();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final int tRow = ref.getTopRow();
@@ -162,11 +171,14 @@ public class XRangeImpl implements XRange {
 					return BookHelper.getHyperlink(cell);
 			}
 			return null;
+		} finally {
+			lock.unlock();
 		}
 	}
 	@Override
 	public void setHyperlink(int linkType, String address, String display) {
-		synchronized(_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (display == null) {
 				display = address;
 			}
@@ -178,6 +190,8 @@ public class XRangeImpl implements XRange {
 			} finally {
 				setDirectHyperlink(old);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -249,7 +263,8 @@ public class XRangeImpl implements XRange {
 	}
 	@Override
 	public RichTextString getText() {
-		synchronized(_sheet) {
+		final Lock lock = lockRead();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final int tRow = ref.getTopRow();
@@ -260,11 +275,14 @@ public class XRangeImpl implements XRange {
 					return BookHelper.getText(cell);
 			}
 			return null;
+		} finally {
+			lock.unlock();
 		}
 	}
 	@Override
 	public XFormatText getFormatText() {
-		synchronized(_sheet) {
+		final Lock lock = lockRead();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final int tRow = ref.getTopRow();
@@ -275,12 +293,15 @@ public class XRangeImpl implements XRange {
 					return BookHelper.getFormatText(cell);
 			}
 			return null;
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public RichTextString getRichEditText() {
-		synchronized(_sheet) {
+		final Lock lock = lockRead();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final int tRow = ref.getTopRow();
@@ -292,19 +313,25 @@ public class XRangeImpl implements XRange {
 				}
 			}
 			return null;
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void setRichEditText(RichTextString rstr) {
-		synchronized(_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			setValue(rstr);
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public String getEditText() {
-		synchronized(_sheet) {
+		final Lock lock = lockRead();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final int tRow = ref.getTopRow();
@@ -316,13 +343,16 @@ public class XRangeImpl implements XRange {
 				}
 			}
 			return null;
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	//return null if a valid input; otherwise the associated DataVailation for invalid input.
 	@Override
 	public DataValidation validate(String txt) {
-		synchronized(_sheet) {
+		final Lock lock = lockRead();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final int tRow = ref.getTopRow();
@@ -339,12 +369,15 @@ public class XRangeImpl implements XRange {
 				return BookHelper.validate(sheet, tRow, lCol, value, cellType);
 			}
 			return null;
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void setEditText(String txt) {
-		synchronized(_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final int tRow = ref.getTopRow();
@@ -396,16 +429,21 @@ public class XRangeImpl implements XRange {
 				}
 				reevaluateAndNotify(refs);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void notifyChange() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final XBook book = (XBook) _sheet.getWorkbook();
 				BookHelper.notifyCellChanges(book, _refs);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -684,14 +722,15 @@ public class XRangeImpl implements XRange {
 	
 	@Override
 	public void delete(int shift) {
-		synchronized(_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref ref = _refs.iterator().next();
 				final RefSheet refSheet = ref.getOwnerSheet();
 				final RefBook refBook = refSheet.getOwnerBook();
 				final XSheet sheet = BookHelper.getSheet(_sheet, refSheet);
-				if (!((SheetCtrl)sheet).isEvalAll()) {
-					((SheetCtrl)sheet).evalAll();
+				if (!((SheetCtrl)sheet).isDependencyBuilt()) {
+					((SheetCtrl)sheet).buildDependencies();
 				}
 				switch(shift) {
 				default:
@@ -722,19 +761,22 @@ public class XRangeImpl implements XRange {
 					break;
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void insert(int shift, int copyOrigin) {
-		synchronized(_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref ref = _refs.iterator().next();
 				final RefSheet refSheet = ref.getOwnerSheet();
 				final RefBook refBook = refSheet.getOwnerBook();
 				final XSheet sheet = BookHelper.getSheet(_sheet, refSheet);
-				if (!((SheetCtrl)sheet).isEvalAll()) {
-					((SheetCtrl)sheet).evalAll();
+				if (!((SheetCtrl)sheet).isDependencyBuilt()) {
+					((SheetCtrl)sheet).buildDependencies();
 				}
 				switch(shift) {
 				default:
@@ -765,6 +807,8 @@ public class XRangeImpl implements XRange {
 					break;
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -783,6 +827,11 @@ public class XRangeImpl implements XRange {
 		}
 		// ZSS-354: delete merge before cell update, because of this merge range is based on original cell range
 		if (event != null && ref != null) {
+			if (SSDataEvent.ON_RANGE_INSERT.equals(event) || SSDataEvent.ON_RANGE_DELETE.equals(event)) {
+				//cells are shifted, index the filter columns again
+				final XSheet sheet = BookHelper.getSheet(_sheet, ref.getOwnerSheet());
+				((SheetCtrl)sheet).getFilterIndex().clear(0, Integer.MAX_VALUE);
+			}
 			refBook.publish(new SSDataEvent(event, ref, orient));
 		}
 		for(MergeChange change : info.getMergeChanges()) {
@@ -801,25 +850,69 @@ public class XRangeImpl implements XRange {
 		return null;
 	}
 	
-	//enforce lock sequence
-	private XSheet[] getLockSheets(XRange dstRange) {
-		final int srcIndex = _sheet.getBook().getSheetIndex(_sheet);
-		final XSheet dstSheet = dstRange.getSheet();
-		final int dstIndex = dstSheet.getBook().getSheetIndex(dstSheet);
-		final XSheet[] sheets = new XSheet[2];
-		final XSheet sheet1 = srcIndex > dstIndex ? _sheet : dstSheet;
-		final XSheet sheet2 = srcIndex > dstIndex ? dstSheet : _sheet;
-		return new XSheet[] {sheet1, sheet2};
+	//acquires the read lock of the book; released by the caller
+	private Lock lockRead() {
+		final Lock lock = _sheet.getBook().getLock().readLock();
+		lock.lock();
+		return lock;
+	}
+	
+	//acquires the write lock of the book; released by the caller
+	private Lock lockWrite() {
+		final Lock lock = _sheet.getBook().getLock().writeLock();
+		lock.lock();
+		return lock;
+	}
+	
+	//acquires the write locks of the books of this and the destination range;
+	//enforce lock sequence by the identity hash codes of the locks
+	private Lock[] lockWrite(XRange dstRange) {
+		final XBookLock srcLock = _sheet.getBook().getLock();
+		final XBookLock dstLock = dstRange.getSheet().getBook().getLock();
+		if (srcLock == dstLock) { //same book or book series
+			return lockWrite(srcLock);
+		}
+		final int srcHash = System.identityHashCode(srcLock);
+		final int dstHash = System.identityHashCode(dstLock);
+		if (srcHash != dstHash) {
+			return srcHash < dstHash ? lockWrite(srcLock, dstLock) : lockWrite(dstLock, srcLock);
+		}
+		synchronized (TIE_LOCK) { //no order, one thread at a time
+			return lockWrite(srcLock, dstLock);
+		}
+	}
+	
+	private static Lock[] lockWrite(XBookLock... bookLocks) {
+		final Lock[] locks = new Lock[bookLocks.length];
+		for (int j = 0; j < bookLocks.length; ++j) {
+			final Lock lock = bookLocks[j].writeLock();
+			try {
+				lock.lock();
+			} catch (RuntimeException e) { //e.g. holds the read lock
+				for (int k = j - 1; k >= 0; --k) {
+					locks[k].unlock();
+				}
+				throw e;
+			}
+			locks[j] = lock;
+		}
+		return locks;
+	}
+	
+	private static void unlock(Lock[] locks) {
+		for (int j = locks.length - 1; j >= 0; --j) {
+			locks[j].unlock();
+		}
 	}
 	
 	@Override
 	public XRange pasteSpecial(XRange dstRange, int pasteType, int pasteOp, boolean skipBlanks, boolean transpose) {
-		final XSheet[] sheets = getLockSheets(dstRange); //enforce lock sequence
-		synchronized(sheets[0]) { 
-			synchronized(sheets[1]) {
-				final Ref ref = paste0(dstRange, pasteType, pasteOp, skipBlanks, transpose);
-				return ref == null ? null : new XRangeImpl(ref, BookHelper.getSheet(_sheet, ref.getOwnerSheet()));
-			}
+		final Lock[] locks = lockWrite(dstRange);
+		try {
+			final Ref ref = paste0(dstRange, pasteType, pasteOp, skipBlanks, transpose);
+			return ref == null ? null : new XRangeImpl(ref, BookHelper.getSheet(_sheet, ref.getOwnerSheet()));
+		} finally {
+			unlock(locks);
 		}
 	}
 	
@@ -827,7 +920,8 @@ public class XRangeImpl implements XRange {
 	@Override
 	public void sort(XRange rng1, boolean desc1, XRange rng2, int type, boolean desc2, XRange rng3, boolean desc3, int header, int orderCustom,
 			boolean matchCase, boolean sortByRows, int sortMethod, int dataOption1, int dataOption2, int dataOption3) {
-		synchronized(_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			final Ref key1 = rng1 != null ? ((XRangeImpl)rng1).getRefs().iterator().next() : null;
 			final Ref key2 = rng2 != null ? ((XRangeImpl)rng2).getRefs().iterator().next() : null;
 			final Ref key3 = rng3 != null ? ((XRangeImpl)rng3).getRefs().iterator().next() : null;
@@ -848,6 +942,8 @@ public class XRangeImpl implements XRange {
 				info.getAffected().add(ref);
 				notifyMergeChange(refBook, info, ref, SSDataEvent.ON_CONTENTS_CHANGE, SSDataEvent.MOVE_NO);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -858,37 +954,37 @@ public class XRangeImpl implements XRange {
 	
 	@Override
 	public XRange copy(XRange dstRange, boolean cut) {
-		final XSheet[] sheets = getLockSheets(dstRange); //enforce lock sequence
-		synchronized(sheets[0]) { //enforce lock sequence
-			synchronized(sheets[1]) {
-				XRange pasteRange = copy0(dstRange);
-				if(!cut) {
-					return pasteRange;
-				}
-				
-				Ref srcRef = _refs.iterator().next();
-				final Ref dstRef = ((XRangeImpl)pasteRange).getRefs().iterator().next();
-				OverlapState state = getOverlapState(dstRef, srcRef);
-				
-				if(state == OverlapState.INCLUDED_OUTSIDE || state == OverlapState.INCLUDED_INSIDE) {
-					return pasteRange;
-				}
-				
-				List<Ref> areas = removeIntersect(dstRef, srcRef);
-				if(areas.isEmpty()) { // no overlap, clear all source
-					clearContents();
-					setStyle(null);
-					unMerge();
-				} else { // clear area contents
-					for(Ref area : areas) {
-						XRange range = new XRangeImpl(area, BookHelper.getSheet(_sheet, area.getOwnerSheet()));
-						range.clearContents();
-						range.setStyle(null);
-						range.unMerge();
-					}
-				}
+		final Lock[] locks = lockWrite(dstRange);
+		try {
+			XRange pasteRange = copy0(dstRange);
+			if(!cut) {
 				return pasteRange;
 			}
+			
+			Ref srcRef = _refs.iterator().next();
+			final Ref dstRef = ((XRangeImpl)pasteRange).getRefs().iterator().next();
+			OverlapState state = getOverlapState(dstRef, srcRef);
+			
+			if(state == OverlapState.INCLUDED_OUTSIDE || state == OverlapState.INCLUDED_INSIDE) {
+				return pasteRange;
+			}
+			
+			List<Ref> areas = removeIntersect(dstRef, srcRef);
+			if(areas.isEmpty()) { // no overlap, clear all source
+				clearContents();
+				setStyle(null);
+				unMerge();
+			} else { // clear area contents
+				for(Ref area : areas) {
+					XRange range = new XRangeImpl(area, BookHelper.getSheet(_sheet, area.getOwnerSheet()));
+					range.clearContents();
+					range.setStyle(null);
+					range.unMerge();
+				}
+			}
+			return pasteRange;
+		} finally {
+			unlock(locks);
 		}
 	}
 
@@ -1149,7 +1245,8 @@ public class XRangeImpl implements XRange {
 		// ZSS-290: unmerge before merging, or there will be multiple merged cell at same range
 		unMerge();
 		
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref ref = _refs.iterator().next();
 				final RefSheet refSheet = ref.getOwnerSheet();
@@ -1162,12 +1259,15 @@ public class XRangeImpl implements XRange {
 				final ChangeInfo info = BookHelper.merge(sheet, tRow, lCol, bRow, rCol, across);
 				notifyMergeChange(refBook, info, ref, SSDataEvent.ON_CONTENTS_CHANGE, SSDataEvent.MOVE_NO);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void unMerge() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref ref = _refs.iterator().next();
 				final RefSheet refSheet = ref.getOwnerSheet();
@@ -1180,16 +1280,21 @@ public class XRangeImpl implements XRange {
 				final ChangeInfo info = BookHelper.unMerge(sheet, tRow, lCol, bRow, rCol,true);
 				notifyMergeChange(refBook, info, ref, SSDataEvent.ON_CONTENTS_CHANGE, SSDataEvent.MOVE_NO);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public XRange getCells(int row, int col) {
-		synchronized (_sheet) {
+		final Lock lock = lockRead();
+		try {
 			final Ref ref = getRefs().iterator().next();
 			final int col1 = ref.getLeftCol() + col;
 			final int row1 = ref.getTopRow() + row;
 			return new XRangeImpl(row1, col1, _sheet, _sheet);
+		} finally {
+			lock.unlock();
 		}
 	}
 			
@@ -1249,7 +1354,8 @@ public class XRangeImpl implements XRange {
 	//Any cell is protecetd and locked
 	@Override
 	public boolean isAnyCellProtected() {
-		synchronized (_sheet) {
+		final Lock lock = lockRead();
+		try {
 			final Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final RefSheet refSheet = ref.getOwnerSheet();
@@ -1280,6 +1386,8 @@ public class XRangeImpl implements XRange {
 				return false;
 			}
 			return true;
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -1532,7 +1640,8 @@ public class XRangeImpl implements XRange {
 	
 	@Override
 	public void setBorders(short borderIndex, BorderStyle lineStyle, String color) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref ref = _refs.iterator().next();
 				final RefSheet refSheet = ref.getOwnerSheet();
@@ -1547,12 +1656,15 @@ public class XRangeImpl implements XRange {
 					BookHelper.notifyCellChanges(book, all);
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void setColumnWidth(int char256) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref ref = _refs.iterator().next();
 				final RefSheet refSheet = ref.getOwnerSheet();
@@ -1565,6 +1677,8 @@ public class XRangeImpl implements XRange {
 					BookHelper.notifySizeChanges(book, all);
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -1575,7 +1689,8 @@ public class XRangeImpl implements XRange {
 	
 	@Override
 	public void setRowHeight(int points, boolean customHeight) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref ref = _refs.iterator().next();
 				final RefSheet refSheet = ref.getOwnerSheet();
@@ -1588,12 +1703,15 @@ public class XRangeImpl implements XRange {
 					BookHelper.notifySizeChanges(book, all);
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void move(int nRow, int nCol) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref ref = _refs.iterator().next();
 				final RefSheet refSheet = ref.getOwnerSheet();
@@ -1606,12 +1724,15 @@ public class XRangeImpl implements XRange {
 				final ChangeInfo info = BookHelper.moveRange(sheet, tRow, lCol, bRow, rCol, nRow, nCol);
 				notifyMergeChange(refBook, info, ref, SSDataEvent.ON_CONTENTS_CHANGE, SSDataEvent.MOVE_NO);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void setStyle(CellStyle style) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Set<Ref> all = new HashSet<Ref>();
 				for (Ref ref : _refs) {
@@ -1629,12 +1750,15 @@ public class XRangeImpl implements XRange {
 					BookHelper.notifyCellChanges(book, all);
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void autoFill(XRange dstRange, int fillType) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty() && !((XRangeImpl)dstRange).getRefs().isEmpty()) {
 				//destination range allow only one contiguous reference
 				if (((XRangeImpl)dstRange).getRefs().size() > 1) {
@@ -1644,12 +1768,15 @@ public class XRangeImpl implements XRange {
 				final Ref dstRef = ((XRangeImpl)dstRange).getRefs().iterator().next();
 				fillRef(srcRef, dstRef, fillType);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void clearContents() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref ref = _refs.iterator().next();
 				final RefSheet refSheet = ref.getOwnerSheet();
@@ -1660,6 +1787,8 @@ public class XRangeImpl implements XRange {
 				final XSheet sheet = BookHelper.getSheet(_sheet, refSheet);
 				clearContents(sheet, tRow, lCol, bRow, rCol);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -1699,51 +1828,64 @@ public class XRangeImpl implements XRange {
 
 	@Override
 	public void fillDown() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref dstRef = _refs.iterator().next();
 				final Ref srcRef = new AreaRefImpl(dstRef.getTopRow(), dstRef.getLeftCol(), dstRef.getTopRow(), dstRef.getRightCol(), dstRef.getOwnerSheet());
 				fillRef(srcRef, dstRef, XRange.FILL_COPY);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void fillLeft() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref dstRef = _refs.iterator().next();
 				final Ref srcRef = new AreaRefImpl(dstRef.getTopRow(), dstRef.getRightCol(), dstRef.getBottomRow(), dstRef.getRightCol(), dstRef.getOwnerSheet());
 				fillRef(srcRef, dstRef, XRange.FILL_COPY);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void fillRight() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref dstRef = _refs.iterator().next();
 				final Ref srcRef = new AreaRefImpl(dstRef.getTopRow(), dstRef.getLeftCol(), dstRef.getBottomRow(), dstRef.getLeftCol(), dstRef.getOwnerSheet());
 				fillRef(srcRef, dstRef, XRange.FILL_COPY);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void fillUp() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Ref dstRef = _refs.iterator().next();
 				final Ref srcRef = new AreaRefImpl(dstRef.getBottomRow(), dstRef.getLeftCol(), dstRef.getBottomRow(), dstRef.getRightCol(), dstRef.getOwnerSheet());
 				fillRef(srcRef, dstRef, XRange.FILL_COPY);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void setHidden(boolean hidden) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			if (_refs != null && !_refs.isEmpty()) {
 				final Set<Ref> all = new HashSet<Ref>();
 				for (Ref ref : _refs) {
@@ -1768,12 +1910,15 @@ public class XRangeImpl implements XRange {
 					BookHelper.notifySizeChanges(book, all);
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void setDisplayGridlines(boolean show) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			final Ref ref = getRefs().iterator().next();
 			final XSheet sheet = BookHelper.getSheet(_sheet, ref.getOwnerSheet());
 			final Set<Ref> all = new HashSet<Ref>(); 
@@ -1787,12 +1932,15 @@ public class XRangeImpl implements XRange {
 				final XBook book = (XBook) sheet.getWorkbook();
 				BookHelper.notifyGridlines(book, all, show);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void protectSheet(String password) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			final Ref ref = getRefs().iterator().next();
 			final XSheet sheet = BookHelper.getSheet(_sheet, ref.getOwnerSheet());
 			final Set<Ref> all = new HashSet<Ref>(); 
@@ -1808,6 +1956,8 @@ public class XRangeImpl implements XRange {
 				final XBook book = (XBook) sheet.getWorkbook();
 				BookHelper.notifyProtectSheet(book, all, password);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -1870,7 +2020,8 @@ public class XRangeImpl implements XRange {
 	
 	@Override
 	public XRange getDependents() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			final Ref ref = getRefs().iterator().next();
 			final XSheet sheet = BookHelper.getSheet(_sheet, ref.getOwnerSheet());
 			final int row = ref.getTopRow();
@@ -1879,12 +2030,15 @@ public class XRangeImpl implements XRange {
 			Set<Ref> refs = ((RefSheetImpl)refSheet).getAllDependents(row, col);
 			return refs != null && !refs.isEmpty() ?
 					new XRangeImpl(refs, sheet) : XRanges.EMPTY_RANGE;
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public XRange getDirectDependents() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			final Ref ref = getRefs().iterator().next();
 			final XSheet sheet = BookHelper.getSheet(_sheet, ref.getOwnerSheet());
 			final int row = ref.getTopRow();
@@ -1893,12 +2047,15 @@ public class XRangeImpl implements XRange {
 			Set<Ref> refs = ((RefSheetImpl)refSheet).getDirectDependents(row, col);
 			return refs != null && !refs.isEmpty() ?
 					new XRangeImpl(refs, sheet) : XRanges.EMPTY_RANGE;
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public XRange getPrecedents() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			final Ref ref = getRefs().iterator().next();
 			final XSheet sheet = BookHelper.getSheet(_sheet, ref.getOwnerSheet());
 			final int row = ref.getTopRow();
@@ -1907,13 +2064,16 @@ public class XRangeImpl implements XRange {
 			Set<Ref> refs = refSheet.getAllPrecedents(row, col);
 			return refs != null && !refs.isEmpty() ?
 					new XRangeImpl(refs, sheet) : XRanges.EMPTY_RANGE;
+		} finally {
+			lock.unlock();
 		}
 		
 	}
 	
 	@Override
 	public XRange getDirectPrecedents() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			final Ref ref = getRefs().iterator().next();
 			final XSheet sheet = BookHelper.getSheet(_sheet, ref.getOwnerSheet());
 			final int row = ref.getTopRow();
@@ -1922,6 +2082,8 @@ public class XRangeImpl implements XRange {
 			Set<Ref> refs = refSheet.getDirectPrecedents(row, col);
 			return refs != null && !refs.isEmpty() ?
 					new XRangeImpl(refs, sheet) : XRanges.EMPTY_RANGE;
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -1951,7 +2113,8 @@ public class XRangeImpl implements XRange {
 
 	@Override
 	public Object getValue() {
-		synchronized (_sheet) {
+		final Lock lock = lockRead();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final int tRow = ref.getTopRow();
@@ -1963,6 +2126,8 @@ public class XRangeImpl implements XRange {
 				}
 			}
 			return null;
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -1982,7 +2147,8 @@ public class XRangeImpl implements XRange {
 	@Override
 	public void setValue(Object value) {
 		//ZSS-78: Implementation of RangeImpl#setValue() is not correct
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				Set<Ref>[] refs = null;
@@ -2012,6 +2178,178 @@ public class XRangeImpl implements XRange {
 					reevaluateAndNotify(refs);
 				}
 			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void setValues(Object[][] values) {
+		final Lock lock = lockWrite();
+		try {
+			setValues0(values, false);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void setEditTexts(String[][] texts) {
+		final Lock lock = lockWrite();
+		try {
+			setValues0(texts, true);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	//write the values (or edit texts, a null one skipped) of the area, then re-evaluate and notify once
+	@SuppressWarnings("unchecked")
+	private void setValues0(Object[][] values, boolean editText) {
+		final Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
+		if (ref == null || values == null || values.length == 0) {
+			return;
+		}
+		final RefSheet refSheet = ref.getOwnerSheet();
+		final int tRow = ref.getTopRow();
+		final int lCol = ref.getLeftCol();
+		final int bRow = tRow + values.length - 1;
+		int rCol = lCol;
+		final Set<Ref> last = new HashSet<Ref>();
+		final Set<Ref> all = new HashSet<Ref>();
+		boolean changed = false;
+		FormulaParseException error = null;
+		//write all cells first
+		for (int r = 0; r < values.length; ++r) {
+			final Object[] rowValues = values[r];
+			if (rowValues == null) {
+				continue;
+			}
+			rCol = Math.max(rCol, lCol + rowValues.length - 1);
+			for (int c = 0; c < rowValues.length; ++c) {
+				final int row = tRow + r;
+				final int col = lCol + c;
+				Object value = rowValues[c];
+				String dateFormat = null;
+				if (editText) {
+					if (value == null) {
+						continue;
+					}
+					final Object[] cellValue = BookHelper.editTextToValue((String) value, getCell(row, col, refSheet));
+					value = cellValue[1];
+					if (((Integer)cellValue[0]).intValue() == Cell.CELL_TYPE_FORMULA) {
+						//formula, the cell has to be set one by one
+						try {
+							final Set<Ref>[] refs = new XRangeImpl(new CellRefImpl(row, col, refSheet), _sheet).setFormula((String) value);
+							last.addAll(refs[0]);
+							all.addAll(refs[1]);
+						} catch (FormulaParseException ex) {
+							if (error == null) {
+								error = ex;
+							}
+						}
+						continue;
+					}
+					if (cellValue.length > 2) {
+						dateFormat = (String) cellValue[2];
+					}
+				}
+				if (value instanceof String && getHyperlinkType((String) value) > 0) {
+					//hyperlink string, the cell has to be set one by one
+					final XRangeImpl cellRange = new XRangeImpl(new CellRefImpl(row, col, refSheet), _sheet);
+					cellRange.setDirectHyperlink(isDirectHyperlink());
+					final Set<Ref>[] refs = cellRange.setValue((String) value);
+					last.addAll(refs[0]);
+					all.addAll(refs[1]);
+				} else {
+					changed |= writeCellValue(row, col, refSheet, value);
+					if (dateFormat != null) {
+						new XRangeImpl(new CellRefImpl(row, col, refSheet), _sheet).setDateFormat(dateFormat);
+					}
+				}
+			}
+		}
+		//then collect the dependents of the whole area at once
+		if (changed) {
+			final XSheet sheet = BookHelper.getSheet(_sheet, refSheet);
+			final Set<Ref>[] refs = BookHelper.getBothDependents(sheet, tRow, lCol, bRow, rCol);
+			last.addAll(refs[0]);
+			all.addAll(refs[1]);
+		}
+		all.add(new AreaRefImpl(tRow, lCol, bRow, rCol, refSheet)); //the written area shall be reloaded, too.
+		reevaluateAndNotify((Set<Ref>[]) new Set[] {last, all});
+		if (error != null) {
+			throw error;
+		}
+	}
+	
+	@Override
+	public void setStyles(CellStyle[][] styles) {
+		final Lock lock = lockWrite();
+		try {
+			final Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
+			if (ref == null || styles == null || styles.length == 0) {
+				return;
+			}
+			final RefSheet refSheet = ref.getOwnerSheet();
+			final XSheet sheet = BookHelper.getSheet(_sheet, refSheet);
+			final int tRow = ref.getTopRow();
+			final int lCol = ref.getLeftCol();
+			int rCol = lCol;
+			for (int r = 0; r < styles.length; ++r) {
+				final CellStyle[] rowStyles = styles[r];
+				if (rowStyles == null) {
+					continue;
+				}
+				rCol = Math.max(rCol, lCol + rowStyles.length - 1);
+				for (int c = 0; c < rowStyles.length; ++c) {
+					if (rowStyles[c] != null) {
+						BookHelper.getOrCreateCell(sheet, tRow + r, lCol + c).setCellStyle(rowStyles[c]);
+					}
+				}
+			}
+			final XBook book = (XBook) _sheet.getWorkbook();
+			CellStyleCSSCache.invalidate(book);
+			final Set<Ref> all = new HashSet<Ref>(1);
+			all.add(new AreaRefImpl(tRow, lCol, tRow + styles.length - 1, rCol, refSheet));
+			BookHelper.notifyCellChanges(book, all);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	//write the value as setValue(Object) does without collecting the dependents; return whether changed
+	private boolean writeCellValue(int row, int col, RefSheet refSheet, Object value) {
+		final int cellType;
+		if (value instanceof FormulaError) {
+			value = Byte.valueOf(((FormulaError)value).getCode());
+			cellType = Cell.CELL_TYPE_ERROR;
+		} else if (value instanceof Byte) {
+			if (isErrorCode((Byte) value)) {
+				cellType = Cell.CELL_TYPE_ERROR;
+			} else {
+				value = Double.valueOf(((Byte)value).doubleValue());
+				cellType = Cell.CELL_TYPE_NUMERIC;
+			}
+		} else if (value instanceof Number || value instanceof Date) {
+			cellType = Cell.CELL_TYPE_NUMERIC;
+		} else if (value instanceof Boolean) {
+			cellType = Cell.CELL_TYPE_BOOLEAN;
+		} else if (value instanceof String || value == null) {
+			cellType = Cell.CELL_TYPE_STRING;
+		} else {
+			throw new IllegalArgumentException("Unknown value type; must be a FormulaError, a leagal errorCode(a Byte), a Number, a String, a Boolean, a Date, or null: " + value);
+		}
+		final Cell cell = getOrCreateCell(row, col, refSheet, cellType);
+		return BookHelper.writeCellValue(cell, value);
+	}
+	
+	private static boolean isErrorCode(Byte value) {
+		try {
+			FormulaError.forInt(value.byteValue());
+			return true;
+		} catch (IllegalArgumentException ex) {
+			return false;
 		}
 	}
 
@@ -2150,7 +2488,8 @@ public class XRangeImpl implements XRange {
 	
 	@Override
 	public XRange getCurrentRegion() {
-		synchronized (_sheet) {
+		final Lock lock = lockRead();
+		try {
 			final Ref ref = getRefs().iterator().next();
 			final int row = ref.getTopRow();
 			final int col = ref.getLeftCol();
@@ -2158,6 +2497,8 @@ public class XRangeImpl implements XRange {
 			return cra == null ? 
 					new XRangeImpl(row, col, _sheet, _sheet) :
 					new XRangeImpl(cra.getFirstRow(), cra.getFirstColumn(), cra.getLastRow(), cra.getLastColumn(), _sheet, _sheet);
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -2411,7 +2752,8 @@ public class XRangeImpl implements XRange {
 		if(_sheet instanceof HSSFSheet){
 			throw new UnsupportedOperationException("filter in HSSF(2003) is not supported yet");
 		}
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			CellRangeAddress affectedArea;
 			final Ref ref = getRefs().iterator().next();
 			if(_sheet.isAutoFilterMode()){
@@ -2446,32 +2788,27 @@ public class XRangeImpl implements XRange {
 			}
 			
 			return _sheet.getAutoFilter();
+		} finally {
+			lock.unlock();
 		}
 	}
 	
-	private boolean canUnhide(AutoFilter af, FilterColumn fc, int row, int col) {
-		final Set<Ref> all = new HashSet<Ref>();
-		final List<FilterColumn> fltcs = af.getFilterColumns();
-		for(FilterColumn fltc: fltcs) {
-			if (fc.equals(fltc)) continue;
-			if (shallHide(fltc, row, col)) { //any FilterColumn that shall hide the row
-				return false;
-			}
+	/**
+	 * Returns the rows (as offsets from the first row) to be shown by the
+	 * criteria of the filter column; null if the criteria shows all rows.
+	 */
+	private BitSet getShownRows(FilterColumn fc, int col, int row, int row2) {
+		final Set critera1 = fc.getCriteria1();
+		if (critera1 == null || critera1.isEmpty()) {
+			return null;
 		}
-		return true;
+		return ((SheetCtrl)_sheet).getFilterIndex().getColumn(col, row, row2).getRows(critera1);
 	}
 	
-	private boolean shallHide(FilterColumn fc, int row, int col) {
-		final Cell cell = BookHelper.getCell(_sheet, row, col + fc.getColId());
-		final boolean blank = BookHelper.isBlankCell(cell); 
-		final String val =  blank ? "=" : BookHelper.getCellText(cell); //"=" means blank!
-		final Set critera1 = fc.getCriteria1();
-		return critera1 != null && !critera1.isEmpty() && !critera1.contains(val);
-	}
-
 	@Override
 	public void showAllData() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			AutoFilter af = _sheet.getAutoFilter();
 			if (af == null) { //no AutoFilter to apply 
 				return;
@@ -2505,6 +2842,8 @@ public class XRangeImpl implements XRange {
 			//update button
 			final XRangeImpl buttonChange = (XRangeImpl) XRanges.range(_sheet, row1, col1, row1, col2);
 			BookHelper.notifyBtnChanges(new HashSet<Ref>(buttonChange.getRefs()));
+		} finally {
+			lock.unlock();
 		}
 	}
 	
@@ -2515,7 +2854,8 @@ public class XRangeImpl implements XRange {
 	 */
 	@Override
 	public void applyFilter() {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			//ZSS-280
 			AutoFilter oldFilter = _sheet.getAutoFilter();
 			
@@ -2555,6 +2895,8 @@ public class XRangeImpl implements XRange {
 					autoFilter((Integer)oldFilterColumn[0], oldFilterColumn[1], (Integer)oldFilterColumn[2], oldFilterColumn[3], null);
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -2571,7 +2913,8 @@ public class XRangeImpl implements XRange {
 		if(_sheet instanceof HSSFSheet){
 			throw new UnsupportedOperationException("filter in HSSF(2003) is not supported yet");
 		}		
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			AutoFilter af = _sheet.getAutoFilter();
 			if (af == null) {
 				af = autoFilter();
@@ -2586,26 +2929,31 @@ public class XRangeImpl implements XRange {
 			final int col =  col1 + field - 1;
 			final int row = row1 + 1;
 			final int row2 = affectedArea.getLastRow();
-			final Set cr1 = fc.getCriteria1();
+			final int size = row2 - row + 1;
+			final BitSet shown = getShownRows(fc, col, row, row2); //null means all
+			final BitSet hidden = new BitSet(size); //hidden by other FilterColumns
+			for (FilterColumn fltc : af.getFilterColumns()) {
+				if (fc.equals(fltc)) continue;
+				final BitSet rows = getShownRows(fltc, col1 + fltc.getColId(), row, row2);
+				if (rows != null) {
+					rows.flip(0, size);
+					hidden.or(rows);
+				}
+			}
 	
 			final Set<Ref> all = new HashSet<Ref>();
 			for (int r = row; r <= row2; ++r) {
-				final Cell cell = BookHelper.getCell(_sheet, r, col); 
-				final String val = BookHelper.isBlankCell(cell) ? "=" : BookHelper.getCellText(cell); //"=" means blank!
-				if (cr1 != null && !cr1.isEmpty() && !cr1.contains(val)) { //to be hidden
-					final Row rowobj = _sheet.getRow(r);
+				final Row rowobj = _sheet.getRow(r);
+				if (shown != null && !shown.get(r - row)) { //to be hidden
 					if (rowobj == null || !rowobj.getZeroHeight()) { //a non-hidden row
 						new XRangeImpl(r, col, _sheet, _sheet).getRows().setHidden(true);
 					}
-				} else { //candidate to be shown (other FieldColumn might still hide this row!
-					final Row rowobj = _sheet.getRow(r);
-					if (rowobj != null && rowobj.getZeroHeight() && canUnhide(af, fc, r, col1)) { //a hidden row and no other hidden filtering
-						final int left = rowobj.getFirstCellNum();
-						final int right = rowobj.getLastCellNum() - 1;
-						final XRangeImpl rng = (XRangeImpl) new XRangeImpl(r, left, r, right, _sheet, _sheet); 
-						all.addAll(rng.getRefs());
-						rng.getRows().setHidden(false); //unhide
-					}
+				} else if (rowobj != null && rowobj.getZeroHeight() && !hidden.get(r - row)) { //a hidden row and no other hidden filtering
+					final int left = rowobj.getFirstCellNum();
+					final int right = rowobj.getLastCellNum() - 1;
+					final XRangeImpl rng = (XRangeImpl) new XRangeImpl(r, left, r, right, _sheet, _sheet); 
+					all.addAll(rng.getRefs());
+					rng.getRows().setHidden(false); //unhide
 				}
 			}
 			
@@ -2616,13 +2964,16 @@ public class XRangeImpl implements XRange {
 			BookHelper.notifyBtnChanges(new HashSet<Ref>(buttonChange.getRefs()));
 			
 			return af;
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public Chart addChart(ClientAnchor anchor, ChartData data, ChartType type,
 			ChartGrouping grouping, LegendPosition pos) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			final DrawingManager dm = ((SheetCtrl)_sheet).getDrawingManager();
 			final XSSFChartX chartX = (XSSFChartX) dm.addChartX(_sheet, anchor, data, type, grouping, pos);
 			final XRangeImpl rng = (XRangeImpl) XRanges.range(_sheet, anchor.getRow1(), anchor.getCol1(), anchor.getRow2(), anchor.getCol2());
@@ -2632,12 +2983,15 @@ public class XRangeImpl implements XRange {
 				BookHelper.notifyChartAdd(ref, chartX);
 			}
 			return chartX.getChart();
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public Picture addPicture(ClientAnchor anchor, byte[] image, int format) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			DrawingManager dm = ((SheetCtrl)_sheet).getDrawingManager();
 			final Picture picture = dm.addPicture(_sheet, anchor, image, format);
 			final XRangeImpl rng = (XRangeImpl) XRanges.range(_sheet, anchor.getRow1(), anchor.getCol1(), anchor.getRow2(), anchor.getCol2());
@@ -2647,12 +3001,15 @@ public class XRangeImpl implements XRange {
 				BookHelper.notifyPictureAdd(ref, picture);
 			}
 			return picture;
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void deletePicture(Picture picture) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			DrawingManager dm = ((SheetCtrl)_sheet).getDrawingManager();
 			ClientAnchor anchor = picture.getPreferredSize();
 			final XRangeImpl rng = (XRangeImpl) XRanges.range(_sheet, anchor.getRow1(), anchor.getCol1(), anchor.getRow2(), anchor.getCol2());
@@ -2665,12 +3022,15 @@ public class XRangeImpl implements XRange {
 				final Ref ref = refs.iterator().next();
 				BookHelper.notifyPictureDelete(ref, id);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void movePicture(Picture picture, ClientAnchor anchor) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			DrawingManager dm = ((SheetCtrl)_sheet).getDrawingManager();
 			dm.movePicture(_sheet, picture, anchor);
 			final XRangeImpl rng = (XRangeImpl) XRanges.range(_sheet, anchor.getRow1(), anchor.getCol1(), anchor.getRow2(), anchor.getCol2());
@@ -2679,12 +3039,15 @@ public class XRangeImpl implements XRange {
 				final Ref ref = refs.iterator().next();
 				BookHelper.notifyPictureUpdate(ref, picture);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void moveChart(Chart chart, ClientAnchor anchor) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			DrawingManager dm = ((SheetCtrl)_sheet).getDrawingManager();
 			ZssChartX chartX = dm.getChartX(chart);
 			if(chartX==null) return;
@@ -2696,12 +3059,15 @@ public class XRangeImpl implements XRange {
 				final Ref ref = refs.iterator().next();
 				BookHelper.notifyChartUpdate(ref, chartX);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void deleteChart(Chart chart) {
-		synchronized (_sheet) {
+		final Lock lock = lockWrite();
+		try {
 			DrawingManager dm = ((SheetCtrl)_sheet).getDrawingManager();
 			ClientAnchor anchor = chart.getPreferredSize();
 			final XRangeImpl rng = (XRangeImpl) XRanges.range(_sheet, anchor.getRow1(), anchor.getCol1(), anchor.getRow2(), anchor.getCol2());
@@ -2713,6 +3079,8 @@ public class XRangeImpl implements XRange {
 				final Ref ref = refs.iterator().next();
 				BookHelper.notifyChartDelete(ref, id);
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -2734,7 +3102,8 @@ public class XRangeImpl implements XRange {
 	
 	@Override
 	public void createSheet(String name) {
-		synchronized (_sheet.getBook()) {
+		final Lock lock = lockWrite();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final XBook book = _sheet.getBook();
@@ -2747,12 +3116,15 @@ public class XRangeImpl implements XRange {
 					BookHelper.notifyCreateSheet(ref, name);
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void setSheetName(String name) {
-		synchronized (_sheet.getBook()) {
+		final Lock lock = lockWrite();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final XBook book = _sheet.getBook();
@@ -2766,12 +3138,15 @@ public class XRangeImpl implements XRange {
 					}
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 	
 	@Override
 	public void setSheetOrder(int pos) {
-		synchronized (_sheet.getBook()) {
+		final Lock lock = lockWrite();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final XBook book = _sheet.getBook();
@@ -2784,12 +3159,15 @@ public class XRangeImpl implements XRange {
 					}
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void deleteSheet() {
-		synchronized (_sheet.getBook()) {
+		final Lock lock = lockWrite();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				final XBook book = _sheet.getBook();
@@ -2810,6 +3188,8 @@ public class XRangeImpl implements XRange {
 					}
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -2843,12 +3223,15 @@ public class XRangeImpl implements XRange {
 	}
 	
 	public void setFreezePanel(int rowfreeze, int columnfreeze){
-		synchronized (_sheet.getBook()) {
+		final Lock lock = lockWrite();
+		try {
 			Ref ref = _refs != null && !_refs.isEmpty() ? _refs.iterator().next() : null;
 			if (ref != null) {
 				BookHelper.setFreezePanel(_sheet, rowfreeze, columnfreeze);
 				BookHelper.notifyFreezeSheet(ref, new Object[] {rowfreeze, columnfreeze});
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 }
@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -32,6 +33,7 @@ import org.zkoss.poi.ss.SpreadsheetVersion;
 import org.zkoss.poi.ss.formula.FormulaParser;
 import org.zkoss.poi.ss.formula.FormulaType;
 import org.zkoss.poi.ss.formula.SheetNameFormatter;
+import org.zkoss.poi.ss.formula.DependencyTracker;
 import org.zkoss.poi.ss.formula.WorkbookEvaluator;
 import org.zkoss.poi.ss.formula.ptg.Ptg;
 import org.zkoss.poi.ss.formula.udf.UDFFinder;
@@ -42,6 +44,7 @@ import org.zkoss.poi.ss.usermodel.PictureData;
 import org.zkoss.poi.ss.usermodel.PivotCache;
 import org.zkoss.poi.ss.util.AreaReference;
 import org.zkoss.poi.ss.util.CellRangeAddress;
+import org.zkoss.poi.xssf.model.CalculationChain;
 import org.zkoss.poi.xssf.usermodel.XSSFColor;
 import org.zkoss.poi.xssf.usermodel.XSSFEvaluationWorkbook;
 import org.zkoss.poi.xssf.usermodel.XSSFFont;
@@ -60,6 +63,7 @@ import org.zkoss.zss.formula.DefaultFunctionResolver;
 import org.zkoss.zss.formula.FunctionResolver;
 import org.zkoss.zss.formula.NoCacheClassifier;
 import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XBookLock;
 import org.zkoss.zss.model.sys.XBookSeries;
 import org.zkoss.zss.model.sys.XSheet;
 
@@ -70,14 +74,21 @@ import org.zkoss.zss.model.sys.XSheet;
  */
 public class XSSFBookImpl extends XSSFWorkbook implements XBook, BookCtrl {
 	private final String _bookname;
-	private final FormulaEvaluator _evaluator;
-	private final WorkbookEvaluator _bookEvaluator;
-	private final FunctionMapper _functionMapper;
-	private final VariableResolver _variableResolver;
+	private FormulaEvaluator _evaluator;
+	private WorkbookEvaluator _bookEvaluator;
+	private FunctionMapper _functionMapper;
+	private VariableResolver _variableResolver;
 	private RefBook _refBook;
 	private XBookSeries _bookSeries;
+	private DependencyTracker _dependencyTracker;
+	private boolean _parallelEvaluation = "true".equals(Library.getProperty(BookHelper.PARALLEL_EVALUATION));
+	private final XBookLock _lock = new XBookLock();
+	private volatile XBookLock _seriesLock; //shared by the books of the book series
 	private int _defaultCharWidth = 7; //TODO: don't know how to calculate this yet per the default font.
 	
+	/** Library property to read the sheet parts of a book when first asked instead of when the book is loaded. */
+	public static final String LAZY_SHEETS = "org.zkoss.zss.model.lazySheets";
+	
 	//override the XSSFSheet Relation
 	static {
 		Field fd = null;
@@ -99,10 +110,21 @@ public class XSSFBookImpl extends XSSFWorkbook implements XBook, BookCtrl {
 
 	public XSSFBookImpl(String bookname, InputStream is) throws IOException {
 		super(is);
-		for(XSSFSheet sheet : this) {
-			((SheetCtrl)sheet).initMerged();
-		}
 		_bookname = bookname;
+		init();
+	}
+	
+	/**
+	 * Creates a book without any sheet; used by the importers that build the
+	 * sheets themselves (see {@link StreamingExcelImporter}).
+	 */
+	/*package*/ XSSFBookImpl(String bookname) {
+		super();
+		_bookname = bookname;
+		init();
+	}
+	
+	private void init() {
 		FunctionResolver resolver = (FunctionResolver) BookHelper.getLibraryInstance(FunctionResolver.CLASS);
 		if (resolver == null) resolver = new DefaultFunctionResolver();
 		
@@ -113,16 +135,70 @@ public class XSSFBookImpl extends XSSFWorkbook implements XBook, BookCtrl {
 		}
 		_evaluator = XSSFFormulaEvaluator.create(this, NoCacheClassifier.instance, TolerantUDFFinder.instance); 
 		_bookEvaluator = _evaluator.getWorkbookEvaluator(); 
-		_bookEvaluator.setDependencyTracker(resolver.getDependencyTracker(this));
+		_dependencyTracker = resolver.getDependencyTracker(this);
+		_bookEvaluator.setDependencyTracker(_dependencyTracker);
 		_functionMapper = new JoinFunctionMapper(resolver.getFunctionMapper());
 		_variableResolver = new JoinVariableResolver();
 	}
 	
+	/**
+	 * Returns whether the sheet parts are read when a sheet is first asked
+	 * (e.g. by {@link #getWorksheetAt(int)}, or by a formula referring to the
+	 * sheet) rather than when the book is loaded; the sheet names, order and
+	 * the defined names are always read with the book. 
+	 */
+	/*package*/ static boolean isLazySheets() {
+		return "true".equals(Library.getProperty(LAZY_SHEETS));
+	}
+	
 	/*package*/ WorkbookEvaluator getWorkbookEvaluator() {
 		return _bookEvaluator;
 	}
 	
-	/*package*/ RefBook getOrCreateRefBook() {
+	/*package*/ DependencyTracker getDependencyTracker() {
+		return _dependencyTracker;
+	}
+	
+	/**
+	 * Create a new formula evaluator of this book with its own evaluation 
+	 * cache; used by a thread evaluating formulas besides the book evaluator.
+	 */
+	/*package*/ FormulaEvaluator newFormulaEvaluator(DependencyTracker tracker) {
+		final XSSFFormulaEvaluator evaluator = XSSFFormulaEvaluator.create(this, NoCacheClassifier.instance, TolerantUDFFinder.instance);
+		evaluator.getWorkbookEvaluator().setDependencyTracker(tracker);
+		return evaluator;
+	}
+	
+	/**
+	 * Removes the calculation chain, which lists the formula cells by their
+	 * references; used when rows are shifted without renumbering the cell
+	 * references one by one (Excel rebuilds the chain when it is missing).
+	 */
+	/*package*/ void removeCalculationChain() {
+		final CalculationChain chain = getCalculationChain();
+		if (chain != null) {
+			removeRelation(chain);
+			//XSSFWorkbook keeps using its field, e.g. to remove a deleted formula from the stale chain
+			Field fd = null;
+			try {
+				fd = Classes.getAnyField(XSSFWorkbook.class, "calcChain");
+			} catch (NoSuchFieldException e) {
+				throw new RuntimeException(e);
+			}
+			final boolean old = fd.isAccessible();
+			try {
+				fd.setAccessible(true);
+				fd.set(this, null);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			} finally {
+				fd.setAccessible(old);
+			}
+		}
+	}
+	
+	//the readers sharing the read lock of this book might ask at the same time
+	/*package*/ synchronized RefBook getOrCreateRefBook() {
 		if (_refBook == null) {
 			_refBook = newRefBook(this);
 		}
@@ -133,8 +209,9 @@ public class XSSFBookImpl extends XSSFWorkbook implements XBook, BookCtrl {
 		return _bookSeries;
 	}
 	
-	/*package*/ void setBookSeries(XBookSeries books) {
+	/*package*/ void setBookSeries(XBookSeries books, XBookLock seriesLock) {
 		_bookSeries = books;
+		_seriesLock = seriesLock;
 	}
 	
 	/*package*/ VariableResolver getVariableResolver() {
@@ -397,6 +474,37 @@ public class XSSFBookImpl extends XSSFWorkbook implements XBook, BookCtrl {
 		getOrCreateRefBook().setShareScope(scope);
 	}
 	
+	//--XSSFWorkbook--//
+	@Override
+	public XSSFSheet getSheetAt(int index) {
+		final XSSFSheet sheet = super.getSheetAt(index);
+		((XSSFSheetImpl)sheet).readDeferred();
+		return sheet;
+	}
+	
+	@Override
+	public XSSFSheet getSheet(String name) {
+		final XSSFSheet sheet = super.getSheet(name);
+		if (sheet != null) {
+			((XSSFSheetImpl)sheet).readDeferred();
+		}
+		return sheet;
+	}
+	
+	@Override
+	public Iterator<XSSFSheet> iterator() {
+		for (int j = 0, len = getNumberOfSheets(); j < len; ++j) {
+			getSheetAt(j);
+		}
+		return super.iterator();
+	}
+	
+	@Override
+	public XSSFSheet cloneSheet(int sheetNum) {
+		getSheetAt(sheetNum);
+		return super.cloneSheet(sheetNum);
+	}
+	
 	@Override
 	public XSheet getWorksheet(String name) {
 		return (XSheet) getSheet(name);
@@ -407,10 +515,37 @@ public class XSSFBookImpl extends XSSFWorkbook implements XBook, BookCtrl {
 		return super.isDate1904();
 	}
 
+	@Override
+	public void setParallelEvaluation(boolean parallel) {
+		_parallelEvaluation = parallel;
+	}
+
+	@Override
+	public boolean isParallelEvaluation() {
+		return _parallelEvaluation;
+	}
+
+	@Override
+	public XBookLock getLock() {
+		final XBookLock lock = _seriesLock;
+		return lock != null ? lock : _lock;
+	}
+
 	@Override
 	public XSheet getWorksheetAt(int index) {
 		return (XSheet) getSheetAt(index);
 	}
+	
+	@Override
+	public String getSheetUuid(int index) {
+		//don't read the sheet part just for the uuid
+		return ((SheetCtrl)super.getSheetAt(index)).getUuid();
+	}
+
+	@Override
+	public boolean isSheetRead(int index) {
+		return !((XSSFSheetImpl)super.getSheetAt(index)).isDeferred();
+	}
 
     
 	//--BookCtrl--//
@@ -12,11 +12,14 @@ Copyright (C) 2010 Potix Corporation. All Rights Reserved.
 
 package org.zkoss.zss.model.sys.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -95,6 +98,83 @@ public class XSSFSheetImpl extends XSSFSheet implements SheetCtrl, XSheet {
         super(part, rel);
     }
 
+    //the sheet part is not read yet; see XSSFBookImpl#isLazySheets()
+    private volatile boolean _deferred;
+
+    @Override
+    protected void onDocumentRead() {
+    	if (XSSFBookImpl.isLazySheets()) {
+    		_deferred = true;
+    	} else {
+    		super.onDocumentRead();
+    		initMerged();
+    	}
+    }
+
+    /*package*/ boolean isDeferred() {
+    	return _deferred;
+    }
+
+    /**
+     * Reads the sheet part if its reading was deferred when the book was
+     * loaded; returns whether the part is read by this call.
+     */
+    /*package*/ boolean readDeferred() {
+    	if (_deferred) {
+    		synchronized(this) {
+    			if (_deferred) {
+    				super.onDocumentRead();
+    				initMerged();
+    				_deferred = false;
+    				return true;
+    			}
+    		}
+    	}
+    	return false;
+    }
+
+    //rows shifted without renumbering the references of their cells; see #shiftRow
+    private final Set<XSSFRow> _unnumberedRows = Collections.newSetFromMap(new IdentityHashMap<XSSFRow, Boolean>());
+
+    //both commit() and XSSFWorkbook#cloneSheet serialize the sheet with it
+    @Override
+    protected void write(OutputStream out) throws IOException {
+    	readDeferred();
+    	renumberCells();
+    	super.write(out);
+    }
+
+    @Override
+    public void removeRow(Row row) {
+    	_unnumberedRows.remove(row);
+    	super.removeRow(row);
+    }
+
+    //changes the row number only; the cell references, used only when the
+    //sheet is written, are renumbered then (see #renumberCells), so shifting
+    //rows does not touch every cell below
+    private void shiftRow(XSSFRow row, int n) {
+    	if (_unnumberedRows.isEmpty()) {
+    		//the chain refers the formula cells by the references to be stale
+    		((XSSFBookImpl)getBook()).removeCalculationChain();
+    	}
+    	new XSSFRowHelper(row).shiftRowNum(n);
+    	_unnumberedRows.add(row);
+    }
+
+    private void renumberCells() {
+    	for (XSSFRow row : _unnumberedRows) {
+    		new XSSFRowHelper(row).renumberCells();
+    	}
+    	_unnumberedRows.clear();
+    }
+
+    @Override
+    public void setSelected(boolean value) {
+    	readDeferred();
+    	super.setSelected(value);
+    }
+
     @Override
     public int addMergedRegion(CellRangeAddress region)
     {
@@ -167,10 +247,14 @@ public class XSSFSheetImpl extends XSSFSheet implements SheetCtrl, XSheet {
     	
         final List<CellRangeAddress[]> shiftedRanges = BookHelper.shiftMergedRegion(this, startRow, 0, maxrow, maxcol, n, false);
     	
-    	//shift the rows (actually change the row number only)
+    	//shift the rows (actually change the row number only); the rows above 
+        //are kept except those overridden by the rows shifted up. It is still
+        //O(rows below): every row below is visited and the tail of the map is
+        //rebuilt, only the work per cell is saved
+        final int fromRow = Math.min(startRow, startRow + n);
         List<Row> rowsToRemove = new ArrayList<Row>(); // ZSS-419: queue row for removing later, remove can't be perform in this loop 
-        for (Iterator<Row> it = rowIterator() ; it.hasNext() ; ) {
-            XSSFRow row = (XSSFRow)it.next();
+        for (Iterator<XSSFRow> it = getRows().tailMap(fromRow).values().iterator() ; it.hasNext() ; ) {
+            XSSFRow row = it.next();
             int rownum = row.getRowNum();
             
             if(rownum < startRow) {
@@ -195,7 +279,7 @@ public class XSSFSheetImpl extends XSSFSheet implements SheetCtrl, XSheet {
             if (canRemoveRow(startRow, endRow, n, rownum)) {
             	rowsToRemove.add(row);
             } else if (rownum >= startRow && rownum <= endRow) {
-                new XSSFRowHelper(row).shift(n);
+                shiftRow(row, n);
             }
         }
         
@@ -204,13 +288,13 @@ public class XSSFSheetImpl extends XSSFSheet implements SheetCtrl, XSheet {
 			removeRow(row);
 		}
         
-        //rebuild the _rows map ASAP or getRow(rownum) will be incorrect
-        TreeMap<Integer, XSSFRow> rows = getRows();
-        TreeMap<Integer, XSSFRow> map = new TreeMap<Integer, XSSFRow>();
-        for(XSSFRow r : rows.values()) {
-            map.put(r.getRowNum(), r);
+        //rebuild the tail of the _rows map ASAP or getRow(rownum) will be incorrect
+        final SortedMap<Integer, XSSFRow> tail = getRows().tailMap(fromRow);
+        final List<XSSFRow> tailRows = new ArrayList<XSSFRow>(tail.values());
+        tail.clear();
+        for(XSSFRow r : tailRows) {
+            getRows().put(r.getRowNum(), r);
         }
-        setRows(map);
         
         //handle inserted rows
         if (srcRow != null) {
@@ -466,7 +550,7 @@ public class XSSFSheetImpl extends XSSFSheet implements SheetCtrl, XSheet {
 	                rowsToRemove.add(row);
 	            }
 	            else if (rownum >= startRow && rownum <= endRow) {
-	                new XSSFRowHelper(row).shift(n);
+	                shiftRow(row, n);
 	            }
             } else {
             	SortedMap<Integer, XSSFCell> oldCells = row.getCells().subMap(Integer.valueOf(lCol), Integer.valueOf(rCol+1));
@@ -1239,6 +1323,16 @@ public class XSSFSheetImpl extends XSSFSheet implements SheetCtrl, XSheet {
 	public boolean isEvalAll() {
 		return getSheetCtrl().isEvalAll();
 	}
+
+	@Override
+	public void buildDependencies() {
+		getSheetCtrl().buildDependencies();
+	}
+
+	@Override
+	public boolean isDependencyBuilt() {
+		return getSheetCtrl().isDependencyBuilt();
+	}
 	@Override
 	public String getUuid() {
 		return getSheetCtrl().getUuid();
@@ -1266,6 +1360,10 @@ public class XSSFSheetImpl extends XSSFSheet implements SheetCtrl, XSheet {
 		return getSheetCtrl().getDrawingManager();
 	}
 	@Override
+	public FilterIndex getFilterIndex() {
+		return getSheetCtrl().getFilterIndex();
+	}
+	@Override
 	public void whenRenameSheet(String oldname, String newname) {
 		getSheetCtrl().whenRenameSheet(oldname, newname);
 		//handle formula reference
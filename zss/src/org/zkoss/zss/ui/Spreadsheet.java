@@ -125,6 +125,8 @@ import org.zkoss.zss.ui.event.StartEditingEvent;
 import org.zkoss.zss.ui.event.StopEditingEvent;
 import org.zkoss.zss.ui.impl.ActiveRangeHelper;
 import org.zkoss.zss.ui.impl.CellFormatHelper;
+import org.zkoss.zss.ui.impl.CellRenderSnapshot;
+import org.zkoss.zss.ui.impl.DataBlockEncoder;
 import org.zkoss.zss.ui.impl.Focus;
 import org.zkoss.zss.ui.impl.HeaderPositionHelper;
 import org.zkoss.zss.ui.impl.HeaderPositionHelper.HeaderPositionInfo;
@@ -151,6 +153,7 @@ import org.zkoss.zss.ui.sys.SpreadsheetCtrl;
 import org.zkoss.zss.ui.sys.SpreadsheetCtrl.CellAttribute;
 import org.zkoss.zss.ui.sys.DataValidationHandler;
 import org.zkoss.zss.ui.sys.UndoableAction;
+import org.zkoss.zss.ui.sys.SizedUndoableActionManager;
 import org.zkoss.zss.ui.sys.UndoableActionManager;
 import org.zkoss.zss.ui.sys.UserActionManagerCtrl;
 import org.zkoss.zss.ui.sys.SpreadsheetInCtrl;
@@ -208,6 +211,7 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 //	public static final String TOOLBAR_DISABLED_ACTION = "org.zkoss.zss.ui.ToolbarAction.disabled";
 	private static final String USER_ACTION_MANAGER_CTRL_CLS = "org.zkoss.zss.ui.UserActionManagerCtrl.class";
 	private static final String UNDOABLE_ACTION_MANAGER_CLS = "org.zkoss.zss.ui.UndoableActionManager.class";
+	private static final String UNDOABLE_ACTION_MANAGER_MAX_BYTES = "org.zkoss.zss.ui.UndoableActionManager.maxHistoryBytes";
 	private static final String CELL_DISPLAY_LOADER_CLS = "org.zkoss.zss.ui.CellDisplayLoader.class";
 	private static final String DATA_VALIDATION_HANDLER_CLS = "org.zkoss.zss.ui.DataValidationHandler.class";
 	private static final String FREEZE_INFO_LOCADER_CLS = "org.zkoss.zss.ui.FreezeInfoLoader.class";
@@ -326,6 +330,10 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 	
 	private static Integer _defMaxRenderedCellSize;
 	
+	private int _dataBlockVersion; //negotiated compact data block encoding, 0: JSON per cell
+	
+	private static Boolean _defCompactDataBlock;
+	
 	private Set<AuxAction> _actionDisabled = new HashSet();
 //	
 //	private static Set<UserAction> _defToolbarActiobDisabled;
@@ -453,6 +461,12 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 		return _defMaxRenderedCellSize;
 	}
 	
+	private static boolean isDefaultCompactDataBlock() {
+		if (_defCompactDataBlock == null)
+			_defCompactDataBlock = Boolean.valueOf(Library.getProperty("org.zkoss.zss.spreadsheet.compactDataBlock", "true"));
+		return _defCompactDataBlock;
+	}
+	
 //	private static Set<UserAction> getDefaultActiobDisabled() {
 //		if (_defToolbarActiobDisabled == null) {
 //			_defToolbarActiobDisabled = new HashSet<UserAction>();
@@ -1497,14 +1511,15 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 		int len = _book.getNumberOfSheets();
 		List<LinkedHashMap<String, String>> ary = new ArrayList<LinkedHashMap<String, String>>(len);
 
+		//don't read the sheets (see XBook#getSheetUuid) 
+		int selected = _selectedSheet == null ? -1 : _book.getSheetIndex(_selectedSheet);
 		for (int i = 0; i < len; i++) {
 			//key: sheet names, value: sheet uuid
 			LinkedHashMap<String, String> sheetLabels = new LinkedHashMap<String, String>();
 			
-			XSheet sheet = _book.getWorksheetAt(i);
-			sheetLabels.put("id", ((SheetCtrl)sheet).getUuid());
-			sheetLabels.put("name", sheet.getSheetName());
-			if (sheet == _selectedSheet)
+			sheetLabels.put("id", _book.getSheetUuid(i));
+			sheetLabels.put("name", _book.getSheetName(i));
+			if (i == selected)
 				sheetLabels.put("sel", "t");//stand for true, use for set selected tab only 
 				
 			ary.add(sheetLabels);
@@ -2904,6 +2919,10 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 			_visibleArea.setArea(top, left, bottom, right);
 			getWidgetHandler().onLoadOnDemand(getSelectedXSheet(), left, top, right, bottom);
 		}
+		
+		public void setDataBlockVersion(int version) {
+			_dataBlockVersion = isDefaultCompactDataBlock() ? Math.min(version, DataBlockEncoder.VERSION) : 0;
+		}
 
 		public AreaRef getVisibleArea() {
 			return (AreaRef) _visibleArea.cloneSelf();
@@ -3045,6 +3064,7 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 		 *  <li>at: range update Attribute Type</li>
 		 *  <li>rs: rows, a JSONArray object</li>
 		 *  <li>cs: cells, a JSONArray object</li>
+		 *  <li>cb: cells of all rows encoded by {@link DataBlockEncoder} instead of cs, if negotiated</li>
 		 * 	<li>s: strings, a JSONArray object</li>
 		 *  <li>st: styles, a JSONArray object</li>
 		 *  <li>m: merge attributes</li>
@@ -3076,14 +3096,32 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 			StringAggregation styleAggregation = new StringAggregation();
 			StringAggregation textAggregation = new StringAggregation();
 			MergeAggregation mergeAggregation = new MergeAggregation(getMergeMatrixHelper(sheet));
-			for (int row = top; row <= bottom; row++) {
-				JSONObject r = getRowAttrs(row);
-				rows.add(r);
-				
-				JSONArray cells = new JSONArray();
-				r.put("cs", cells);
-				for (int col = left; col <= right; col++) {
-					cells.add(getCellAttr(sheet, type, row, col, styleAggregation, textAggregation, mergeAggregation));
+			CellRenderSnapshot snapshot = new CellRenderSnapshot(_book);
+			if (_dataBlockVersion > 0) {
+				//compact cell records, decoded by zss.DataBlock at client
+				DataBlockEncoder encoder = new DataBlockEncoder();
+				Map<Object, Object> cellAttrs = new HashMap<Object, Object>();
+				for (int row = top; row <= bottom; row++) {
+					rows.add(getRowAttrs(row));
+					for (int col = left; col <= right; col++) {
+						cellAttrs.clear();
+						putCellAttrs(sheet, type, row, col, styleAggregation, textAggregation, mergeAggregation, snapshot, cellAttrs);
+						encoder.add(cellAttrs);
+					}
+				}
+				attrs.put("cb", encoder.toBase64());
+			} else {
+				for (int row = top; row <= bottom; row++) {
+					JSONObject r = getRowAttrs(row);
+					rows.add(r);
+					
+					JSONArray cells = new JSONArray();
+					r.put("cs", cells);
+					for (int col = left; col <= right; col++) {
+						JSONObject cellAttrs = new JSONObject();
+						putCellAttrs(sheet, type, row, col, styleAggregation, textAggregation, mergeAggregation, snapshot, cellAttrs);
+						cells.add(cellAttrs);
+					}
 				}
 			}
 			
@@ -3170,6 +3208,12 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 		 * </ul>
 		 */
 		public JSONObject getCellAttr(XSheet sheet, CellAttribute type, int row, int col, StringAggregation styleAggregation, StringAggregation textAggregation, MergeAggregation mergeAggregation) {
+			JSONObject attrs = new JSONObject();
+			putCellAttrs(sheet, type, row, col, styleAggregation, textAggregation, mergeAggregation, new CellRenderSnapshot(_book), attrs);
+			return attrs;
+		}
+		
+		private void putCellAttrs(XSheet sheet, CellAttribute type, int row, int col, StringAggregation styleAggregation, StringAggregation textAggregation, MergeAggregation mergeAggregation, CellRenderSnapshot snapshot, Map<Object, Object> attrs) {
 			boolean updateAll = type == CellAttribute.ALL,
 				updateText = (updateAll || type == CellAttribute.TEXT),
 				updateStyle = (updateAll || type == CellAttribute.STYLE),
@@ -3177,7 +3221,6 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 				updateMerge = (updateAll || type == CellAttribute.MERGE);
 			
 			Cell cell = XUtils.getCell(sheet, row, col);
-			JSONObject attrs = new JSONObject();
 			
 			//row num, cell num attr
 //			if (cell != null) {
@@ -3223,7 +3266,7 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 			
 			//style attr
 			if (updateStyle) {
-				CellFormatHelper cfh = new CellFormatHelper(sheet, row, col, getMergeMatrixHelper(sheet));
+				CellFormatHelper cfh = new CellFormatHelper(sheet, row, col, getMergeMatrixHelper(sheet), snapshot);
 				String style = cfh.getHtmlStyle();
 				if (!Strings.isEmpty(style)) {
 					int idx = styleAggregation.add(style);
@@ -3246,10 +3289,18 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 				
 				if (updateText) {
 					if (cellType != Cell.CELL_TYPE_BLANK) {
-						String cellText = getCellDisplayLoader().getCellHtmlText(sheet, row, col);
+						//the default loader (and a loader extending it) shares the evaluated and formatted cell of the snapshot
+						final CellRenderSnapshot old = CellRenderSnapshot.getCurrent();
+						final String cellText;
+						try {
+							CellRenderSnapshot.setCurrent(snapshot);
+							cellText = getCellDisplayLoader().getCellHtmlText(sheet, row, col);
+						} finally {
+							CellRenderSnapshot.setCurrent(old);
+						}
 						
-						final String editText = XUtils.getEditText(sheet, row, col);
-						final String formatText = XUtils.getCellFormatText(sheet, row, col);
+						final String editText = snapshot.getEditText(cell);
+						final String formatText = snapshot.getCellFormatText(cell);
 						
 						if (Objects.equals(cellText, editText) && Objects.equals(editText, formatText)) {
 							attrs.put("meft", textAggregation.add(cellText));
@@ -3301,7 +3352,6 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 					}
 				}
 			}
-			return attrs;
 		}
 
 		public void insertColumns(XSheet sheet, int col, int size) {
@@ -5222,6 +5272,19 @@ public class Spreadsheet extends XulElement implements Serializable, AfterCompos
 			} else {
 				_undoableActionManager = new DummyUndoableActionManager();
 			}
+			if (_undoableActionManager instanceof SizedUndoableActionManager) {
+				Object bytes = getAttribute(UNDOABLE_ACTION_MANAGER_MAX_BYTES, true);
+				if (bytes == null) {
+					bytes = Library.getProperty(UNDOABLE_ACTION_MANAGER_MAX_BYTES);
+				}
+				if (bytes != null) {
+					try {
+						((SizedUndoableActionManager) _undoableActionManager).setMaxHistoryBytes(Long.parseLong(bytes.toString().trim()));
+					} catch (NumberFormatException x) {
+						throw new UiException(x);
+					}
+				}
+			}
 			_undoableActionManager.bind(this);
 		}
 		return _undoableActionManager;
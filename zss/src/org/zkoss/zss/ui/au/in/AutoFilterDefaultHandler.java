@@ -31,10 +31,7 @@ import org.zkoss.json.JSONArray;
 import org.zkoss.lang.Objects;
 import org.zkoss.lang.Strings;
 import org.zkoss.poi.ss.usermodel.AutoFilter;
-import org.zkoss.poi.ss.usermodel.Cell;
-import org.zkoss.poi.ss.usermodel.DateUtil;
 import org.zkoss.poi.ss.usermodel.FilterColumn;
-import org.zkoss.poi.ss.usermodel.RichTextString;
 import org.zkoss.poi.ss.usermodel.Row;
 import org.zkoss.zss.api.AreaRef;
 import org.zkoss.zss.api.model.Sheet;
@@ -42,9 +39,9 @@ import org.zkoss.zss.api.model.impl.SheetImpl;
 import org.zkoss.zss.model.sys.XRange;
 import org.zkoss.zss.model.sys.XRanges;
 import org.zkoss.zss.model.sys.XSheet;
-import org.zkoss.zss.model.sys.impl.BookHelper;
+import org.zkoss.zss.model.sys.impl.FilterColumnIndex;
+import org.zkoss.zss.model.sys.impl.SheetCtrl;
 import org.zkoss.zss.ui.Spreadsheet;
-import org.zkoss.zss.ui.impl.XUtils;
 
 /**
  * a util to help command to handle 'dirty' directly.
@@ -111,32 +108,25 @@ import org.zkoss.zss.ui.impl.XUtils;
 		blankRowInfo = new FilterRowInfo(BLANK_VALUE, "(Blanks)");
 		final Set criteria1 = fc == null ? null : fc.getCriteria1();
 		boolean hasBlank = false;
-		boolean hasSelectedBlank = false;
 		final int top = range.getRow() + 1;
 		final int bottom = range.getLastRow();
 		final int columnIndex = range.getColumn() + field - 1;
-		for (int i = top; i <= bottom; i++) {
-			final Cell c = XUtils.getCell(worksheet, i, columnIndex);
-			if (!BookHelper.isBlankCell(c)) {
-				String displaytxt = BookHelper.getCellText(c);
-				Object val = BookHelper.getEvalCellValue(c);
-				if (val instanceof RichTextString) {
-					val = ((RichTextString)val).getString();
-				} else if (c.getCellType() == Cell.CELL_TYPE_NUMERIC && DateUtil.isCellDateFormatted(c)) {
-					val = c.getDateCellValue();
-				}
-				FilterRowInfo rowInfo = new FilterRowInfo(val, displaytxt);
+		//distinct display texts from the filter index instead of scanning the whole column
+		final FilterColumnIndex index = ((SheetCtrl)worksheet).getFilterIndex().getColumn(columnIndex, top, bottom);
+		final boolean noFilterApplied = criteria1 == null || criteria1.isEmpty();
+		for (FilterColumnIndex.Entry entry : index.getEntries()) {
+			if (!entry.isBlank()) {
+				final String displaytxt = entry.getText();
+				FilterRowInfo rowInfo = new FilterRowInfo(entry.getValue(), displaytxt);
 				//ZSS-299
 				orderedRowInfos.add(rowInfo);
-				if (criteria1 == null || criteria1.isEmpty() || criteria1.contains(displaytxt)) { //selected
+				if (noFilterApplied || criteria1.contains(displaytxt)) { //selected
 					rowInfo.setSelected(true);
 				}
 			} else {
 				hasBlank = true;
-				boolean noFilterApplied = criteria1 == null || criteria1.isEmpty(); 
-				if (!hasSelectedBlank && (noFilterApplied || criteria1.contains("="))) { //"=" means blank is selected
+				if (noFilterApplied || criteria1.contains(FilterColumnIndex.BLANK)) { //"=" means blank is selected
 					blankRowInfo.setSelected(true);
-					hasSelectedBlank = true;
 				}
 			}
 		}
@@ -83,7 +83,7 @@ public class CellFetchCommandHelper{
 		if (comp == null)
 			throw new UiException(MZk.ILLEGAL_REQUEST_COMPONENT_REQUIRED, this);
 		final Map data = request.getData();
-		if (data == null || data.size() != 26)
+		if (data == null || (data.size() != 26 && data.size() != 27))
 			throw new UiException(MZk.ILLEGAL_REQUEST_WRONG_DATA,
 				new Object[] {Objects.toString(data), this});
 		
@@ -96,6 +96,8 @@ public class CellFetchCommandHelper{
 		}
 		
 		_ctrl = ((SpreadsheetCtrl)_spreadsheet.getExtraCtrl());
+		//the data block encoding the client can decode, before any block is generated
+		((SpreadsheetInCtrl) _ctrl).setDataBlockVersion(data.containsKey("dbenc") ? AuDataUtil.getInt(data, "dbenc") : 0);
 		_hidecolhead = _spreadsheet.isHidecolumnhead();
 		_hiderowhead = _spreadsheet.isHiderowhead();
 		String token = (String) data.get("token");
@@ -79,21 +79,15 @@ public class SelectSheetCommand extends AbstractCommand implements Command {
 		Sheet currSheet = spreadsheet.getSelectedSheet();
 		
 		Book book = spreadsheet.getBook();
-		int len = book.getNumberOfSheets();
-		for (int i = 0; i < len; i++) {
-			Sheet sheet = book.getSheetAt(i);
-			if (XUtils.getSheetUuid(sheet).equals(sheetId)) {
-				if(!currSheet.equals(sheet)){
-					((SpreadsheetInCtrl)spreadsheet.getExtraCtrl()).setSelectedSheetDirectly(sheet.getSheetName(), cacheInClient, row, col, 
-							left, top, right, bottom,
-							highlightLeft, highlightTop, highlightRight, highlightBottom,
-							rowfreeze, colfreeze);
-					
-					Event event = new SheetSelectEvent(Events.ON_SHEET_SELECT, spreadsheet, sheet, currSheet);
-					org.zkoss.zk.ui.event.Events.postEvent(event);
-				}
-				break;
-			}
+		Sheet sheet = XUtils.getSheetByUuid(book, sheetId);
+		if (sheet != null && !currSheet.equals(sheet)) {
+			((SpreadsheetInCtrl)spreadsheet.getExtraCtrl()).setSelectedSheetDirectly(sheet.getSheetName(), cacheInClient, row, col, 
+					left, top, right, bottom,
+					highlightLeft, highlightTop, highlightRight, highlightBottom,
+					rowfreeze, colfreeze);
+			
+			Event event = new SheetSelectEvent(Events.ON_SHEET_SELECT, spreadsheet, sheet, currSheet);
+			org.zkoss.zk.ui.event.Events.postEvent(event);
 		}
 	}
 }
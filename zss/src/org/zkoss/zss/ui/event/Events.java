@@ -189,6 +189,11 @@ public class Events {
 		
 	/** 
 	 * This event is sent after cell contents changed by operating the book model.
+	 * <p>The changes of an operation on many cells (e.g. paste, fill or
+	 * recalculating the dependents) are coalesced, so the area of an event
+	 * can cover cells that are not changed: scattered changes are bounded into
+	 * at most 16 areas per sheet. Don't assume every cell of the area is
+	 * changed.</p>
 	 * @see CellAreaEvent
 	 * @since 3.0.0
 	 */
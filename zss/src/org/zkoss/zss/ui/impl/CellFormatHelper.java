@@ -23,9 +23,6 @@ import java.awt.Color;
 import org.zkoss.poi.ss.usermodel.Cell;
 import org.zkoss.poi.ss.usermodel.CellStyle;
 import org.zkoss.poi.ss.usermodel.Font;
-import org.zkoss.poi.ss.usermodel.RichTextString;
-import org.zkoss.zk.ui.Execution;
-import org.zkoss.zk.ui.Executions;
 import org.zkoss.zss.model.sys.XBook;
 import org.zkoss.zss.model.sys.XFormatText;
 import org.zkoss.zss.model.sys.XSheet;
@@ -50,18 +47,32 @@ public class CellFormatHelper {
 
 	private int _col;
 
-	private boolean hasRightBorder_set = false;
-	private boolean hasRightBorder = false;
-	
 	private MergeMatrixHelper _mmHelper;
 
+	private CellStyleCSSCache _cache;
+
+	private String _bottomBorderStyle;
+
+	private String _rightBorderStyle;
+
+	private CellRenderSnapshot _snapshot;
+
 	public CellFormatHelper(XSheet sheet, int row, int col, MergeMatrixHelper mmhelper) {
+		this(sheet, row, col, mmhelper, null);
+	}
+
+	/**
+	 * @param snapshot the snapshot of the rendering, which the conditional
+	 * text color is taken from; null to format the cell again.
+	 */
+	public CellFormatHelper(XSheet sheet, int row, int col, MergeMatrixHelper mmhelper, CellRenderSnapshot snapshot) {
 		_sheet = sheet;
 		_book = (XBook) _sheet.getWorkbook(); 
 		_row = row;
 		_col = col;
 		_cell = XUtils.getCell(sheet, row, col);
 		_mmHelper = mmhelper;
+		_snapshot = snapshot;
 	}
 
 	public String getHtmlStyle() {
@@ -73,202 +84,207 @@ public class CellFormatHelper {
 			if (style == null)
 				return "";
 
-				
-			
-			//String bgColor = BookHelper.indexToRGB(_book, style.getFillForegroundColor());
-			//ZSS-34 cell background color does not show in excel
-			//20110819, henrichen: if fill pattern is NO_FILL, shall not show the cell background color
-			String bgColor = style.getFillPattern() != CellStyle.NO_FILL ? 
-				BookHelper.colorToHTML(_book, style.getFillForegroundColorColor()) : null;
-			if (BookHelper.AUTO_COLOR.equals(bgColor)) {
-				bgColor = null;
+			final long key = CellStyleCSSCache.key(CellStyleCSSCache.BACKGROUND, CellStyleCSSCache.styleKey(style), 0, 0);
+			String bgStyle = getCache().get(key);
+			if (bgStyle == null) {
+				bgStyle = processBackground(style);
+				getCache().put(key, bgStyle);
 			}
-			if (bgColor != null) {
-				sb.append("background-color:").append(bgColor).append(";");
-			}
-			final XFormatText ft = XUtils.getFormatText(_cell);
-			final boolean isRichText = ft.isRichTextString();
-			final RichTextString rstr = isRichText ? ft.getRichTextString() : null;
-			final String txt = rstr != null ? rstr.getString() : ft.getCellFormatResult().text;
+			sb.append(bgStyle);
 			
 			if(_cell.getCellType() == Cell.CELL_TYPE_BLANK) {
 				sb.append("z-index:-1;"); //For IE6/IE7's overflow
 			}
 		}
 
-		processBottomBorder(sb);
-		processRightBorder(sb);
+		sb.append(getBottomBorderStyle());
+		sb.append(getRightBorderStyle());
 
 		return sb.toString();
 	}
 
+	private CellStyleCSSCache getCache() {
+		if (_cache == null) {
+			_cache = CellStyleCSSCache.getInstance(_book);
+		}
+		return _cache;
+	}
+
 	private String toHTMLColor(Color color) {
 		return BookHelper.awtColorToHTMLColor(color);
 	}
 	
-	private boolean processBottomBorder(StringBuffer sb) {
+	//the background color of the style, null if no fill
+	private String getBackgroundColor(CellStyle style) {
+		//String bgColor = BookHelper.indexToRGB(_book, style.getFillForegroundColor());
+		//ZSS-34 cell background color does not show in excel
+		//20110819, henrichen: if fill pattern is NO_FILL, shall not show the cell background color
+		String bgColor = style.getFillPattern() != CellStyle.NO_FILL ? 
+			BookHelper.colorToHTML(_book, style.getFillForegroundColorColor()) : null;
+		if (BookHelper.AUTO_COLOR.equals(bgColor)) {
+			bgColor = null;
+		}
+		return bgColor;
+	}
 
-		boolean hitBottom = false;
-		MergedRect rect = null;
-		boolean hitMerge = false;
+	private String processBackground(CellStyle style) {
+		final String bgColor = getBackgroundColor(style);
+		return bgColor != null ? "background-color:" + bgColor + ";" : "";
+	}
 
+	private String getBottomBorderStyle() {
+		if (_bottomBorderStyle != null) {
+			return _bottomBorderStyle;
+		}
+		CellStyle bottomStyle = null;
+		CellStyle curStyle = null;
+		MergedRect rect = null;
 		if (_cell != null) {
+			curStyle = _cell.getCellStyle();
 			// ZSS-259: should apply the bottom border from the cell of merged range's bottom
 			// as processRightBorder() does.
 			Cell bottom = _cell;
 			rect = _mmHelper.getMergeRange(_row, _col);
 			if(rect != null) {
-				hitMerge = true;
 				bottom = XUtils.getCell(_sheet, rect.getLastRow(), _col);
 			}
-			if(bottom != null) {
-				CellStyle style = bottom.getCellStyle();
-				if (style != null){
-					int bb = style.getBorderBottom();
-					//String color = BookHelper.indexToRGB(_book, style.getBottomBorderColor());
-					String color = BookHelper.colorToHTML(_book, style.getBottomBorderColorColor());
-					hitBottom = appendBorderStyle(sb, "bottom", bb, color);
-				}
+			if (bottom != null) {
+				bottomStyle = bottom.getCellStyle();
 			}
 		}
 
-		// ZSS-259: should check and apply the top border from the bottom cell
+		// ZSS-259: should check the top border from the bottom cell
 		// of merged range's bottom as processRightBorder() does.
-		Cell next = null;
-		if (!hitBottom) {
-			int c = hitMerge ? rect.getLastRow() + 1 : _row + 1; 
-			next = XUtils.getCell(_sheet, c, _col);
-			/*if(next == null){ // don't search into merge ranges
-				//check is _row+1,_col in merge range
-				MergedRect rect = _mmHelper.getMergeRange(_row+1, _col);
-				if(rect !=null){
-					next = _sheet.getCell(rect.getTop(),rect.getLeft());
-				}
-			}*/
+		CellStyle nextStyle = null;
+		if (bottomStyle == null || bottomStyle.getBorderBottom() == CellStyle.BORDER_NONE) {
+			Cell next = XUtils.getCell(_sheet, rect != null ? rect.getLastRow() + 1 : _row + 1, _col);
 			if (next != null) {
-				CellStyle style = next.getCellStyle();
-				if (style != null){
-					int bb = style.getBorderTop();// get top border of
-					//String color = BookHelper.indexToRGB(_book, style.getTopBorderColor());
-					String color = BookHelper.colorToHTML(_book, style.getTopBorderColorColor());
-					// set next row top border as cell's bottom border;
-					hitBottom = appendBorderStyle(sb, "bottom", bb, color);
-				}
+				nextStyle = next.getCellStyle();
 			}
 		}
 		
+		final long key = CellStyleCSSCache.key(CellStyleCSSCache.BOTTOM_BORDER, CellStyleCSSCache.styleKey(bottomStyle),
+				CellStyleCSSCache.styleKey(nextStyle), CellStyleCSSCache.styleKey(curStyle));
+		String css = getCache().get(key);
+		if (css == null) {
+			final StringBuffer sb = new StringBuffer();
+			processBottomBorder(sb, bottomStyle, nextStyle, curStyle);
+			css = sb.toString();
+			getCache().put(key, css);
+		}
+		return _bottomBorderStyle = css;
+	}
+
+	private boolean processBottomBorder(StringBuffer sb, CellStyle bottomStyle, CellStyle nextStyle, CellStyle curStyle) {
+
+		boolean hitBottom = false;
+		if (bottomStyle != null) {
+			int bb = bottomStyle.getBorderBottom();
+			//String color = BookHelper.indexToRGB(_book, style.getBottomBorderColor());
+			hitBottom = bb != CellStyle.BORDER_NONE && 
+				appendBorderStyle(sb, "bottom", bb, BookHelper.colorToHTML(_book, bottomStyle.getBottomBorderColorColor()));
+		}
+
+		if (!hitBottom && nextStyle != null) {
+			int bb = nextStyle.getBorderTop();// get top border of
+			//String color = BookHelper.indexToRGB(_book, style.getTopBorderColor());
+			// set next row top border as cell's bottom border;
+			hitBottom = bb != CellStyle.BORDER_NONE &&
+				appendBorderStyle(sb, "bottom", bb, BookHelper.colorToHTML(_book, nextStyle.getTopBorderColorColor()));
+		}
+		
 		//border depends on next cell's background color
-		if(!hitBottom && next !=null){
-			CellStyle style = next.getCellStyle();
-			if (style != null){
-				//String bgColor = BookHelper.indexToRGB(_book, style.getFillForegroundColor());
-				//ZSS-34 cell background color does not show in excel
-				String bgColor = style.getFillPattern() != CellStyle.NO_FILL ? 
-						BookHelper.colorToHTML(_book, style.getFillForegroundColorColor()) : null;
-				if (BookHelper.AUTO_COLOR.equals(bgColor)) {
-					bgColor = null;
-				}
-				if (bgColor != null) {
-					hitBottom = appendBorderStyle(sb, "bottom", CellStyle.BORDER_THIN, bgColor);
-				}
+		if(!hitBottom && nextStyle != null){
+			String bgColor = getBackgroundColor(nextStyle);
+			if (bgColor != null) {
+				hitBottom = appendBorderStyle(sb, "bottom", CellStyle.BORDER_THIN, bgColor);
 			}
 		}
 		
 		//border depends on current cell's background color
-		if(!hitBottom && _cell !=null){
-			CellStyle style = _cell.getCellStyle();
-			
-			if (style != null){
-				//String bgColor = BookHelper.indexToRGB(_book, style.getFillForegroundColor());
-				//ZSS-34 cell background color does not show in excel
-				String bgColor = style.getFillPattern() != CellStyle.NO_FILL ? 
-						BookHelper.colorToHTML(_book, style.getFillForegroundColorColor()) : null;
-				if (BookHelper.AUTO_COLOR.equals(bgColor)) {
-					bgColor = null;
-				}
-				if (bgColor != null) {
-					hitBottom = appendBorderStyle(sb, "bottom", CellStyle.BORDER_THIN, bgColor);
-				}
+		if(!hitBottom && curStyle != null){
+			String bgColor = getBackgroundColor(curStyle);
+			if (bgColor != null) {
+				hitBottom = appendBorderStyle(sb, "bottom", CellStyle.BORDER_THIN, bgColor);
 			}
 		}
 		
 		return hitBottom;
 	}
 
-	private boolean processRightBorder(StringBuffer sb) {
-		boolean hitRight = false;
-		MergedRect rect=null;
-		boolean hitMerge = false;
+	private String getRightBorderStyle() {
+		if (_rightBorderStyle != null) {
+			return _rightBorderStyle;
+		}
+		CellStyle rightStyle = null;
+		CellStyle curStyle = null;
+		MergedRect rect = null;
 		//find right border of target cell 
 		if (_cell != null) {
+			curStyle = _cell.getCellStyle();
 			Cell right = _cell;
 			rect = _mmHelper.getMergeRange(_row, _col);
 			if(rect!=null){
-				hitMerge = true;
 				right = XUtils.getCell(_sheet, _row, rect.getLastColumn());
 			}
 			if (right != null) {
-				CellStyle style = right.getCellStyle();
-				if (style != null){
-					int bb = style.getBorderRight();
-					//String color = BookHelper.indexToRGB(_book, style.getRightBorderColor());
-					String color = BookHelper.colorToHTML(_book, style.getRightBorderColorColor());
-					hitRight = appendBorderStyle(sb, "right", bb, color);
-				}
+				rightStyle = right.getCellStyle();
 			}
 		}
 
-		Cell next = null;
 		//if no border for target cell,then check is this cell in a merge range
 		//if(true) then try to get next cell after this merge range
 		//else get next cell of this cell
-		if(!hitRight){
-			int c = hitMerge?rect.getLastColumn()+1:_col+1;
-			next = XUtils.getCell(_sheet, _row, c);
-			//find the right cell of merge range.
-			if(next!=null){
-				CellStyle style = next.getCellStyle();
-				if (style != null){
-					int bb = style.getBorderLeft();//get left here
-					//String color = BookHelper.indexToRGB(_book, style.getLeftBorderColor());
-					// ZSS-34 cell background color does not show in excel
-					String color = BookHelper.colorToHTML(_book, style.getLeftBorderColorColor());
-					hitRight = appendBorderStyle(sb, "right", bb, color);
-				}
+		CellStyle nextStyle = null;
+		if (rightStyle == null || rightStyle.getBorderRight() == CellStyle.BORDER_NONE) {
+			Cell next = XUtils.getCell(_sheet, _row, rect != null ? rect.getLastColumn() + 1 : _col + 1);
+			if (next != null) {
+				nextStyle = next.getCellStyle();
 			}
 		}
 
+		final long key = CellStyleCSSCache.key(CellStyleCSSCache.RIGHT_BORDER, CellStyleCSSCache.styleKey(rightStyle),
+				CellStyleCSSCache.styleKey(nextStyle), CellStyleCSSCache.styleKey(curStyle));
+		String css = getCache().get(key);
+		if (css == null) {
+			final StringBuffer sb = new StringBuffer();
+			processRightBorder(sb, rightStyle, nextStyle, curStyle);
+			css = sb.toString();
+			getCache().put(key, css);
+		}
+		return _rightBorderStyle = css;
+	}
+
+	private boolean processRightBorder(StringBuffer sb, CellStyle rightStyle, CellStyle nextStyle, CellStyle curStyle) {
+		boolean hitRight = false;
+		if (rightStyle != null) {
+			int bb = rightStyle.getBorderRight();
+			//String color = BookHelper.indexToRGB(_book, style.getRightBorderColor());
+			hitRight = bb != CellStyle.BORDER_NONE &&
+				appendBorderStyle(sb, "right", bb, BookHelper.colorToHTML(_book, rightStyle.getRightBorderColorColor()));
+		}
+
+		//find the right cell of merge range.
+		if (!hitRight && nextStyle != null) {
+			int bb = nextStyle.getBorderLeft();//get left here
+			//String color = BookHelper.indexToRGB(_book, style.getLeftBorderColor());
+			// ZSS-34 cell background color does not show in excel
+			hitRight = bb != CellStyle.BORDER_NONE &&
+				appendBorderStyle(sb, "right", bb, BookHelper.colorToHTML(_book, nextStyle.getLeftBorderColorColor()));
+		}
+
 		//border depends on next cell's background color
-		if(!hitRight && next !=null){
-			CellStyle style = next.getCellStyle();
-			if (style != null){
-				//String bgColor = BookHelper.indexToRGB(_book, style.getFillForegroundColor());
-				//ZSS-34 cell background color does not show in excel
-				String bgColor = style.getFillPattern() != CellStyle.NO_FILL ? 
-						BookHelper.colorToHTML(_book, style.getFillForegroundColorColor()) : null;
-				if (BookHelper.AUTO_COLOR.equals(bgColor)) {
-					bgColor = null;
-				}
-				
-				if (bgColor != null) {
-					hitRight = appendBorderStyle(sb, "right", CellStyle.BORDER_THIN, bgColor);
-				}
+		if(!hitRight && nextStyle != null){
+			String bgColor = getBackgroundColor(nextStyle);
+			if (bgColor != null) {
+				hitRight = appendBorderStyle(sb, "right", CellStyle.BORDER_THIN, bgColor);
 			}
 		}
 		//border depends on current cell's background color
-		if(!hitRight && _cell !=null){
-			CellStyle style = _cell.getCellStyle();
-			if (style != null){
-				//String bgColor = BookHelper.indexToRGB(_book, style.getFillForegroundColor());
-				//ZSS-34 cell background color does not show in excel
-				String bgColor = style.getFillPattern() != CellStyle.NO_FILL ? 
-						BookHelper.colorToHTML(_book, style.getFillForegroundColorColor()) : null;
-				if (BookHelper.AUTO_COLOR.equals(bgColor)) {
-					bgColor = null;
-				}
-				if (bgColor != null) {
-					hitRight = appendBorderStyle(sb, "right", CellStyle.BORDER_THIN, bgColor);
-				}
+		if(!hitRight && curStyle != null){
+			String bgColor = getBackgroundColor(curStyle);
+			if (bgColor != null) {
+				hitRight = appendBorderStyle(sb, "right", CellStyle.BORDER_THIN, bgColor);
 			}
 		}
 		
@@ -311,51 +327,56 @@ public class CellFormatHelper {
 			if (style == null)
 				return "";
 			
-			final StringBuffer sb = new StringBuffer();
-			sb.append(BookHelper.getTextCSSStyle(_book, _cell));
-			
-			//vertical alignment
-			int verticalAlignment = style.getVerticalAlignment();
-			sb.append("display: table-cell;");
-			switch (verticalAlignment) {
-			case CellStyle.VERTICAL_TOP:
-				sb.append("vertical-align: top;");
-				break;
-			case CellStyle.VERTICAL_CENTER:
-				sb.append("vertical-align: middle;");
-				break;
-			case CellStyle.VERTICAL_BOTTOM:
-				sb.append("vertical-align: bottom;");
-				break;
+			//text alignment depends on the cell type
+			final int textHAlign = BookHelper.getRealAlignment(_cell);
+			final long key = CellStyleCSSCache.key(CellStyleCSSCache.INNER, CellStyleCSSCache.styleKey(style), textHAlign + 1, 0);
+			String css = getCache().get(key);
+			if (css == null) {
+				css = processInnerStyle(style, textHAlign);
+				getCache().put(key, css);
 			}
-			
-			final Font font = _book.getFontAt(style.getFontIndex());
-			
-			//sb.append(BookHelper.getFontCSSStyle(_book, font));
-			sb.append(BookHelper.getFontCSSStyle(_cell, font));
 
 			//condition color
-			final XFormatText ft = XUtils.getFormatText(_cell);
+			final XFormatText ft = _snapshot != null ? _snapshot.getFormatText(_cell) : XUtils.getFormatText(_cell);
 			final boolean isRichText = ft.isRichTextString();
 			if (!isRichText && ft.getCellFormatResult().textColor != null) {
 				final Color textColor = ft.getCellFormatResult().textColor;
 				final String htmlColor = toHTMLColor(textColor);
-				sb.append("color:").append(htmlColor).append(";");
+				return css + "color:" + htmlColor + ";";
 			}
-
-			return sb.toString();
+			return css;
 		}
 		return "";
 	}
 
-	public boolean hasRightBorder() {
-		if(hasRightBorder_set){
-			return hasRightBorder;
-		}else{
-			hasRightBorder = processRightBorder(new StringBuffer());
-			hasRightBorder_set = true;
+	private String processInnerStyle(CellStyle style, int textHAlign) {
+		final StringBuffer sb = new StringBuffer();
+		sb.append(BookHelper.getTextCSSStyle(style, textHAlign));
+		
+		//vertical alignment
+		int verticalAlignment = style.getVerticalAlignment();
+		sb.append("display: table-cell;");
+		switch (verticalAlignment) {
+		case CellStyle.VERTICAL_TOP:
+			sb.append("vertical-align: top;");
+			break;
+		case CellStyle.VERTICAL_CENTER:
+			sb.append("vertical-align: middle;");
+			break;
+		case CellStyle.VERTICAL_BOTTOM:
+			sb.append("vertical-align: bottom;");
+			break;
 		}
-		return hasRightBorder;
+		
+		final Font font = _book.getFontAt(style.getFontIndex());
+		
+		//sb.append(BookHelper.getFontCSSStyle(_book, font));
+		sb.append(BookHelper.getFontCSSStyle(_cell, font));
+		return sb.toString();
+	}
+
+	public boolean hasRightBorder() {
+		return getRightBorderStyle().length() > 0;
 	}
 
 }
@@ -0,0 +1,124 @@
+/* CellRenderSnapshot.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 9:42:36 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.impl;
+
+import org.zkoss.poi.ss.usermodel.Cell;
+import org.zkoss.xel.XelContext;
+import org.zkoss.zss.model.sys.XBook;
+import org.zkoss.zss.model.sys.XFormatText;
+import org.zkoss.zss.model.sys.impl.BookHelper;
+
+/**
+ * Render scoped snapshot of the texts of a cell. The html text, edit text,
+ * format text and the conditional text color of a cell are all derived from
+ * a single evaluation and formatting of the cell, and the formula cells
+ * rendered in the same block share one evaluation context.
+ * <p>It is used by one rendering, e.g. the generation of a data block, and
+ * then thrown away; the texts of the last loaded cell are kept only. The
+ * snapshot of the rendering on the current thread is also available to the
+ * {@link SimpleCellDisplayLoader} (and its subclasses) by {@link #getCurrent()}.</p>
+ */
+public class CellRenderSnapshot {
+	private static final ThreadLocal<CellRenderSnapshot> _current = new ThreadLocal<CellRenderSnapshot>();
+
+	private final XBook _book;
+	private XelContext _ctx; //shared by the formula cells, created on demand
+
+	private Cell _cell; //the loaded cell
+	private XFormatText _formatText;
+	private String _htmlText;
+	private String _editText;
+	private String _cellFormatText;
+
+	public CellRenderSnapshot(XBook book) {
+		_book = book;
+	}
+
+	/**
+	 * Sets the snapshot of the rendering on the current thread; null to clear it.
+	 */
+	public static void setCurrent(CellRenderSnapshot snapshot) {
+		_current.set(snapshot);
+	}
+
+	/**
+	 * Returns the snapshot of the rendering on the current thread, or null.
+	 */
+	public static CellRenderSnapshot getCurrent() {
+		return _current.get();
+	}
+
+	/**
+	 * Returns the book of the rendered cells.
+	 */
+	public XBook getBook() {
+		return _book;
+	}
+
+	/**
+	 * Returns the format text of the cell; the cell is evaluated and formatted
+	 * once however many texts are asked.
+	 */
+	public XFormatText getFormatText(Cell cell) {
+		load(cell);
+		if (_formatText == null) {
+			if (cell.getCellType() == Cell.CELL_TYPE_FORMULA && _ctx == null) {
+				_ctx = BookHelper.newXelContext(_book);
+			}
+			_formatText = BookHelper.getFormatText(cell, _ctx);
+		}
+		return _formatText;
+	}
+
+	/**
+	 * Returns the html text of the cell, see {@link XUtils#getCellHtmlText(Cell, XFormatText)}.
+	 */
+	public String getCellHtmlText(Cell cell) {
+		load(cell);
+		if (_htmlText == null) {
+			_htmlText = XUtils.getCellHtmlText(cell, getFormatText(cell));
+		}
+		return _htmlText;
+	}
+
+	/**
+	 * Returns the edit text of the cell, see {@link XUtils#getEditText(Cell)}.
+	 */
+	public String getEditText(Cell cell) {
+		load(cell);
+		if (_editText == null) {
+			_editText = XUtils.getEditText(cell);
+		}
+		return _editText;
+	}
+
+	/**
+	 * Returns the text of the format text of the cell, see {@link XUtils#getCellFormatText(XFormatText)}.
+	 */
+	public String getCellFormatText(Cell cell) {
+		load(cell);
+		if (_cellFormatText == null) {
+			_cellFormatText = XUtils.getCellFormatText(getFormatText(cell));
+		}
+		return _cellFormatText;
+	}
+
+	private void load(Cell cell) {
+		if (_cell == cell) {
+			return;
+		}
+		_cell = cell;
+		_formatText = null;
+		_htmlText = _editText = _cellFormatText = null;
+	}
+}
@@ -0,0 +1,118 @@
+/* CellStyleCSSCache.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 6:42:15 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.zkoss.poi.ss.usermodel.CellStyle;
+import org.zkoss.zss.model.sys.XBook;
+
+/**
+ * Per book cache of the CSS fragments composed by {@link CellFormatHelper}.
+ * A workbook has only a few distinct cell styles, so the fragments of a cell
+ * are determined by the indexes of the cell styles involved (the cell itself
+ * and its neighbors for the borders) and are cached by a key packed from
+ * those indexes.
+ * <p>A created cell style or font changes the count of styles or fonts of the
+ * book and drops the cache automatically; a cell style or font modified in
+ * place shall be followed by {@link #invalidate(XBook)}, which is done when
+ * a style is applied to cells by BookHelper.setCellStyle().</p>
+ */
+public class CellStyleCSSCache {
+	/*package*/ static final int BACKGROUND = 0;
+	/*package*/ static final int BOTTOM_BORDER = 1;
+	/*package*/ static final int RIGHT_BORDER = 2;
+	/*package*/ static final int INNER = 3;
+
+	private static final int INDEX_BITS = 20;
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+
+	private static final Map<XBook, CellStyleCSSCache> _caches = new WeakHashMap<XBook, CellStyleCSSCache>(4);
+
+	private final Map<Long, String> _fragments = new HashMap<Long, String>(256);
+	private int _numStyles;
+	private int _numFonts;
+
+	private CellStyleCSSCache(XBook book) {
+		_numStyles = book.getNumCellStyles();
+		_numFonts = book.getNumberOfFonts();
+	}
+
+	/**
+	 * Returns the cache of the book; cleared first if styles or fonts were
+	 * created since the last call.
+	 */
+	public static CellStyleCSSCache getInstance(XBook book) {
+		synchronized (_caches) {
+			CellStyleCSSCache cache = _caches.get(book);
+			if (cache == null) {
+				cache = new CellStyleCSSCache(book);
+				_caches.put(book, cache);
+			} else {
+				cache.validate(book);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Drops the cached CSS fragments of the book; shall be called after an
+	 * existing cell style or font of the book is modified.
+	 */
+	public static void invalidate(XBook book) {
+		synchronized (_caches) {
+			_caches.remove(book);
+		}
+	}
+
+	/**
+	 * Returns the cached fragment of the key, or null if not cached.
+	 */
+	public synchronized String get(long key) {
+		return _fragments.get(Long.valueOf(key));
+	}
+
+	public synchronized void put(long key, String fragment) {
+		_fragments.put(Long.valueOf(key), fragment);
+	}
+
+	private synchronized void validate(XBook book) {
+		final int numStyles = book.getNumCellStyles();
+		final int numFonts = book.getNumberOfFonts();
+		if (numStyles != _numStyles || numFonts != _numFonts) {
+			_fragments.clear();
+			_numStyles = numStyles;
+			_numFonts = numFonts;
+		}
+	}
+
+	/**
+	 * Returns the cache key of a fragment kind and up to three values, e.g.
+	 * the {@link #styleKey(CellStyle) style keys} of the involved cells.
+	 */
+	/*package*/ static long key(int kind, int a, int b, int c) {
+		return (long) kind << (INDEX_BITS * 3)
+			| (long) (a & INDEX_MASK) << (INDEX_BITS * 2)
+			| (long) (b & INDEX_MASK) << INDEX_BITS
+			| (c & INDEX_MASK);
+	}
+
+	/**
+	 * Returns the key value of a cell style; 0 for no cell or no style.
+	 */
+	/*package*/ static int styleKey(CellStyle style) {
+		return style == null ? 0 : (style.getIndex() & 0xffff) + 1;
+	}
+}
@@ -0,0 +1,172 @@
+/* DataBlockEncoder.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 18, 2026 5:21:44 PM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.impl;
+
+import java.util.Map;
+
+/**
+ * Encodes the cell attributes of a data block into a compact, base64 text
+ * instead of a JSON object per cell. The text and style strings are still
+ * aggregated by {@link StringAggregation}; only the cell records are encoded.
+ * The client decoder is <code>zss.DataBlock.decode</code>.
+ *
+ * <p>The cells are written in row major order. Each cell starts with a
+ * varint header h:</p>
+ * <ul>
+ * 	<li>h == 0: a cell without any attribute.</li>
+ *  <li>h is odd: the next (h &gt;&gt; 1) cells have the same attributes as
+ *  the last written cell.</li>
+ *  <li>otherwise: (h &gt;&gt; 1) is the bit mask of the present attributes
+ *  (see {@link #KEYS}), followed by a zigzag varint per present valued
+ *  attribute in bit order; a value is the delta to the last written value
+ *  of the same attribute (aggregation indexes of neighbor cells are close).
+ *  Flag attributes (rb, l, wp) have no value.</li>
+ * </ul>
+ * <p>Enumerated string values are sent as their index in {@link #ENUMS}
+ * plus one.</p>
+ */
+public class DataBlockEncoder {
+	/** The version of this encoding; sent by the client that can decode it. */
+	public static final int VERSION = 1;
+
+	/** Cell attribute keys, in bit order. */
+	/*package*/ static final String[] KEYS = {"mi", "mc", "ovf", "s", "is", "rb", "ct", "meft", "t", "et", "ft", "l", "wp", "ha", "va", "fs"};
+	/** Enumerated string values of "ha" and "va"; null for other attributes. */
+	/*package*/ static final String[][] ENUMS = new String[KEYS.length][];
+	private static final int FLAGS = 1 << 5 | 1 << 11 | 1 << 12; //rb, l, wp
+	private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+	static {
+		ENUMS[13] = new String[] {"c", "r"}; //ha
+		ENUMS[14] = new String[] {"t", "c"}; //va
+	}
+
+	private final int[] _last = new int[KEYS.length]; //last written value per attribute
+	private final int[] _values = new int[KEYS.length];
+	private byte[] _buf;
+	private int _len;
+	private int _lastMask = -1; //mask of the last written cell; -1 means none
+	private int _repeat; //pending repeats of the last written cell
+	private int _count;
+
+	public DataBlockEncoder() {
+		_buf = new byte[256];
+	}
+
+	/**
+	 * Adds the attributes of the next cell; the keys and values are as those
+	 * of the JSON cell attributes.
+	 */
+	public void add(Map<Object, Object> attrs) {
+		int mask = 0;
+		if (!attrs.isEmpty()) {
+			for (int j = 0; j < KEYS.length; ++j) {
+				final Object value = attrs.get(KEYS[j]);
+				if (value != null) {
+					mask |= 1 << j;
+					if ((FLAGS & (1 << j)) == 0) {
+						_values[j] = toInt(j, value);
+					}
+				}
+			}
+		}
+		++_count;
+		if (mask == _lastMask && sameValues(mask)) {
+			++_repeat;
+			return;
+		}
+		flushRepeat();
+		writeVarint(mask << 1);
+		if (mask != 0) {
+			for (int j = 0; j < KEYS.length; ++j) {
+				if ((mask & (1 << j)) != 0 && (FLAGS & (1 << j)) == 0) {
+					final int delta = _values[j] - _last[j];
+					writeVarint((delta << 1) ^ (delta >> 31)); //zigzag
+					_last[j] = _values[j];
+				}
+			}
+		}
+		_lastMask = mask;
+	}
+
+	/**
+	 * Returns the number of added cells.
+	 */
+	public int size() {
+		return _count;
+	}
+
+	/**
+	 * Returns the base64 text of the encoded cells.
+	 */
+	public String toBase64() {
+		flushRepeat();
+		final StringBuilder sb = new StringBuilder((_len + 2) / 3 * 4);
+		int j = 0;
+		for (final int end = _len - 2; j < end; j += 3) {
+			final int v = (_buf[j] & 0xff) << 16 | (_buf[j + 1] & 0xff) << 8 | (_buf[j + 2] & 0xff);
+			sb.append(BASE64[v >>> 18]).append(BASE64[(v >>> 12) & 0x3f])
+				.append(BASE64[(v >>> 6) & 0x3f]).append(BASE64[v & 0x3f]);
+		}
+		if (j < _len) {
+			final int v = (_buf[j] & 0xff) << 16 | (j + 1 < _len ? (_buf[j + 1] & 0xff) << 8 : 0);
+			sb.append(BASE64[v >>> 18]).append(BASE64[(v >>> 12) & 0x3f])
+				.append(j + 1 < _len ? BASE64[(v >>> 6) & 0x3f] : '=').append('=');
+		}
+		return sb.toString();
+	}
+
+	private boolean sameValues(int mask) {
+		for (int j = 0; j < KEYS.length; ++j) {
+			if ((mask & (1 << j)) != 0 && (FLAGS & (1 << j)) == 0 && _values[j] != _last[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void flushRepeat() {
+		if (_repeat > 0) {
+			writeVarint(_repeat << 1 | 1);
+			_repeat = 0;
+		}
+	}
+
+	private static int toInt(int attr, Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).intValue();
+		}
+		final String[] enums = ENUMS[attr];
+		if (enums != null) {
+			for (int j = 0; j < enums.length; ++j) {
+				if (enums[j].equals(value)) {
+					return j + 1;
+				}
+			}
+		}
+		throw new IllegalArgumentException("Unknown value of cell attribute " + KEYS[attr] + ": " + value);
+	}
+
+	private void writeVarint(int v) {
+		if (_len + 5 > _buf.length) {
+			final byte[] buf = new byte[_buf.length << 1];
+			System.arraycopy(_buf, 0, buf, 0, _len);
+			_buf = buf;
+		}
+		while ((v & ~0x7f) != 0) {
+			_buf[_len++] = (byte) ((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		_buf[_len++] = (byte) v;
+	}
+}
@@ -18,16 +18,18 @@ Copyright (C) 2007 Potix Corporation. All Rights Reserved.
 */
 package org.zkoss.zss.ui.impl;
 
-import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 /**
  * 
  * A utility class for calculating position of header
+ * <p>The customized headers are kept in a treap ordered by the column/row
+ * index. Each node keeps the sum of (actual size - default size) of its
+ * subtree, so the start pixel of a column/row and the column/row at a pixel
+ * are found in O(log n) steps instead of walking all customized headers. The
+ * index shift of inserting/deleting columns/rows is recorded lazily on the
+ * subtree of the shifted headers.</p>
  * 
  * @author Dennis.Chen
  * 
@@ -35,12 +37,13 @@ import java.util.List;
 public class HeaderPositionHelper {
 
 	int _defaultSize;
-	private List<HeaderPositionInfo> _infos;
+	private Node _root;
+	private int _seed = 0x2545F491; //xorshift seed of the node priorities
 	//int[][] _customizedSize; //[0]: column/row index, [1]: width/height, [2]: column/row id
 
 	public HeaderPositionHelper(int defaultSize, List<HeaderPositionInfo> infos) {
 		this._defaultSize = defaultSize;
-		this._infos = infos;
+		this._root = build(infos);
 	}
 	
 	public int getDefaultSize() {
@@ -48,70 +51,68 @@ public class HeaderPositionHelper {
 	}
 
 	public List<HeaderPositionInfo> getInfos() {
-		return new ArrayList<HeaderPositionInfo>(_infos);
+		final List<HeaderPositionInfo> infos = new ArrayList<HeaderPositionInfo>(_root == null ? 0 : _root.count);
+		collect(_root, infos);
+		return infos;
 	}
 
 	public boolean isHidden(int cellIndex) {
-		final int j = Collections.binarySearch(_infos, Integer.valueOf(cellIndex), new HeaderPositionInfoComparator());
-		return j < 0 ? false : _infos.get(j).hidden;
+		final HeaderPositionInfo info = getInfo(cellIndex);
+		return info == null ? false : info.hidden;
 	}
 	
 	public int getSize(int cellIndex) {
-		final int j = Collections.binarySearch(_infos, Integer.valueOf(cellIndex), new HeaderPositionInfoComparator());
-		return j < 0 ? _defaultSize : _infos.get(j).size;
+		final HeaderPositionInfo info = getInfo(cellIndex);
+		return info == null ? _defaultSize : info.size;
 	}
 
-	//given target cell index, return list index. 
-	private int getListIndex(int cellIndex) {
-		final int j = Collections.binarySearch(_infos, Integer.valueOf(cellIndex), new HeaderPositionInfoComparator());
-		return j < 0 ? -j - 1 : j;
-	}
-	
 	public void shiftMeta(int cellIndex, int offset) {
-		final int index = getListIndex(cellIndex);
-		for (int j = _infos.size() - 1; j >= index; --j) {
-			final HeaderPositionInfo info = _infos.get(j);
-			info.index += offset;
-		}
+		final Node[] lr = split(_root, cellIndex);
+		shift(lr[1], offset);
+		_root = merge(lr[0], lr[1]);
 	}
 
 	public void unshiftMeta(int cellIndex, int offset) {
-		final int bindex = getListIndex(cellIndex);
-		final int eindex = getListIndex(cellIndex + offset);
-		for (int j = eindex - 1; j >= bindex; --j) {
-			_infos.remove(j);
-		}
-		for (int j = _infos.size() - 1; j >= bindex; --j) {
-			final HeaderPositionInfo info = _infos.get(j);
-			info.index -= offset;
-		}
+		final Node[] lr = split(_root, cellIndex);
+		final Node[] mr = split(lr[1], cellIndex + offset); //drop the infos of the deleted headers
+		shift(mr[1], -offset);
+		_root = merge(lr[0], mr[1]);
 	}
 
 	public HeaderPositionInfo getInfo(int cellIndex) {
-		final int j = Collections.binarySearch(_infos, Integer.valueOf(cellIndex), new HeaderPositionInfoComparator());
-		return j < 0 ? null : _infos.get(j);
+		Node node = _root;
+		while (node != null) {
+			push(node);
+			final int index = node.info.index;
+			if (cellIndex == index) {
+				return node.info;
+			}
+			node = cellIndex < index ? node.left : node.right;
+		}
+		return null;
 	}
 
 	//set new info values at the specified cellIndex; if not exist, create a new one and add into this Helper.
 	public void setInfoValues(int cellIndex, int size, int id, boolean hidden) {
-		final int j = Collections.binarySearch(_infos, Integer.valueOf(cellIndex), new HeaderPositionInfoComparator());
-		final int index = j < 0 ? (-j - 1) : j;
-		if (j < 0) {
-			_infos.add(index, new HeaderPositionInfo(cellIndex, size, id, hidden));
+		final Node[] lr = split(_root, cellIndex);
+		final Node[] mr = split(lr[1], cellIndex + 1);
+		Node node = mr[0];
+		if (node == null) {
+			node = new Node(new HeaderPositionInfo(cellIndex, size, id, hidden), nextPriority());
 		} else {
-			final HeaderPositionInfo info = _infos.get(index);
+			final HeaderPositionInfo info = node.info;
 			info.size = size;
 			info.id = id;
 			info.hidden = hidden;
 		}
+		update(node);
+		_root = merge(merge(lr[0], node), mr[1]);
 	}
 
 	public void removeInfo(int cellIndex) {
-		final int j = Collections.binarySearch(_infos, Integer.valueOf(cellIndex), new HeaderPositionInfoComparator());
-		final int index = j < 0 ? (-j - 1) : j;
-		if (j >= 0) {
-			_infos.remove(index);
-		}
+		final Node[] lr = split(_root, cellIndex);
+		final Node[] mr = split(lr[1], cellIndex + 1);
+		_root = merge(lr[0], mr[1]);
 	}
 	
 	//given size in pixels, return the related cellIndex
@@ -119,26 +120,32 @@ public class HeaderPositionHelper {
 		if (px < 0) {
 			return 0;
 		}
-		int begPx = 0;
-		int begIndex = 0;
-		for(HeaderPositionInfo info : _infos) {
-			final int cellIndex = info.index;
-			final int endPx = begPx + (cellIndex - begIndex) * _defaultSize; //big jump 
-			if (endPx > px) { //jump beyond the target pixel
-				final int step = px - begPx;
-				return begIndex + (step / _defaultSize);
-			}
-			//still behind, forward custom size of this info
-			begPx = endPx + (info.hidden ? 0 : info.size);
-			if (begPx > px) { //exactly locate at this info
-				return info.index;
+		//find the last info starts at or before the target pixel
+		HeaderPositionInfo found = null;
+		int foundPx = 0;
+		int delta = 0; //sum of (size - default size) of infos before the node
+		Node node = _root;
+		while (node != null) {
+			push(node);
+			final int leftDelta = delta + delta(node.left);
+			final int begPx = node.info.index * _defaultSize + leftDelta;
+			if (begPx <= px) {
+				found = node.info;
+				foundPx = begPx;
+				delta = leftDelta + delta(node.info);
+				node = node.right;
+			} else {
+				node = node.left;
 			}
-			begIndex = info.index + 1; //step over to new begin index
 		}
-		
-		//never reach px
-		final int step = px - begPx;
-		return begIndex + (step / _defaultSize);
+		if (found == null) {
+			return px / _defaultSize;
+		}
+		final int endPx = foundPx + (found.hidden ? 0 : found.size);
+		if (endPx > px) { //exactly locate at this info
+			return found.index;
+		}
+		return found.index + 1 + (px - endPx) / _defaultSize;
 	}
 
 	//given cellIndex, return the associated start pixel
@@ -146,31 +153,144 @@ public class HeaderPositionHelper {
 		if (cellIndex < 0) {
 			return 0;
 		}
-		int px = 0;
-		int begIndex = 0;
-		for(HeaderPositionInfo info : _infos) {
-			final int infoIndex = info.index;
-			if (cellIndex > infoIndex) { //not reach the target
-				px += (infoIndex - begIndex) * _defaultSize;
-				px += info.hidden ? 0 : info.size;
-				begIndex = infoIndex + 1; //next begin index
-			} else if (cellIndex == infoIndex) { //extactly locate at the info
-				px += (infoIndex - begIndex) * _defaultSize;
-				return px;
-			} else { //cellIndex < infoIndex; jump over the target
-				break;
+		//sum of (size - default size) of infos before the target
+		int delta = 0;
+		Node node = _root;
+		while (node != null) {
+			push(node);
+			if (node.info.index < cellIndex) {
+				delta += delta(node.left) + delta(node.info);
+				node = node.right;
+			} else {
+				node = node.left;
 			}
 		}
-		
-		//jumper over the target or never reach the target index
-		px += (cellIndex - begIndex) * _defaultSize;
-		return px;
+		return cellIndex * _defaultSize + delta;
+	}
+
+	private int delta(HeaderPositionInfo info) {
+		return (info.hidden ? 0 : info.size) - _defaultSize;
+	}
+
+	private static int delta(Node node) {
+		return node == null ? 0 : node.delta;
+	}
+
+	private static int count(Node node) {
+		return node == null ? 0 : node.count;
+	}
+
+	private void update(Node node) {
+		node.count = count(node.left) + count(node.right) + 1;
+		node.delta = delta(node.left) + delta(node.right) + delta(node.info);
+	}
+
+	//shift the index of all infos of the subtree
+	private static void shift(Node node, int offset) {
+		if (node != null) {
+			node.info.index += offset;
+			node.shift += offset;
+		}
+	}
+
+	//pass the pending shift to the children
+	private static void push(Node node) {
+		if (node.shift != 0) {
+			shift(node.left, node.shift);
+			shift(node.right, node.shift);
+			node.shift = 0;
+		}
+	}
+
+	//split the subtree into infos before cellIndex and infos at or after cellIndex
+	private Node[] split(Node node, int cellIndex) {
+		if (node == null) {
+			return new Node[2];
+		}
+		push(node);
+		final Node[] lr;
+		if (node.info.index < cellIndex) {
+			lr = split(node.right, cellIndex);
+			node.right = lr[0];
+			lr[0] = node;
+		} else {
+			lr = split(node.left, cellIndex);
+			node.left = lr[1];
+			lr[1] = node;
+		}
+		update(node);
+		return lr;
+	}
+
+	//merge two subtrees; all infos of left are before those of right
+	private Node merge(Node left, Node right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (left.priority > right.priority) {
+			push(left);
+			left.right = merge(left.right, right);
+			update(left);
+			return left;
+		} else {
+			push(right);
+			right.left = merge(left, right.left);
+			update(right);
+			return right;
+		}
+	}
+
+	//build the treap from the sorted infos in linear time
+	private Node build(List<HeaderPositionInfo> infos) {
+		final Node[] stack = new Node[infos.size() + 1];
+		int top = 0;
+		for (HeaderPositionInfo info : infos) {
+			final Node node = new Node(info, nextPriority());
+			Node last = null;
+			while (top > 0 && stack[top - 1].priority < node.priority) {
+				last = stack[--top];
+				update(last);
+			}
+			node.left = last;
+			if (top > 0) {
+				stack[top - 1].right = node;
+			}
+			stack[top++] = node;
+		}
+		while (top > 1) {
+			update(stack[--top]);
+		}
+		if (top == 0) {
+			return null;
+		}
+		update(stack[0]);
+		return stack[0];
+	}
+
+	private int nextPriority() {
+		int x = _seed;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		return _seed = x;
+	}
+
+	private static void collect(Node node, List<HeaderPositionInfo> infos) {
+		while (node != null) {
+			push(node);
+			collect(node.left, infos);
+			infos.add(node.info);
+			node = node.right;
+		}
 	}
 
 	public String toString() {
 		StringBuffer sb = new StringBuffer();
 		sb.append("[");
-		for (HeaderPositionInfo info : _infos) {
+		for (HeaderPositionInfo info : getInfos()) {
 			sb.append("[");
 			sb.append(info.index).append(", ");
 			sb.append(info.size).append(", ");
@@ -281,12 +401,18 @@ public class HeaderPositionHelper {
 		}
 	}
 	
-	private static class HeaderPositionInfoComparator implements Comparator, Serializable {
-		@Override
-		public int compare(Object o1, Object o2) {
-			final int i1 = o1 instanceof HeaderPositionInfo ? ((HeaderPositionInfo)o1).index : ((Integer)o1).intValue();
-			final int i2 = o2 instanceof HeaderPositionInfo ? ((HeaderPositionInfo)o2).index : ((Integer)o2).intValue();
-			return i1 - i2;
-		} 
+	private static class Node {
+		final HeaderPositionInfo info;
+		final int priority;
+		Node left;
+		Node right;
+		int count; //number of infos of the subtree
+		int delta; //sum of (size - default size) of the subtree
+		int shift; //pending index shift of the children
+
+		Node(HeaderPositionInfo info, int priority) {
+			this.info = info;
+			this.priority = priority;
+		}
 	}
 }
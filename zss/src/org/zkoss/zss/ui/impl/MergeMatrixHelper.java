@@ -18,31 +18,31 @@ Copyright (C) 2007 Potix Corporation. All Rights Reserved.
 */
 package org.zkoss.zss.ui.impl;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.zkoss.zss.api.AreaRef;
+import org.zkoss.zss.model.sys.impl.MergedRegionIndex;
 
 
 /**
  * Each sheet has its own MergeMatrixHelper and it manages merged cells.
  * Because current implementation of spreadsheet only support horizontal merged cell,
  * So, use this helper to help Spreadsheet control merged cell in horizontal only
+ * <p>The merged ranges are kept in a {@link MergedRegionIndex}, so the merged range
+ * of a cell and the merged ranges across a row or a column are looked up without
+ * scanning all the merged ranges.</p>
  * @author Dennis.Chen
  *
  */
 public class MergeMatrixHelper {
 
 	
-	private Map _leftTopIndex = new HashMap(5);
-	private Map _mergeByIndex = new HashMap(20);
-	private List<MergedRect> _mergeRanges = new LinkedList<MergedRect>();
+	private final MergedRegionIndex<MergedRect> _index = new MergedRegionIndex<MergedRect>();
+	private final Map<Integer, MergedRect> _mergeById = new HashMap<Integer, MergedRect>(20);
 	
 	private int _frozenRow;
 	private int _frozenCol;//don't care this for now.
@@ -62,35 +62,23 @@ public class MergeMatrixHelper {
 			final int bottom = r[3];
 			//System.out.println("Merge:"+(count++)+" l:"+left+",t:"+top+",r:"+right+",b:"+bottom);
 			final MergedRect block = new MergedRect(_mergeId.next(),left,top,right,bottom);
-			_mergeRanges.add(block);
+			add(block);
 		}
 		
 		this._frozenRow = frozenRow;
 		this._frozenCol = frozenCol;
-		
-		rebuildIndex();
 	}
 	
-	private void rebuildIndex(){
-		_leftTopIndex = new HashMap(5);
-		_mergeByIndex = new HashMap(20);
-		
-		Iterator iter = _mergeRanges.iterator();
-		while(iter.hasNext()){
-			final MergedRect block= (MergedRect)iter.next();
-			final int left = block.getColumn();
-			final int top = block.getRow();
-			final int right = block.getLastColumn();
-			final int bottom = block.getLastRow();
-			_leftTopIndex.put(top+"_"+left,block);
-			for(int r = top; r <= bottom; ++r) {
-				for(int c = left; c <= right; ++c) {
-					_mergeByIndex.put(r+"_"+c, block);
-				}
-			}
-		}
+	private void add(MergedRect block) {
+		_index.put(block.getRow(), block.getColumn(), block.getLastRow(), block.getLastColumn(), block);
+		_mergeById.put(Integer.valueOf(block.getId()), block);
 	}
 	
+	private void remove(MergedRect block) {
+		if (_mergeById.remove(Integer.valueOf(block.getId())) != null) {
+			_index.remove(block.getRow(), block.getColumn());
+		}
+	}
 	
 	public void update(int frozenRow,int frozenCol){
 		this._frozenRow = frozenRow;
@@ -101,15 +89,14 @@ public class MergeMatrixHelper {
 	 * Check is (row,col) in one of merge range's left-top 
 	 */
 	public boolean isMergeRangeLeftTop(int row,int col){
-		return _leftTopIndex.get(row+"_"+col)==null?false:true;
+		return _index.getByLeftTop(row, col) != null;
 	}
 	
 	/**
 	 * Get a merged range which contains cell(row,col)
 	 */
 	public MergedRect getMergeRange(int row,int col){
-		MergedRect range = (MergedRect)_mergeByIndex.get(row+"_"+col);
-		return range;
+		return _index.get(row, col);
 	}
 	
 	/**
@@ -117,7 +104,7 @@ public class MergeMatrixHelper {
 	 * @return a list which contains all merged range
 	 */
 	public List getRanges(){
-		return _mergeRanges;
+		return _index.values();
 	}
 	
 	/**
@@ -127,12 +114,7 @@ public class MergeMatrixHelper {
 	 * @return MergedRect
 	 */
 	public MergedRect getMergedRect(int id) {
-		for (MergedRect r : _mergeRanges) {
-			if (r.getId() == id) {
-				return r;
-			}
-		}
-		return null;
+		return _mergeById.get(Integer.valueOf(id));
 	}
 	
 	/**
@@ -141,41 +123,20 @@ public class MergeMatrixHelper {
 	 * @return a list which contains merged range
 	 */
 	public Set getRangesByColumn(int col){
-		Iterator iter = _mergeRanges.iterator();
-		Set result = new HashSet();
-		while(iter.hasNext()){
-			AreaRef rect = (AreaRef)iter.next();
-			int left = rect.getColumn();
-			int right = rect.getLastColumn();
-			if(left<=col && right>=col){
-				result.add(rect);
-			}
-		}
-		return result;
+		return new HashSet<MergedRect>(_index.getByColumn(col));
 	}
 
 	public int getRightConnectedColumn(int col, int top, int bottom) {
-		int size = _mergeRanges.size();
-		List result = new ArrayList();
-		AreaRef rect;
-		for(int i=0;i<size;i++){
-			rect = (MergedRect)_mergeRanges.get(i);
-			if(rect.getRow()>_frozenRow && (rect.getRow()<top || rect.getLastRow()>bottom)){
-				continue;
-			}
-			result.add(rect);
-		}
-		
 		boolean conti = true;
 		while(conti){
 			conti = false;
-			size = result.size();
-			for(int i=0;i<size;i++){
-				rect = (MergedRect)result.get(i);
-				if(rect.getLastColumn()>col && rect.getColumn()<=col){
+			for (MergedRect rect : _index.getByColumn(col)) {
+				if(rect.getRow()>_frozenRow && (rect.getRow()<top || rect.getLastRow()>bottom)){
+					continue;
+				}
+				if(rect.getLastColumn()>col){
 					col = rect.getLastColumn();
 					conti = true;
-					result.remove(i);
 					break;
 				}
 			}
@@ -184,27 +145,16 @@ public class MergeMatrixHelper {
 	}
 
 	public int getLeftConnectedColumn(int col, int top, int bottom) {
-		int size = _mergeRanges.size();
-		List result = new ArrayList();
-		AreaRef rect;
-		for(int i=0;i<size;i++){
-			rect = (MergedRect)_mergeRanges.get(i);
-			if(rect.getRow()>_frozenRow && (rect.getRow()<top || rect.getLastRow()>bottom)){
-				continue;
-			}
-			result.add(rect);
-		}
-		
 		boolean conti = true;
 		while(conti){
 			conti = false;
-			size = result.size();
-			for(int i=0;i<size;i++){
-				rect = (MergedRect)result.get(i);
-				if(rect.getColumn()<col && rect.getLastColumn()>=col){
+			for (MergedRect rect : _index.getByColumn(col)) {
+				if(rect.getRow()>_frozenRow && (rect.getRow()<top || rect.getLastRow()>bottom)){
+					continue;
+				}
+				if(rect.getColumn()<col){
 					col = rect.getColumn();
 					conti = true;
-					result.remove(i);
 					break;
 				}
 			}
@@ -213,27 +163,16 @@ public class MergeMatrixHelper {
 	}
 
 	public int getBottomConnectedRow(int row, int left, int right) {
-		int size = _mergeRanges.size();
-		List result = new ArrayList();
-		AreaRef rect;
-		for(int i=0;i<size;i++){
-			rect = (MergedRect)_mergeRanges.get(i);
-			if(rect.getColumn()>_frozenCol && (rect.getColumn()<left || rect.getLastColumn()>right)){
-				continue;
-			}
-			result.add(rect);
-		}
-		
 		boolean conti = true;
 		while(conti){
 			conti = false;
-			size = result.size();
-			for(int i=0;i<size;i++){
-				rect = (MergedRect)result.get(i);
-				if(rect.getLastRow()>row && rect.getRow()<=row){
+			for (MergedRect rect : _index.getByRow(row)) {
+				if(rect.getColumn()>_frozenCol && (rect.getColumn()<left || rect.getLastColumn()>right)){
+					continue;
+				}
+				if(rect.getLastRow()>row){
 					row = rect.getLastRow();
 					conti = true;
-					result.remove(i);
 					break;
 				}
 			}
@@ -242,27 +181,16 @@ public class MergeMatrixHelper {
 	}
 
 	public int getTopConnectedRow(int row, int left, int right) {
-		int size = _mergeRanges.size();
-		List result = new ArrayList();
-		AreaRef rect;
-		for(int i=0;i<size;i++){
-			rect = (MergedRect)_mergeRanges.get(i);
-			if(rect.getColumn()>_frozenCol && (rect.getColumn()<left || rect.getLastColumn()>right)){
-				continue;
-			}
-			result.add(rect);
-		}
-		
 		boolean conti = true;
 		while(conti){
 			conti = false;
-			size = result.size();
-			for(int i=0;i<size;i++){
-				rect = (MergedRect)result.get(i);
-				if(rect.getRow()<row && rect.getLastRow()>=row){
+			for (MergedRect rect : _index.getByRow(row)) {
+				if(rect.getColumn()>_frozenCol && (rect.getColumn()<left || rect.getLastColumn()>right)){
+					continue;
+				}
+				if(rect.getRow()<row){
 					row = rect.getRow();
 					conti = true;
-					result.remove(i);
 					break;
 				}
 			}
@@ -276,66 +204,57 @@ public class MergeMatrixHelper {
 			MergedRect mblock = getMergeRange(i,oleft);
 			if(mblock!=null){
 				torem.add(mblock);
-				_mergeRanges.remove(mblock);
+				remove(mblock);
 			}
 		}
 		
 		final MergedRect mblock = new MergedRect(_mergeId.next(),left,top,right,bottom);
 		toadd.add(mblock);
-		_mergeRanges.add(mblock);
-
-		rebuildIndex();
+		add(mblock);
 	}
 
 	public void deleteMergeRange(int left, int top, int right, int bottom, Set torem) {
 		final MergedRect mblock = getMergeRange(top, left);
 		if(mblock!=null){
 			torem.add(mblock);
-			_mergeRanges.remove(mblock);
+			remove(mblock);
 		}
-		rebuildIndex();
 	}
 
 	public void addMergeRange(int left, int top, int right, int bottom, Set toadd, Set torem) {
 		MergedRect mblock = getMergeRange(top, left);
 		if(mblock!=null){
 			torem.add(mblock);
-			_mergeRanges.remove(mblock);
+			remove(mblock);
 		}
 		
 		mblock = new MergedRect(_mergeId.next(),left,top,right,bottom);
 		toadd.add(mblock);
-		_mergeRanges.add(mblock);
-		
-		rebuildIndex();
+		add(mblock);
 	}
 
 	public void deleteAffectedMergeRangeByColumn(int col,Set removed) {
-		for(Iterator iter = _mergeRanges.iterator();iter.hasNext();){
-			MergedRect block = (MergedRect)iter.next();
+		for(MergedRect block : _mergeById.values()){
 			int right = block.getLastColumn();
 			if(right<col) continue;
 			removed.add(block);
 		}
 		for(Iterator iter = removed.iterator();iter.hasNext();){
 			MergedRect block = (MergedRect)iter.next();
-			_mergeRanges.remove(block);
+			remove(block);
 		}
-		rebuildIndex();
 	}
 
 	public void deleteAffectedMergeRangeByRow(int row,Set removed) {
-		for(Iterator iter = _mergeRanges.iterator();iter.hasNext();){
-			MergedRect block = (MergedRect)iter.next();
+		for(MergedRect block : _mergeById.values()){
 			int bottom = block.getLastRow();
 			if(bottom<row) continue;
 			removed.add(block);
 		}
 		for(Iterator iter = removed.iterator();iter.hasNext();){
 			MergedRect block = (MergedRect)iter.next();
-			_mergeRanges.remove(block);
+			remove(block);
 		}
-		rebuildIndex();
 	}
 	
 }
@@ -16,6 +16,7 @@ Copyright (C) 2013 Potix Corporation. All Rights Reserved.
 */
 package org.zkoss.zss.ui.impl;
 
+import org.zkoss.poi.ss.usermodel.Cell;
 import org.zkoss.zss.model.sys.XSheet;
 import org.zkoss.zss.ui.sys.CellDisplayLoader;
 
@@ -30,6 +31,12 @@ public class SimpleCellDisplayLoader implements CellDisplayLoader {
 	 */
 	@Override
 	public String getCellHtmlText(XSheet sheet, int row, int column) {
+		//share the evaluated and formatted cell of the rendering
+		final CellRenderSnapshot snapshot = CellRenderSnapshot.getCurrent();
+		if (snapshot != null && snapshot.getBook() == sheet.getWorkbook()) {
+			final Cell cell = XUtils.getCell(sheet, row, column);
+			return cell != null ? snapshot.getCellHtmlText(cell) : "";
+		}
 		return XUtils.getCellHtmlText(sheet, row, column);
 	}
 
@@ -0,0 +1,178 @@
+/* SimpleUndoableActionManager.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 5:36:52 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.impl;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import org.zkoss.zss.api.AreaRef;
+import org.zkoss.zss.api.model.Sheet;
+import org.zkoss.zss.ui.Spreadsheet;
+import org.zkoss.zss.ui.event.Events;
+import org.zkoss.zss.ui.event.UndoableActionManagerEvent;
+import org.zkoss.zss.ui.sys.SizedUndoableAction;
+import org.zkoss.zss.ui.sys.SizedUndoableActionManager;
+import org.zkoss.zss.ui.sys.UndoableAction;
+
+/**
+ * An undoable action manager that keeps the undo and redo history in memory,
+ * limited by the number of actions and by the number of bytes the actions
+ * hold (see {@link SizedUndoableAction}). The oldest actions are dropped
+ * first; the last done action is always kept so it can be undone.
+ * <p>To use it, specify the library property
+ * <code>org.zkoss.zss.ui.UndoableActionManager.class</code> with this class;
+ * the byte limit is specified by <code>org.zkoss.zss.ui.UndoableActionManager.maxHistoryBytes</code>.</p>
+ */
+public class SimpleUndoableActionManager implements SizedUndoableActionManager {
+
+	private final LinkedList<UndoableAction> _undoHistory = new LinkedList<UndoableAction>();
+	private final LinkedList<UndoableAction> _redoHistory = new LinkedList<UndoableAction>();
+	private int _maxHistorySize = 20;
+	private long _maxHistoryBytes = 0; //no limit
+	private Spreadsheet _spreadsheet;
+
+	@Override
+	public void doAction(UndoableAction action) {
+		action.doAction();
+		_redoHistory.clear();
+		_undoHistory.add(action);
+		trim();
+		postEvent(UndoableActionManagerEvent.Type.DO, action);
+	}
+
+	@Override
+	public boolean isUndoable() {
+		return !_undoHistory.isEmpty() && _undoHistory.getLast().isUndoable();
+	}
+
+	@Override
+	public String getUndoLabel() {
+		return isUndoable() ? _undoHistory.getLast().getLabel() : null;
+	}
+
+	@Override
+	public void undoAction() {
+		if (!isUndoable()) {
+			return;
+		}
+		final UndoableAction action = _undoHistory.removeLast();
+		action.undoAction();
+		_redoHistory.add(action);
+		trim(); //the action might reserve more to redo
+		select(action.getUndoSheet(), action.getUndoSelection());
+		postEvent(UndoableActionManagerEvent.Type.UNDO, action);
+	}
+
+	@Override
+	public boolean isRedoable() {
+		return !_redoHistory.isEmpty() && _redoHistory.getLast().isRedoable();
+	}
+
+	@Override
+	public String getRedoLabel() {
+		return isRedoable() ? _redoHistory.getLast().getLabel() : null;
+	}
+
+	@Override
+	public void redoAction() {
+		if (!isRedoable()) {
+			return;
+		}
+		final UndoableAction action = _redoHistory.removeLast();
+		action.doAction();
+		_undoHistory.add(action);
+		trim();
+		select(action.getRedoSheet(), action.getRedoSelection());
+		postEvent(UndoableActionManagerEvent.Type.REDO, action);
+	}
+
+	@Override
+	public void clear() {
+		_undoHistory.clear();
+		_redoHistory.clear();
+		postEvent(UndoableActionManagerEvent.Type.CLEAR, null);
+	}
+
+	@Override
+	public void setMaxHsitorySize(int size) {
+		_maxHistorySize = size;
+		trim();
+	}
+
+	@Override
+	public void setMaxHistoryBytes(long bytes) {
+		_maxHistoryBytes = bytes;
+		trim();
+	}
+
+	/**
+	 * Returns the estimated number of bytes held by the undo and redo history.
+	 */
+	public long getHistoryBytes() {
+		return getSize(_undoHistory) + getSize(_redoHistory);
+	}
+
+	@Override
+	public void bind(Spreadsheet spreadsheet) {
+		_spreadsheet = spreadsheet;
+	}
+
+	//drop the oldest actions, the redo history first since it is cleared by the next action anyway
+	private void trim() {
+		while (_undoHistory.size() + _redoHistory.size() > 1 && isOverLimit()) {
+			if (!_redoHistory.isEmpty()) {
+				_redoHistory.removeFirst();
+			} else {
+				_undoHistory.removeFirst();
+			}
+		}
+	}
+
+	private boolean isOverLimit() {
+		if (_maxHistorySize >= 0 && _undoHistory.size() + _redoHistory.size() > _maxHistorySize) {
+			return true;
+		}
+		return _maxHistoryBytes > 0 && getHistoryBytes() > _maxHistoryBytes;
+	}
+
+	private static long getSize(LinkedList<UndoableAction> history) {
+		long size = 0;
+		for (Iterator<UndoableAction> it = history.iterator(); it.hasNext();) {
+			final UndoableAction action = it.next();
+			if (action instanceof SizedUndoableAction) {
+				size += ((SizedUndoableAction) action).getEstimatedSize();
+			}
+		}
+		return size;
+	}
+
+	private void select(Sheet sheet, AreaRef selection) {
+		if (_spreadsheet == null || sheet == null || _spreadsheet.getBook() == null
+			|| _spreadsheet.getBook().getSheetIndex(sheet) < 0) {
+			return;
+		}
+		if (!sheet.equals(_spreadsheet.getSelectedSheet())) {
+			_spreadsheet.setSelectedSheet(sheet.getSheetName());
+		}
+		if (selection != null) {
+			_spreadsheet.setSelection(selection);
+		}
+	}
+
+	private void postEvent(UndoableActionManagerEvent.Type type, UndoableAction action) {
+		if (_spreadsheet != null) {
+			org.zkoss.zk.ui.event.Events.postEvent(new UndoableActionManagerEvent(
+				Events.ON_AFTER_UNDOABLE_MANAGER_ACTION, _spreadsheet, type, action));
+		}
+	}
+}
@@ -37,6 +37,7 @@ import org.zkoss.zk.ui.Execution;
 import org.zkoss.zk.ui.Executions;
 import org.zkoss.zss.api.model.Book;
 import org.zkoss.zss.api.model.Sheet;
+import org.zkoss.zss.api.model.impl.BookImpl;
 import org.zkoss.zss.api.model.impl.SheetImpl;
 import org.zkoss.zss.engine.RefSheet;
 import org.zkoss.zss.model.sys.XBook;
@@ -59,19 +60,22 @@ public class XUtils {
 	 */
 	static public String getCellHtmlText(XSheet sheet, int row,int column){
 		final Cell cell = XUtils.getCell(sheet, row, column);
+		return cell != null ? getCellHtmlText(cell, XUtils.getFormatText(cell)) : "";
+	}
+	
+	/**
+	 * Returns the html text of the cell from its format text.
+	 */
+	static public String getCellHtmlText(Cell cell, XFormatText ft) {
 		String text = "";
-		if (cell != null) {
-			boolean wrap = cell.getCellStyle().getWrapText();
-			final XFormatText ft = XUtils.getFormatText(cell);
-			if (ft != null) {
-				if (ft.isRichTextString()) {
-					final RichTextString rstr = ft.getRichTextString();
-					text = rstr == null ? "" : rstr.getString();
-				} else if (ft.isCellFormatResult()) {
-					text = ft.getCellFormatResult().text;
-				}
-				text = XUtils.escapeCellText(text, wrap, true);
+		if (ft != null) {
+			if (ft.isRichTextString()) {
+				final RichTextString rstr = ft.getRichTextString();
+				text = rstr == null ? "" : rstr.getString();
+			} else if (ft.isCellFormatResult()) {
+				text = ft.getCellFormatResult().text;
 			}
+			text = XUtils.escapeCellText(text, cell.getCellStyle().getWrapText(), true);
 		}
 		return text;
 	}
@@ -83,16 +87,20 @@ public class XUtils {
 	
 	static public String getCellFormatText(XSheet sheet, int row,int column) {
 		final Cell cell = XUtils.getCell(sheet, row, column);
+		return cell != null ? getCellFormatText(XUtils.getFormatText(cell)) : "";
+	}
+	
+	/**
+	 * Returns the text of the format text.
+	 */
+	static public String getCellFormatText(XFormatText ft) {
 		String text = "";
-		if (cell != null) {
-			final XFormatText ft = XUtils.getFormatText(cell);
-			if (ft != null) {
-				if (ft.isRichTextString()) {
-					final RichTextString rstr = ft.getRichTextString();
-					text = rstr == null ? "" : rstr.toString();
-				} else if (ft.isCellFormatResult()) {
-					text = ft.getCellFormatResult().text;
-				}
+		if (ft != null) {
+			if (ft.isRichTextString()) {
+				final RichTextString rstr = ft.getRichTextString();
+				text = rstr == null ? "" : rstr.toString();
+			} else if (ft.isCellFormatResult()) {
+				text = ft.getCellFormatResult().text;
 			}
 		}
 		return text;
@@ -284,9 +292,8 @@ public class XUtils {
 	public static XSheet getSheetByUuid(XBook book, String uuid) {
 		int count = book.getNumberOfSheets();
 		for(int j = 0; j < count; ++j) {
-			XSheet sheet = book.getWorksheetAt(j);
-			if (uuid.equals(getSheetUuid(sheet))) {
-				return sheet;
+			if (uuid.equals(book.getSheetUuid(j))) {
+				return book.getWorksheetAt(j);
 			}
 		}
 		return null;
@@ -299,14 +306,8 @@ public class XUtils {
 	 * @return the {@link XSheet} of the specified uuid; null if id not exists.
 	 */
 	public static Sheet getSheetByUuid(Book book, String uuid) {
-		int count = book.getNumberOfSheets();
-		for(int j = 0; j < count; ++j) {
-			Sheet sheet = book.getSheetAt(j);
-			if (uuid.equals(getSheetUuid(sheet))) {
-				return sheet;
-			}
-		}
-		return null;
+		XSheet sheet = getSheetByUuid(((BookImpl)book).getNative(), uuid);
+		return sheet == null ? null : book.getSheet(sheet.getSheetName());
 	}
 		
 	
@@ -146,6 +146,18 @@ public abstract class Abstract2DCellDataStyleAction extends AbstractUndoableActi
 		_pastedRange = CellOperationUtil.cut(src, dest);
 	}
 	
+	@Override
+	public long getEstimatedSize(){
+		long size = super.getEstimatedSize();
+		if(_srcOldReserve!=null){
+			size += _srcOldReserve.getEstimatedSize();
+		}
+		if(_destOldReserve!=null){
+			size += _destOldReserve.getEstimatedSize();
+		}
+		return size;
+	}
+	
 	@Override
 	public boolean isUndoable() {
 		return _destOldReserve!=null && isSheetAvailable() && !isSheetProtected();
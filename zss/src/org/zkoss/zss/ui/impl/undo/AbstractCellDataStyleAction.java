@@ -95,6 +95,18 @@ public abstract class AbstractCellDataStyleAction extends AbstractUndoableAction
 	
 	protected abstract void applyAction();
 	
+	@Override
+	public long getEstimatedSize(){
+		long size = super.getEstimatedSize();
+		if(_oldReserve!=null){
+			size += _oldReserve.getEstimatedSize();
+		}
+		if(_newReserve!=null){
+			size += _newReserve.getEstimatedSize();
+		}
+		return size;
+	}
+	
 	@Override
 	public boolean isUndoable() {
 		return _oldReserve!=null && isSheetAvailable() && !isSheetProtected();
@@ -21,14 +21,14 @@ package org.zkoss.zss.ui.impl.undo;
 import org.zkoss.zss.api.AreaRef;
 import org.zkoss.zss.api.model.Book;
 import org.zkoss.zss.api.model.Sheet;
-import org.zkoss.zss.ui.sys.UndoableAction;
+import org.zkoss.zss.ui.sys.SizedUndoableAction;
 
 /**
  * 
  * @author dennis
  *
  */
-abstract public class AbstractUndoableAction implements UndoableAction {
+abstract public class AbstractUndoableAction implements SizedUndoableAction {
 
 	protected final String _label;
 	protected final Sheet _sheet;
@@ -69,6 +69,15 @@ abstract public class AbstractUndoableAction implements UndoableAction {
 		return true;
 	}
 	
+	/**
+	 * Returns the estimated number of bytes held by this action, the
+	 * subclass that reserves cells should add them
+	 */
+	@Override
+	public long getEstimatedSize(){
+		return 64;
+	}
+	
 	@Override
 	public String toString(){
 		StringBuilder sb = new StringBuilder();
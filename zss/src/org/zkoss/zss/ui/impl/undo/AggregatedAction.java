@@ -20,13 +20,14 @@ package org.zkoss.zss.ui.impl.undo;
 
 import org.zkoss.zss.api.AreaRef;
 import org.zkoss.zss.api.model.Sheet;
+import org.zkoss.zss.ui.sys.SizedUndoableAction;
 import org.zkoss.zss.ui.sys.UndoableAction;
 /**
  * 
  * @author dennis
  *
  */
-public class AggregatedAction implements UndoableAction {
+public class AggregatedAction implements SizedUndoableAction {
 
 	private final UndoableAction[] _actions;
 	private final String _label;
@@ -80,6 +81,17 @@ public class AggregatedAction implements UndoableAction {
 		}
 	}
 
+	@Override
+	public long getEstimatedSize() {
+		long size = 0;
+		for(UndoableAction a:_actions){
+			if(a instanceof SizedUndoableAction){
+				size += ((SizedUndoableAction)a).getEstimatedSize();
+			}
+		}
+		return size;
+	}
+
 	@Override
 	public AreaRef getUndoSelection() {
 		for(int i=0;i<_actions.length;i++){
@@ -18,9 +18,16 @@ Copyright (C) 2013 Potix Corporation. All Rights Reserved.
  */
 package org.zkoss.zss.ui.impl.undo;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import org.zkoss.poi.ss.util.CellRangeAddress;
 import org.zkoss.zss.api.IllegalFormulaException;
@@ -64,7 +71,7 @@ public class ReserveUtil {
 		int rowStart,rowEnd;
 		rowStart=rowEnd=-1;
 		
-		Map<Integer,ReservedRow> reservedRows = null;
+		ReservedData data = null;
 		
 //		Range r = Ranges.range(sheet, row, column, lastRow, lastColumn);
 //		if(r.isWholeRow() && r.isWholeColumn()){
@@ -82,45 +89,10 @@ public class ReserveUtil {
 		}
 		
 		if(rowStart>=0 && rowEnd>=0 && (reserveContent || reserveStyle)){
-			reservedRows = new HashMap<Integer, ReservedRow>(rowEnd-rowStart+1);
-			for(int i=rowStart;i<=rowEnd;i++){
-				
-				int first,last;
-				first = sheet.getFirstColumn(i);//Math.max(_sheet.getFirstColumn(i),r.getColumn());
-				last = sheet.getLastColumn(i);//Math.min(_sheet.getLastColumn(i),r.getLastColumn());//-1 if no such col
-				
-				if(lastColumn<first || column>last){
-					//not overlap
-					first = last = -1;
-				}else{
-					first = Math.max(first,column);
-					last = Math.min(last,lastColumn);
-				}
-				
-				ReservedRow reservedRow = new ReservedRow(/*i,*/first,last);
-				reservedRows.put(i, reservedRow);
-				if(first>=0 && last>=0){
-					for(int j=first;j<=last;j++){
-
-						Range range = Ranges.range(sheet,i,j);
-						ReservedCell cell = new ReservedCell(/*i, j*/);
-						reservedRow.setCell(j, cell);
-						
-						if(reserveContent){
-							ReservedCellContent content = ReservedCellContent.reserve(range);
-							cell.setContent(content);
-						}
-						
-						if(reserveStyle){
-							ReservedCellStyle style = ReservedCellStyle.reserve(range);
-							cell.setStyle(style);
-						}
-					}
-				}
-			}
+			data = ReservedData.reserve(sheet, rowStart, rowEnd, column, lastColumn, reserveContent, reserveStyle);
 		}
 		ReservedResult result = new ReservedResult(sheet,row,column,lastRow,lastColumn,reserveType);
-		result.setRowsInfo(reservedRows, rowStart, rowEnd);
+		result.setRowsInfo(data, rowStart, rowEnd);
 		
 		if(reserveMerge){
 			result.setMergeInfo(mergeInfo = reserveMergeInfo(sheet,row,column,lastRow,lastColumn));
@@ -153,7 +125,7 @@ public class ReserveUtil {
 	public static class ReservedResult {
 		final int _reserveType;
 		final Sheet _sheet;
-		Map<Integer,ReservedRow> _rows = null;
+		ReservedData _data = null;
 		int _rowStart,_rowEnd;
 		AreaRef[] _mergeInfo;
 		final int _row, _column, _lastRow, _lastColumn;
@@ -196,21 +168,32 @@ public class ReserveUtil {
 		public void setMergeInfo(AreaRef[] mergeInfo) {
 			this._mergeInfo = mergeInfo;
 		}
-		public void setRowsInfo(Map<Integer,ReservedRow> rows, int rowStart,int rowEnd){
-			_rows = rows;
+		/*package*/ void setRowsInfo(ReservedData data, int rowStart,int rowEnd){
+			_data = data;
 			_rowStart = rowStart;
 			_rowEnd = rowEnd;
 		}
 		
-		public Map<Integer,ReservedRow> getRows(){
-			return _rows;
-		}
 		public int getRowStart(){
 			return _rowStart;
 		}
 		public int getColumnEnd(){
 			return _rowEnd;
 		}
+		
+		/**
+		 * Returns the estimated number of bytes held by this reservation.
+		 */
+		public long getEstimatedSize(){
+			long size = 64;
+			if(_data!=null){
+				size += _data.getEstimatedSize();
+			}
+			if(_mergeInfo!=null){
+				size += 32L * _mergeInfo.length;
+			}
+			return size;
+		}
 
 		public void restore(){
 			Range r;
@@ -251,27 +234,9 @@ public class ReserveUtil {
 				r.clearStyles();
 			}
 			
-			//start to restore
-			if(_rowStart>=0 && _rowEnd>=0 && (reserveContent || reserveStyle)){
-				for(int i=_rowStart;i<=_rowEnd;i++){
-					ReservedRow reservedRow = _rows.get(i);
-					int colStart = reservedRow.getColumnStart();
-					int colEnd = reservedRow.getColumnEnd();
-					if(colStart>=0 && colEnd>=0){
-						for(int j=colStart;j<=colEnd;j++){
-							ReservedCell reservedCell = reservedRow.getCell(j);
-							r = Ranges.range(_sheet,i,j);
-							if(reserveContent){
-								ReservedCellContent data = reservedCell.getContent();
-								data.apply(r);
-							}
-							if(reserveStyle){
-								ReservedCellStyle style = reservedCell.getStyle();
-								style.apply(r);
-							}
-						}
-					}
-				}
+			//start to restore, all cells at once
+			if(_data!=null){
+				_data.restore(_sheet, reserveContent, reserveStyle);
 			}
 
 			//restore merge area
@@ -288,64 +253,6 @@ public class ReserveUtil {
 		}
 	}
 	
-	public static class ReservedRow {
-//		private int _index;
-		private int _colStart;
-		private int _colEnd;
-		private Map<Integer,ReservedCell> cells;
-		public ReservedRow(/*int index,*/int colStart,int colEnd){
-//			this._index = index;
-			this._colStart = colStart;
-			this._colEnd = colEnd;
-		}
-		
-		public void setCell(int col, ReservedCell cell){
-			if(col<_colStart&&col>_colEnd){
-				throw new IllegalArgumentException("not in range "+_colStart+","+_colEnd);
-			}
-			if(cells==null){
-				cells = new HashMap<Integer, ReservedCell>();
-			}
-			cells.put(col, cell);
-		}
-		
-		public ReservedCell getCell(int col){
-			return cells==null?null:cells.get(col);
-		}
-		
-		public int getColumnStart(){
-			return _colStart;
-		}
-		
-		public int getColumnEnd(){
-			return _colEnd;
-		}
-	}
-	
-	public static class ReservedCell {
-//		private int _row;
-//		private int _column;
-		private ReservedCellStyle _style;
-		private ReservedCellContent _content;
-		public ReservedCell(/*int row,int column*/){
-//			this._row = row;
-//			this._column = column;
-		}
-		public ReservedCellContent getContent() {
-			return _content;
-		}
-		public void setContent(ReservedCellContent content) {
-			this._content = content;
-		}
-		public ReservedCellStyle getStyle() {
-			return _style;
-		}
-		public void setStyle(ReservedCellStyle style) {
-			this._style = style;
-		}
-		
-	}
-	
 	public static class ReservedCellContent {
 
 		boolean _blank = false;;
@@ -407,4 +314,185 @@ public class ReserveUtil {
 			return new ReservedCellStyle(range.getCellStyle());
 		}
 	}
+	
+	/**
+	 * The contents and styles of the reserved cells in a compact form. The
+	 * cells are kept column by column: the column extent of each row, then
+	 * the style of each cell, then the edit text of each cell, as indexes to
+	 * the distinct styles and texts; they are deflated into a byte array
+	 * together with the distinct texts. The snapshot is then restored with
+	 * one {@link Range#setCellEditTexts(String[][])} and one
+	 * {@link Range#setCellStyles(CellStyle[][])}, which re-evaluate and notify
+	 * once for the whole area.
+	 */
+	/*package*/ static class ReservedData {
+		private final int _rowStart;
+		private final int _rowCount;
+		private final int _cellCount;
+		private final CellStyle[] _styles; //the distinct styles, null if not reserved
+		private final int _textCount; //the number of the distinct texts, -1 if not reserved
+		private final byte[] _bytes;
+		
+		private ReservedData(int rowStart, int rowCount, int cellCount, CellStyle[] styles, int textCount, byte[] bytes){
+			_rowStart = rowStart;
+			_rowCount = rowCount;
+			_cellCount = cellCount;
+			_styles = styles;
+			_textCount = textCount;
+			_bytes = bytes;
+		}
+		
+		/*package*/ static ReservedData reserve(Sheet sheet, int rowStart, int rowEnd, int column, int lastColumn,
+				boolean reserveContent, boolean reserveStyle){
+			try{
+				final int rowCount = rowEnd-rowStart+1;
+				final int[] extents = new int[rowCount*2];
+				final ByteArrayOutputStream styleBytes = new ByteArrayOutputStream();
+				final DataOutputStream styleOut = new DataOutputStream(styleBytes);
+				final ByteArrayOutputStream textBytes = new ByteArrayOutputStream();
+				final DataOutputStream textOut = new DataOutputStream(textBytes);
+				final Map<CellStyle,Integer> styles = new LinkedHashMap<CellStyle,Integer>();
+				final Map<String,Integer> texts = new LinkedHashMap<String,Integer>();
+				int cellCount = 0;
+				for(int i=rowStart;i<=rowEnd;i++){
+					int first,last;
+					first = sheet.getFirstColumn(i);
+					last = sheet.getLastColumn(i);//-1 if no such col
+					
+					if(lastColumn<first || column>last){
+						//not overlap
+						first = last = -1;
+					}else{
+						first = Math.max(first,column);
+						last = Math.min(last,lastColumn);
+					}
+					extents[(i-rowStart)*2] = first;
+					extents[(i-rowStart)*2+1] = last;
+					if(first>=0 && last>=0){
+						for(int j=first;j<=last;j++){
+							Range range = Ranges.range(sheet,i,j);
+							if(reserveContent){
+								CellData d = range.getCellData();
+								//TODO handle other data someday(hyperlink, comment)
+								textOut.writeInt(d.isBlank()?-1:indexOf(texts, d.getEditText()));
+							}
+							if(reserveStyle){
+								styleOut.writeInt(indexOf(styles, range.getCellStyle()));
+							}
+							cellCount++;
+						}
+					}
+				}
+				styleOut.flush();
+				textOut.flush();
+				
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				final DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes));
+				for(int extent:extents){
+					out.writeInt(extent);
+				}
+				styleBytes.writeTo(out);
+				textBytes.writeTo(out);
+				for(String text:texts.keySet()){
+					final byte[] b = text.getBytes("UTF-8");
+					out.writeInt(b.length);
+					out.write(b);
+				}
+				out.close();
+				return new ReservedData(rowStart, rowCount, cellCount,
+						reserveStyle?styles.keySet().toArray(new CellStyle[styles.size()]):null,
+						reserveContent?texts.size():-1, bytes.toByteArray());
+			}catch(IOException x){ //in-memory streams
+				throw new IllegalStateException(x.getMessage(),x);
+			}
+		}
+		
+		private static <T> int indexOf(Map<T,Integer> values, T value){
+			Integer index = values.get(value);
+			if(index==null){
+				values.put(value, index = values.size());
+			}
+			return index;
+		}
+		
+		/*package*/ long getEstimatedSize(){
+			return 64 + _bytes.length + (_styles==null?0:16L*_styles.length);
+		}
+		
+		/*package*/ void restore(Sheet sheet, boolean reserveContent, boolean reserveStyle){
+			final String[][] texts = new String[_rowCount][];
+			final CellStyle[][] styles = new CellStyle[_rowCount][];
+			int minColumn = -1;
+			try{
+				final DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(_bytes)));
+				final int[] extents = new int[_rowCount*2];
+				for(int i=0;i<extents.length;i++){
+					extents[i] = in.readInt();
+					if(i%2==0 && extents[i]>=0 && (minColumn<0 || extents[i]<minColumn)){
+						minColumn = extents[i];
+					}
+				}
+				if(minColumn<0){//no cell
+					return;
+				}
+				final int[] styleIndexes = readInts(in, _styles!=null?_cellCount:0);
+				final int[] textIndexes = readInts(in, _textCount>=0?_cellCount:0);
+				final String[] textTable = new String[Math.max(_textCount,0)];
+				for(int i=0;i<textTable.length;i++){
+					final byte[] b = new byte[in.readInt()];
+					in.readFully(b);
+					textTable[i] = new String(b, "UTF-8");
+				}
+				in.close();
+				
+				//a style couldn't be available (ZSS-424 get exception when undo after save), leave the cell then
+				final CellStyle[] styleTable = new CellStyle[_styles==null?0:_styles.length];
+				if(reserveStyle && styleTable.length>0){
+					final CellStyleHelper helper = Ranges.range(sheet).getCellStyleHelper();
+					for(int i=0;i<styleTable.length;i++){
+						styleTable[i] = helper.isAvailable(_styles[i])?_styles[i]:null;
+					}
+				}
+				
+				int cell = 0;
+				for(int i=0;i<_rowCount;i++){
+					final int first = extents[i*2];
+					final int last = extents[i*2+1];
+					if(first<0 || last<0){
+						continue;
+					}
+					texts[i] = new String[last-minColumn+1];
+					styles[i] = new CellStyle[last-minColumn+1];
+					for(int j=first;j<=last;j++,cell++){
+						if(textIndexes.length>0 && textIndexes[cell]>=0){
+							texts[i][j-minColumn] = textTable[textIndexes[cell]];
+						}
+						if(styleIndexes.length>0){
+							styles[i][j-minColumn] = styleTable[styleIndexes[cell]];
+						}
+					}
+				}
+			}catch(IOException x){ //in-memory streams
+				throw new IllegalStateException(x.getMessage(),x);
+			}
+			
+			final Range range = Ranges.range(sheet,_rowStart,minColumn);
+			if(reserveContent){
+				try{
+					range.setCellEditTexts(texts);
+				}catch(IllegalFormulaException x){};//eat in this mode
+			}
+			if(reserveStyle){
+				range.setCellStyles(styles);
+			}
+		}
+		
+		private static int[] readInts(DataInputStream in, int size) throws IOException{
+			final int[] values = new int[size];
+			for(int i=0;i<size;i++){
+				values[i] = in.readInt();
+			}
+			return values;
+		}
+	}
 }
@@ -0,0 +1,28 @@
+/* SizedUndoableAction.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 5:31:07 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.sys;
+
+/**
+ * An undoable action that knows how much memory it holds for undo and redo,
+ * so that a {@link SizedUndoableActionManager} can keep its history in a byte
+ * budget.
+ * @see SizedUndoableActionManager#setMaxHistoryBytes(long)
+ */
+public interface SizedUndoableAction extends UndoableAction {
+
+	/**
+	 * @return the estimated number of bytes held by this action, e.g., the
+	 * reserved cells to restore
+	 */
+	public long getEstimatedSize();
+}
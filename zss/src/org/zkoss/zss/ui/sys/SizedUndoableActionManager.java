@@ -0,0 +1,32 @@
+/* SizedUndoableActionManager.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 10:52:14 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.ui.sys;
+
+/**
+ * An {@link UndoableActionManager} that can keep its history in a byte
+ * budget. It is optional; {@link org.zkoss.zss.ui.Spreadsheet} applies the
+ * library property <code>org.zkoss.zss.ui.UndoableActionManager.maxHistoryBytes</code>
+ * only to the managers implementing it.
+ * @see SizedUndoableAction
+ */
+public interface SizedUndoableActionManager extends UndoableActionManager {
+
+	/**
+	 * Sets the maximun number of bytes the history could hold, in addition
+	 * to {@link #setMaxHsitorySize(int)}; the oldest actions are dropped when
+	 * it is exceeded. The size of an action is {@link SizedUndoableAction#getEstimatedSize()},
+	 * or 0 if it is not a {@link SizedUndoableAction}.
+	 * @param bytes the maximun number of bytes, or a non-positive number for no limit
+	 */
+	public void setMaxHistoryBytes(long bytes);
+}
@@ -74,6 +74,15 @@ public interface SpreadsheetInCtrl {
 	 */
 	public void setVisibleRect(int left, int top,int right, int bottom);
 	
+	/**
+	 * Indicate the client can decode the compact data block of the specified
+	 * version; the following data blocks are encoded compactly unless it is
+	 * disabled by library property org.zkoss.zss.spreadsheet.compactDataBlock.
+	 * @param version the decoder version of the client; 0 means JSON only
+	 * @see org.zkoss.zss.ui.impl.DataBlockEncoder
+	 */
+	public void setDataBlockVersion(int version);
+	
 	
 	/**
 	 * 
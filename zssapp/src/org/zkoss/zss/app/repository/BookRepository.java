@@ -41,6 +41,13 @@ public interface BookRepository {
 	 */
 	Book load(BookInfo info) throws IOException;
 	
+	/**
+	 * Releases a book got from {@link #load(BookInfo)} when it is no longer
+	 * used, e.g., closed; a repository that shares the books counts on it.
+	 * @param book the book
+	 */
+	void release(Book book);
+	
 	/**
 	 * Saves a book and replace book of BookInfo
 	 * @param info the BookInfo
@@ -15,6 +15,7 @@ import java.io.File;
 
 import org.zkoss.lang.Library;
 import org.zkoss.zk.ui.WebApps;
+import org.zkoss.zss.app.repository.impl.CachingRepository;
 import org.zkoss.zss.app.repository.impl.SimpleRepository;
 
 /**
@@ -59,10 +60,57 @@ public class BookRepositoryFactory {
 					if(!root.exists()||root.isFile()){
 						throw new RuntimeException("root folder "+path+" is not a directory or doesn't not exist");
 					}
-					repository = new SimpleRepository(root);
+					BookRepository rep = new SimpleRepository(root);
+					if("true".equalsIgnoreCase(Library.getProperty("zssapp.repository.cache","false"))){
+						CachingRepository cache = new CachingRepository(rep);
+						String maxBytes = Library.getProperty("zssapp.repository.cache.maxBytes");
+						if(maxBytes!=null){
+							cache.setMaxBytes(Long.parseLong(maxBytes.trim()));
+						}
+						cache.setShareScope(Library.getProperty("zssapp.repository.cache.shareScope","application"));
+						rep = cache;
+					}
+					repository = rep;
 				}
 			}
 		}
 		return repository;
 	}
+	
+	BookSaver saver;
+	/**
+	 * Gets the {@link BookSaver} that saves books to the {@link BookRepository} in background
+	 * @return
+	 */
+	public BookSaver getBookSaver(){
+		if(saver==null){
+			BookRepository rep = getRepository();
+			synchronized(BookRepositoryFactory.class){
+				if(saver==null){
+					int threads = Integer.parseInt(Library.getProperty("zssapp.repository.save.threads","2").trim());
+					saver = new BookSaver(rep,threads);
+				}
+			}
+		}
+		return saver;
+	}
+
+	/**
+	 * Shuts down the {@link BookSaver} if it was created, and waits for the
+	 * queued saves to be done.
+	 * @param timeout the maximum time to wait in milliseconds
+	 * @return false if some saves are not done in the time
+	 */
+	public boolean shutdownBookSaver(long timeout) throws InterruptedException{
+		BookSaver s;
+		synchronized(BookRepositoryFactory.class){
+			s = saver;
+			saver = null;
+		}
+		if(s==null){
+			return true;
+		}
+		s.shutdown();
+		return s.awaitTermination(timeout);
+	}
 }
@@ -0,0 +1,179 @@
+/* BookSaver.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 6:14:27 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.app.repository;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.zkoss.util.logging.Log;
+import org.zkoss.zk.ui.Desktop;
+import org.zkoss.zk.ui.DesktopUnavailableException;
+import org.zkoss.zk.ui.Executions;
+import org.zkoss.zk.ui.event.Event;
+import org.zkoss.zk.ui.event.EventListener;
+import org.zkoss.zss.api.model.Book;
+
+/**
+ * Saves books to a {@link BookRepository} in background threads, so the event
+ * thread of the desktop that saves a book isn't blocked by the export.
+ * <p>When a save is done, an {@link #ON_SAVE} event with the saved
+ * {@link BookInfo} (null if the repository didn't save it) or an
+ * {@link #ON_SAVE_FAILED} event with the error is scheduled to the listener of
+ * the desktop by server push, which is enabled by the save.</p>
+ * <p>A save of a book that is still queued behind another save of the same book
+ * and file takes the later requests, the book is written once with its latest
+ * state and all the listeners are notified.</p>
+ * @see BookRepositoryFactory#getBookSaver()
+ * @see BookSaverCleanup
+ */
+public class BookSaver {
+	private static final Log log = Log.lookup(BookSaver.class);
+
+	public static final String ON_SAVE = "onSaveBook";
+	public static final String ON_SAVE_FAILED = "onSaveBookFailed";
+
+	final BookRepository repository;
+	final ExecutorService executor;
+	//the saves not started yet
+	final Map<Book,SaveTask> queued = new IdentityHashMap<Book,SaveTask>();
+
+	public BookSaver(BookRepository repository, int threads){
+		this.repository = repository;
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			int count;
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r,"zssapp-book-saver-"+(++count));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Saves a book in background and replace book of BookInfo, it must be
+	 * called in an event listener of the desktop.
+	 * @param info the BookInfo
+	 * @param book the book to be saved
+	 * @param desktop the desktop to schedule the result to
+	 * @param listener the listener of the {@link #ON_SAVE} or {@link #ON_SAVE_FAILED} event
+	 * @see BookRepository#save(BookInfo, Book)
+	 */
+	public void save(BookInfo info, Book book, Desktop desktop, EventListener<Event> listener){
+		enableServerPush(desktop);
+		synchronized(queued){
+			SaveTask task = queued.get(book);
+			if(task!=null && info.equals(task.info)){
+				task.callbacks.add(new Callback(desktop,listener));
+				return;
+			}
+			task = new SaveTask(info,null,book);
+			task.callbacks.add(new Callback(desktop,listener));
+			queued.put(book,task);
+			executor.execute(task);
+		}
+	}
+
+	/**
+	 * Saves a book with a new name in background, it must be called in an
+	 * event listener of the desktop.
+	 * @param name the new name
+	 * @param book the book to be saved
+	 * @param desktop the desktop to schedule the result to
+	 * @param listener the listener of the {@link #ON_SAVE} or {@link #ON_SAVE_FAILED} event
+	 * @see BookRepository#saveAs(String, Book)
+	 */
+	public void saveAs(String name, Book book, Desktop desktop, EventListener<Event> listener){
+		enableServerPush(desktop);
+		SaveTask task = new SaveTask(null,name,book);
+		task.callbacks.add(new Callback(desktop,listener));
+		executor.execute(task);
+	}
+
+	/**
+	 * Stops the background threads after the queued saves are done, it doesn't
+	 * wait for them (see {@link #awaitTermination(long)}).
+	 */
+	public void shutdown(){
+		executor.shutdown();
+	}
+
+	/**
+	 * Waits for the queued saves to be done after {@link #shutdown()}.
+	 * @param timeout the maximum time to wait in milliseconds
+	 * @return false if some saves are not done in the time
+	 */
+	public boolean awaitTermination(long timeout) throws InterruptedException{
+		return executor.awaitTermination(timeout,TimeUnit.MILLISECONDS);
+	}
+
+	private static void enableServerPush(Desktop desktop){
+		//kept enabled, the desktop might save again
+		if(!desktop.isServerPushEnabled()){
+			desktop.enableServerPush(true);
+		}
+	}
+
+	static class Callback {
+		final Desktop desktop;
+		final EventListener<Event> listener;
+		Callback(Desktop desktop, EventListener<Event> listener){
+			this.desktop = desktop;
+			this.listener = listener;
+		}
+	}
+
+	class SaveTask implements Runnable {
+		final BookInfo info;
+		final String name;
+		final Book book;
+		final List<Callback> callbacks = new ArrayList<Callback>();
+
+		SaveTask(BookInfo info, String name, Book book){
+			this.info = info;
+			this.name = name;
+			this.book = book;
+		}
+
+		public void run() {
+			if(info!=null){
+				synchronized(queued){
+					//no more callbacks once started
+					if(queued.get(book)==this){
+						queued.remove(book);
+					}
+				}
+			}
+			Event event;
+			try{
+				BookInfo saved = info!=null?repository.save(info,book):repository.saveAs(name,book);
+				event = new Event(ON_SAVE,null,saved);
+			}catch(Throwable x){
+				log.error(x.getMessage(),x);
+				event = new Event(ON_SAVE_FAILED,null,x);
+			}
+			for(Callback callback:callbacks){
+				try{
+					Executions.schedule(callback.desktop,callback.listener,event);
+				}catch(DesktopUnavailableException x){
+					//the desktop is gone, nobody waits for the result
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/* BookSaverCleanup.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 7:03:18 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.app.repository;
+
+import org.zkoss.lang.Library;
+import org.zkoss.util.logging.Log;
+import org.zkoss.zk.ui.WebApp;
+import org.zkoss.zk.ui.util.WebAppCleanup;
+
+/**
+ * Stops the {@link BookSaver} of the {@link BookRepositoryFactory} when the
+ * web application is stopped, after the queued saves are done so no change is
+ * lost; registered in zk.xml. It waits for at most
+ * <code>zssapp.repository.save.timeout</code> milliseconds, 60 seconds by default.
+ */
+public class BookSaverCleanup implements WebAppCleanup {
+	private static final Log log = Log.lookup(BookSaverCleanup.class);
+
+	public void cleanup(WebApp wapp) throws Exception {
+		long timeout = Long.parseLong(Library.getProperty("zssapp.repository.save.timeout","60000").trim());
+		if(!BookRepositoryFactory.getInstance().shutdownBookSaver(timeout)){
+			log.warning("Books still being saved after "+timeout+"ms, the web application is stopped anyway");
+		}
+	}
+}
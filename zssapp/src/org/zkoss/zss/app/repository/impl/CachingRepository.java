@@ -0,0 +1,351 @@
+/* CachingRepository.java
+
+	Purpose:
+
+	Description:
+
+	History:
+		Oct 19, 2026 6:02:41 AM, Created
+
+Copyright (C) 2026 Potix Corporation. All Rights Reserved.
+
+*/
+package org.zkoss.zss.app.repository.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import org.zkoss.poi.ss.usermodel.Row;
+import org.zkoss.zss.api.model.Book;
+import org.zkoss.zss.api.model.Book.BookType;
+import org.zkoss.zss.app.repository.BookInfo;
+import org.zkoss.zss.app.repository.BookRepository;
+import org.zkoss.zss.model.sys.XBook;
+
+/**
+ * A {@link BookRepository} that shares the loaded books among the users.
+ * <p>A book is loaded from the underlying repository once and the same
+ * {@link Book} is returned to every user that loads it, with the share scope
+ * set (see {@link Book#setShareScope(String)}) so the users collaborate on
+ * it. A book is loaded without holding the lock of this repository, the
+ * other loads of it wait for that one instead of loading it again.</p>
+ * <p>The users of a book are counted by {@link #load(BookInfo)} and
+ * {@link #release(Book)}; a book without users stays cached until the
+ * estimated size of the cached books exceeds the budget, then the least
+ * recently used ones are evicted. The size of a book is estimated from the
+ * sheets read when it is loaded (an xlsx sheet could be read when first
+ * accessed) and again when its last user releases it, both without holding
+ * the lock of this repository. A book is loaded again if it was modified
+ * outside this repository while nobody uses it.</p>
+ * <p>The book list is cached, too, for a short time or till a book is saved
+ * or deleted through this repository.</p>
+ */
+public class CachingRepository implements BookRepository {
+	//rough estimation of a loaded cell, xlsx keeps the xml beans of the cells
+	private static final int CELL_SIZE_2003 = 120;
+	private static final int CELL_SIZE_2007 = 400;
+	private static final int BOOK_SIZE = 64 * 1024;
+
+	private final BookRepository _repository;
+	private final Map<BookInfo, CacheEntry> _entries = new LinkedHashMap<BookInfo, CacheEntry>(16, 0.75f, true); //in access order
+	private final Map<Book, CacheEntry> _books = new IdentityHashMap<Book, CacheEntry>();
+	private final Map<BookInfo, Loading> _loadings = new HashMap<BookInfo, Loading>(); //being loaded
+	private long _maxBytes = Runtime.getRuntime().maxMemory() / 4;
+	private String _shareScope = "application";
+	private long _listTimeout = 5000;
+
+	private List<BookInfo> _list;
+	private long _listTime;
+	private long _residentBytes;
+	private long _hitCount;
+	private long _missCount;
+	private long _evictionCount;
+
+	public CachingRepository(BookRepository repository) {
+		_repository = repository;
+	}
+
+	/**
+	 * Sets the number of bytes the cached books could take, estimated from
+	 * their cells. The books in use are never evicted.
+	 */
+	public synchronized void setMaxBytes(long maxBytes) {
+		_maxBytes = maxBytes;
+		evict();
+	}
+
+	/**
+	 * Sets the share scope of the loaded books, "desktop", "session" or
+	 * "application" (the default); or null to keep the scope of the book.
+	 */
+	public void setShareScope(String shareScope) {
+		_shareScope = shareScope;
+	}
+
+	/**
+	 * Sets how long in milliseconds the book list is cached, 0 to disable.
+	 */
+	public synchronized void setListTimeout(long listTimeout) {
+		_listTimeout = listTimeout;
+		_list = null;
+	}
+
+	public synchronized List<BookInfo> list() {
+		final long now = System.currentTimeMillis();
+		if (_list == null || now - _listTime >= _listTimeout) {
+			_list = Collections.unmodifiableList(new ArrayList<BookInfo>(_repository.list()));
+			_listTime = now;
+		}
+		return _list;
+	}
+
+	public Book load(BookInfo info) throws IOException {
+		final Loading loading = new Loading();
+		synchronized (this) {
+			for (;;) {
+				final CacheEntry entry = _entries.get(info);
+				if (entry != null && entry.users == 0 && isModified(info, entry)) {
+					remove(entry);
+				} else if (entry != null) {
+					++_hitCount;
+					++entry.users;
+					evict();
+					return entry.book;
+				}
+				final Loading other = _loadings.get(info);
+				if (other == null) {
+					break;
+				}
+				//loaded by another thread; if it fails, try again
+				while (!other.done) {
+					try {
+						wait();
+					} catch (InterruptedException x) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while loading " + info.getName());
+					}
+				}
+			}
+			++_missCount;
+			_loadings.put(info, loading);
+		}
+
+		CacheEntry entry = null;
+		try {
+			final Book book = _repository.load(info);
+			if (book != null) {
+				if (_shareScope != null) {
+					book.setShareScope(_shareScope);
+				}
+				entry = new CacheEntry(info, book, estimateSize(book));
+			}
+		} finally {
+			synchronized (this) {
+				_loadings.remove(info);
+				loading.done = true;
+				notifyAll();
+				if (entry != null) {
+					if (loading.deleted) {
+						entry.cached = false; //removed once released
+					} else {
+						_entries.put(info, entry);
+					}
+					_books.put(entry.book, entry);
+					_residentBytes += entry.size;
+					++entry.users;
+					evict();
+				}
+			}
+		}
+		return entry != null ? entry.book : null;
+	}
+
+	public void release(Book book) {
+		final CacheEntry entry;
+		synchronized (this) {
+			entry = _books.get(book);
+			if (entry == null || entry.users == 0) {
+				return;
+			}
+			--entry.users;
+			if (entry.users > 0 || !entry.cached) {
+				if (entry.users == 0) { //deleted while in use
+					remove(entry);
+				}
+				evict();
+				return;
+			}
+		}
+
+		//the sheets read since loaded; not in the lock, it visits every row
+		final long size = estimateSize(entry.book);
+		synchronized (this) {
+			if (_books.get(book) == entry) { //not evicted or deleted meanwhile
+				_residentBytes += size - entry.size;
+				entry.size = size;
+			}
+			evict();
+		}
+	}
+
+	public BookInfo save(BookInfo info, Book book) throws IOException {
+		//not in the lock, a save doesn't block loading the other books
+		final BookInfo saved = _repository.save(info, book);
+		if (saved != null) {
+			synchronized (this) {
+				final CacheEntry entry = _books.get(book);
+				if (entry != null) {
+					entry.loadTime = System.currentTimeMillis(); //the book is what was saved
+				}
+				_list = null;
+			}
+		}
+		return saved;
+	}
+
+	public BookInfo saveAs(String name, Book book) throws IOException {
+		final BookInfo saved = _repository.saveAs(name, book);
+		if (saved != null) {
+			synchronized (this) {
+				_list = null;
+			}
+		}
+		return saved;
+	}
+
+	public synchronized boolean delete(BookInfo info) throws IOException {
+		final boolean deleted = _repository.delete(info);
+		if (deleted) {
+			final Loading loading = _loadings.get(info);
+			if (loading != null) {
+				loading.deleted = true;
+			}
+			final CacheEntry entry = _entries.remove(info);
+			if (entry != null) {
+				entry.cached = false;
+				if (entry.users == 0) {
+					remove(entry);
+				}
+			}
+			_list = null;
+		}
+		return deleted;
+	}
+
+	/**
+	 * Returns the number of the loads that got a cached book.
+	 */
+	public synchronized long getHitCount() {
+		return _hitCount;
+	}
+
+	/**
+	 * Returns the number of the loads that loaded the book from the underlying
+	 * repository.
+	 */
+	public synchronized long getMissCount() {
+		return _missCount;
+	}
+
+	/**
+	 * Returns the number of the books evicted for the budget.
+	 */
+	public synchronized long getEvictionCount() {
+		return _evictionCount;
+	}
+
+	/**
+	 * Returns the estimated number of bytes the cached books take.
+	 */
+	public synchronized long getResidentBytes() {
+		return _residentBytes;
+	}
+
+	/**
+	 * Returns the number of the cached books, including those in use.
+	 */
+	public synchronized int getCachedCount() {
+		return _books.size();
+	}
+
+	//evict the least recently used books that nobody uses
+	private void evict() {
+		for (Iterator<CacheEntry> it = _entries.values().iterator(); _residentBytes > _maxBytes && it.hasNext();) {
+			final CacheEntry entry = it.next();
+			if (entry.users == 0) {
+				it.remove();
+				entry.cached = false;
+				remove(entry);
+				++_evictionCount;
+			}
+		}
+	}
+
+	private void remove(CacheEntry entry) {
+		if (entry.cached) {
+			_entries.remove(entry.info);
+			entry.cached = false;
+		}
+		_books.remove(entry.book);
+		_residentBytes -= entry.size;
+	}
+
+	private static boolean isModified(BookInfo info, CacheEntry entry) {
+		return info.getLastModify() != null && info.getLastModify().getTime() > entry.loadTime;
+	}
+
+	private static long estimateSize(Book book) {
+		final int cellSize = book.getType() == BookType.EXCEL_2007 ? CELL_SIZE_2007 : CELL_SIZE_2003;
+		final XBook xbook = book.getPoiBook() instanceof XBook ? (XBook) book.getPoiBook() : null;
+		long size = BOOK_SIZE;
+		//another user might be changing the book
+		final Lock lock = xbook != null ? xbook.getLock().readLock() : null;
+		if (lock != null) {
+			lock.lock();
+		}
+		try {
+			for (int i = 0, n = book.getNumberOfSheets(); i < n; ++i) {
+				if (xbook != null && !xbook.isSheetRead(i)) {
+					continue; //don't read it just for the estimation
+				}
+				for (Row row : book.getSheetAt(i).getPoiSheet()) {
+					size += (long) cellSize * row.getPhysicalNumberOfCells();
+				}
+			}
+		} finally {
+			if (lock != null) {
+				lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	private static class Loading {
+		private boolean done;
+		private boolean deleted; //while being loaded
+	}
+
+	private static class CacheEntry {
+		private final BookInfo info;
+		private final Book book;
+		private long size;
+		private long loadTime = System.currentTimeMillis();
+		private int users;
+		private boolean cached = true; //false if evicted or deleted
+
+		private CacheEntry(BookInfo info, Book book, long size) {
+			this.info = info;
+			this.book = book;
+			this.size = size;
+		}
+	}
+}
@@ -39,6 +39,36 @@ public class FileUtil {
 		return filename;
 	}
 
+	/**
+	 * Replaces the destination file with the source file by renaming it, so a
+	 * reader gets either the old or the new content but never a partial one.
+	 * The source should be in the same folder as the destination. Where a file
+	 * can't be renamed over another one (e.g. on Windows), the destination is
+	 * renamed aside first and renamed back if the source can't take its place.
+	 */
+	public static void replace(File src, File dest) throws IOException {
+		if(src.renameTo(dest)){
+			return;
+		}
+		File backup = null;
+		if(dest.exists()){
+			backup = new File(dest.getParentFile(),"."+dest.getName()+"."+System.nanoTime()+".bak");
+			if(!dest.renameTo(backup)){
+				throw new IOException("Can't replace "+dest);
+			}
+		}
+		if(src.renameTo(dest)){
+			if(backup!=null){
+				backup.delete();
+			}
+			return;
+		}
+		if(backup!=null){
+			backup.renameTo(dest);
+		}
+		throw new IOException("Can't rename "+src+" to "+dest);
+	}
+
 	public static void copy(File src, File dest) throws IOException {
 		FileInputStream fis = null;
 		FileOutputStream fos = null;
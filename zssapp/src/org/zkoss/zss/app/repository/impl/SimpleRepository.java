@@ -11,33 +11,49 @@ Copyright (C) 2013 Potix Corporation. All Rights Reserved.
 */
 package org.zkoss.zss.app.repository.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.zkoss.zss.api.Exporters;
 import org.zkoss.zss.api.Importers;
+import org.zkoss.zss.api.Range;
+import org.zkoss.zss.api.RangeRunner;
+import org.zkoss.zss.api.Ranges;
 import org.zkoss.zss.api.model.Book;
 import org.zkoss.zss.app.repository.BookInfo;
 import org.zkoss.zss.app.repository.BookRepository;
 import org.zkoss.zss.app.ui.UiUtil;
 /**
- * 
+ * A repository of the xls and xlsx files in a folder.
+ * <p>The files are replaced by renaming a complete temporary file over them,
+ * so listing and loading don't wait for a save; only the saves of the same
+ * file are serialized. A book is exported in its write lock, to the memory,
+ * the file is written after that.</p>
  * @author dennis
  *
  */
 public class SimpleRepository implements BookRepository{
 	File root;
+	//the locks of the files being saved, removed when no save holds it
+	final Map<File,SaveLock> locks = new HashMap<File,SaveLock>();
+	//the files picked by saveAs but not written yet
+	final Set<File> reserved = new HashSet<File>();
 	public SimpleRepository(File root){
 		this.root = root;
 	}
 	
 	
-	public synchronized List<BookInfo> list() {
+	public List<BookInfo> list() {
 		List<BookInfo> books = new ArrayList<BookInfo>();
 		for(File f:root.listFiles(new FileFilter() {
 			public boolean accept(File file) {
@@ -55,37 +71,94 @@ public class SimpleRepository implements BookRepository{
 		return books;
 	}
 
-	public synchronized Book load(BookInfo info) throws IOException {
+	public Book load(BookInfo info) throws IOException {
 		Book book = Importers.getImporter().imports(((SimpleBookInfo)info).getFile(), info.getName());
 		return book;
 	}
+	
+	public void release(Book book) {
+		//nothing to do, the book is loaded for the user only
+	}
 
-	public synchronized BookInfo save(BookInfo info, Book book) throws IOException {
+	public BookInfo save(BookInfo info, Book book) throws IOException {
 		if(UiUtil.isRepositoryReadonly()){
 			return null;
 		}
-		FileOutputStream fos = null;
+		File f = ((SimpleBookInfo)info).getFile();
+		SaveLock lock = acquireLock(f);
 		try{
-			File f = ((SimpleBookInfo)info).getFile();
-			//write to temp file first to avoid write error damage original file 
-			File temp = File.createTempFile("temp", f.getName());
-			fos = new FileOutputStream(temp);
-			Exporters.getExporter().export(book, fos);
-			
-			fos.close();
-			fos = null;
-			
-			FileUtil.copy(temp,f);
-			temp.delete();
-			
+			synchronized(lock){
+				//exported in the file lock too, the saves of the same file are written in order
+				byte[] content = export(book);
+				//write to a hidden temp file beside the original first, then rename it over the original,
+				//a write error doesn't damage the original and a load never reads a partial file
+				File temp = new File(f.getParentFile(),"."+f.getName()+"."+System.nanoTime()+".tmp");
+				try{
+					FileOutputStream fos = new FileOutputStream(temp);
+					try{
+						fos.write(content);
+					}finally{
+						fos.close();
+					}
+					FileUtil.replace(temp,f);
+				}finally{
+					temp.delete();//if not renamed
+				}
+			}
 		}finally{
-			if(fos!=null)
-				fos.close();
+			releaseLock(f,lock);
 		}
 		return info;
 	}
 	
-	public synchronized BookInfo saveAs(String bookname,Book book) throws IOException {
+	//export in the write lock of the book, the edits of the book wait till a consistent state is written.
+	//not the read lock, exporting updates the records of the book.
+	//the exporter serializes the live book, there is no copy of it to export after the lock, so the
+	//edits still wait for the serialization; it is bounded to the in-memory export, the file is
+	//written after the lock (at the cost of holding the exported content in memory)
+	private static byte[] export(final Book book) throws IOException {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		final IOException[] error = new IOException[1];
+		Ranges.range(book.getSheetAt(0)).sync(new RangeRunner() {
+			public void run(Range range) {
+				try{
+					Exporters.getExporter().export(book, os);
+				}catch(IOException x){
+					error[0] = x;
+				}
+			}
+		});
+		if(error[0]!=null){
+			throw error[0];
+		}
+		return os.toByteArray();
+	}
+	
+	private SaveLock acquireLock(File f){
+		synchronized(locks){
+			SaveLock lock = locks.get(f);
+			if(lock==null){
+				locks.put(f,lock = new SaveLock());
+			}
+			++lock.holders;
+			return lock;
+		}
+	}
+	
+	private void releaseLock(File f, SaveLock lock){
+		synchronized(locks){
+			if(--lock.holders==0){
+				locks.remove(f);
+			}
+		}
+	}
+	
+	static class SaveLock {
+		//the saves holding or waiting for it
+		int holders;
+	}
+	
+	public BookInfo saveAs(String bookname,Book book) throws IOException {
 		if(UiUtil.isRepositoryReadonly()){
 			return null;
 		}
@@ -102,12 +175,21 @@ public class SimpleRepository implements BookRepository{
 			throw new RuntimeException("unknow book type");
 		}
 		File f = new File(root,name+ext);
-		int c = 0;
-		if(f.exists()){
-			f = new File(root,name+"("+(++c)+")"+ext);
+		synchronized(reserved){
+			int c = 0;
+			while(f.exists() || reserved.contains(f)){
+				f = new File(root,name+"("+(++c)+")"+ext);
+			}
+			reserved.add(f);
+		}
+		try{
+			SimpleBookInfo info = new SimpleBookInfo(f,f.getName(),new Date());
+			return save(info,book);
+		}finally{
+			synchronized(reserved){
+				reserved.remove(f);
+			}
 		}
-		SimpleBookInfo info = new SimpleBookInfo(f,f.getName(),new Date());
-		return save(info,book);
 	}
 
 
@@ -22,12 +22,14 @@ import org.zkoss.lang.Strings;
 import org.zkoss.util.logging.Log;
 import org.zkoss.util.media.AMedia;
 import org.zkoss.zk.ui.Component;
+import org.zkoss.zk.ui.Desktop;
 import org.zkoss.zk.ui.Execution;
 import org.zkoss.zk.ui.Executions;
 import org.zkoss.zk.ui.WebApps;
 import org.zkoss.zk.ui.event.Event;
 import org.zkoss.zk.ui.event.EventListener;
 import org.zkoss.zk.ui.select.annotation.Wire;
+import org.zkoss.zk.ui.util.DesktopCleanup;
 import org.zkoss.zss.api.Importer;
 import org.zkoss.zss.api.Importers;
 import org.zkoss.zss.api.Ranges;
@@ -37,6 +39,7 @@ import org.zkoss.zss.api.model.Sheet;
 import org.zkoss.zss.app.repository.BookInfo;
 import org.zkoss.zss.app.repository.BookRepository;
 import org.zkoss.zss.app.repository.BookRepositoryFactory;
+import org.zkoss.zss.app.repository.BookSaver;
 import org.zkoss.zss.app.repository.impl.BookUtil;
 import org.zkoss.zss.app.ui.dlg.DlgCallbackEvent;
 import org.zkoss.zss.app.ui.dlg.OpenManageBookCtrl;
@@ -159,6 +162,13 @@ public class AppCtrl extends CtrlBase<Component>{
 		});
 		
 		
+		//release the loaded book when the desktop is gone
+		comp.getDesktop().addListener(new DesktopCleanup() {
+			public void cleanup(Desktop desktop) throws Exception {
+				releaseBook();
+			}
+		});
+		
 		//load default open book from parameter
 		String bookName = null ;
 		Execution exec = Executions.getCurrent();
@@ -190,17 +200,31 @@ public class AppCtrl extends CtrlBase<Component>{
 		return BookRepositoryFactory.getInstance().getRepository();
 	}
 	
+	private BookSaver getBookSaver(){
+		return BookRepositoryFactory.getInstance().getBookSaver();
+	}
+	
+	//release the loaded book to the repository, which might share it with other users
+	private void releaseBook(){
+		if(loadedBook!=null){
+			getRepository().release(loadedBook);
+		}
+	}
+	
 	/*package*/ void doOpenNewBook(){
 		selectedBookInfo = null;
 		Importer importer = Importers.getImporter();
 		
+		Book book;
 		try {
-			loadedBook = importer.imports(getClass().getResourceAsStream("/web/zssapp/blank.xlsx"), "blank.xlsx");
+			book = importer.imports(getClass().getResourceAsStream("/web/zssapp/blank.xlsx"), "blank.xlsx");
 		} catch (IOException e) {
 			log.error(e.getMessage(),e);
 			UiUtil.showWarnMessage("Can't load a new book");
 			return;
 		}
+		releaseBook();
+		loadedBook = book;
 		ss.setBook(loadedBook);
 		pushAppEvent(AppEvts.ON_LOADED_BOOK,loadedBook);
 		pushAppEvent(AppEvts.ON_CHANGED_SPREADSHEET,ss);
@@ -217,6 +241,7 @@ public class AppCtrl extends CtrlBase<Component>{
 	}
 	
 	/*package*/ void doCloseBook(){
+		releaseBook();
 		ss.setBook(loadedBook = null);
 		selectedBookInfo = null;
 		pushAppEvent(AppEvts.ON_CLOSED_BOOK,null);
@@ -232,7 +257,7 @@ public class AppCtrl extends CtrlBase<Component>{
 		pushAppEvent(AppEvts.ON_UPDATE_UNDO_REDO,ss);
 	}
 	
-	/*package*/ void doSaveBook(boolean close){
+	/*package*/ void doSaveBook(final boolean close){
 		if(UiUtil.isRepositoryReadonly()){
 			return;
 		}
@@ -244,21 +269,34 @@ public class AppCtrl extends CtrlBase<Component>{
 			doSaveBookAs(close);
 			return;
 		}
-		BookRepository rep = getRepository();
-		try {
-			rep.save(selectedBookInfo, loadedBook);
-			UiUtil.showInfoMessage("Save book to "+selectedBookInfo.getName());
-			pushAppEvent(AppEvts.ON_SAVED_BOOK,loadedBook);
-			if(close){
-				doCloseBook();
-			}else{
-				updatePageInfo();
+		//saved in background, the book is closed once it is saved
+		final Book book = loadedBook;
+		getBookSaver().save(selectedBookInfo, book, ss.getDesktop(), new EventListener<Event>() {
+			public void onEvent(Event event) throws Exception {
+				onSavedBook(event, book, close);
 			}
-		} catch (IOException e) {
-			log.error(e.getMessage(),e);
+		});
+	}
+	
+	//the result of a background save, the user might have loaded another book in the meantime
+	private void onSavedBook(Event event, Book book, boolean close){
+		BookInfo info = BookSaver.ON_SAVE.equals(event.getName())?(BookInfo)event.getData():null;
+		if(info==null){
 			UiUtil.showWarnMessage("Can't save book");
 			return;
 		}
+		if(book!=loadedBook){
+			UiUtil.showInfoMessage("Save book to "+info.getName());
+			return;
+		}
+		selectedBookInfo = info;
+		pushAppEvent(AppEvts.ON_SAVED_BOOK,book);
+		if(close){
+			doCloseBook();
+		}else{
+			updatePageInfo();
+		}
+		UiUtil.showInfoMessage("Save book to "+info.getName());
 	}
 
 
@@ -281,21 +319,12 @@ public class AppCtrl extends CtrlBase<Component>{
 			public void onEvent(DlgCallbackEvent event) throws Exception {
 				if(SaveBookAsCtrl.ON_SAVE.equals(event.getName())){
 					String name = (String)event.getData(SaveBookAsCtrl.ARG_NAME);
-					BookRepository rep = getRepository();
-					try {
-						selectedBookInfo = rep.saveAs(name, loadedBook);
-						pushAppEvent(AppEvts.ON_SAVED_BOOK,loadedBook);
-						if(close){
-							doCloseBook();
-						}else{
-							updatePageInfo();
+					final Book book = loadedBook;
+					getBookSaver().saveAs(name, book, ss.getDesktop(), new EventListener<Event>() {
+						public void onEvent(Event event) throws Exception {
+							onSavedBook(event, book, close);
 						}
-						UiUtil.showInfoMessage("Save book to "+selectedBookInfo.getName());
-					} catch (IOException e) {
-						log.error(e.getMessage(),e);
-						UiUtil.showWarnMessage("Can't save book");
-						return;
-					}
+					});
 				}
 			}},name);
 	}
@@ -313,6 +342,7 @@ public class AppCtrl extends CtrlBase<Component>{
 			}
 		}
 		
+		releaseBook();
 		selectedBookInfo = info;
 		loadedBook = book;
 		